@@ -1,6 +1,7 @@
 package iudx.catalogue.server.apiserver;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.net.JksOptions;
@@ -12,13 +13,19 @@ import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.DecodeException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import iudx.catalogue.server.apiserver.util.AdmissionControl;
 import iudx.catalogue.server.apiserver.util.ExceptionHandler;
+import iudx.catalogue.server.apiserver.util.LogSampler;
+import iudx.catalogue.server.apiserver.util.RateLimiter;
 import iudx.catalogue.server.apiserver.util.ResponseHandler;
+import iudx.catalogue.server.apiserver.util.TracingHandler;
 import iudx.catalogue.server.authenticator.AuthenticationService;
 import iudx.catalogue.server.database.DatabaseService;
 import iudx.catalogue.server.validator.ValidatorService;
 import iudx.catalogue.server.geocoding.GeocodingService;
 import iudx.catalogue.server.nlpsearch.NLPSearchService;
+import iudx.catalogue.server.util.LocalJsonCodec;
+import iudx.catalogue.server.util.ServiceLocality;
 
 import static iudx.catalogue.server.apiserver.util.Constants.*;
 import static iudx.catalogue.server.util.Constants.*;
@@ -111,15 +118,24 @@ public class ApiServerVerticle extends AbstractVerticle {
     /** Todo
      *    - Set service proxies based on availability?
      **/
-    DatabaseService dbService 
-      = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
-
+    /* Requests to the database are passed by reference within the JVM, to the service of the
+     * node when it has one */
+    LocalJsonCodec.register(vertx);
+    DatabaseService dbService = ServiceLocality.createProxy(vertx, DatabaseService.class,
+        DATABASE_SERVICE_ADDRESS,
+        address -> DatabaseService.createProxy(vertx, address, LocalJsonCodec.deliveryOptions()));
+
+    crudApis.setVertx(vertx);
     crudApis.setDbService(dbService);
     listApis.setDbService(dbService);
     relApis.setDbService(dbService);
 
     AuthenticationService authService =
         AuthenticationService.createProxy(vertx, AUTH_SERVICE_ADDRESS);
+    /* The tokens it validates key the clients of the rate limiter */
+    if (config().containsKey(RATE_LIMIT)) {
+      authService = RateLimiter.validating(vertx, config().getJsonObject(RATE_LIMIT), authService);
+    }
     crudApis.setAuthService(authService);
 
     ValidatorService validationService =
@@ -147,11 +163,29 @@ public class ApiServerVerticle extends AbstractVerticle {
      * Routes - Defines the routes and callbacks
      */
     Router router = Router.router(vertx);
-    router.route().handler(BodyHandler.create());
     router.route().handler(
         CorsHandler.create("*")
                    .allowedHeaders(ALLOWED_HEADERS)
-                   .allowedMethods(ALLOWED_METHODS));
+                   .allowedMethods(ALLOWED_METHODS)
+                   .exposedHeaders(EXPOSED_HEADERS));
+    /* Starts the span of every request, when tracing */
+    router.route().handler(new TracingHandler());
+    /* Sets the log level of every request, when sampling */
+    boolean logSampling = config().containsKey(LOG_SAMPLING);
+    if (logSampling) {
+      router.route().handler(new LogSampler(vertx, config().getJsonObject(LOG_SAMPLING)));
+    }
+    /* Limits the rate of every client, when configured */
+    if (config().containsKey(RATE_LIMIT)) {
+      router.route().handler(new RateLimiter(vertx, config().getJsonObject(RATE_LIMIT)));
+    }
+    /* Sheds the requests over the adaptive limits, before reading their body */
+    router.route().handler(new AdmissionControl(vertx, config().getJsonObject(ADMISSION_CONTROL)));
+    router.route().handler(BodyHandler.create());
+    router.route().handler(TracingHandler::resume);
+    if (logSampling) {
+      router.route().handler(LogSampler::resume);
+    }
     
     router.route().handler(routingContext -> {
       routingContext.response()
@@ -238,6 +272,22 @@ public class ApiServerVerticle extends AbstractVerticle {
         }
       });
 
+    /* Patch Item - Query param contains id, body the merge patch */
+    router.patch(ROUTE_UPDATE_ITEMS)
+      .consumes(MIME_MERGE_PATCH_JSON)
+      .consumes(MIME_APPLICATION_JSON)
+      .produces(MIME_APPLICATION_JSON)
+      .handler(routingContext -> {
+        /* checking auhthentication info in requests */
+        if (routingContext.request().headers().contains(HEADER_TOKEN) &&
+            routingContext.queryParams().contains(ID)) {
+          crudApis.patchItemHandler(routingContext);
+        } else {
+          LOGGER.warn("Unathorized CRUD operation");
+          routingContext.response().setStatusCode(401).end();
+        }
+      });
+
     /* Delete Item - Query param contains id */
     router.delete(ROUTE_DELETE_ITEMS)
       .produces(MIME_APPLICATION_JSON)
@@ -253,6 +303,47 @@ public class ApiServerVerticle extends AbstractVerticle {
         }
       });
 
+    /* Delete subtree / change subtree status - Query param contains id */
+    router.route(ROUTE_SUBTREE)
+      .method(HttpMethod.DELETE)
+      .method(HttpMethod.PUT)
+      .produces(MIME_APPLICATION_JSON)
+      .handler(routingContext -> {
+        /* checking auhthentication info in requests */
+        if (routingContext.request().headers().contains(HEADER_TOKEN) &&
+            routingContext.queryParams().contains(ID)) {
+          crudApis.subtreeHandler(routingContext);
+        } else {
+          LOGGER.warn("Unathorized CRUD operation");
+          routingContext.response().setStatusCode(401).end();
+        }
+      });
+
+    /* Subtree job status */
+    router.get(ROUTE_JOBS)
+      .produces(MIME_APPLICATION_JSON)
+      .handler(routingContext -> {
+        /* checking auhthentication info in requests */
+        if (routingContext.request().headers().contains(HEADER_TOKEN)) {
+          crudApis.jobStatusHandler(routingContext);
+        } else {
+          LOGGER.warn("Unathorized CRUD operation");
+          routingContext.response().setStatusCode(401).end();
+        }
+      });
+
+    /* Statistics of the database requests by shape, to the admin */
+    router.get(ROUTE_QUERY_STATS)
+      .produces(MIME_APPLICATION_JSON)
+      .handler(routingContext -> {
+        if (routingContext.request().headers().contains(HEADER_TOKEN)) {
+          crudApis.queryStatsHandler(routingContext, catAdmin);
+        } else {
+          LOGGER.warn("Fail: Unathorized admin operation");
+          routingContext.response().setStatusCode(401).end();
+        }
+      });
+
     /* Create instance - Instance name in query param */
     router.post(ROUTE_INSTANCE)
       .produces(MIME_APPLICATION_JSON)
@@ -305,6 +396,21 @@ public class ApiServerVerticle extends AbstractVerticle {
         searchApis.searchHandler(routingContext);
       });
 
+    /* Batch of search/count requests */
+    router.post(ROUTE_BATCH_SEARCH)
+      .consumes(MIME_APPLICATION_JSON)
+      .produces(MIME_APPLICATION_JSON)
+      .handler( routingContext -> {
+        searchApis.batchSearchHandler(routingContext);
+      });
+
+    /* Facet counts of the Cataloque server items */
+    router.get(ROUTE_FACETS)
+      .produces(MIME_APPLICATION_JSON)
+      .handler( routingContext -> {
+        searchApis.facetHandler(routingContext);
+      });
+
 
     /**
      * Routes for list
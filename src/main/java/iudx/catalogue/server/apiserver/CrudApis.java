@@ -11,12 +11,17 @@ import org.apache.logging.log4j.Logger;
 import java.util.Arrays;
 
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.HashSet;
 
@@ -26,6 +31,12 @@ import iudx.catalogue.server.database.DatabaseService;
 import iudx.catalogue.server.validator.ValidatorService;
 import iudx.catalogue.server.apiserver.util.ResponseHandler;
 import iudx.catalogue.server.authenticator.AuthenticationService;
+import iudx.catalogue.server.util.StageTimer;
+
+import static iudx.catalogue.server.util.StageTimer.API_AUTH;
+import static iudx.catalogue.server.util.StageTimer.API_DATABASE;
+import static iudx.catalogue.server.util.StageTimer.API_LINKS;
+import static iudx.catalogue.server.util.StageTimer.API_SCHEMA;
 
 
 public final class CrudApis {
@@ -34,9 +45,19 @@ public final class CrudApis {
   private DatabaseService dbService;
   private AuthenticationService authService;
   private ValidatorService validatorService;
+  private Vertx vertx;
 
   private static final Logger LOGGER = LogManager.getLogger(CrudApis.class);
 
+  private static final Pattern INVALID_ID_PATTERN = Pattern.compile("[<>;=]");
+
+  /* ETag of an item version, "<_seq_no>.<_primary_term>" of its doc */
+  private static final Pattern ETAG_PATTERN = Pattern.compile("^\"(\\d+\\.\\d+)\"$");
+
+  /* Cluster-wide map of the subtree jobs started by the catalogue to their provider */
+  private static final String JOBS_MAP = "catalogue-subtree-jobs";
+  private static final long JOB_TTL = 7L * 24 * 60 * 60 * 1000;
+
 
   /**
    * Crud  constructor
@@ -60,6 +81,10 @@ public final class CrudApis {
     this.validatorService = validatorService;
   }
 
+  public void setVertx(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
   /**
    * Create/Update Item
    *
@@ -91,18 +116,28 @@ public final class CrudApis {
     type.retainAll(ITEM_TYPES);
     String itemType = type.toString().replaceAll("\\[", "").replaceAll("\\]", "");
 
-    LOGGER.debug("Info: itemType;" + itemType);
+    LOGGER.debug("Info: itemType;{}", itemType);
 
     /* checking the operation type */
     String methodType =
         routingContext.request().method().toString() == REQUEST_POST ? INSERT : UPDATE;
 
+    /* An update is only applied to the version in If-Match, if any; a create ignores it */
+    String version = methodType.equals(INSERT) ? "" : ifMatch(request);
+    if (version == null) {
+      LOGGER.error("Fail: Invalid If-Match header");
+      response.setStatusCode(400)
+              .end(new ResponseHandler.Builder().withStatus(INVALID_VALUE).build().toJsonString());
+      return;
+    }
+
     /**
      * Start insertion flow 
      **/
 
     /** Json schema validate item */
-    validatorService.validateSchema(requestBody, schValHandler -> {
+    validatorService.validateSchema(requestBody,
+        StageTimer.start(API_SCHEMA).itemType(itemType).stopping(schValHandler -> {
       if (schValHandler.failed()) {
         // response.setStatusCode(400).end(schValHandler.cause().getMessage());
         response.setStatusCode(400)
@@ -126,10 +161,11 @@ public final class CrudApis {
           authRequest.put(PROVIDER, requestBody.getString(PROVIDER));
         }
 
-        LOGGER.debug("Info: AuthRequest;" + authRequest.toString());
+        LOGGER.debug("Info: AuthRequest;{}", authRequest);
 
         /** Introspect token and authorize operation */
-        authService.tokenInterospect(authRequest, authenticationInfo, authhandler -> {
+        authService.tokenInterospect(authRequest, authenticationInfo,
+            StageTimer.start(API_AUTH).itemType(itemType).stopping(authhandler -> {
           if (authhandler.failed()) {
             LOGGER.error("Error: Invalid token");
             response.setStatusCode(401)
@@ -158,7 +194,8 @@ public final class CrudApis {
             LOGGER.debug("Success: Authenticated item creation request");
 
             /* Link Validating the request to ensure item correctness */
-            validatorService.validateItem(requestBody, valhandler -> {
+            validatorService.validateItem(requestBody,
+                StageTimer.start(API_LINKS).itemType(itemType).stopping(valhandler -> {
               if (valhandler.failed()) {
                 LOGGER.error("Fail: Item validation failed;" + valhandler.cause().getMessage());
                 response.setStatusCode(400)
@@ -177,7 +214,8 @@ public final class CrudApis {
                 if (routingContext.request().method().toString() == REQUEST_POST) {
                   /* Requesting database service, creating a item */
                   LOGGER.debug("Info: Inserting item");
-                  dbService.createItem(valhandler.result(), dbhandler -> {
+                  dbService.createItem(valhandler.result(),
+                      StageTimer.start(API_DATABASE).itemType(itemType).stopping(dbhandler -> {
                     if (dbhandler.failed()) {
                       LOGGER.error("Fail: Item creation;" + dbhandler.cause().getMessage());
                       response.setStatusCode(400)
@@ -186,32 +224,189 @@ public final class CrudApis {
                     if (dbhandler.succeeded()) {
                       LOGGER.info("Success: Item created;");
                       response.setStatusCode(201)
-                              .end(dbhandler.result().toString());
+                              .end(withETag(response, dbhandler.result()));
                     }
-                  });
+                  }));
                 } else {
                   LOGGER.debug("Info: Updating item");
                   /* Requesting database service, creating a item */
-                  dbService.updateItem(valhandler.result(), dbhandler -> {
+                  JsonObject item = valhandler.result();
+                  if (!version.isEmpty()) {
+                    item.put(IF_MATCH, version);
+                  }
+                  dbService.updateItem(item,
+                      StageTimer.start(API_DATABASE).itemType(itemType).stopping(dbhandler -> {
                     if (dbhandler.succeeded()) {
                       LOGGER.info("Success: Item updated;");
                       response.setStatusCode(200)
-                              .end(dbhandler.result().toString());
+                              .end(withETag(response, dbhandler.result()));
                     } else if (dbhandler.failed()) {
                       LOGGER.error("Fail: Item update;" + dbhandler.cause().getMessage());
-                      response.setStatusCode(400)
-                          .end(dbhandler.cause().getMessage());
+                      if (!endConflict(response, dbhandler.cause().getMessage())) {
+                        response.setStatusCode(400)
+                            .end(dbhandler.cause().getMessage());
+                      }
                     }
-                  });
+                  }));
                 }
               }
-            });
+            }));
           } 
-        });
+        }));
+      }
+    }));
+  }
+
+  /**
+   * Patch Item - JSON merge patch of the item in the query param
+   *
+   * @param context {@link RoutingContext}
+   */
+  public void patchItemHandler(RoutingContext routingContext) {
+
+    HttpServerRequest request = routingContext.request();
+    HttpServerResponse response = routingContext.response();
+    response.putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON);
+
+    String itemId = routingContext.queryParams().get(ID);
+    JsonObject patch = null;
+    try {
+      patch = routingContext.getBodyAsJson();
+    } catch (Exception e) {
+      LOGGER.error("Fail: Invalid patch;" + e.getMessage());
+    }
+
+    LOGGER.debug("Info: Patching item; id={}", itemId);
+
+    String version = ifMatch(request);
+    if (patch == null || patch.isEmpty() || itemId == null || validateId(itemId)
+        || itemId.split("/").length < 2 || version == null) {
+      LOGGER.error("Fail: Invalid request payload");
+      response.setStatusCode(400)
+              .end(new ResponseHandler.Builder().withStatus(INVALID_VALUE).build().toJsonString());
+      return;
+    }
+    JsonObject requestBody = new JsonObject().put(ID, itemId).put(PATCH, patch);
+    if (!version.isEmpty()) {
+      requestBody.put(IF_MATCH, version);
+    }
+
+    /* The patched attributes are validated first, the patched item once authorized */
+    validatorService.validatePatch(patch, StageTimer.start(API_SCHEMA).stopping(valHandler -> {
+      if (valHandler.failed()) {
+        response.setStatusCode(400)
+                .end(new ResponseHandler.Builder()
+                                        .withStatus(FAILED)
+                                        .withResults(itemId, UPDATE, FAILED,
+                                            valHandler.cause().getMessage())
+                                        .build()
+                                        .toJsonString());
+        return;
+      }
+
+      String providerId = String.join("/", Arrays.copyOfRange(itemId.split("/"), 0, 2));
+      JsonObject authRequest = new JsonObject().put(PROVIDER, providerId);
+      JsonObject authenticationInfo = new JsonObject()
+          .put(HEADER_TOKEN, request.getHeader(HEADER_TOKEN))
+          .put(OPERATION, request.method().toString());
+
+      authService.tokenInterospect(authRequest, authenticationInfo,
+          StageTimer.start(API_AUTH).stopping(authhandler -> {
+        if (authhandler.failed() || !authhandler.result().getString(STATUS).equals(SUCCESS)) {
+          LOGGER.error("Fail: Unathorized request");
+          response.setStatusCode(401)
+              .end(new ResponseHandler.Builder().withStatus(FAILED)
+                  .withResults(itemId, UPDATE, ERROR, authhandler.failed()
+                      ? authhandler.cause().getMessage()
+                      : authhandler.result().getString(MESSAGE))
+                  .build()
+                  .toJsonString());
+          return;
+        }
+        patchValidItem(routingContext, requestBody);
+      }));
+    }));
+  }
+
+  /* Validates the patched item against the schema of its type, and writes the patch only if the
+   * item hasn't changed since; without If-Match, on the version which was validated */
+  private void patchValidItem(RoutingContext routingContext, JsonObject requestBody) {
+
+    HttpServerResponse response = routingContext.response();
+    String itemId = requestBody.getString(ID);
+    JsonObject patch = requestBody.getJsonObject(PATCH);
+
+    dbService.getItem(new JsonObject().put(ID, itemId), getHandler -> {
+      if (getHandler.failed()) {
+        LOGGER.error("Fail: Item patch;" + getHandler.cause().getMessage());
+        response.setStatusCode(400).end(getHandler.cause().getMessage());
+        return;
       }
+      if (getHandler.result().getInteger(TOTAL_HITS, 0) == 0) {
+        LOGGER.error("Fail: Doc doesn't exist, can't patch");
+        response.setStatusCode(404)
+            .end(new ResponseHandler.Builder().withStatus(ERROR)
+                .withResults(itemId, UPDATE, FAILED, "Fail: Doc doesn't exist, can't patch")
+                .build()
+                .toJsonString());
+        return;
+      }
+      JsonObject item = mergePatch(
+          getHandler.result().getJsonArray(RESULTS).getJsonObject(0).copy(), patch);
+      /* The enrichment fields aren't part of the schema */
+      item.fieldNames().removeIf(attribute -> attribute.startsWith("_"));
+      if (!requestBody.containsKey(IF_MATCH) && getHandler.result().getString(VERSION) != null) {
+        requestBody.put(IF_MATCH, getHandler.result().getString(VERSION));
+      }
+
+      validatorService.validateSchema(item, StageTimer.start(API_SCHEMA).stopping(valHandler -> {
+        if (valHandler.failed()) {
+          LOGGER.error("Fail: Patched item invalid;" + valHandler.cause().getMessage());
+          response.setStatusCode(400)
+              .end(new ResponseHandler.Builder().withStatus(FAILED)
+                  .withResults(itemId, UPDATE, FAILED, valHandler.cause().getMessage())
+                  .build()
+                  .toJsonString());
+          return;
+        }
+        dbService.patchItem(requestBody, StageTimer.start(API_DATABASE).stopping(dbhandler -> {
+          if (dbhandler.succeeded()) {
+            LOGGER.info("Success: Item patched;");
+            response.setStatusCode(200).end(withETag(response, dbhandler.result()));
+          } else {
+            LOGGER.error("Fail: Item patch;" + dbhandler.cause().getMessage());
+            if (!endConflict(response, dbhandler.cause().getMessage())) {
+              response.setStatusCode(400).end(dbhandler.cause().getMessage());
+            }
+          }
+        }));
+      }));
     });
   }
 
+  /**
+   * Applies a JSON merge patch (RFC 7396) to an item, as the database does.
+   *
+   * @param target the item, modified
+   * @param patch the merge patch
+   * @return the target
+   */
+  static JsonObject mergePatch(JsonObject target, JsonObject patch) {
+    for (String attribute : patch.fieldNames()) {
+      Object value = patch.getValue(attribute);
+      if (value == null) {
+        target.remove(attribute);
+      } else if (value instanceof JsonObject) {
+        Object current = target.getValue(attribute);
+        target.put(attribute, mergePatch(current instanceof JsonObject
+            ? (JsonObject) current : new JsonObject(), (JsonObject) value));
+      } else {
+        target.put(attribute, value);
+      }
+    }
+    return target;
+  }
+
   /**
    * Get Item
    *
@@ -226,7 +421,7 @@ public final class CrudApis {
 
     String itemId = routingContext.queryParams().get(ID);
 
-    LOGGER.debug("Info: Getting item; id=" + itemId);
+    LOGGER.debug("Info: Getting item; id={}", itemId);
 
     JsonObject requestBody = new JsonObject().put(ID, itemId);
     response.putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON);
@@ -243,7 +438,7 @@ public final class CrudApis {
           } else {
             LOGGER.info("Success: Retreived item");
             response.setStatusCode(200)
-                    .end(dbhandler.result().toString());
+                    .end(withETag(response, dbhandler.result()));
           }
         } else if (dbhandler.failed()) {
           LOGGER.error("Fail: Item not found;" + dbhandler.cause().getMessage());
@@ -284,11 +479,11 @@ public final class CrudApis {
     String itemId = routingContext.queryParams().get(ID);
     requestBody.put(ID, itemId);
 
-    LOGGER.debug("Info: Deleting item; id=" + itemId);
+    LOGGER.debug("Info: Deleting item; id={}", itemId);
 
     if (validateId(itemId) == false) {
       String providerId = String.join("/", Arrays.copyOfRange(itemId.split("/"), 0, 2));
-      LOGGER.debug("Info: Provider ID is  " + providerId);
+      LOGGER.debug("Info: Provider ID is  {}", providerId);
 
       JsonObject authRequest = new JsonObject().put(PROVIDER, providerId);
       authenticationInfo.put(HEADER_TOKEN, request.getHeader(HEADER_TOKEN)).put(OPERATION,
@@ -333,6 +528,150 @@ public final class CrudApis {
     }
   }
 
+  /**
+   * Delete an item and all its descendants, or change their itemStatus, in a background job
+   *
+   * @param context {@link RoutingContext}
+   */
+  public void subtreeHandler(RoutingContext routingContext) {
+
+    HttpServerRequest request = routingContext.request();
+    HttpServerResponse response = routingContext.response();
+    response.putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON);
+
+    String itemId = routingContext.queryParams().get(ID);
+    boolean isDelete = request.method().toString().equals(REQUEST_DELETE);
+    String method = isDelete ? DELETE : UPDATE;
+    JsonObject requestBody = new JsonObject().put(ID, itemId);
+    if (!isDelete) {
+      requestBody.put(ITEM_STATUS_KEY, routingContext.queryParams().get(ITEM_STATUS_KEY));
+    }
+
+    LOGGER.debug("Info: Subtree {}; id={}", method, itemId);
+
+    if (itemId == null || validateId(itemId) || itemId.split("/").length < 2) {
+      LOGGER.error("Fail: Invalid request payload");
+      response.setStatusCode(400)
+              .end(new ResponseHandler.Builder().withStatus(INVALID_VALUE).build().toJsonString());
+      return;
+    }
+
+    String providerId = String.join("/", Arrays.copyOfRange(itemId.split("/"), 0, 2));
+    JsonObject authRequest = new JsonObject().put(PROVIDER, providerId);
+    JsonObject authenticationInfo = new JsonObject()
+        .put(HEADER_TOKEN, request.getHeader(HEADER_TOKEN))
+        .put(OPERATION, request.method().toString());
+
+    /* Authenticating the request */
+    authService.tokenInterospect(authRequest, authenticationInfo, authhandler -> {
+      if (authhandler.failed() || !authhandler.result().getString(STATUS).equals(SUCCESS)) {
+        LOGGER.error("Fail: Unathorized request");
+        response.setStatusCode(401)
+            .end(new ResponseHandler.Builder().withStatus(FAILED)
+                .withResults(itemId, method, ERROR, authhandler.failed()
+                    ? authhandler.cause().getMessage()
+                    : authhandler.result().getString(MESSAGE))
+                .build()
+                .toJsonString());
+        return;
+      }
+      LOGGER.debug("Success: Authenticated subtree request");
+      Handler<AsyncResult<JsonObject>> dbhandler = dbResult -> {
+        if (dbResult.succeeded()) {
+          LOGGER.info("Success: Subtree job accepted;");
+          /* Only the provider of the subtree may read the status of its job */
+          String jobId = dbResult.result().getJsonArray(RESULTS).getJsonObject(0)
+                                 .getString(JOB_ID);
+          vertx.sharedData().<String, String>getAsyncMap(JOBS_MAP, mapRes -> {
+            if (mapRes.failed()) {
+              LOGGER.error("Fail: Jobs map unavailable;" + mapRes.cause().getMessage());
+              response.setStatusCode(202).end(dbResult.result().toString());
+              return;
+            }
+            mapRes.result().put(jobId, providerId, JOB_TTL, putRes -> {
+              if (putRes.failed()) {
+                LOGGER.error("Fail: Job not recorded;" + putRes.cause().getMessage());
+              }
+              response.setStatusCode(202).end(dbResult.result().toString());
+            });
+          });
+        } else {
+          response.setStatusCode(400).end(dbResult.cause().getMessage());
+        }
+      };
+      if (isDelete) {
+        dbService.deleteSubtree(requestBody, dbhandler);
+      } else {
+        dbService.updateSubtreeStatus(requestBody, dbhandler);
+      }
+    });
+  }
+
+  /**
+   * Progress of a subtree job, to the provider of its subtree
+   *
+   * @param context {@link RoutingContext}
+   */
+  public void jobStatusHandler(RoutingContext routingContext) {
+
+    HttpServerRequest request = routingContext.request();
+    HttpServerResponse response = routingContext.response();
+    response.putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON);
+
+    String jobId = routingContext.pathParam(JOB_ID);
+    JsonObject requestBody = new JsonObject().put(JOB_ID, jobId);
+    String notFound = new ResponseHandler.Builder().withStatus(ERROR)
+        .withResults(jobId, REQUEST_GET, FAILED, "Fail: Job doesn't exist")
+        .build()
+        .toJsonString();
+
+    /* Only the jobs started by the catalogue are known, with their provider */
+    vertx.sharedData().<String, String>getAsyncMap(JOBS_MAP, mapRes -> {
+      if (mapRes.failed()) {
+        LOGGER.error("Fail: Jobs map unavailable;" + mapRes.cause().getMessage());
+        response.setStatusCode(500).end(new ResponseHandler.Builder()
+            .withStatus(FAILED).withResults(jobId, REQUEST_GET, ERROR, INTERNAL_SERVER_ERROR)
+            .build().toJsonString());
+        return;
+      }
+      mapRes.result().get(jobId, ownerRes -> {
+        if (ownerRes.failed() || ownerRes.result() == null) {
+          LOGGER.error("Fail: Unknown job;{}", jobId);
+          response.setStatusCode(404).end(notFound);
+          return;
+        }
+        JsonObject authenticationInfo = new JsonObject()
+            .put(HEADER_TOKEN, request.getHeader(HEADER_TOKEN))
+            .put(OPERATION, request.method().toString());
+        authService.tokenInterospect(new JsonObject().put(PROVIDER, ownerRes.result()),
+            authenticationInfo, authhandler -> {
+          if (authhandler.failed() || !authhandler.result().getString(STATUS).equals(SUCCESS)) {
+            String message = authhandler.failed() ? authhandler.cause().getMessage()
+                : authhandler.result().getString(MESSAGE);
+            LOGGER.error("Fail: Unathorized request;" + message);
+            response.setStatusCode(401)
+                .end(new ResponseHandler.Builder().withStatus(FAILED)
+                    .withResults(jobId, REQUEST_GET, ERROR, message)
+                    .build()
+                    .toJsonString());
+            return;
+          }
+          dbService.getJobStatus(requestBody, dbhandler -> {
+            if (dbhandler.succeeded()) {
+              if (dbhandler.result().getString(STATUS).equals(SUCCESS)) {
+                response.setStatusCode(200).end(dbhandler.result().toString());
+              } else {
+                response.setStatusCode(404).end(dbhandler.result().toString());
+              }
+            } else {
+              response.setStatusCode(400).end(dbhandler.cause().getMessage());
+            }
+          });
+        });
+      });
+    });
+  }
+
   public void createInstanceHandler(RoutingContext routingContext, String catAdmin) {
 
     LOGGER.debug("Info: Creating new instance");
@@ -391,7 +730,7 @@ public final class CrudApis {
           if (res.succeeded()) {
             LOGGER.info("Success: Instance created;");
             response.setStatusCode(201)
-              .end(res.result().toString());
+              .end(withETag(response, res.result()));
           } else {
             LOGGER.error("Fail: Creating instance");
             response.setStatusCode(400).end(res.cause().getMessage());
@@ -452,6 +791,7 @@ public final class CrudApis {
       else if (authhandler.result().getString(STATUS).equals(SUCCESS)) {
         /* INSTANCE = "" to make sure createItem can be used for onboarding instance and items */
         JsonObject body = new JsonObject().put(ID, instance)
+                                          .put(TYPE, new JsonArray().add(ITEM_TYPE_INSTANCE))
                                           .put(INSTANCE, "");
         dbService.deleteItem(body, res -> {
           if (res.succeeded()) {
@@ -465,6 +805,57 @@ public final class CrudApis {
     });
   }
 
+  /**
+   * Reports the statistics of the database requests by their shape, to the admin.
+   *
+   * @param routingContext {@link RoutingContext}, with the limit and sortBy query params
+   * @param catAdmin provider id of the admin
+   */
+  public void queryStatsHandler(RoutingContext routingContext, String catAdmin) {
+
+    HttpServerResponse response = routingContext.response();
+    HttpServerRequest request = routingContext.request();
+    response.putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON);
+
+    JsonObject statsRequest = new JsonObject()
+        .put(SORT_BY, routingContext.queryParams().get(SORT_BY));
+    try {
+      String limit = routingContext.queryParams().get(LIMIT);
+      statsRequest.put(LIMIT, limit == null ? 10 : Integer.parseInt(limit));
+    } catch (NumberFormatException e) {
+      response.setStatusCode(400)
+          .end(new ResponseHandler.Builder().withStatus(INVALID_VALUE).build().toJsonString());
+      return;
+    }
+
+    JsonObject authenticationInfo = new JsonObject()
+        .put(HEADER_TOKEN, request.getHeader(HEADER_TOKEN))
+        .put(OPERATION, request.method().toString());
+    authService.tokenInterospect(new JsonObject().put(PROVIDER, catAdmin), authenticationInfo,
+        authhandler -> {
+      if (authhandler.failed() || !authhandler.result().getString(STATUS).equals(SUCCESS)) {
+        String message = authhandler.failed() ? authhandler.cause().getMessage()
+            : authhandler.result().getString(MESSAGE);
+        LOGGER.error("Fail: Authentication;" + message);
+        response.setStatusCode(401)
+            .end(new ResponseHandler.Builder()
+                                    .withStatus(FAILED)
+                                    .withResults(null, REQUEST_GET, ERROR, message)
+                                    .build()
+                                    .toJsonString());
+        return;
+      }
+      dbService.queryStats(statsRequest, dbhandler -> {
+        if (dbhandler.succeeded()) {
+          response.setStatusCode(200).end(dbhandler.result().toString());
+        } else {
+          LOGGER.error("Fail: Query statistics;" + dbhandler.cause().getMessage());
+          response.setStatusCode(500).end(dbhandler.cause().getMessage());
+        }
+      });
+    });
+  }
+
   /**
    * Check if the itemId contains certain invalid characters.
    * 
@@ -472,9 +863,60 @@ public final class CrudApis {
    * @return
    */
   private boolean validateId(String itemId) {
-    Pattern pattern = Pattern.compile("[<>;=]");
-    boolean flag = pattern.matcher(itemId).find();
+    return INVALID_ID_PATTERN.matcher(itemId).find();
+  }
+
+  /**
+   * Version of the If-Match header of a conditional write; "*" matches any version.
+   * 
+   * @param request
+   * @return the version; empty if the write is unconditional, null if the header is invalid
+   */
+  private static String ifMatch(HttpServerRequest request) {
+    String ifMatch = request.getHeader(HEADER_IF_MATCH);
+    if (ifMatch == null || ifMatch.trim().equals("*")) {
+      return "";
+    }
+    Matcher matcher = ETAG_PATTERN.matcher(ifMatch.trim());
+    return matcher.matches() ? matcher.group(1) : null;
+  }
 
-    return flag;
+  /**
+   * Moves the version of a database response to the ETag header.
+   * 
+   * @param response
+   * @param result of the database service
+   * @return the response body
+   */
+  private static String withETag(HttpServerResponse response, JsonObject result) {
+    Object version = result.remove(VERSION);
+    if (version != null) {
+      response.putHeader(HEADER_ETAG, "\"" + version + "\"");
+    }
+    return result.toString();
+  }
+
+  /**
+   * Ends a conditional write on an item which has changed, with 409 and the current ETag.
+   * 
+   * @param response
+   * @param cause of the database service failure
+   * @return whether the failure was a version conflict
+   */
+  private static boolean endConflict(HttpServerResponse response, String cause) {
+    if (cause == null) {
+      return false;
+    }
+    JsonObject failure;
+    try {
+      failure = new JsonObject(cause);
+    } catch (DecodeException e) {
+      return false;
+    }
+    if (!CONFLICT.equals(failure.getString(STATUS))) {
+      return false;
+    }
+    response.setStatusCode(409).end(withETag(response, failure));
+    return true;
   }
 }
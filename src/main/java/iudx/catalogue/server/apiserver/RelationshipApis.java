@@ -80,7 +80,7 @@ public final class RelationshipApis {
              */
             dbService.listRelationship(requestBody, dbhandler -> {
               if (dbhandler.succeeded()) {
-                LOGGER.info("Success: Retrieved relationships of " + itemType);
+                LOGGER.info("Success: Retrieved relationships of {}", itemType);
                 response.setStatusCode(200).end(dbhandler.result().toString());
               } else if (dbhandler.failed()) {
                 LOGGER
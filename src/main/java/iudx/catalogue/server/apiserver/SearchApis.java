@@ -9,6 +9,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import iudx.catalogue.server.apiserver.util.ResponseHandler;
 import io.vertx.ext.web.RoutingContext;
@@ -21,9 +23,14 @@ import iudx.catalogue.server.database.DatabaseService;
 import iudx.catalogue.server.apiserver.util.QueryMapper;
 import iudx.catalogue.server.geocoding.GeocodingService;
 import iudx.catalogue.server.nlpsearch.NLPSearchService;
+import iudx.catalogue.server.util.SearchType;
+import iudx.catalogue.server.util.StageTimer;
 
 import static iudx.catalogue.server.apiserver.util.Constants.*;
 import static iudx.catalogue.server.util.Constants.*;
+import static iudx.catalogue.server.util.StageTimer.API_DATABASE;
+import static iudx.catalogue.server.util.StageTimer.API_GEOCODE;
+import static iudx.catalogue.server.util.StageTimer.API_NLP;
 
 
 public final class SearchApis {
@@ -77,7 +84,18 @@ public final class SearchApis {
     MultiMap queryParameters = routingContext.queryParams();
 
     LOGGER.debug("Info: routed to search/count");
-    LOGGER.debug("Info: instance;" + instanceID);
+    LOGGER.debug("Info: instance;{}", instanceID);
+
+    /* every search started has all its parameters */
+    String invalidParams = QueryMapper.checkSearchParams(queryParameters, false);
+    if (invalidParams != null) {
+      LOGGER.error("Fail: Invalid search parameters");
+      response.setStatusCode(400)
+        .end(new ResponseHandler.Builder()
+                                .withStatus(invalidParams)
+                                .build().toJsonString());
+      return;
+    }
 
     /* validating proper actual query parameters from request */
     if ((request.getParam(PROPERTY) == null || request.getParam(VALUE) == null)
@@ -126,8 +144,9 @@ public final class SearchApis {
       JsonObject resp = QueryMapper.validateQueryParam(requestBody);
       if (resp.getString(STATUS).equals(SUCCESS)) {
 
+        StageTimer timer = StageTimer.start(API_DATABASE).searchType(SearchType.of(requestBody));
         if (path.equals(ROUTE_SEARCH)) {
-          dbService.searchQuery(requestBody, handler -> {
+          dbService.searchQuery(requestBody, timer.stopping(handler -> {
             if (handler.succeeded()) {
               JsonObject resultJson = handler.result();
               String status = resultJson.getString(STATUS);
@@ -146,9 +165,9 @@ public final class SearchApis {
               LOGGER.error("Fail: Search;" + handler.cause().getMessage());
               response.setStatusCode(400).end(handler.cause().getMessage());
             }
-          });
+          }));
         } else {
-          dbService.countQuery(requestBody, handler -> {
+          dbService.countQuery(requestBody, timer.stopping(handler -> {
             if (handler.succeeded()) {
               JsonObject resultJson = handler.result();
               String status = resultJson.getString(STATUS);
@@ -168,7 +187,7 @@ public final class SearchApis {
               response.setStatusCode(400)
                       .end(handler.cause().getMessage());
             }
-          });
+          }));
         }
       } else {
         LOGGER.error("Fail: Search/Count; Invalid request query parameters");
@@ -185,6 +204,175 @@ public final class SearchApis {
 
   }
 
+  /**
+   * Processes the facet requests and returns the value counts of the requested fields for the
+   * items matching the (optional) attribute, geoSpatial, and text search parameters.
+   *
+   * @param routingContext Handles web request in Vert.x web
+   */
+  public void facetHandler(RoutingContext routingContext) {
+
+    HttpServerRequest request = routingContext.request();
+    HttpServerResponse response = routingContext.response();
+    response.putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON);
+
+    /* HTTP request instance/host details */
+    String instanceID = request.getHeader(HEADER_INSTANCE);
+
+    LOGGER.debug("Info: routed to facets");
+    LOGGER.debug("Info: instance;{}", instanceID);
+
+    if (request.getParam(FACETS) == null || request.getParam(FACETS).isBlank()) {
+      LOGGER.error("Fail: Invalid Syntax");
+      response.setStatusCode(400)
+        .end(new ResponseHandler.Builder()
+                                .withStatus(INVALID_SYNTAX)
+                                .build().toJsonString());
+      return;
+    }
+
+    /* The search parameters are optional, but complete if any */
+    String invalidParams = QueryMapper.checkSearchParams(routingContext.queryParams(), true);
+    if (invalidParams != null) {
+      LOGGER.error("Fail: Facets; Invalid search parameters");
+      response.setStatusCode(400)
+        .end(new ResponseHandler.Builder()
+                                .withStatus(invalidParams)
+                                .build().toJsonString());
+      return;
+    }
+
+    JsonObject requestBody = QueryMapper.map2Json(routingContext.queryParams());
+    if (requestBody == null) {
+      LOGGER.error("Fail: Facets; Invalid request query parameters");
+      response.setStatusCode(400)
+              .end(new ResponseHandler.Builder()
+                                      .withStatus(INVALID_SYNTAX)
+                                      .build().toJsonString());
+      return;
+    }
+    requestBody.put(HEADER_INSTANCE, instanceID);
+
+    JsonObject resp = QueryMapper.validateQueryParam(requestBody);
+    if (!resp.getString(STATUS).equals(SUCCESS)) {
+      LOGGER.error("Fail: Facets; Invalid request query parameters");
+      response.setStatusCode(400)
+              .end(resp.toString());
+      return;
+    }
+
+    dbService.facetQuery(requestBody, handler -> {
+      if (handler.succeeded()) {
+        JsonObject resultJson = handler.result();
+        String status = resultJson.getString(STATUS);
+        if (status.equalsIgnoreCase(SUCCESS)) {
+          LOGGER.info("Success: facet query");
+          response.setStatusCode(200);
+        } else {
+          LOGGER.error("Fail: facet query");
+          response.setStatusCode(400);
+        }
+        response.end(resultJson.toString());
+      } else if (handler.failed()) {
+        LOGGER.error("Fail: Facets;" + handler.cause().getMessage());
+        response.setStatusCode(400)
+                .end(handler.cause().getMessage());
+      }
+    });
+  }
+
+  /**
+   * Processes a batch of search and count requests and returns the results of every request, in
+   * the order of the batch, from a single database request. Each entry of the batch is of the form
+   * {"method": "search"|"count", "params": {...}} where params are the query parameters of the
+   * corresponding search/count API.
+   *
+   * @param routingContext Handles web request in Vert.x web
+   */
+  public void batchSearchHandler(RoutingContext routingContext) {
+
+    HttpServerRequest request = routingContext.request();
+    HttpServerResponse response = routingContext.response();
+    response.putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON);
+
+    /* HTTP request instance/host details */
+    String instanceID = request.getHeader(HEADER_INSTANCE);
+
+    LOGGER.debug("Info: routed to search/batch");
+
+    JsonArray batch;
+    try {
+      batch = routingContext.getBodyAsJsonArray();
+    } catch (Exception e) {
+      batch = null;
+    }
+    if (batch == null || batch.isEmpty() || batch.size() > BATCH_SIZE) {
+      LOGGER.error("Fail: Invalid batch");
+      response.setStatusCode(400)
+        .end(new ResponseHandler.Builder()
+                                .withStatus(INVALID_SYNTAX)
+                                .build().toJsonString());
+      return;
+    }
+
+    JsonArray requests = new JsonArray();
+    for (Object item : batch) {
+      requests.add(batchEntry(item, instanceID));
+    }
+
+    dbService.batchQuery(requests, handler -> {
+      if (handler.succeeded()) {
+        LOGGER.info("Success: batch query");
+        response.setStatusCode(200)
+                .end(handler.result().toString());
+      } else {
+        LOGGER.error("Fail: Batch;" + handler.cause().getMessage());
+        response.setStatusCode(400)
+                .end(handler.cause().getMessage());
+      }
+    });
+  }
+
+  /**
+   * Maps and validates one entry of a batch request.
+   *
+   * @param item entry of the batch
+   * @param instanceID instance header of the batch request
+   * @return the search/count request, or a failed status with its description
+   */
+  private JsonObject batchEntry(Object item, String instanceID) {
+
+    JsonObject failed = new JsonObject().put(STATUS, FAILED);
+    if (!(item instanceof JsonObject)) {
+      return failed.put(DESC, INVALID_SYNTAX);
+    }
+    JsonObject entry = (JsonObject) item;
+    String method = entry.getString(METHOD, SEARCH_METHOD);
+    if (!SEARCH_METHOD.equals(method) && !COUNT_METHOD.equals(method)) {
+      return failed.put(DESC, INVALID_VALUE);
+    }
+
+    MultiMap queryParameters = MultiMap.caseInsensitiveMultiMap();
+    JsonObject params = entry.getJsonObject(PARAMS, new JsonObject());
+    params.forEach(param -> queryParameters.add(param.getKey(), String.valueOf(param.getValue())));
+    String invalidParams = QueryMapper.checkSearchParams(queryParameters, false);
+    if (invalidParams != null) {
+      return failed.put(DESC, invalidParams);
+    }
+
+    JsonObject requestBody = QueryMapper.map2Json(queryParameters);
+    if (requestBody == null || !requestBody.containsKey(SEARCH_TYPE)) {
+      return failed.put(DESC, INVALID_SYNTAX);
+    }
+    requestBody.put(HEADER_INSTANCE, instanceID);
+
+    JsonObject resp = QueryMapper.validateQueryParam(requestBody);
+    if (!resp.getString(STATUS).equals(SUCCESS)) {
+      return failed.put(DESC, resp.getString(DESC));
+    }
+    return requestBody.put(METHOD, method);
+  }
+
   public void nlpSearchHandler(RoutingContext routingContext) {
     String query = "";
     HttpServerResponse response = routingContext.response();
@@ -199,71 +387,70 @@ public final class SearchApis {
       routingContext.response().setStatusCode(400).end();
       return;
     }
+
+    Handler<AsyncResult<JsonObject>> resultHandler = handler -> {
+      if(handler.succeeded()) {
+        JsonObject resultJson = handler.result();
+        String status = resultJson.getString(STATUS);
+        if (status.equalsIgnoreCase(SUCCESS)) {
+          LOGGER.info("Success: search query");
+          response.setStatusCode(200);
+        } else if (status.equalsIgnoreCase(PARTIAL_CONTENT)) {
+          LOGGER.info("Success: search query");
+          response.setStatusCode(206);
+        } else {
+          LOGGER.error("Fail: search query");
+          response.setStatusCode(400);
+        }
+        response.end(resultJson.toString());
+      } else if (handler.failed()) {
+        LOGGER.error("Fail: Search;" + handler.cause().getMessage());
+            response.setStatusCode(400)
+                    .end(handler.cause().getMessage());
+      }
+    };
     
-    nlpService.search(query, res -> {
+    nlpService.search(query, StageTimer.start(API_NLP).stopping(res -> {
         if(res.succeeded()) {
           JsonArray result = res.result().getJsonArray("result");
           embeddings.add(result);
           String location = res.result().getString("location");
           if(location.equals("EMPTY")){
-            dbService.nlpSearchQuery(embeddings, handler -> {
-              if(handler.succeeded()) {
-                JsonObject resultJson = handler.result();
-                String status = resultJson.getString(STATUS);
-                if (status.equalsIgnoreCase(SUCCESS)) {
-                  LOGGER.info("Success: search query");
-                  response.setStatusCode(200);
-                } else if (status.equalsIgnoreCase(PARTIAL_CONTENT)) {
-                  LOGGER.info("Success: search query");
-                  response.setStatusCode(206);
-                } else {
-                  LOGGER.error("Fail: search query");
-                  response.setStatusCode(400);
-                }
-                response.end(resultJson.toString());
-              } else if (handler.failed()) {
-                LOGGER.error("Fail: Search;" + handler.cause().getMessage());
-                    response.setStatusCode(400)
-                            .end(handler.cause().getMessage());
-              }
-            });
+            dbService.nlpSearchQuery(embeddings,
+                StageTimer.start(API_DATABASE).stopping(resultHandler));
           }
           else {
-            geoService.geocoder(location, ar -> {
+            geoService.geocoder(location, StageTimer.start(API_GEOCODE).stopping(ar -> {
             if(ar.succeeded()) {
               String bbox = ar.result();
-              LOGGER.debug("Info: bbox - " + bbox);
-              dbService.nlpSearchLocationQuery(embeddings, bbox, handler -> {
-                if(handler.succeeded()) {
-                  JsonObject resultJson = handler.result();
-                  String status = resultJson.getString(STATUS);
-                  if (status.equalsIgnoreCase(SUCCESS)) {
-                    LOGGER.info("Success: search query");
-                    response.setStatusCode(200);
-                  } else if (status.equalsIgnoreCase(PARTIAL_CONTENT)) {
-                    LOGGER.info("Success: search query");
-                    response.setStatusCode(206);
-                  } else {
-                    LOGGER.error("Fail: search query");
-                    response.setStatusCode(400);
-                  }
-                  response.end(resultJson.toString());
-                } else if (handler.failed()) {
-                  LOGGER.error("Fail: Search;" + handler.cause().getMessage());
-                      response.setStatusCode(400)
-                              .end(handler.cause().getMessage());
-                }
-              });
+              LOGGER.debug("Info: bbox - {}", bbox);
+              dbService.nlpSearchLocationQuery(embeddings, bbox,
+                  StageTimer.start(API_DATABASE).stopping(resultHandler));
             } else {
-              LOGGER.info("Failed to get bounding box");
-              routingContext.response().setStatusCode(400).end();
+              /* Degrades to the search without the location */
+              LOGGER.info("Failed to get bounding box; searching without location");
+              dbService.nlpSearchQuery(embeddings,
+                  StageTimer.start(API_DATABASE).stopping(resultHandler));
             }
-          });
+          }));
         }
       } else {
-        LOGGER.info("Failed to get embeddings");
-        routingContext.response().setStatusCode(400).end();
+        /* Degrades to the text search while the NLP service is down */
+        LOGGER.info("Failed to get embeddings; falling back to text search");
+        JsonObject requestBody = QueryMapper.map2Json(routingContext.queryParams());
+        if (requestBody == null || !requestBody.containsKey(SEARCH_TYPE)) {
+          routingContext.response().setStatusCode(400).end();
+          return;
+        }
+        requestBody.put(HEADER_INSTANCE, routingContext.request().getHeader(HEADER_INSTANCE));
+        JsonObject resp = QueryMapper.validateQueryParam(requestBody);
+        if (!resp.getString(STATUS).equals(SUCCESS)) {
+          response.setStatusCode(400).end(resp.toString());
+          return;
+        }
+        dbService.searchQuery(requestBody, StageTimer.start(API_DATABASE)
+            .searchType(SearchType.of(requestBody)).stopping(resultHandler));
       }
-    }); 
+    })); 
   }
 }
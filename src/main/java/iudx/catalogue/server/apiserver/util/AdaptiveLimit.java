@@ -0,0 +1,238 @@
+package iudx.catalogue.server.apiserver.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Adaptive Limit.
+ *
+ * <h1>Adaptive Limit</h1>
+ *
+ * <p>
+ * Concurrency limit of a class of requests, adapted to the observed latency by a gradient, as
+ * the gradient limits of Netflix concurrency-limits. The long term latency is the baseline of an
+ * idle backend; while the recent latency stays close to it the limit grows by the headroom, and
+ * once the backend queues the requests and the recent latency rises, the limit shrinks by their
+ * ratio. A dropped request (a timeout or a backend overload) backs the limit off at once.
+ *
+ * <p>
+ * The requests over the limit wait in a bounded queue, handed a permit as the requests in flight
+ * complete, and are rejected when the queue is full. The limit doesn't grow while less than half
+ * of it is used, so an idle period doesn't inflate it.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class AdaptiveLimit {
+
+  public static final String INITIAL_LIMIT = "initialLimit";
+  public static final String MIN_LIMIT = "minLimit";
+  public static final String MAX_LIMIT = "maxLimit";
+  public static final String MAX_QUEUE = "maxQueue";
+  public static final String QUEUE_TIMEOUT = "queueTimeout";
+
+  private static final Logger LOGGER = LogManager.getLogger(AdaptiveLimit.class);
+  private static final Map<String, AdaptiveLimit> LIMITS = new HashMap<String, AdaptiveLimit>();
+
+  /* Gradient parameters; the tolerance lets the latency rise by half before the limit shrinks */
+  private static final double SMOOTHING = 0.2;
+  private static final double TOLERANCE = 1.5;
+  private static final double BACKOFF = 0.9;
+  private static final double MIN_GRADIENT = 0.5;
+  private static final int HEADROOM = 4;
+  private static final int SHORT_WINDOW = 10;
+  private static final int LONG_WINDOW = 600;
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueue;
+  private final long queueTimeout;
+
+  private double limit;
+  private int inflight;
+  private double shortRtt;
+  private double longRtt;
+  private final Deque<Runnable> queue = new ArrayDeque<Runnable>();
+
+  private Counter rejected;
+
+  /**
+   * Creates a limit, without metrics.
+   *
+   * @param name of the class of requests
+   * @param options initialLimit, minLimit, maxLimit, maxQueue and queueTimeout; all optional
+   * @param defaultLimit initial limit if not configured
+   */
+  public AdaptiveLimit(String name, JsonObject options, int defaultLimit) {
+    this.name = name;
+    this.minLimit = options.getInteger(MIN_LIMIT, 4);
+    this.maxLimit = options.getInteger(MAX_LIMIT, defaultLimit * 8);
+    this.maxQueue = options.getInteger(MAX_QUEUE, defaultLimit / 4);
+    this.queueTimeout = options.getLong(QUEUE_TIMEOUT, 50L);
+    this.limit = options.getInteger(INITIAL_LIMIT, defaultLimit);
+  }
+
+  /**
+   * The limit of a class of requests shared by the verticles of a JVM, created with the options
+   * of the first verticle and registered in the metrics.
+   *
+   * @param name of the class of requests
+   * @param options of the limit; null for the defaults
+   * @param defaultLimit initial limit if not configured
+   * @return the limit
+   */
+  public static synchronized AdaptiveLimit shared(String name, JsonObject options,
+      int defaultLimit) {
+    AdaptiveLimit limit = LIMITS.get(name);
+    if (limit == null) {
+      limit = new AdaptiveLimit(name, options == null ? new JsonObject() : options, defaultLimit);
+      limit.registerMetrics();
+      LIMITS.put(name, limit);
+    }
+    return limit;
+  }
+
+  private void registerMetrics() {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      LOGGER.debug("Info: No metrics registry; admission metrics disabled;" + name);
+      return;
+    }
+    Gauge.builder("catalogue.admission.limit", this, limit -> limit.limit())
+        .tag("route", name).description("Concurrency limit").register(registry);
+    Gauge.builder("catalogue.admission.inflight", this, limit -> limit.inflight())
+        .tag("route", name).description("Requests in flight").register(registry);
+    Gauge.builder("catalogue.admission.queued", this, limit -> limit.queued())
+        .tag("route", name).description("Requests waiting for a permit").register(registry);
+    rejected = Counter.builder("catalogue.admission.rejected").tag("route", name)
+        .description("Requests shed").register(registry);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public long queueTimeout() {
+    return queueTimeout;
+  }
+
+  public synchronized int limit() {
+    return (int) limit;
+  }
+
+  public synchronized int inflight() {
+    return inflight;
+  }
+
+  public synchronized int queued() {
+    return queue.size();
+  }
+
+  /**
+   * Takes a permit, if a request is in flight under the limit.
+   *
+   * @return false if the limit is reached
+   */
+  public synchronized boolean tryAcquire() {
+    if (inflight < (int) limit) {
+      inflight++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Queues a request over the limit; the waiter runs with a permit once one is released.
+   *
+   * @param waiter runs the request
+   * @return false if the queue is full, and the request is rejected
+   */
+  public synchronized boolean enqueue(Runnable waiter) {
+    if (queue.size() >= maxQueue) {
+      if (rejected != null) {
+        rejected.increment();
+      }
+      return false;
+    }
+    queue.addLast(waiter);
+    return true;
+  }
+
+  /**
+   * Removes a request which waited too long.
+   *
+   * @param waiter the queued waiter
+   * @return false if it's no longer queued, because it was handed a permit
+   */
+  public synchronized boolean cancel(Runnable waiter) {
+    if (queue.remove(waiter)) {
+      if (rejected != null) {
+        rejected.increment();
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Releases the permit of a request with its latency, adapts the limit, and hands the released
+   * permits to the queued requests.
+   *
+   * @param rttNanos latency of the request
+   * @param dropped true if it timed out or the backend was overloaded
+   */
+  public void release(long rttNanos, boolean dropped) {
+    List<Runnable> admitted = new ArrayList<Runnable>();
+    synchronized (this) {
+      int used = inflight;
+      inflight--;
+      adapt(rttNanos, dropped, used);
+      while (!queue.isEmpty() && inflight < (int) limit) {
+        inflight++;
+        admitted.add(queue.pollFirst());
+      }
+    }
+    admitted.forEach(Runnable::run);
+  }
+
+  private void adapt(long rttNanos, boolean dropped, int used) {
+    if (dropped) {
+      limit = Math.max(minLimit, limit * BACKOFF);
+      return;
+    }
+    if (longRtt == 0) {
+      shortRtt = rttNanos;
+      longRtt = rttNanos;
+      return;
+    }
+    shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+    longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+
+    /* The load has dropped off; lets the baseline follow the recent latency down */
+    if (longRtt / shortRtt > 2) {
+      longRtt *= 0.95;
+    }
+
+    /* Not using the limit, no evidence it can grow */
+    if (used < limit / 2) {
+      return;
+    }
+
+    double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+    double newLimit = limit * gradient + HEADROOM;
+    limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    limit = Math.max(minLimit, Math.min(maxLimit, limit));
+  }
+}
@@ -0,0 +1,143 @@
+package iudx.catalogue.server.apiserver.util;
+
+import static iudx.catalogue.server.apiserver.util.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Admission Control.
+ *
+ * <h1>Admission Control</h1>
+ *
+ * <p>
+ * Sheds the API requests over the capacity of the backends, before their body is read. The
+ * requests are classed as reads, writes and NLP searches, each class with its own
+ * {@link AdaptiveLimit} of the requests in flight. A request over the limit waits in the queue of
+ * its class for at most queueTimeout, and is answered 503 with a Retry-After once the queue is
+ * full or the wait is over. The latency of a request runs until its response has been written; a
+ * 503 or 504 from the backends, or a connection closed before the response, counts as dropped.
+ *
+ * <p>
+ * The limits are shared by the API server verticles of a JVM. The documentation, the UI and the
+ * CORS preflight requests aren't limited.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public class AdmissionControl implements Handler<RoutingContext> {
+
+  public static final String READ = "read";
+  public static final String WRITE = "write";
+  public static final String NLP = "nlp";
+  public static final String RETRY_AFTER = "retryAfter";
+
+  private static final Logger LOGGER = LogManager.getLogger(AdmissionControl.class);
+
+  private final Vertx vertx;
+  private final AdaptiveLimit readLimit;
+  private final AdaptiveLimit writeLimit;
+  private final AdaptiveLimit nlpLimit;
+  private final String retryAfter;
+
+  /**
+   * Creates the admission control of the API routes.
+   *
+   * @param vertx Vertx
+   * @param options read, write and nlp limits, and retryAfter in seconds; null for the defaults
+   */
+  public AdmissionControl(Vertx vertx, JsonObject options) {
+    JsonObject config = options == null ? new JsonObject() : options;
+    this.vertx = vertx;
+    this.readLimit = AdaptiveLimit.shared(READ, config.getJsonObject(READ), 64);
+    this.writeLimit = AdaptiveLimit.shared(WRITE, config.getJsonObject(WRITE), 16);
+    this.nlpLimit = AdaptiveLimit.shared(NLP, config.getJsonObject(NLP), 8);
+    this.retryAfter = String.valueOf(config.getInteger(RETRY_AFTER, 1));
+  }
+
+  /* Limit of the class of a request; null if not limited */
+  private AdaptiveLimit limitOf(HttpServerRequest request) {
+    String path = request.path();
+    HttpMethod method = request.method();
+    if (path == null || !path.startsWith(ROUTE_BASE) || method == HttpMethod.OPTIONS) {
+      return null;
+    }
+    if (path.startsWith(ROUTE_NLP_SEARCH)) {
+      return nlpLimit;
+    }
+    if (method == HttpMethod.GET || method == HttpMethod.HEAD
+        || path.startsWith(ROUTE_BATCH_SEARCH)) {
+      return readLimit;
+    }
+    return writeLimit;
+  }
+
+  @Override
+  public void handle(RoutingContext routingContext) {
+    AdaptiveLimit limit = limitOf(routingContext.request());
+    if (limit == null) {
+      routingContext.next();
+      return;
+    }
+    if (limit.tryAcquire()) {
+      admit(routingContext, limit);
+      return;
+    }
+
+    /* Waits for a permit, with the body of the request held back */
+    HttpServerRequest request = routingContext.request();
+    Context context = vertx.getOrCreateContext();
+    long[] timer = new long[1];
+    Runnable waiter = () -> context.runOnContext(v -> {
+      vertx.cancelTimer(timer[0]);
+      request.resume();
+      admit(routingContext, limit);
+    });
+    request.pause();
+    if (!limit.enqueue(waiter)) {
+      reject(routingContext, limit);
+      return;
+    }
+    timer[0] = vertx.setTimer(limit.queueTimeout(), id -> {
+      if (limit.cancel(waiter)) {
+        reject(routingContext, limit);
+      }
+    });
+  }
+
+  private void admit(RoutingContext routingContext, AdaptiveLimit limit) {
+    long start = System.nanoTime();
+    boolean[] released = new boolean[1];
+    Handler<Boolean> release = dropped -> {
+      if (!released[0]) {
+        released[0] = true;
+        limit.release(System.nanoTime() - start, dropped);
+      }
+    };
+    routingContext.addBodyEndHandler(v -> {
+      int status = routingContext.response().getStatusCode();
+      release.handle(status == 503 || status == 504);
+    });
+    routingContext.response().closeHandler(v -> release.handle(true));
+    routingContext.next();
+  }
+
+  private void reject(RoutingContext routingContext, AdaptiveLimit limit) {
+    LOGGER.warn("Fail: Request shed;" + limit.name() + ";limit " + limit.limit());
+    routingContext.request().resume();
+    routingContext.response()
+                  .setStatusCode(503)
+                  .putHeader(HEADER_RETRY_AFTER, retryAfter)
+                  .putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON)
+                  .end(new ResponseHandler.Builder()
+                                          .withStatus(SERVICE_UNAVAILABLE)
+                                          .build().toJsonString());
+  }
+}
@@ -11,6 +11,9 @@ public class Constants {
 
   /** General purpose */
   public static final String CAT_ADMIN = "catAdmin";
+  public static final String ADMISSION_CONTROL = "admissionControl";
+  public static final String RATE_LIMIT = "rateLimit";
+  public static final String LOG_SAMPLING = "logSampling";
 
   /** Accept Headers and CORS */
   public static final String HEADER_ACCEPT = "Accept";
@@ -22,33 +25,56 @@ public class Constants {
   public static final String HEADER_ORIGIN = "Origin";
   public static final String HEADER_REFERER = "Referer";
   public static final String HEADER_CORS = "Access-Control-Allow-Origin";
+  public static final String HEADER_IF_MATCH = "If-Match";
+  public static final String HEADER_ETAG = "ETag";
+  public static final String HEADER_RETRY_AFTER = "Retry-After";
+  public static final String HEADER_RATELIMIT_LIMIT = "RateLimit-Limit";
+  public static final String HEADER_RATELIMIT_REMAINING = "RateLimit-Remaining";
+  public static final String HEADER_RATELIMIT_RESET = "RateLimit-Reset";
+  public static final String HEADER_TRACEPARENT = "traceparent";
+  public static final String HEADER_TRACESTATE = "tracestate";
+  public static final String HEADER_TRACERESPONSE = "traceresponse";
   public static final Set<String> ALLOWED_HEADERS
     = new HashSet<String>(Arrays.asList(HEADER_ACCEPT, HEADER_TOKEN, HEADER_CONTENT_LENGTH,
                                     HEADER_CONTENT_TYPE, HEADER_HOST, HEADER_ORIGIN,
-                                    HEADER_REFERER, HEADER_CORS));
+                                    HEADER_REFERER, HEADER_CORS, HEADER_IF_MATCH,
+                                    HEADER_TRACEPARENT, HEADER_TRACESTATE));
+
+  public static final Set<String> EXPOSED_HEADERS
+    = new HashSet<String>(Arrays.asList(HEADER_ETAG, HEADER_RETRY_AFTER, HEADER_RATELIMIT_LIMIT,
+                                    HEADER_RATELIMIT_REMAINING, HEADER_RATELIMIT_RESET,
+                                    HEADER_TRACERESPONSE));
 
   public static final Set<HttpMethod> ALLOWED_METHODS = new HashSet<HttpMethod>(
-      Arrays.asList(HttpMethod.GET, HttpMethod.POST, HttpMethod.DELETE, HttpMethod.PUT));
+      Arrays.asList(HttpMethod.GET, HttpMethod.POST, HttpMethod.DELETE, HttpMethod.PUT,
+                    HttpMethod.PATCH));
 
 
   public static final String MIME_APPLICATION_JSON = "application/json";
   public static final String MIME_TEXT_HTML = "text/html";
+  public static final String MIME_MERGE_PATCH_JSON = "application/merge-patch+json";
 
   /**
    *Routes
    */
   private static String basePath = "/iudx/cat/v1";
+  public static final String ROUTE_BASE = basePath;
   public static final String ROUTE_STATIC_SPEC = "/apis/spec";
   public static final String ROUTE_DOC = "/apis";
   public static final String ROUTE_ITEMS = basePath + "/item";
   public static final String ROUTE_UPDATE_ITEMS = basePath + "/item";
   public static final String ROUTE_DELETE_ITEMS = basePath + "/item";
+  public static final String ROUTE_SUBTREE = basePath + "/item/subtree";
+  public static final String ROUTE_JOBS = basePath + "/jobs/:jobId";
   public static final String ROUTE_INSTANCE = basePath + "/instance";
+  public static final String ROUTE_QUERY_STATS = basePath + "/internal/queries";
   public static final String ROUTE_LIST_RESOURCE_GROUP_REL =
       basePath + "\\/(?<id>.*)\\/resourceGroup";
 
   public static final String ROUTE_RELATIONSHIP = basePath + "/relationship";
   public static final String ROUTE_SEARCH = basePath + "/search";
+  public static final String ROUTE_FACETS = basePath + "/search/facets";
+  public static final String ROUTE_BATCH_SEARCH = basePath + "/search/batch";
   public static final String ROUTE_NLP_SEARCH = basePath + "/nlpsearch";
   public static final String ROUTE_LIST_ITEMS = basePath + "/list/:itemType";
 
@@ -79,6 +105,11 @@ public class Constants {
     = new ArrayList<String>(Arrays.asList(BBOX, POLYGON,
                                           LINESTRING, POINT));
 
+  /** Facets */
+  public static final ArrayList<String> FACET_FIELDS
+    = new ArrayList<String>(Arrays.asList(TAGS, PROVIDER, RESOURCE_SVR,
+                                          RESOURCE_GRP, INSTANCE, TYPE));
+
   public static final String OPERATION = "operation";
   public static final String ATTRIBUTE_FILTER = "attribute-filter";
 
@@ -86,6 +117,8 @@ public class Constants {
   public static final String INVALID_SYNTAX = "invalidSyntax";
   public static final String INVALID_VALUE = "invalidValue";
   public static final String BAD_REQUEST = "Bad Request";
+  public static final String SERVICE_UNAVAILABLE = "serviceUnavailable";
+  public static final String TOO_MANY_REQUESTS = "tooManyRequests";
 
   /** Query Pattern */
   public static final String PATTERN_TEXT = "^[\\*]{0,1}[A-Za-z ]+[\\*]{0,1}";
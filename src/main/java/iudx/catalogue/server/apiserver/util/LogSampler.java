@@ -0,0 +1,95 @@
+package iudx.catalogue.server.apiserver.util;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import iudx.catalogue.server.util.LogLevels;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.logging.log4j.Level;
+
+/**
+ * The Log Sampler.
+ *
+ * <h1>Log Sampler</h1>
+ *
+ * <p>
+ * Sets the log level of the API requests, with {@link LogLevels}. A request is logged at DEBUG
+ * if it is one of the sampleRatio requests picked; each route listed in routes may have a
+ * sampleRatio of its own. A few requests of a route are so logged in full while the rest are
+ * logged from LOG_LEVEL on. The level only adds to the levels of the loggers, the more verbose
+ * applies. A level, if set, is the level of the requests not sampled, which is seldom needed:
+ * without it, only the sampled requests get a level, and the others cost nothing to filter.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public class LogSampler implements Handler<RoutingContext> {
+
+  public static final String LEVEL = "level";
+  public static final String SAMPLE_RATIO = "sampleRatio";
+  public static final String ROUTES = "routes";
+
+  private static final String SAMPLED = Level.DEBUG.name();
+
+  private final Rule defaultRule;
+  private final Map<String, Rule> rules = new HashMap<String, Rule>();
+
+  /**
+   * Level and sample ratio of a route.
+   */
+  private static final class Rule {
+
+    private final String level;
+    private final double sampleRatio;
+
+    private Rule(JsonObject options, Rule parent) {
+      String name = options.getString(LEVEL);
+      this.level = name == null ? parent.level : Level.valueOf(name).name();
+      this.sampleRatio = options.getDouble(SAMPLE_RATIO, parent.sampleRatio);
+    }
+
+    private Rule() {
+      this.level = null;
+      this.sampleRatio = 0;
+    }
+  }
+
+  /**
+   * Creates the log sampler of the API routes.
+   *
+   * @param vertx Vertx
+   * @param options level, sampleRatio and routes
+   */
+  public LogSampler(Vertx vertx, JsonObject options) {
+    LogLevels.shared(vertx);
+    this.defaultRule = new Rule(options, new Rule());
+    JsonObject routes = options.getJsonObject(ROUTES, new JsonObject());
+    routes.fieldNames().forEach(route ->
+        rules.put(route, new Rule(routes.getJsonObject(route), defaultRule)));
+  }
+
+  @Override
+  public void handle(RoutingContext routingContext) {
+    Rule rule = rules.getOrDefault(routingContext.request().path(), defaultRule);
+    String level = rule.sampleRatio > 0
+        && ThreadLocalRandom.current().nextDouble() < rule.sampleRatio ? SAMPLED : rule.level;
+    if (level == null) {
+      routingContext.next();
+      return;
+    }
+    routingContext.put(LogLevels.KEY, level);
+    LogLevels.run(level, routingContext::next);
+  }
+
+  /**
+   * Sets the log level of a request again, for the handlers after the body handler.
+   *
+   * @param routingContext RoutingContext
+   */
+  public static void resume(RoutingContext routingContext) {
+    LogLevels.run(routingContext.get(LogLevels.KEY), routingContext::next);
+  }
+}
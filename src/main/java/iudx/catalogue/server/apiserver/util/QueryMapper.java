@@ -4,19 +4,15 @@ import io.vertx.core.MultiMap;
 import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
-import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.google.common.collect.Range;
+import iudx.catalogue.server.util.Geometry;
+import iudx.catalogue.server.util.SearchType;
 import com.hazelcast.util.StringUtil;
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map.Entry;
-import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
+import java.util.Set;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import static iudx.catalogue.server.util.Constants.*;
 import static iudx.catalogue.server.apiserver.util.Constants.*;
 
@@ -29,6 +25,44 @@ public class QueryMapper {
 
   private static final Logger LOGGER = LogManager.getLogger(QueryMapper.class);
 
+  /** Parameters which are not mapped as strings */
+  private static final Set<String> EXCEP_ATTRIBUTES =
+      Set.of(COORDINATES, OFFSET, LIMIT, MAX_DISTANCE, Q_VALUE);
+
+  private static final Pattern QUOTES_PATTERN = Pattern.compile("^\"|\"$");
+  private static final Pattern TEXT_PATTERN =
+      Pattern.compile("^[\\*]{0,1}[A-Za-z0-9\\-\\_ ]+[\\*]{0,1}");
+  private static final Pattern VALUE_PATTERN =
+      Pattern.compile("^[a-zA-Z0-9]([\\w-._:\\/]*[a-zA-Z0-9])?$");
+
+  /**
+   * Checks that every search the query parameters start (attribute, geoSpatial or text) has all
+   * its parameters, before they are mapped and validated.
+   *
+   * @param queryParameters of the request
+   * @param optional whether a request without any search is valid, as a facet request
+   * @return null if valid; else the status of the failure, INVALID_SYNTAX for a missing parameter
+   *     or INVALID_VALUE for an unknown geometry or georel
+   */
+  public static String checkSearchParams(MultiMap queryParameters, boolean optional) {
+    boolean attribute = queryParameters.contains(PROPERTY) || queryParameters.contains(VALUE);
+    boolean geo = queryParameters.contains(GEOPROPERTY) || queryParameters.contains(GEORELATION)
+        || queryParameters.contains(GEOMETRY) || queryParameters.contains(COORDINATES);
+    boolean text = queryParameters.contains(Q_VALUE);
+    if ((attribute && (queryParameters.get(PROPERTY) == null || queryParameters.get(VALUE) == null))
+        || (geo && (queryParameters.get(GEOPROPERTY) == null
+            || queryParameters.get(GEORELATION) == null || queryParameters.get(GEOMETRY) == null
+            || queryParameters.get(COORDINATES) == null))
+        || !(optional || attribute || geo || text)) {
+      return INVALID_SYNTAX;
+    }
+    if (geo && (!GEOMETRIES.contains(queryParameters.get(GEOMETRY))
+        || !GEORELS.contains(queryParameters.get(GEORELATION)))) {
+      return INVALID_VALUE;
+    }
+    return null;
+  }
+
   /**
    * Converts the query parameters to jsonObject and jsonArray.
    *
@@ -39,32 +73,21 @@ public class QueryMapper {
 
     JsonObject jsonBody = new JsonObject();
 
-    ArrayList<String> excepAttribute = new ArrayList<String>();
-    excepAttribute.add(COORDINATES);
-    excepAttribute.add(OFFSET);
-    excepAttribute.add(LIMIT);
-    excepAttribute.add(MAX_DISTANCE);
-    excepAttribute.add(Q_VALUE);
-
-    Pattern regPatternMatchString = Pattern.compile("[\\w]+[^\\,]*(?:\\.*[\\w])");
-    Pattern regPatternText = Pattern.compile("^[\\*]{0,1}[A-Za-z0-9\\-\\_ ]+[\\*]{0,1}");
-
     LOGGER.debug("In query mapper");
 
     for (Entry<String, String> entry : queryParameters.entries()) {
 
-      String paramValue = entry.getValue().replaceAll("^\"|\"$", "").trim();
+      String paramValue = QUOTES_PATTERN.matcher(entry.getValue()).replaceAll("").trim();
       String paramKey = entry.getKey();
       if (paramValue != null && paramValue.isEmpty()) {
-        LOGGER.debug("Error: Invalid parameter value; key: " + paramKey);
+        LOGGER.debug("Error: Invalid parameter value; key: {}", paramKey);
         return null;
       } else if (!paramValue.startsWith("[") && !paramValue.endsWith("]")) {
-        if (!excepAttribute.contains(paramKey)) {
+        if (!EXCEP_ATTRIBUTES.contains(paramKey)) {
           jsonBody.put(paramKey, paramValue);
-        } else if (excepAttribute.contains(paramKey) && !paramKey.equals("q")) {
+        } else if (!paramKey.equals(Q_VALUE)) {
           jsonBody.put(paramKey, Double.valueOf(paramValue).intValue());
-        } else if (paramKey.equals(Q_VALUE)
-            && !regPatternText.matcher(paramValue).matches()) {
+        } else if (!TEXT_PATTERN.matcher(paramValue).matches()) {
           LOGGER.error("Error: Invalid text string");
           return null;
         } else {
@@ -72,17 +95,18 @@ public class QueryMapper {
         }
       } else {
         try {
-          Matcher matcher = regPatternMatchString.matcher(entry.getValue());
-          if (matcher.find() && !excepAttribute.contains(paramKey)) {
-            String replacedValue = paramValue.replaceAll("[\\w]+[^\\,]*(?:\\.*[\\w])", "\"$0\"");
-            jsonBody.put(paramKey, new JsonArray(replacedValue));
-          } else if (excepAttribute.contains(paramKey)) {
+          if (EXCEP_ATTRIBUTES.contains(paramKey)) {
             try {
               jsonBody.put(paramKey, new JsonArray(paramValue));
             } catch (DecodeException decodeException) {
               LOGGER.error("Error: Invalid Json value " + decodeException.getMessage());
               return null;
             }
+          } else {
+            String quotedValue = quoteArrayValues(paramValue);
+            if (quotedValue != null) {
+              jsonBody.put(paramKey, new JsonArray(quotedValue));
+            }
           }
         } catch (Exception e) {
           LOGGER.error("Error: Invalid Json value ");
@@ -91,33 +115,87 @@ public class QueryMapper {
       }
     }
 
+    int searchType = 0;
+
     /* adding search type for geo related search */
     if (jsonBody.containsKey(GEOMETRY)) {
-      jsonBody.put(SEARCH_TYPE, jsonBody.getString(SEARCH_TYPE, "") + SEARCH_TYPE_GEO);
+      searchType |= SearchType.GEO.mask();
     }
 
     /* adding search type for text related search */
     if (jsonBody.containsKey(Q_VALUE)) {
-      jsonBody.put(SEARCH_TYPE, jsonBody.getString(SEARCH_TYPE, "") + SEARCH_TYPE_TEXT);
+      searchType |= SearchType.TEXT.mask();
     }
 
     /* Tag related search are to be considered as attribute search and are being merged as one */
     if (jsonBody.containsKey(PROPERTY)) {
-
-      jsonBody.put(SEARCH_TYPE, jsonBody.getString(SEARCH_TYPE, "") + SEARCH_TYPE_ATTRIBUTE);
+      searchType |= SearchType.ATTRIBUTE.mask();
     }
 
     /* adding response filter */
     if (jsonBody.containsKey(FILTER)) {
-      jsonBody.put(SEARCH_TYPE, jsonBody.getString(SEARCH_TYPE, "") + RESPONSE_FILTER);
+      searchType |= SearchType.RESPONSE_FILTER.mask();
+    }
+
+    if (searchType != 0) {
+      jsonBody.put(SEARCH_TYPE, searchType);
+    } else {
+      jsonBody.remove(SEARCH_TYPE);
     }
 
-    LOGGER.debug("Info: Json Query Mapped: " + jsonBody);
+    LOGGER.debug("Info: Json Query Mapped: {}", jsonBody);
 
     return jsonBody;
   }
 
 
+  /**
+   * Quotes the values of an array parameter, for e.g, [[aqm, pollution],[x1]] becomes
+   * [["aqm", "pollution"],["x1"]]. The value of a comma separated segment spans from its first to
+   * its last word character, and is quoted only if it has at least two characters.
+   *
+   * @param paramValue array parameter
+   * @return the array with quoted values; null if there is no value to quote
+   */
+  static String quoteArrayValues(String paramValue) {
+
+    StringBuilder quoted = null;
+    int length = paramValue.length();
+    int copied = 0;
+    int first = -1;
+    int last = -1;
+
+    for (int i = 0; i <= length; i++) {
+      char c = i < length ? paramValue.charAt(i) : ',';
+      if (c == ',') {
+        if (first >= 0 && last > first) {
+          if (quoted == null) {
+            quoted = new StringBuilder(length + 16);
+          }
+          quoted.append(paramValue, copied, first).append('"')
+                .append(paramValue, first, last + 1).append('"');
+          copied = last + 1;
+        }
+        first = -1;
+        last = -1;
+      } else if (isWordChar(c)) {
+        if (first < 0) {
+          first = i;
+        }
+        last = i;
+      }
+    }
+
+    if (quoted == null) {
+      return null;
+    }
+    return quoted.append(paramValue, copied, length).toString();
+  }
+
+  private static boolean isWordChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+  }
+
   /**
    * Validates the request parameters, headers to compliance with default values.
    * 
@@ -130,54 +208,18 @@ public class QueryMapper {
     JsonObject errResponse = new JsonObject().put(STATUS, FAILED);
 
     /* Validating GeoSearch limits */
-    String searchType = requestBody.getString(SEARCH_TYPE, "");
-    if (searchType.contains(SEARCH_TYPE_GEO)) {
+    int searchType = SearchType.of(requestBody);
+    if (SearchType.GEO.in(searchType)) {
 
-      /* Checking limits and precision of coordinate attributes */
+      /* Checking limits, precision and format of coordinate attributes */
       if (GEOMETRIES.contains(requestBody.getString(GEOMETRY))
           && requestBody.containsKey(COORDINATES)) {
-
-        Pattern pattern = Pattern.compile("[\\w]+[^\\,]*(?:\\.*[\\w])");
-        String coordinateStr = requestBody.getJsonArray(COORDINATES, new JsonArray()).toString();
-        Matcher matcher = pattern.matcher(coordinateStr);
-
-        List<String> coordinatesValues =
-            matcher.results().map(MatchResult::group).collect(Collectors.toList());
-
-        if (coordinatesValues.size() <= COORDINATES_SIZE * 2) {
-          for (String value : coordinatesValues) {
-
-            Double tempValue = Double.parseDouble(value);
-            if (Double.isFinite(tempValue)) {
-
-              boolean isPrecise = (BigDecimal.valueOf(tempValue).scale() >= 0)
-                  && (BigDecimal.valueOf(tempValue).scale() <= COORDINATES_PRECISION);
-
-              if (isPrecise == Boolean.FALSE) {
-                LOGGER.error("Error: Overflow coordinate precision");
-                return errResponse.put(DESC,
-                    "The max point of 'coordinates' precision is " + COORDINATES_PRECISION);
-              }
-            } else {
-              LOGGER.error("Error: Overflow coordinate value");
-              return errResponse.put(DESC, "Unable to parse 'coordinates'; value is " + tempValue);
-            }
-          }
-        } else {
-          LOGGER.error("Error: Overflow coordinate values");
-          return errResponse.put(DESC,
-              "The max number of 'coordinates' value is " + COORDINATES_SIZE);
-        }
-        
-        String geometry = requestBody.getString(GEOMETRY, "");
-        boolean flag = true;
-        int countStr = StringUtils.countMatches(coordinateStr.substring(0, 5), "[");
-        if (geometry.equals(POLYGON) && countStr == 3) {
-        } else if (geometry.equals(POINT) && countStr == 1) {
-        } else if ((geometry.equals(LINESTRING) || geometry.equals(BBOX)) && countStr == 2) {
-        } else {
-          LOGGER.error("Error: Invalid coordinate format");
-          return errResponse.put(DESC, "Invalid coordinate format");
+        try {
+          Geometry.parse(requestBody.getString(GEOMETRY), requestBody.getJsonArray(COORDINATES));
+        } catch (IllegalArgumentException | ClassCastException e) {
+          LOGGER.error("Error: Invalid coordinates; " + e.getMessage());
+          return errResponse.put(DESC, e instanceof IllegalArgumentException
+              ? e.getMessage() : Geometry.ERROR_FORMAT);
         }
       }
 
@@ -195,7 +237,7 @@ public class QueryMapper {
     }
 
     /* Validating text search limits */
-    if (searchType.contains(SEARCH_TYPE_TEXT)) {
+    if (SearchType.TEXT.in(searchType)) {
 
       String searchString = requestBody.getString(Q_VALUE);
       if (searchString.length() > STRING_SIZE) {
@@ -206,9 +248,7 @@ public class QueryMapper {
     }
 
     /* Validating AttributeSearch limits */
-    if (searchType.contains(SEARCH_TYPE_ATTRIBUTE)) {
-      
-      Pattern valuePattern = Pattern.compile("^[a-zA-Z0-9]([\\w-._:\\/]*[a-zA-Z0-9])?$");
+    if (SearchType.ATTRIBUTE.in(searchType)) {
 
       /* Checking the number of property and value within the request */
       if (requestBody.getJsonArray(PROPERTY).size() <= PROPERTY_SIZE) {
@@ -219,7 +259,7 @@ public class QueryMapper {
 
             JsonArray nestedValue = (JsonArray) value;
             for (Object entry : nestedValue) {
-              if (!valuePattern.matcher((String) entry).matches()) {
+              if (!VALUE_PATTERN.matcher((String) entry).matches()) {
                 return errResponse.put(DESC, "Invalid 'value' format");
               }
             }
@@ -240,13 +280,29 @@ public class QueryMapper {
     }
 
     /* Validating ResponseFilter limits */
-    if (searchType.contains(RESPONSE_FILTER)) {
+    if (SearchType.RESPONSE_FILTER.in(searchType)) {
       if (requestBody.getJsonArray(FILTER, new JsonArray()).size() > FILTER_VALUE_SIZE) {
         LOGGER.error("Error: The filter in query param has exceeded the limit");
         return errResponse.put(DESC, "The max number of 'filter' should be " + FILTER_VALUE_SIZE);
       }
     }
 
+    /* Validating facets */
+    if (requestBody.containsKey(FACETS)) {
+      JsonArray facets = requestBody.getValue(FACETS) instanceof JsonArray
+          ? requestBody.getJsonArray(FACETS) : new JsonArray();
+      if (facets.isEmpty() || facets.size() > FACETS_SIZE) {
+        LOGGER.error("Error: The facets in query param has exceeded the limit");
+        return errResponse.put(DESC, "The number of 'facets' should be between 1 to " + FACETS_SIZE);
+      }
+      for (Object facet : facets) {
+        if (!FACET_FIELDS.contains(facet)) {
+          LOGGER.error("Error: Unsupported facet; " + facet);
+          return errResponse.put(DESC, "The 'facets' should be one of " + FACET_FIELDS);
+        }
+      }
+    }
+
     /* Validating length of instance header */
     if (requestBody.containsKey(INSTANCE)) {
       String instance = requestBody.getString(INSTANCE, "");
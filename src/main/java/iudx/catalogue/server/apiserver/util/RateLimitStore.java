@@ -0,0 +1,300 @@
+package iudx.catalogue.server.apiserver.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Rate Limit Store.
+ *
+ * <h1>Rate Limit Store</h1>
+ *
+ * <p>
+ * Token buckets of the clients, local to the JVM and reconciled through the cluster. A bucket is
+ * kept as its theoretical arrival time (the generic cell rate algorithm): a request moves it one
+ * refill interval ahead, and is admitted while it stays within the capacity of the bucket from
+ * now. So taking a token is a single compare-and-set, without a lock or a refill timer.
+ *
+ * <p>
+ * Every syncInterval the node puts the requests it admitted per bucket, in the current window of a
+ * minute, as one entry of a cluster-wide map (Hazelcast in a clustered deployment), and reads the
+ * entries of the other nodes back: two round trips per sync, whatever the number of buckets. What
+ * the other nodes admitted since the last sync is taken out of the local bucket; a bucket created
+ * during a window starts from what they admitted so far. A client can exceed its budget by what
+ * the other nodes admit in one interval. The buckets full and idle since the last window are
+ * dropped; past maxClients, the new clients of a route share a bucket.
+ *
+ * <p>
+ * The store also remembers the tokens validated by the node, which only then key their clients.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class RateLimitStore {
+
+  public static final String SYNC_INTERVAL = "syncInterval";
+  public static final String MAX_CLIENTS = "maxClients";
+
+  private static final Logger LOGGER = LogManager.getLogger(RateLimitStore.class);
+  private static final String MAP_NAME = "catalogue.ratelimit";
+  private static final String OVERFLOW = "overflow";
+  private static final long WINDOW = 60000;
+  private static final long VALIDATED_TTL = 3600000000000L;
+  private static RateLimitStore store;
+
+  private final Vertx vertx;
+  private final int maxClients;
+  private final String node = UUID.randomUUID().toString();
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+  /* Hashes of the validated tokens, with the time they were last validated */
+  private final Map<String, Long> validated = new ConcurrentHashMap<String, Long>();
+  /* Requests admitted per bucket by the other nodes in the window of the last sync */
+  private volatile Map<String, Long> others = new HashMap<String, Long>();
+  private volatile long othersWindow;
+  private boolean syncing;
+
+  /**
+   * Token bucket of a client on a route.
+   */
+  public static final class Bucket {
+
+    private final long capacity;
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong tat = new AtomicLong();
+    private final AtomicLong admitted = new AtomicLong();
+    /* Window of the counts; admitted by the node and seen from the other nodes in it */
+    private long window;
+    private long windowAdmitted;
+    private long seen;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity burst of requests
+     * @param refillRate requests per second
+     */
+    public Bucket(long capacity, double refillRate) {
+      this.capacity = capacity;
+      this.interval = (long) (1e9 / refillRate);
+      this.tolerance = interval * capacity;
+      this.tat.set(System.nanoTime());
+    }
+
+    public long capacity() {
+      return capacity;
+    }
+
+    /**
+     * Takes a token.
+     *
+     * @param now System.nanoTime()
+     * @return the tokens left; if negative, the nanoseconds until a token is refilled, negated
+     */
+    public long tryTake(long now) {
+      while (true) {
+        long current = tat.get();
+        long next = Math.max(current, now) + interval;
+        if (next - now > tolerance) {
+          return -(next - now - tolerance);
+        }
+        if (tat.compareAndSet(current, next)) {
+          admitted.incrementAndGet();
+          return (now + tolerance - next) / interval;
+        }
+      }
+    }
+
+    /**
+     * Nanoseconds until the bucket is full again.
+     *
+     * @param now System.nanoTime()
+     * @return nanoseconds
+     */
+    public long untilFull(long now) {
+      return Math.max(0, tat.get() - now);
+    }
+
+    /* Takes the tokens used on the other nodes, down to an empty bucket */
+    void charge(long tokens, long now) {
+      tat.accumulateAndGet(tokens, (current, n) ->
+          Math.min(Math.max(current, now) + n * interval, now + tolerance));
+    }
+  }
+
+  RateLimitStore(Vertx vertx, int maxClients) {
+    this.vertx = vertx;
+    this.maxClients = maxClients;
+  }
+
+  /**
+   * The store of the JVM, syncing with the cluster from the first verticle.
+   *
+   * @param vertx Vertx
+   * @param options syncInterval and maxClients; null for the defaults
+   * @return the store
+   */
+  public static synchronized RateLimitStore shared(Vertx vertx, JsonObject options) {
+    if (store == null) {
+      JsonObject config = options == null ? new JsonObject() : options;
+      store = new RateLimitStore(vertx, config.getInteger(MAX_CLIENTS, 100000));
+      long syncInterval = config.getLong(SYNC_INTERVAL, 1000L);
+      if (syncInterval > 0) {
+        vertx.setPeriodic(syncInterval, id -> store.sync());
+      }
+      MeterRegistry registry = BackendRegistries.getDefaultNow();
+      if (registry != null) {
+        Gauge.builder("catalogue.ratelimit.clients", store.buckets, Map::size)
+            .description("Clients with a token bucket").register(registry);
+      }
+    }
+    return store;
+  }
+
+  /**
+   * The bucket of a client on a route, created full.
+   *
+   * @param route the route
+   * @param client key of the client
+   * @param capacity burst of requests
+   * @param refillRate requests per second
+   * @return the bucket
+   */
+  public Bucket bucket(String route, String client, long capacity, double refillRate) {
+    String key = route + "|" + client;
+    Bucket bucket = buckets.get(key);
+    if (bucket != null) {
+      return bucket;
+    }
+    if (buckets.size() >= maxClients) {
+      key = route + "|" + OVERFLOW;
+    }
+    return buckets.computeIfAbsent(key, k -> {
+      Bucket created = new Bucket(capacity, refillRate);
+      /* The requests the other nodes admitted before are already counted */
+      created.window = othersWindow;
+      created.seen = others.getOrDefault(k, 0L);
+      return created;
+    });
+  }
+
+  /**
+   * Remembers a token validated by the node, up to maxClients tokens.
+   *
+   * @param tokenHash hash of the token
+   */
+  public void validated(String tokenHash) {
+    if (validated.size() < maxClients || validated.containsKey(tokenHash)) {
+      validated.put(tokenHash, System.nanoTime());
+    }
+  }
+
+  /**
+   * Whether a token was validated by the node within the last hour.
+   *
+   * @param tokenHash hash of the token
+   * @return true if validated
+   */
+  public boolean isValidated(String tokenHash) {
+    Long at = validated.get(tokenHash);
+    return at != null && System.nanoTime() - at < VALIDATED_TTL;
+  }
+
+  /* Puts the requests admitted by the node in the window, and takes the requests admitted by the
+   * other nodes out of the buckets; skipped while the last sync is running */
+  Future<Void> sync() {
+    if (syncing) {
+      return Future.succeededFuture();
+    }
+    syncing = true;
+    long now = System.nanoTime();
+    long window = System.currentTimeMillis() / WINDOW;
+    validated.values().removeIf(at -> now - at >= VALIDATED_TTL);
+    JsonObject admitted = new JsonObject();
+    Iterator<Map.Entry<String, Bucket>> entries = buckets.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<String, Bucket> entry = entries.next();
+      Bucket bucket = entry.getValue();
+      long delta = bucket.admitted.getAndSet(0);
+      if (delta == 0 && bucket.untilFull(now) == 0 && bucket.window != window) {
+        entries.remove();
+        continue;
+      }
+      if (bucket.window != window) {
+        bucket.window = window;
+        bucket.windowAdmitted = 0;
+        bucket.seen = 0;
+      }
+      bucket.windowAdmitted += delta;
+      if (bucket.windowAdmitted > 0) {
+        admitted.put(entry.getKey(), bucket.windowAdmitted);
+      }
+    }
+
+    Promise<Void> promise = Promise.promise();
+    vertx.sharedData().<String, String>getAsyncMap(MAP_NAME, mapRes -> {
+      if (mapRes.failed()) {
+        LOGGER.error("Fail: Rate limit map unavailable;" + mapRes.cause().getMessage());
+        promise.complete();
+        return;
+      }
+      AsyncMap<String, String> counts = mapRes.result();
+      String own = node + "|" + window;
+      /* The counts are cumulative, a failed put is caught up by the next one */
+      counts.put(own, admitted.encode(), 2 * WINDOW, putRes -> {
+        if (putRes.failed()) {
+          LOGGER.error("Fail: Rate limit counts not shared;" + putRes.cause().getMessage());
+        }
+        counts.entries(entriesRes -> {
+          if (entriesRes.failed()) {
+            LOGGER.error("Fail: Rate limit counts not read;" + entriesRes.cause().getMessage());
+          } else {
+            charge(window, own, entriesRes.result());
+          }
+          promise.complete();
+        });
+      });
+    });
+    return promise.future().onComplete(done -> syncing = false);
+  }
+
+  /* Sums the counts of the other nodes in the window, and charges what is new to the buckets */
+  private void charge(long window, String own, Map<String, String> entries) {
+    String suffix = "|" + window;
+    Map<String, Long> sums = new HashMap<String, Long>();
+    entries.forEach((key, value) -> {
+      if (key.endsWith(suffix) && !key.equals(own)) {
+        new JsonObject(value).forEach(count ->
+            sums.merge(count.getKey(), ((Number) count.getValue()).longValue(), Long::sum));
+      }
+    });
+    others = sums;
+    othersWindow = window;
+
+    long now = System.nanoTime();
+    buckets.forEach((key, bucket) -> {
+      long total = sums.getOrDefault(key, 0L);
+      if (bucket.window != window) {
+        /* Created since the counts were put, from the counts of the last sync */
+        bucket.window = window;
+        bucket.windowAdmitted = 0;
+      } else if (total > bucket.seen) {
+        bucket.charge(total - bucket.seen, now);
+      }
+      bucket.seen = total;
+    });
+  }
+}
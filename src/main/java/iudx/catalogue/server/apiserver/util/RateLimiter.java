@@ -0,0 +1,179 @@
+package iudx.catalogue.server.apiserver.util;
+
+import static iudx.catalogue.server.apiserver.util.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import iudx.catalogue.server.authenticator.AuthenticationService;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Rate Limiter.
+ *
+ * <h1>Rate Limiter</h1>
+ *
+ * <p>
+ * Limits the rate of the API requests of every client, with the token buckets of the
+ * {@link RateLimitStore}. A client is keyed by the first of keyBy its request has: its token, the
+ * instance header or its IP address, by default the latter. The limiter runs before the
+ * authentication, so a token only keys its client once the node validated it, through the
+ * authentication service of {@link #validating(Vertx, JsonObject, AuthenticationService)}; until
+ * then, and for a made-up token, the next key applies. The tokens are kept hashed. The instance
+ * header is taken as sent, for deployments behind a proxy setting it. Each route listed in
+ * routes has its own budget (capacity and refillRate in requests per second); the other API
+ * routes share the default budget, if any. A request over the budget is answered 429 with a
+ * Retry-After.
+ *
+ * <p>
+ * The state of the bucket comes back in the RateLimit-Limit, RateLimit-Remaining and
+ * RateLimit-Reset (seconds until the bucket is full) headers.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public class RateLimiter implements Handler<RoutingContext> {
+
+  public static final String KEY_BY = "keyBy";
+  public static final String ROUTES = "routes";
+  public static final String DEFAULT = "default";
+  public static final String CAPACITY = "capacity";
+  public static final String REFILL_RATE = "refillRate";
+  public static final String KEY_TOKEN = "token";
+  public static final String KEY_INSTANCE = "instance";
+  public static final String KEY_IP = "ip";
+
+  private static final Logger LOGGER = LogManager.getLogger(RateLimiter.class);
+  private static final long SECOND = 1000000000L;
+
+  private final RateLimitStore store;
+  private final JsonArray keyBy;
+  private final Map<String, JsonObject> budgets = new HashMap<String, JsonObject>();
+  private final JsonObject defaultBudget;
+
+  /**
+   * Creates the rate limiter of the API routes.
+   *
+   * @param vertx Vertx
+   * @param options keyBy, routes, default, syncInterval and maxClients
+   */
+  public RateLimiter(Vertx vertx, JsonObject options) {
+    this.store = RateLimitStore.shared(vertx, options);
+    this.keyBy = options.getJsonArray(KEY_BY, new JsonArray().add(KEY_IP));
+    this.defaultBudget = options.getJsonObject(DEFAULT);
+    JsonObject routes = options.getJsonObject(ROUTES, new JsonObject());
+    routes.fieldNames().forEach(route -> budgets.put(route, routes.getJsonObject(route)));
+  }
+
+  /**
+   * Authentication service remembering the tokens it validates, for them to key their clients.
+   *
+   * @param vertx Vertx
+   * @param options the options of the rate limiter
+   * @param authService the authentication service
+   * @return the authentication service, remembering the validated tokens
+   */
+  public static AuthenticationService validating(Vertx vertx, JsonObject options,
+      AuthenticationService authService) {
+    RateLimitStore store = RateLimitStore.shared(vertx, options);
+    return new AuthenticationService() {
+      @Override
+      public AuthenticationService tokenInterospect(JsonObject request,
+          JsonObject authenticationInfo, Handler<AsyncResult<JsonObject>> handler) {
+        authService.tokenInterospect(request, authenticationInfo, authHandler -> {
+          String token = authenticationInfo.getString(HEADER_TOKEN);
+          if (authHandler.succeeded() && token != null
+              && SUCCESS.equals(authHandler.result().getString(STATUS))) {
+            store.validated(hash(token));
+          }
+          handler.handle(authHandler);
+        });
+        return this;
+      }
+    };
+  }
+
+  /* Key of the client of a request; null if it has none of keyBy */
+  private String clientOf(HttpServerRequest request) {
+    for (Object key : keyBy) {
+      String token = KEY_TOKEN.equals(key) ? request.getHeader(HEADER_TOKEN) : null;
+      String tokenHash = token == null ? null : hash(token);
+      if (tokenHash != null && store.isValidated(tokenHash)) {
+        return KEY_TOKEN + ":" + tokenHash;
+      } else if (KEY_INSTANCE.equals(key) && request.getHeader(HEADER_INSTANCE) != null) {
+        return KEY_INSTANCE + ":" + request.getHeader(HEADER_INSTANCE);
+      } else if (KEY_IP.equals(key) && request.remoteAddress() != null) {
+        return KEY_IP + ":" + request.remoteAddress().host();
+      }
+    }
+    return null;
+  }
+
+  private static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(token.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (int i = 0; i < 16; i++) {
+        hex.append(String.format("%02x", digest[i]));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void handle(RoutingContext routingContext) {
+    HttpServerRequest request = routingContext.request();
+    String path = request.path();
+    if (path == null || !path.startsWith(ROUTE_BASE)) {
+      routingContext.next();
+      return;
+    }
+    String route = budgets.containsKey(path) ? path : DEFAULT;
+    JsonObject budget = budgets.containsKey(path) ? budgets.get(path) : defaultBudget;
+    String client = clientOf(request);
+    if (budget == null || client == null) {
+      routingContext.next();
+      return;
+    }
+
+    RateLimitStore.Bucket bucket = store.bucket(route, client,
+        budget.getLong(CAPACITY), budget.getDouble(REFILL_RATE));
+    long now = System.nanoTime();
+    long remaining = bucket.tryTake(now);
+    HttpServerResponse response = routingContext.response();
+    response.putHeader(HEADER_RATELIMIT_LIMIT, String.valueOf(bucket.capacity()))
+            .putHeader(HEADER_RATELIMIT_REMAINING, String.valueOf(Math.max(0, remaining)))
+            .putHeader(HEADER_RATELIMIT_RESET, seconds(bucket.untilFull(now)));
+    if (remaining >= 0) {
+      routingContext.next();
+      return;
+    }
+
+    LOGGER.warn("Fail: Rate limited;" + route + ";" + client);
+    response.setStatusCode(429)
+            .putHeader(HEADER_RETRY_AFTER, seconds(-remaining))
+            .putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON)
+            .end(new ResponseHandler.Builder()
+                                    .withStatus(TOO_MANY_REQUESTS)
+                                    .build().toJsonString());
+  }
+
+  /* Whole seconds, rounded up, as the headers take */
+  private static String seconds(long nanos) {
+    return String.valueOf((nanos + SECOND - 1) / SECOND);
+  }
+}
@@ -0,0 +1,59 @@
+package iudx.catalogue.server.apiserver.util;
+
+import static iudx.catalogue.server.apiserver.util.Constants.*;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.RoutingContext;
+import iudx.catalogue.server.util.Tracing;
+
+/**
+ * The Tracing Handler.
+ *
+ * <h1>Tracing Handler</h1>
+ *
+ * <p>
+ * Starts the span of an API request, continuing the trace of the client but sampling it with the
+ * sampleRatio of the server, and ends it once the response has been written; a 5xx response marks
+ * it as failed. The span is current while the next handlers run; {@link #resume} makes it current
+ * again after the body has been read. The response carries the trace in the traceresponse header,
+ * to look up a slow request by.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public class TracingHandler implements Handler<RoutingContext> {
+
+  private static final String SPAN = "span";
+
+  @Override
+  public void handle(RoutingContext routingContext) {
+    HttpServerRequest request = routingContext.request();
+    Tracing.Span span = Tracing.startServer(request.method() + " " + request.path(),
+        request.getHeader(HEADER_TRACEPARENT), request.getHeader(HEADER_TRACESTATE), false);
+    span.attribute("http.method", request.method().name())
+        .attribute("http.target", request.path());
+    if (span.traceparent() != null) {
+      routingContext.response().putHeader(HEADER_TRACERESPONSE, span.traceparent());
+    }
+    routingContext.addBodyEndHandler(v -> {
+      int status = routingContext.response().getStatusCode();
+      span.attribute("http.status_code", status).end(status >= 500 ? "HTTP " + status : null);
+    });
+    routingContext.put(SPAN, span);
+    Tracing.run(span, routingContext::next);
+  }
+
+  /**
+   * Makes the span of a request current again, for the handlers after the body handler.
+   *
+   * @param routingContext RoutingContext
+   */
+  public static void resume(RoutingContext routingContext) {
+    Tracing.Span span = routingContext.get(SPAN);
+    if (span == null) {
+      routingContext.next();
+    } else {
+      Tracing.run(span, routingContext::next);
+    }
+  }
+}
@@ -16,8 +16,13 @@ import org.apache.http.HttpStatus;
 
 import java.util.Arrays;
 
+import iudx.catalogue.server.util.CircuitBreaker;
+import iudx.catalogue.server.util.StageTimer;
+import iudx.catalogue.server.util.Tracing;
+
 import static iudx.catalogue.server.authenticator.Constants.*;
 import static iudx.catalogue.server.util.Constants.*;
+import static iudx.catalogue.server.util.StageTimer.CLIENT_AUTH;
 
 /**
  * The Authentication Service Implementation.
@@ -36,10 +41,16 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     private static final Logger LOGGER = LogManager.getLogger(AuthenticationServiceImpl.class);
     private final WebClient webClient;
     private String authHost;
+    private final CircuitBreaker breaker;
 
     public AuthenticationServiceImpl(WebClient client, String authHost) {
+        this(client, authHost, new CircuitBreaker(BREAKER_AUTH, new JsonObject()));
+    }
+
+    public AuthenticationServiceImpl(WebClient client, String authHost, CircuitBreaker breaker) {
         webClient = client;
         this.authHost = authHost;
+        this.breaker = breaker;
     }
 
     static void validateAuthInfo(JsonObject authInfo) throws IllegalArgumentException {
@@ -84,10 +95,22 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 
         JsonObject body = new JsonObject();
         body.put(TOKEN, authenticationInfo.getString(TOKEN));
-        webClient
-            .post(443, authHost, AUTH_TIP_PATH)
+        /* Rejected at once while the auth server is down, answered as its failure */
+        Tracing.Span span = Tracing.startClient("POST " + AUTH_TIP_PATH)
+            .attribute("peer.service", "auth");
+        breaker.<HttpResponse<Buffer>>execute(call -> span.traced(webClient
+            .post(443, authHost, AUTH_TIP_PATH))
+                .timeout(breaker.timeout())
                 .expect(ResponsePredicate.JSON)
-                .sendJsonObject(body, httpResponseAsyncResult -> {
+                .sendJsonObject(body, ar -> {
+                    if (ar.succeeded() && ar.result().statusCode() >= 500) {
+                        call.fail(AUTH_SERVER_ERROR + ";" + ar.result().statusCode());
+                    } else {
+                        call.handle(ar);
+                    }
+                }))
+                .onComplete(span.ending(StageTimer.start(CLIENT_AUTH)
+                    .stopping(httpResponseAsyncResult -> {
                     if (httpResponseAsyncResult.failed()) {
                         result.put(STATUS, ERROR);
                         result.put(MESSAGE, AUTH_SERVER_ERROR);
@@ -123,7 +146,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
                     result.put(STATUS, ERROR);
                     result.put(MESSAGE, "ID/Operations not permitted with presented token");
                     handler.handle(Future.succeededFuture(result));
-                });
+                })));
 
         return null;
     }
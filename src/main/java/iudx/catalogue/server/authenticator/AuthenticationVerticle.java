@@ -9,6 +9,7 @@ import io.vertx.core.net.JksOptions;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.serviceproxy.ServiceBinder;
+import iudx.catalogue.server.util.CircuitBreaker;
 
 
 import static iudx.catalogue.server.authenticator.Constants.*;
@@ -44,7 +45,8 @@ public class AuthenticationVerticle extends AbstractVerticle {
   public void start() throws Exception {
 
     String authHost = config().getString(AUTH_SERVER_HOST);
-    authentication = new AuthenticationServiceImpl(createWebClient(vertx, config()), authHost);
+    authentication = new AuthenticationServiceImpl(createWebClient(vertx, config()), authHost,
+        CircuitBreaker.shared(BREAKER_AUTH, config().getJsonObject(CIRCUIT_BREAKER)));
 
 
     new ServiceBinder(vertx).setAddress(AUTH_SERVICE_ADDRESS)
@@ -11,6 +11,7 @@ public class Constants {
   static final String RESULT = "results";
   static final String SHAPE_KEY = "shape";
   static final String SIZE_KEY = "size";
+  static final String TOOK = "took";
   static final int STATIC_DELAY_TIME = 3000;
 
   /* Database */
@@ -18,16 +19,107 @@ public class Constants {
   
   static final String FILTER_PATH = "?filter_path=took,hits.total.value,hits.hits._source";
   static final String FILTER_PATH_AGGREGATION = "?filter_path=hits.total.value,aggregations.results.buckets";
+  static final String FILTER_PATH_FACETS = "?filter_path=took,hits.total.value,aggregations";
+  static final String FILTER_PATH_MSEARCH = "?filter_path=responses.status,responses.error.type,"
+      + "responses.hits.total.value,responses.hits.hits._source";
+  static final String MIME_NDJSON = "application/x-ndjson";
+  static final String RESPONSES = "responses";
+  static final String TRACK_TOTAL_HITS = "track_total_hits";
+  static final String FILTER_PATH_SEARCH_AFTER = "?filter_path=hits.hits._source,hits.hits.sort";
   static final String FILTER_ID_ONLY_PATH = "?filter_path=hits.total.value,hits.hits._id&size=10000";
   
   static final String TYPE_KEY = "type";
   static final String ID_KEYWORD = "id.keyword";
   static final String DOC_ID = "_id";
   static final String KEY = "key";
+  static final String DOC_COUNT = "doc_count";
+  static final String FACET = "facet";
+  static final String VALUES = "values";
+  static final int FACET_BUCKET_SIZE = 100;
   static final String SUMMARY_KEY = "_summary";
   static final String GEOSUMMARY_KEY = "_geosummary";
 
   /* Geo-Spatial */
+  static final String SPATIAL_INDEX_ADDRESS = "iudx.catalogue.database.spatialindex";
+  static final String HIERARCHY_INDEX_ADDRESS = "iudx.catalogue.database.hierarchyindex";
+  static final String PARENT = "parent";
+  static final String DELETE_BY_QUERY = "/_delete_by_query";
+  static final String UPDATE_BY_QUERY = "/_update_by_query";
+  static final String BY_QUERY_OPTIONS = "?wait_for_completion=false&conflicts=proceed&slices=";
+  static final String TASKS = "_tasks/";
+  static final String TASK = "task";
+  static final String SCRIPT = "script";
+  static final String RESPONSE = "response";
+  static final String VERSION_CONFLICTS_KEY = "version_conflicts";
+  static final int DEFAULT_SUBTREE_SLICES = 4;
+  static final int DEFAULT_JOURNAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+  static final int DEFAULT_JOURNAL_BATCH_SIZE = 500;
+  static final long DEFAULT_JOURNAL_DRAIN_INTERVAL = 1000;
+  static final int DEFAULT_JOURNAL_RETAINED_SEGMENTS = 0;
+  static final String TIMESTAMP_KEY = "ts";
+  static final String JOURNAL_OP = "op";
+  static final String JOURNAL_BY_QUERY = "byQuery";
+  static final String JOURNAL_ENDPOINT = "endpoint";
+  static final String JOURNAL_INSTANCES_ADDRESS = "iudx.catalogue.database.journal.instances";
+  static final String UPDATE_DOC = "/_update/";
+  static final String CREATE_DOC = "/_create/";
+  static final String BULK = "/_bulk";
+  static final String BULK_FILTER_PATH =
+      "?filter_path=items.*._id,items.*._version,items.*.status,items.*.error";
+  static final String ITEMS = "items";
+  static final String CREATE = "create";
+  static final String UPDATE_SOURCE_OPTION = "?_source=true";
+  static final String GET_KEY = "get";
+  static final String GET_SOURCE_OPTIONS = "?_source_excludes=_summary,_word_vector";
+  static final String FOUND = "found";
+  static final String IGNORE = "ignore";
+  static final String SEQ_NO = "_seq_no";
+  static final String PRIMARY_TERM = "_primary_term";
+  static final String IF_SEQ_NO = "if_seq_no";
+  static final String IF_PRIMARY_TERM = "if_primary_term";
+  static final String DOC_KEY = "doc";
+  static final String ALIAS = "_alias/";
+  static final String ALIASES = "aliases";
+  static final String IS_WRITE_INDEX = "is_write_index";
+  static final String WRITE_ALIAS_SUFFIX = "-write";
+  static final String WRITE_INDEX = "writeIndex";
+  static final String SHADOW_INDEX = "shadowIndex";
+  static final String DOC_VERSION = "_version";
+  static final String VERSION_PARAM = "version";
+  static final String VERSION_TYPE = "version_type";
+  static final String EXTERNAL = "external";
+  static final String MAPPING = "/_mapping";
+  static final String META = "_meta";
+  static final String MIRROR_FAILED = "mirrorFailed";
+  static final int MIRROR_ATTEMPTS = 3;
+  static final long MIRROR_BACKOFF = 1000;
+  /* Time for the failed mirrors to be given up, longer than their backoffs */
+  static final long MIRROR_RETRY_WINDOW = 10000;
+  static final long DEFAULT_ALIAS_REFRESH_INTERVAL = 5000;
+  static final String WARM_UP_QUERY = "{\"query\":{\"match_all\":{}}}";
+  static final String WARM_UP_SEARCH = "{\"query\":{\"match_all\":{}},\"size\":10}";
+  static final int WARM_UP_ROUNDS = 50;
+  static final int WARM_UP_CONCURRENCY = 8;
+  static final long WARM_UP_POLL = 100;
+  static final long WARM_UP_TIMEOUT = 60000;
+  static final String ALIASES_ENDPOINT = "_aliases";
+  static final String ACTIONS = "actions";
+  static final String ADD = "add";
+  static final String REMOVE = "remove";
+  static final String INDEX_KEY = "index";
+  static final String ALIAS_KEY = "alias";
+  static final String ROUTING = "routing";
+  static final String DOC_ROUTING = "_routing";
+  static final String INSTANCE_KEYWORD = "instance.keyword";
+  static final String INSTANCE_ALIAS_INFIX = "-instance-";
+  static final String FILTER_PATH_ROUTING = "?filter_path=hits.hits._routing";
+  static final String ROUTING_QUERY =
+      "{\"size\":1,\"_source\":false,\"query\":{\"ids\":{\"values\":[\"$1\"]}}}";
+  static final String BOOL_KEY = "bool";
+  static final String SORT = "sort";
+  static final String MUST = "must";
+  static final String DOC_ORDER = "_doc";
+  static final String SEARCH_AFTER = "search_after";
   static final String COORDINATES_KEY = "coordinates";
   static final String DISTANCE_IN_METERS = "m";
   static final String GEO_BBOX = "envelope";
@@ -40,9 +132,10 @@ public class Constants {
   /* Error */
   static final String DATABASE_BAD_QUERY = "Query Failed with status != 20x";
   static final String EMPTY_RESPONSE = "Empty response";
-  static final String ERROR_INVALID_COORDINATE_POLYGON = "Coordinate mismatch (Polygon)";
   static final String ERROR_INVALID_GEO_PARAMETER = "Missing/Invalid geo parameters";
   static final String ERROR_INVALID_RESPONSE_FILTER = "Missing/Invalid responseFilter parameters";
+  static final String ERROR_INVALID_ITEM_STATUS = "Invalid itemStatus";
+  static final String ERROR_INVALID_FACETS = "Missing/Invalid facets parameters";
   static final String NO_SEARCH_TYPE_FOUND = "No searchType found";
   static final String COUNT_UNSUPPORTED = "Count is not supported with filtering";
   static final String INVALID_SEARCH = "Invalid search request";
@@ -51,13 +144,8 @@ public class Constants {
   static final String DOC_EXISTS = "item already exists";
   static final String INSTANCE_NOT_EXISTS = "instance doesn't exist";
 
-  /** Search type regex */
-  public static final String TAGSEARCH_REGEX = "(.*)tagsSearch(.*)";
-  public static final String TEXTSEARCH_REGEX = "(.*)textSearch(.*)";
-  public static final String ATTRIBUTE_SEARCH_REGEX = "(.*)attributeSearch(.*)";
-  public static final String GEOSEARCH_REGEX = "(.*)geoSearch(.*)";
+  /** Search types */
   public static final String RESPONSE_FILTER_GEO = "responseFilter_geoSearch_";
-  public static final String RESPONSE_FILTER_REGEX = "(.*)responseFilter(.*)";
 
   /** DB Query related */
   public static final String MATCH_KEY = "match";
@@ -76,6 +164,7 @@ public class Constants {
   public static final String FORWARD_SLASH = "/";
   public static final String WILDCARD_KEY = "wildcard";
   public static final String AGGREGATION_ONLY = "AGGREGATION";
+  public static final String FACETS_ONLY = "FACETS";
   public static final String TYPE_KEYWORD = "type.keyword";
   public static final String WORD_VECTOR_KEY = "_word_vector";
 
@@ -107,6 +196,9 @@ public class Constants {
     "{\"query\": {\"bool\": {\"filter\": [ {\"match\": {\"type\": \"$1\"}} ]}},"
     + "\"aggs\": {\"results\": {\"terms\": {\"field\": \"id.keyword\", \"size\": $size}}}}";
 
+  public static final String FACET_AGGREGATION =
+      "{\"terms\": {\"field\": \"$1\", \"size\": $2}}";
+
   public static final String GEO_SHAPE_QUERY =
       "{ \"geo_shape\": { \"$4\": { \"shape\": { \"type\": \"$1\", \"coordinates\": $2 },"
           + " \"relation\": \"$3\" } } }";
@@ -114,13 +206,47 @@ public class Constants {
   public static final String TEXT_QUERY =
       "{\"query_string\":{\"query\":\"$1\"}}";
 
+  public static final String TERMS_ID_QUERY = "{\"terms\":{\"id.keyword\":$1}}";
+
+  public static final String SPATIAL_INDEX_LOAD_QUERY =
+      "{\"size\":$1,\"_source\":[\"id\",\"location.geometry\"],"
+          + "\"query\":{\"exists\":{\"field\":\"location.geometry\"}},"
+          + "\"sort\":[{\"id.keyword\":\"asc\"}]}";
+
+  public static final String HIERARCHY_INDEX_LOAD_QUERY =
+      "{\"size\":$1,\"_source\":[\"id\",\"type\",\"provider\",\"resourceServer\","
+          + "\"resourceGroup\",\"instance\"],\"query\":{\"match_all\":{}},"
+          + "\"sort\":[{\"id.keyword\":\"asc\"}]}";
+
+  public static final String SUBTREE_QUERY =
+      "{\"query\":{\"bool\":{\"should\":[{\"term\":{\"id.keyword\":\"$1\"}},"
+          + "{\"prefix\":{\"id.keyword\":\"$1/\"}}]}}}";
+
+  /* JSON merge patch (RFC 7396) of the source; a null removes the attribute */
+  public static final String MERGE_PATCH_SCRIPT =
+      "{\"source\":\"void merge(Map target, Map patch) { for (def entry : patch.entrySet()) {"
+          + " def value = entry.getValue(); if (value == null) { target.remove(entry.getKey()); }"
+          + " else if (value instanceof Map) { def current = target.get(entry.getKey());"
+          + " if (!(current instanceof Map)) { current = new HashMap();"
+          + " target.put(entry.getKey(), current); } merge(current, value); }"
+          + " else { target.put(entry.getKey(), value); } } }"
+          + " merge(ctx._source, params.patch);\",\"lang\":\"painless\"}";
+
+  /* Full replacement of the source, fails on a missing doc unlike an index request */
+  public static final String REPLACE_SCRIPT =
+      "{\"source\":\"ctx._source.clear(); ctx._source.putAll(params.doc)\","
+          + "\"lang\":\"painless\"}";
+
+  public static final String ITEM_STATUS_SCRIPT =
+      "{\"source\":\"ctx._source.itemStatus = params.itemStatus\",\"lang\":\"painless\","
+          + "\"params\":{\"itemStatus\":\"$1\"}}";
+
   public static final String GET_DOC_QUERY =
       "{\"_source\":[$2],\"query\":{\"term\":{\"id.keyword\":\"$1\"}}}";
 
-  public static final String INSTANCE_FILTER = "{\"match\":" + "{\"instance\": \"" + "$1" + "\"}}";
+  public static final String INSTANCE_FILTER = "{\"term\":{\"instance.keyword\":\"$1\"}}";
   public static final String BOOL_MUST_QUERY = "{\"query\":{\"bool\":{\"must\":[$1]}}}";
   public static final String SHOULD_QUERY = "{\"bool\":{\"should\":$1}}";
-  public static final String MUST_QUERY = "{\"bool\":{\"must\":$1}}";
   public static final String FILTER_QUERY = "{\"bool\":{\"filter\":[$1]}}";
   public static final String MATCH_QUERY = "{\"match\":{\"$1\":\"$2\"}}";
   public static final String TERM_QUERY = "{\"term\":{\"$1\":\"$2\"}}";
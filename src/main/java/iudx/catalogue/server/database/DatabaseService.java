@@ -7,6 +7,7 @@ import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.json.JsonArray;
 import io.vertx.ext.web.client.WebClient;
@@ -75,6 +76,27 @@ public interface DatabaseService {
   @Fluent
   DatabaseService countQuery(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
 
+  /**
+   * The facetQuery implements the facet count operation with the database.
+   * 
+   * @param request which is a JsonObject
+   * @param handler which is a Request Handler
+   * @return DatabaseService which is a Service
+   */
+  @Fluent
+  DatabaseService facetQuery(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * The batchQuery implements several search/count operations with the database in one
+   * request. Each request carries its {@code method} (search or count).
+   * 
+   * @param request which is a JsonArray of search/count requests
+   * @param handler which is a Request Handler
+   * @return DatabaseService which is a Service
+   */
+  @Fluent
+  DatabaseService batchQuery(JsonArray request, Handler<AsyncResult<JsonObject>> handler);
+
   /**
    * The createItem implements the create item operation with the database.
    * 
@@ -87,7 +109,9 @@ public interface DatabaseService {
 
 
   /**
-   * The updateItem implements the update item operation with the database.
+   * The updateItem implements the update item operation with the database. If the request has an
+   * ifMatch version, the item is only updated if it still has that version; otherwise the
+   * request fails with a conflict status and the current version.
    * 
    * @param request which is a JsonObject
    * @param handler which is a Request Handler
@@ -96,6 +120,16 @@ public interface DatabaseService {
   @Fluent
   DatabaseService updateItem(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
 
+  /**
+   * The patchItem applies a JSON merge patch to an item in the database.
+   * 
+   * @param request which is a JsonObject with the id, the patch and an optional ifMatch version
+   * @param handler which is a Request Handler
+   * @return DatabaseService which is a Service
+   */
+  @Fluent
+  DatabaseService patchItem(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
+
   /**
    * The deleteItem implements the delete item operation with the database.
    * 
@@ -106,6 +140,38 @@ public interface DatabaseService {
   @Fluent
   DatabaseService deleteItem(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
 
+  /**
+   * The deleteSubtree deletes an item and all its descendants in a background job.
+   * 
+   * @param request which is a JsonObject
+   * @param handler which is a Request Handler
+   * @return DatabaseService which is a Service
+   */
+  @Fluent
+  DatabaseService deleteSubtree(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * The updateSubtreeStatus sets the itemStatus of an item and all its descendants in a
+   * background job.
+   * 
+   * @param request which is a JsonObject
+   * @param handler which is a Request Handler
+   * @return DatabaseService which is a Service
+   */
+  @Fluent
+  DatabaseService updateSubtreeStatus(JsonObject request,
+      Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * The getJobStatus reports the progress of a subtree job.
+   * 
+   * @param request which is a JsonObject
+   * @param handler which is a Request Handler
+   * @return DatabaseService which is a Service
+   */
+  @Fluent
+  DatabaseService getJobStatus(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
+
   /**
    * The listItems implements the list items operation with the database.
    * 
@@ -141,6 +207,16 @@ public interface DatabaseService {
   @Fluent
   DatabaseService getItem(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
 
+  /**
+   * The queryStats reports the statistics of the database requests of the node, by their shape.
+   * 
+   * @param request which is a JsonObject, with the limit and the sortBy order
+   * @param handler which is a Request Handler
+   * @return DatabaseService which is a Service
+   */
+  @Fluent
+  DatabaseService queryStats(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
+
   /* create db service with nlp and geocoding */
   @GenIgnore
   static DatabaseService create(ElasticClient client,
@@ -159,4 +235,10 @@ public interface DatabaseService {
     return new DatabaseServiceVertxEBProxy(vertx, address);
   }
 
+  /* create proxy with delivery options, e.g. of the local codec */
+  @GenIgnore
+  static DatabaseService createProxy(Vertx vertx, String address, DeliveryOptions options) {
+    return new DatabaseServiceVertxEBProxy(vertx, address, options);
+  }
+
 }
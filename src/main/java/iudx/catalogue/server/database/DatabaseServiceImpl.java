@@ -4,16 +4,30 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.ResponseException;
+import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.regex.Pattern;
 import static iudx.catalogue.server.util.Constants.*;
 import static iudx.catalogue.server.database.Constants.*;
+import static iudx.catalogue.server.util.StageTimer.DB_COUNT;
+import static iudx.catalogue.server.util.StageTimer.DB_DELAY;
+import static iudx.catalogue.server.util.StageTimer.DB_EMBEDDING;
+import static iudx.catalogue.server.util.StageTimer.DB_GEOSUMMARY;
+import static iudx.catalogue.server.util.StageTimer.DB_INSERT;
+import static iudx.catalogue.server.util.StageTimer.DB_INSTANCE;
+import static iudx.catalogue.server.util.StageTimer.DB_SEARCH;
+import static iudx.catalogue.server.util.StageTimer.DB_UPDATE;
 import iudx.catalogue.server.nlpsearch.NLPSearchService;
 import iudx.catalogue.server.geocoding.GeocodingService;
+import iudx.catalogue.server.util.SearchType;
+import iudx.catalogue.server.util.StageTimer;
 
 
 /**
@@ -31,12 +45,20 @@ import iudx.catalogue.server.geocoding.GeocodingService;
 public class DatabaseServiceImpl implements DatabaseService {
 
   private static final Logger LOGGER = LogManager.getLogger(DatabaseServiceImpl.class);
+  /* Id of an Elasticsearch task, "<node id>:<task number>" */
+  private static final Pattern TASK_ID_PATTERN = Pattern.compile("^[\\w-]+:\\d+$");
   private ElasticClient client;
   private final QueryDecoder queryDecoder = new QueryDecoder();
   private NLPSearchService nlpService;
   private GeocodingService geoService;
   private boolean nlpPluggedIn;
   private boolean geoPluggedIn;
+  private SpatialIndex spatialIndex;
+  private HierarchyIndex hierarchyIndex;
+  private int subtreeSlices = DEFAULT_SUBTREE_SLICES;
+  private JournalDrainer journal;
+  private boolean instanceRouting = false;
+  private Vertx vertx;
 
   public DatabaseServiceImpl(ElasticClient client) {
     this.client = client;
@@ -54,6 +76,42 @@ public class DatabaseServiceImpl implements DatabaseService {
     geoPluggedIn = true;
   }
 
+  void setSpatialIndex(SpatialIndex spatialIndex) {
+    this.spatialIndex = spatialIndex;
+  }
+
+  void setHierarchyIndex(HierarchyIndex hierarchyIndex) {
+    this.hierarchyIndex = hierarchyIndex;
+  }
+
+  void setSubtreeSlices(int subtreeSlices) {
+    this.subtreeSlices = subtreeSlices;
+  }
+
+  void setInstanceRouting(boolean instanceRouting) {
+    this.instanceRouting = instanceRouting;
+  }
+
+  void setTrackTotalHits(Integer trackTotalHits) {
+    queryDecoder.setTrackTotalHits(trackTotalHits);
+  }
+
+  void setVertx(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  void setJournal(JournalDrainer journal) {
+    this.journal = journal;
+    journal.onIndexed(doc -> {
+      if (spatialIndex != null) {
+        spatialIndex.publishPut(doc);
+      }
+      if (hierarchyIndex != null) {
+        hierarchyIndex.publishPut(doc);
+      }
+    });
+  }
+
   @Override
   public DatabaseService searchQuery(JsonObject request, Handler<AsyncResult<JsonObject>> handler) {
 
@@ -83,9 +141,14 @@ public class DatabaseServiceImpl implements DatabaseService {
       return null;
     }
 
-    LOGGER.debug("Info: Query constructed;" + query.toString());
+    if (spatialIndex != null && SearchType.GEO.in(SearchType.of(request))) {
+      spatialIndex.narrow(request, query);
+    }
+
+    LOGGER.debug("Info: Query constructed;{}", query);
 
-    client.searchAsync(query.toString(), searchRes -> {
+    client.searchAsync(query.toString(), routing(request), StageTimer.start(DB_SEARCH)
+        .searchType(SearchType.of(request)).stopping(searchRes -> {
       if (searchRes.succeeded()) {
         LOGGER.debug("Success: Successful DB request");
         handler.handle(Future.succeededFuture(searchRes.result()));
@@ -96,7 +159,7 @@ public class DatabaseServiceImpl implements DatabaseService {
                           .withDescription(INTERNAL_SERVER_ERROR)
                           .getResponse()));
       }
-    });
+    }));
     return this;
   }
 
@@ -168,9 +231,14 @@ public class DatabaseServiceImpl implements DatabaseService {
       return null;
     }
 
-    LOGGER.debug("Info: Query constructed;" + query.toString());
+    if (spatialIndex != null && SearchType.GEO.in(SearchType.of(request))) {
+      spatialIndex.narrow(request, query);
+    }
+
+    LOGGER.debug("Info: Query constructed;{}", query);
 
-    client.countAsync(query.toString(), searchRes -> {
+    client.countAsync(query.toString(), routing(request), StageTimer.start(DB_COUNT)
+        .searchType(SearchType.of(request)).stopping(searchRes -> {
       if (searchRes.succeeded()) {
         LOGGER.debug("Success: Successful DB request");
         handler.handle(Future.succeededFuture(searchRes.result()));
@@ -181,11 +249,117 @@ public class DatabaseServiceImpl implements DatabaseService {
                           .withDescription(INTERNAL_SERVER_ERROR)
                           .getResponse()));
       }
-    });
+    }));
     Future<JsonObject> fut = Future.future();
     return this;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DatabaseService facetQuery(JsonObject request, Handler<AsyncResult<JsonObject>> handler) {
+
+    RespBuilder respBuilder = new RespBuilder();
+    request.put(SEARCH, false);
+
+    /* Construct the query to be made */
+    JsonObject query = queryDecoder.facetQuery(request);
+    if (query.containsKey(ERROR)) {
+
+      LOGGER.error("Fail: Query returned with an error");
+      handler.handle(Future.failedFuture(
+            respBuilder.withStatus(FAILED)
+                        .withDescription(query.getString(ERROR))
+                        .getResponse()));
+      return null;
+    }
+
+    LOGGER.debug("Info: Query constructed;{}", query);
+
+    client.facetAggregationAsync(query.toString(), searchRes -> {
+      if (searchRes.succeeded()) {
+        LOGGER.debug("Success: Successful DB request");
+        handler.handle(Future.succeededFuture(searchRes.result()));
+      } else {
+        LOGGER.error("Fail: DB Request;" + searchRes.cause().getMessage());
+        handler.handle(Future.failedFuture(
+              respBuilder.withStatus(FAILED)
+                          .withDescription(INTERNAL_SERVER_ERROR)
+                          .getResponse()));
+      }
+    });
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DatabaseService batchQuery(JsonArray request, Handler<AsyncResult<JsonObject>> handler) {
+
+    RespBuilder respBuilder = new RespBuilder();
+
+    /* Decode every request; the ones which fail keep their error at their position */
+    JsonObject[] results = new JsonObject[request.size()];
+    JsonArray queries = new JsonArray();
+    for (int i = 0; i < request.size(); i++) {
+      JsonObject entry = request.getJsonObject(i);
+      if (FAILED.equals(entry.getString(STATUS))) {
+        /* Rejected while validating the request */
+        results[i] = entry;
+        continue;
+      }
+      boolean isSearch = SEARCH_METHOD.equals(entry.getString(METHOD));
+      entry.put(SEARCH, isSearch);
+
+      JsonObject query = entry.containsKey(SEARCH_TYPE)
+          ? queryDecoder.searchQuery(entry)
+          : new JsonObject().put(ERROR, NO_SEARCH_TYPE_FOUND);
+      if (query.containsKey(ERROR)) {
+        LOGGER.error("Fail: Batch query returned with an error;" + query.getString(ERROR));
+        results[i] = new JsonObject().put(STATUS, FAILED).put(DESC, query.getString(ERROR));
+        continue;
+      }
+      if (!isSearch) {
+        query.remove(FROM);
+        query.put(SIZE_KEY, 0).put(TRACK_TOTAL_HITS, true);
+      }
+      queries.add(query);
+    }
+
+    if (queries.isEmpty()) {
+      handler.handle(Future.succeededFuture(
+          new JsonObject().put(STATUS, SUCCESS)
+                          .put(RESULTS, new JsonArray(Arrays.asList(results)))));
+      return this;
+    }
+
+    LOGGER.debug("Info: Batch queries constructed;{}", queries.size());
+
+    client.multiSearchAsync(queries, searchRes -> {
+      if (searchRes.succeeded()) {
+        LOGGER.debug("Success: Successful DB request");
+        JsonArray responses = searchRes.result().getJsonArray(RESULTS);
+        for (int i = 0, j = 0; i < results.length; i++) {
+          if (results[i] == null) {
+            results[i] = responses.getJsonObject(j++);
+          }
+        }
+        handler.handle(Future.succeededFuture(
+            new JsonObject().put(STATUS, SUCCESS)
+                            .put(RESULTS, new JsonArray(Arrays.asList(results)))));
+      } else {
+        LOGGER.error("Fail: DB Request;" + searchRes.cause().getMessage());
+        handler.handle(Future.failedFuture(
+              respBuilder.withStatus(FAILED)
+                          .withDescription(INTERNAL_SERVER_ERROR)
+                          .getResponse()));
+      }
+    });
+    return this;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -195,87 +369,111 @@ public class DatabaseServiceImpl implements DatabaseService {
     RespBuilder respBuilder = new RespBuilder();
     String id = doc.getString("id");
     final String instanceId = doc.getString(INSTANCE);
+    String docId = ElasticClient.docId(id);
 
     String errorJson = respBuilder.withStatus(FAILED).withResult(id, INSERT, FAILED).getResponse();
 
-    String checkItem = GET_DOC_QUERY.replace("$1", id).replace("$2", "");
+    /* The create fails with a conflict if the doc exists, no search is needed before */
+    Handler<AsyncResult<JsonObject>> createHandler = postRes -> {
+      if (postRes.succeeded()) {
+        JsonObject created = respBuilder.withStatus(SUCCESS)
+                                        .withResult(id, INSERT, SUCCESS)
+                                        .getJsonResponse();
+        if (instanceRouting
+            && doc.getJsonArray(TYPE, new JsonArray()).contains(ITEM_TYPE_INSTANCE)) {
+          instanceAlias(id, true);
+        }
+        /* A journaled item has no version yet, it is indexed once drained */
+        if (postRes.result().containsKey(VERSION)) {
+          if (spatialIndex != null) {
+            spatialIndex.publishPut(doc);
+          }
+          if (hierarchyIndex != null) {
+            hierarchyIndex.publishPut(doc);
+          }
+          created.put(VERSION, postRes.result().getString(VERSION));
+        }
+        handler.handle(Future.succeededFuture(created));
+      } else if (statusCode(postRes.cause()) == 409) {
+        LOGGER.error("Fail: Doc Exists;" + id);
+        handler.handle(Future.failedFuture(
+            respBuilder.withStatus(ERROR)
+                       .withResult(id, INSERT, FAILED, "Fail: Doc Exists")
+                       .getResponse()));
+      } else {
+        handler.handle(Future.failedFuture(errorJson));
+        LOGGER.error("Fail: Insertion failed" + postRes.cause());
+      }
+    };
 
-    verifyInstance(instanceId).onComplete(instanceHandler -> {
+    StageTimer instanceTimer = StageTimer.start(DB_INSTANCE).item(doc);
+    verifyInstance(instanceId).onComplete(instanceTimer.stopping(instanceHandler -> {
       if (instanceHandler.succeeded()) {
-        LOGGER.debug("Info: Instance info;" + instanceHandler.result());
+        LOGGER.debug("Info: Instance info;{}", instanceHandler.result());
 
-        client.searchAsync(checkItem.toString(), checkRes -> {
-          if (checkRes.failed()) {
-            LOGGER.error("Fail: Isertion failed;" + checkRes.cause());
-            handler.handle(Future.failedFuture(errorJson));
-          }
-          if (checkRes.succeeded()) {
-            if (checkRes.result().getInteger(TOTAL_HITS) != 0) {
-              handler.handle(Future.failedFuture(
-                  respBuilder.withStatus(ERROR)
-                             .withResult(id, INSERT, FAILED, "Fail: Doc Exists")
-                             .getResponse()));
-              return;
-            }
+        doc.put(SUMMARY_KEY, Summarizer.summarize(doc));
 
-            doc.put(SUMMARY_KEY, Summarizer.summarize(doc));
-
-            /* If geo and nlp services are initialized */
-            if (geoPluggedIn && nlpPluggedIn) {
-              geoService.geoSummarize(doc, geoHandler -> {
-                /* Not going to check if success or fail */
-                doc.put(GEOSUMMARY_KEY, geoHandler.result());
-                nlpService.getEmbedding(doc, ar-> {
-                  if(ar.succeeded()) {
-                    LOGGER.debug("Info: Document embeddings created");
-                    doc.put(WORD_VECTOR_KEY, ar.result().getJsonArray("result"));
-                    /* Insert document */
-                    client.docPostAsync(doc.toString(), postRes -> {
-                      if (postRes.succeeded()) {
-                        handler.handle(Future.succeededFuture(
-                              respBuilder.withStatus(SUCCESS)
-                              .withResult(id, INSERT, SUCCESS)
-                              .getJsonResponse()));
-                      } else {
-                        handler.handle(Future.failedFuture(errorJson));
-                        LOGGER.error("Fail: Insertion failed" + postRes.cause());
-                      }
-                    });
-                  } else {
-                    LOGGER.error("Error: Document embeddings not created");
-                  }
-                });
-              });
+        /* If geo and nlp services are initialized */
+        if (geoPluggedIn && nlpPluggedIn) {
+          geoService.geoSummarize(doc,
+              StageTimer.start(DB_GEOSUMMARY).item(doc).stopping(geoHandler -> {
+            /* Indexed without the geo summary or the embeddings if their services are down */
+            if (geoHandler.succeeded()) {
+              doc.put(GEOSUMMARY_KEY, geoHandler.result());
             } else {
+              LOGGER.error("Fail: Geo summary not created;" + geoHandler.cause().getMessage());
+            }
+            nlpService.getEmbedding(doc,
+                StageTimer.start(DB_EMBEDDING).item(doc).stopping(ar-> {
+              if(ar.succeeded()) {
+                LOGGER.debug("Info: Document embeddings created");
+                doc.put(WORD_VECTOR_KEY, ar.result().getJsonArray("result"));
+              } else {
+                LOGGER.error("Error: Document embeddings not created");
+              }
               /* Insert document */
-              new Timer().schedule(new TimerTask() {
-                public void run() {
-                  client.docPostAsync(doc.toString(), postRes -> {
-                    if (postRes.succeeded()) {
-                      handler.handle(Future.succeededFuture(
-                          respBuilder.withStatus(SUCCESS)
-                                     .withResult(id, INSERT, SUCCESS)
-                                     .getJsonResponse()));
-                    } else {
-                      handler.handle(Future.failedFuture(errorJson));
-                      LOGGER.error("Fail: Insertion failed" + postRes.cause());
-                    }
-                  });
-                }
-              }, STATIC_DELAY_TIME);
+              insert(docId, doc,
+                  StageTimer.start(DB_INSERT).item(doc).stopping(createHandler));
+            }));
+          }));
+        } else {
+          /* Insert document */
+          StageTimer delayTimer = StageTimer.start(DB_DELAY).item(doc);
+          new Timer().schedule(new TimerTask() {
+            public void run() {
+              delayTimer.stop(true);
+              insert(docId, doc,
+                  StageTimer.start(DB_INSERT).item(doc).stopping(createHandler));
             }
-          }
-        });
+          }, STATIC_DELAY_TIME);
+        }
       } else if (instanceHandler.failed()) {
         handler.handle(Future.failedFuture(
             respBuilder.withStatus(ERROR)
                        .withResult(id, INSERT, FAILED, instanceHandler.cause().getLocalizedMessage())
                        .getResponse()));
       }
-    });
+    }));
     return this;
   }
 
+  /* Inserts a doc through the journal if enabled, directly if not or if the append fails */
+  private void insert(String docId, JsonObject doc, Handler<AsyncResult<JsonObject>> handler) {
+    if (journal == null) {
+      client.docCreateAsync(docId, routing(doc), doc.toString(), handler);
+      return;
+    }
+    journal.append(doc).onComplete(appendRes -> {
+      if (appendRes.succeeded()) {
+        LOGGER.debug("Info: Item journaled; seq {}", appendRes.result());
+        handler.handle(Future.succeededFuture(new JsonObject()));
+      } else {
+        LOGGER.error("Fail: Journal append failed;" + appendRes.cause().getMessage());
+        client.docCreateAsync(docId, routing(doc), doc.toString(), handler);
+      }
+    });
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -284,45 +482,178 @@ public class DatabaseServiceImpl implements DatabaseService {
 
     RespBuilder respBuilder = new RespBuilder();
     String id = doc.getString("id");
-    String checkQuery = GET_DOC_QUERY.replace("$1", id).replace("$2", "\"" + id + "\"");
+    String docId = ElasticClient.docId(id);
+
+    /* Expected version of the doc, if the update is conditional */
+    String version = (String) doc.remove(IF_MATCH);
 
     String errorJson = respBuilder.withStatus(ERROR)
                                   .withResult(id, UPDATE, FAILED)
         .getResponse();
 
+    /* The source is replaced by a script, which unlike an index request fails on a missing doc */
+    String script = new JsonObject().put(SCRIPT, new JsonObject(REPLACE_SCRIPT)
+        .put(PARAMS, new JsonObject().put(DOC_KEY, doc))).toString();
+
+    StageTimer delayTimer = StageTimer.start(DB_DELAY).item(doc);
     new Timer().schedule(new TimerTask() {
       public void run() {
-        client.searchGetId(checkQuery, checkRes -> {
-          if (checkRes.failed()) {
-            LOGGER.error("Fail: Check query fail;" + checkRes.cause());
+        delayTimer.stop(true);
+        client.docUpdateAsync(docId, routing(doc), script, version,
+            StageTimer.start(DB_UPDATE).item(doc).stopping(putRes -> {
+          if (putRes.succeeded()) {
+            if (spatialIndex != null) {
+              spatialIndex.publishPut(doc);
+            }
+            if (hierarchyIndex != null) {
+              hierarchyIndex.publishPut(doc);
+            }
+            journalApplied(INDEX_KEY, new JsonObject().put(DOC_KEY, doc), routing(doc));
+            handler.handle(Future.succeededFuture(respBuilder.withStatus(SUCCESS)
+                .withResult(id, UPDATE, SUCCESS).getJsonResponse()
+                .put(VERSION, putRes.result().getString(VERSION))));
+          } else if (statusCode(putRes.cause()) == 409) {
+            versionConflict(id, docId, handler);
+          } else if (statusCode(putRes.cause()) == 404) {
+            LOGGER.error("Fail: Doc doesn't exist, can't update");
+            handler.handle(Future.failedFuture(respBuilder.withStatus(ERROR)
+                .withResult(id, UPDATE, FAILED, "Fail: Doc doesn't exist, can't update")
+                .getResponse()));
+          } else {
             handler.handle(Future.failedFuture(errorJson));
-            return;
+            LOGGER.error("Fail: Updation failed;" + putRes.cause());
           }
-          if (checkRes.succeeded()) {
-            if (checkRes.result().getInteger(TOTAL_HITS) != 1) {
-              LOGGER.error("Fail: Doc doesn't exist, can't update");
-              handler.handle(Future.failedFuture(respBuilder.withStatus(ERROR)
-                  .withResult(id, UPDATE, FAILED, "Fail: Doc doesn't exist, can't update")
-                  .getResponse()));
-              return;
-            }
-            String docId = checkRes.result().getJsonArray(RESULTS).getString(0);
-            client.docPutAsync(docId, doc.toString(), putRes -> {
-              if (putRes.succeeded()) {
-                handler.handle(Future.succeededFuture(respBuilder.withStatus(SUCCESS)
-                    .withResult(id, UPDATE, SUCCESS).getJsonResponse()));
+        }));
+      }
+    }, STATIC_DELAY_TIME);
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DatabaseService patchItem(JsonObject request, Handler<AsyncResult<JsonObject>> handler) {
+
+    RespBuilder respBuilder = new RespBuilder();
+    String id = request.getString(ID);
+    JsonObject patch = request.getJsonObject(PATCH);
+    String docId = ElasticClient.docId(id);
+    String version = request.getString(IF_MATCH);
+
+    String errorJson = respBuilder.withStatus(ERROR)
+                                  .withResult(id, UPDATE, FAILED)
+                                  .getResponse();
+
+    String script = new JsonObject().put(SCRIPT, new JsonObject(MERGE_PATCH_SCRIPT)
+        .put(PARAMS, new JsonObject().put(PATCH, patch))).toString();
+
+    routingOf(id).compose(routing -> {
+      Promise<JsonObject> patchPromise = Promise.promise();
+      client.docUpdateAsync(docId, routing, script, version, patchPromise);
+      return patchPromise.future();
+    }).onComplete(patchRes -> {
+      if (patchRes.failed() && statusCode(patchRes.cause()) == 409) {
+        versionConflict(id, docId, handler);
+        return;
+      }
+      if (patchRes.failed() && statusCode(patchRes.cause()) == 404) {
+        LOGGER.error("Fail: Doc doesn't exist, can't patch");
+        handler.handle(Future.failedFuture(respBuilder.withStatus(ERROR)
+            .withResult(id, UPDATE, FAILED, "Fail: Doc doesn't exist, can't update")
+            .getResponse()));
+        return;
+      }
+      if (patchRes.failed()) {
+        LOGGER.error("Fail: Patch failed;" + patchRes.cause());
+        handler.handle(Future.failedFuture(errorJson));
+        return;
+      }
+      JsonObject doc = patchRes.result().getJsonArray(RESULTS).getJsonObject(0);
+      if (spatialIndex != null && patch.containsKey(LOCATION)) {
+        spatialIndex.publishPut(doc);
+      }
+      if (hierarchyIndex != null && (patch.containsKey(RESOURCE_GRP)
+          || patch.containsKey(RESOURCE_SVR) || patch.containsKey(PROVIDER)
+          || patch.containsKey(INSTANCE))) {
+        hierarchyIndex.publishPut(doc);
+      }
+
+      /* Enrichment fields are only recomputed for the patched attributes;
+       * the patch itself is already applied, so a failed enrichment is only logged */
+      patchEnrichment(doc, patch).onComplete(enrichHandler -> {
+        if (enrichHandler.failed()) {
+          LOGGER.error("Fail: Enrichment of the patched item failed;" + enrichHandler.cause());
+        }
+        JsonObject enrichment = enrichHandler.succeeded()
+            ? enrichHandler.result()
+            : new JsonObject();
+        if (enrichment.isEmpty()) {
+          journalApplied(INDEX_KEY, new JsonObject().put(DOC_KEY, doc), routing(doc));
+          handler.handle(Future.succeededFuture(respBuilder.withStatus(SUCCESS)
+              .withResult(id, UPDATE, SUCCESS).getJsonResponse()
+              .put(VERSION, patchRes.result().getString(VERSION))));
+          return;
+        }
+        client.docUpdateAsync(docId, routing(doc),
+            new JsonObject().put(DOC_KEY, enrichment).toString(), null, enrichRes -> {
+              JsonObject updated = patchRes.result();
+              if (enrichRes.failed()) {
+                LOGGER.error("Fail: Enrichment update failed;" + enrichRes.cause());
               } else {
-                handler.handle(Future.failedFuture(errorJson));
-                LOGGER.error("Fail: Updation failed;" + putRes.cause());
+                updated = enrichRes.result();
+                doc.mergeIn(enrichment);
               }
+              journalApplied(INDEX_KEY, new JsonObject().put(DOC_KEY, doc), routing(doc));
+              handler.handle(Future.succeededFuture(respBuilder.withStatus(SUCCESS)
+                  .withResult(id, UPDATE, SUCCESS).getJsonResponse()
+                  .put(VERSION, updated.getString(VERSION))));
             });
-          }
-        });
-      }
-    }, STATIC_DELAY_TIME);
+      });
+    });
     return this;
   }
 
+  /* Summary, geo summary and embeddings of a patched item, for the attributes touched */
+  private Future<JsonObject> patchEnrichment(JsonObject doc, JsonObject patch) {
+
+    Promise<JsonObject> geoPromise = Promise.promise();
+    JsonObject enrichment = new JsonObject();
+
+    if (geoPluggedIn && patch.containsKey(LOCATION)) {
+      geoService.geoSummarize(doc, geoHandler -> {
+        if (geoHandler.succeeded()) {
+          enrichment.put(GEOSUMMARY_KEY, geoHandler.result());
+        }
+        geoPromise.complete(enrichment);
+      });
+    } else {
+      geoPromise.complete(enrichment);
+    }
+
+    if (!Summarizer.hasTextAttributes(patch)) {
+      return geoPromise.future();
+    }
+    return geoPromise.future().compose(geoEnrichment -> {
+      Promise<JsonObject> promise = Promise.promise();
+      enrichment.put(SUMMARY_KEY, Summarizer.summarize(doc));
+      if (!nlpPluggedIn) {
+        promise.complete(enrichment);
+        return promise.future();
+      }
+      nlpService.getEmbedding(doc, ar -> {
+        if (ar.succeeded()) {
+          LOGGER.debug("Info: Document embeddings created");
+          enrichment.put(WORD_VECTOR_KEY, ar.result().getJsonArray("result"));
+        } else {
+          LOGGER.error("Error: Document embeddings not created");
+        }
+        promise.complete(enrichment);
+      });
+      return promise.future();
+    });
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -337,50 +668,78 @@ public class DatabaseServiceImpl implements DatabaseService {
                                   .withResult(id, DELETE, FAILED)
                                   .getResponse();
 
+    /* The resources of a resource group are looked up in the hierarchy index when it is loaded */
+    Boolean hasChildren = hierarchyIndex != null ? hierarchyIndex.hasResources(id) : null;
+    if (Boolean.TRUE.equals(hasChildren)) {
+      LOGGER.error("Fail: Can't delete, parent doc has associated item;");
+      handler.handle(Future.succeededFuture(respBuilder.withStatus(ERROR)
+          .withResult(id, DELETE, FAILED, "Fail: Can't delete, resourceGroup has associated item")
+          .getJsonResponse()));
+      return this;
+    }
+
     new Timer().schedule(new TimerTask() {
       public void run() {
-        String checkQuery = "";
-        var isParent = new Object() {
-          boolean value = false;
-        };
-
-        if (id.split("/").length < 5) {
-          isParent.value = true;
-          checkQuery = QUERY_RESOURCE_GRP.replace("$1", id).replace("$2", id);
+        /* Without the hierarchy index, child items are looked up before the delete */
+        Future<Boolean> childCheck;
+        if (hasChildren == null && id.split("/").length < 5) {
+          Promise<Boolean> childPromise = Promise.promise();
+          String checkQuery = QUERY_RESOURCE_GRP.replace("$1", id).replace("$2", id);
+          client.searchGetId(checkQuery, checkRes -> {
+            if (checkRes.failed()) {
+              childPromise.fail(checkRes.cause());
+            } else {
+              childPromise.complete(checkRes.result().getInteger(TOTAL_HITS) > 1);
+            }
+          });
+          childCheck = childPromise.future();
         } else {
-          checkQuery = GET_DOC_QUERY.replace("$1", id).replace("$2", "");
+          childCheck = Future.succeededFuture(false);
         }
 
-        client.searchGetId(checkQuery, checkRes -> {
+        childCheck.onComplete(checkRes -> {
           if (checkRes.failed()) {
             LOGGER.error("Fail: Check query fail;" + checkRes.cause().getMessage());
             handler.handle(Future.failedFuture(errorJson));
+            return;
           }
-
-          if (checkRes.succeeded()) {
-            LOGGER.debug("Success: Check index for doc");
-            if (checkRes.result().getInteger(TOTAL_HITS) > 1 && isParent.value == true) {
-              LOGGER.error("Fail: Can't delete, parent doc has associated item;");
-              handler
-                  .handle(Future.succeededFuture(respBuilder.withStatus(ERROR)
-                      .withResult(id, DELETE, FAILED,
-                          "Fail: Can't delete, resourceGroup has associated item")
-                      .getJsonResponse()));
-              return;
-            } else if (checkRes.result().getInteger(TOTAL_HITS) != 1) {
-              LOGGER.error("Fail: Doc doesn't exist, can't delete;");
-              handler.handle(Future.succeededFuture(respBuilder.withStatus(ERROR)
-                  .withResult(id, DELETE, FAILED, "Fail: Doc doesn't exist, can't delete")
-                  .getJsonResponse()));
-              return;
-            }
+          if (checkRes.result()) {
+            LOGGER.error("Fail: Can't delete, parent doc has associated item;");
+            handler
+                .handle(Future.succeededFuture(respBuilder.withStatus(ERROR)
+                    .withResult(id, DELETE, FAILED,
+                        "Fail: Can't delete, resourceGroup has associated item")
+                    .getJsonResponse()));
+            return;
           }
 
-          String docId = checkRes.result().getJsonArray(RESULTS).getString(0);
-          client.docDelAsync(docId, delRes -> {
+          routingOf(id).compose(routing -> {
+            Promise<JsonObject> delPromise = Promise.promise();
+            client.docDelAsync(ElasticClient.docId(id), routing, delPromise);
+            return delPromise.future().map(deleted -> routing);
+          }).onComplete(delRes -> {
             if (delRes.succeeded()) {
+              if (vertx != null) {
+                JournalDrainer.publishRemove(vertx, id);
+              }
+              journalApplied(DELETE, new JsonObject().put(ID, id), delRes.result());
+              if (instanceRouting
+                  && request.getJsonArray(TYPE, new JsonArray()).contains(ITEM_TYPE_INSTANCE)) {
+                instanceAlias(id, false);
+              }
+              if (spatialIndex != null) {
+                spatialIndex.publishRemove(id);
+              }
+              if (hierarchyIndex != null) {
+                hierarchyIndex.publishRemove(id);
+              }
               handler.handle(Future.succeededFuture(respBuilder.withStatus(SUCCESS)
                   .withResult(id, DELETE, SUCCESS).getJsonResponse()));
+            } else if (statusCode(delRes.cause()) == 404) {
+              LOGGER.error("Fail: Doc doesn't exist, can't delete;");
+              handler.handle(Future.succeededFuture(respBuilder.withStatus(ERROR)
+                  .withResult(id, DELETE, FAILED, "Fail: Doc doesn't exist, can't delete")
+                  .getJsonResponse()));
             } else {
               handler.handle(Future.failedFuture(errorJson));
               LOGGER.error("Fail: Deletion failed;" + delRes.cause().getMessage());
@@ -392,6 +751,204 @@ public class DatabaseServiceImpl implements DatabaseService {
     return this;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DatabaseService deleteSubtree(JsonObject request,
+      Handler<AsyncResult<JsonObject>> handler) {
+
+    LOGGER.debug("Info: Deleting subtree");
+
+    String id = request.getString(ID);
+    JsonArray subtreeIds = hierarchyIndex != null
+        ? hierarchyIndex.descendants(new JsonArray().add(id))
+        : null;
+
+    subtreeJob(id, DELETE, DELETE_BY_QUERY, subtreeQuery(id, subtreeIds), jobHandler -> {
+      if (jobHandler.succeeded() && subtreeIds != null) {
+        for (int i = 0; i < subtreeIds.size(); i++) {
+          hierarchyIndex.publishRemove(subtreeIds.getString(i));
+          if (spatialIndex != null) {
+            spatialIndex.publishRemove(subtreeIds.getString(i));
+          }
+        }
+      }
+      handler.handle(jobHandler);
+    });
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DatabaseService updateSubtreeStatus(JsonObject request,
+      Handler<AsyncResult<JsonObject>> handler) {
+
+    LOGGER.debug("Info: Updating subtree status");
+
+    String id = request.getString(ID);
+    String itemStatus = request.getString(ITEM_STATUS_KEY);
+    if (!ITEM_STATUSES.contains(itemStatus)) {
+      LOGGER.error("Fail: Invalid itemStatus;" + itemStatus);
+      handler.handle(Future.failedFuture(new RespBuilder().withStatus(FAILED)
+          .withResult(id, UPDATE, FAILED, ERROR_INVALID_ITEM_STATUS).getResponse()));
+      return this;
+    }
+
+    JsonArray subtreeIds = hierarchyIndex != null
+        ? hierarchyIndex.descendants(new JsonArray().add(id))
+        : null;
+    JsonObject query = subtreeQuery(id, subtreeIds)
+        .put(SCRIPT, new JsonObject(ITEM_STATUS_SCRIPT.replace("$1", itemStatus)));
+
+    subtreeJob(id, UPDATE, UPDATE_BY_QUERY, query, handler);
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DatabaseService getJobStatus(JsonObject request,
+      Handler<AsyncResult<JsonObject>> handler) {
+
+    RespBuilder respBuilder = new RespBuilder();
+    String jobId = request.getString(JOB_ID);
+    if (jobId == null || !TASK_ID_PATTERN.matcher(jobId).matches()) {
+      handler.handle(Future.succeededFuture(respBuilder.withStatus(ERROR)
+          .withResult(jobId, REQUEST_GET, FAILED, "Fail: Job doesn't exist")
+          .getJsonResponse()));
+      return this;
+    }
+
+    client.taskAsync(jobId, taskHandler -> {
+      if (taskHandler.succeeded()) {
+        LOGGER.debug("Success: Job status;{}", taskHandler.result());
+        handler.handle(Future.succeededFuture(taskHandler.result()));
+      } else if (statusCode(taskHandler.cause()) == 404) {
+        handler.handle(Future.succeededFuture(respBuilder.withStatus(ERROR)
+            .withResult(jobId, REQUEST_GET, FAILED, "Fail: Job doesn't exist")
+            .getJsonResponse()));
+      } else {
+        LOGGER.error("Fail: Job status;" + taskHandler.cause().getMessage());
+        handler.handle(Future.failedFuture(respBuilder.withStatus(FAILED)
+            .withDescription(INTERNAL_SERVER_ERROR).getResponse()));
+      }
+    });
+    return this;
+  }
+
+  /* Responds to a conditional write of a doc which has changed, with its current version */
+  private void versionConflict(String id, String docId, Handler<AsyncResult<JsonObject>> handler) {
+    LOGGER.error("Fail: Version conflict;" + id);
+    routingOf(id).compose(routing -> {
+      Promise<JsonObject> getPromise = Promise.promise();
+      client.docGetAsync(docId, routing, getPromise);
+      return getPromise.future();
+    }).onComplete(getRes -> {
+      JsonObject conflict = new RespBuilder().withStatus(CONFLICT)
+          .withResult(id, UPDATE, FAILED, "Fail: Doc has changed, version conflict")
+          .getJsonResponse();
+      if (getRes.succeeded() && getRes.result().containsKey(VERSION)) {
+        conflict.put(VERSION, getRes.result().getString(VERSION));
+      }
+      handler.handle(Future.failedFuture(conflict.toString()));
+    });
+  }
+
+  /* Routing of an item or of the items of a request, when the items are routed by instance */
+  private String routing(JsonObject doc) {
+    return instanceRouting ? ElasticClient.routing(doc) : null;
+  }
+
+  /* Routing of an item by id; from the hierarchy index when loaded, else looked up */
+  private Future<String> routingOf(String id) {
+    if (!instanceRouting) {
+      return Future.succeededFuture(null);
+    }
+    String instance = hierarchyIndex != null ? hierarchyIndex.instance(id) : null;
+    if (instance != null) {
+      return Future.succeededFuture(instance.isEmpty() ? null : instance);
+    }
+    Promise<String> promise = Promise.promise();
+    client.routingAsync(ElasticClient.docId(id), routingRes -> {
+      if (routingRes.failed()) {
+        promise.fail(routingRes.cause());
+      } else {
+        promise.complete(routingRes.result().getString(ROUTING));
+      }
+    });
+    return promise.future();
+  }
+
+  /* Provisions or removes the filtered alias of an instance */
+  private void instanceAlias(String instance, boolean add) {
+    client.instanceAliasAsync(instance, add, aliasRes -> {
+      if (aliasRes.succeeded()) {
+        LOGGER.info("Success: Instance alias {};{}", add ? "added" : "removed", instance);
+      } else {
+        LOGGER.error("Fail: Instance alias;" + instance + ";" + aliasRes.cause().getMessage());
+      }
+    });
+  }
+
+  /* Journals a write applied to Elasticsearch, for the replays, if journaling */
+  private void journalApplied(String op, JsonObject record, String routing) {
+    if (journal == null) {
+      return;
+    }
+    if (routing != null) {
+      record.put(ROUTING, routing);
+    }
+    journal.appendApplied(record.put(JOURNAL_OP, op));
+  }
+
+  /* Status code of a failed Elasticsearch request; 0 if the request got no response */
+  private static int statusCode(Throwable cause) {
+    if (cause instanceof ResponseException) {
+      return ((ResponseException) cause).getResponse().getStatusLine().getStatusCode();
+    }
+    return 0;
+  }
+
+  /* Query matching an item and its descendants; by ids if resolved by the hierarchy index */
+  private JsonObject subtreeQuery(String id, JsonArray subtreeIds) {
+    if (subtreeIds != null) {
+      return new JsonObject().put(QUERY_KEY,
+          new JsonObject(TERMS_ID_QUERY.replace("$1", subtreeIds.toString())));
+    }
+    return new JsonObject(SUBTREE_QUERY.replace("$1", id));
+  }
+
+  /* Starts a by-query job over a subtree and responds with the job id */
+  private void subtreeJob(String id, String method, String operation, JsonObject query,
+      Handler<AsyncResult<JsonObject>> handler) {
+
+    RespBuilder respBuilder = new RespBuilder();
+    LOGGER.debug("Info: Subtree job query;{}", query);
+
+    client.byQueryAsync(operation, query.toString(), subtreeSlices, jobHandler -> {
+      if (jobHandler.succeeded()) {
+        String jobId = jobHandler.result().getJsonArray(RESULTS).getJsonObject(0)
+                                 .getString(JOB_ID);
+        LOGGER.info("Success: Subtree job started;{}", jobId);
+        journalApplied(JOURNAL_BY_QUERY,
+            new JsonObject().put(JOURNAL_ENDPOINT, operation).put(QUERY_KEY, query), null);
+        JsonObject response = respBuilder.withStatus(SUCCESS)
+                                         .withResult(id, method, ACCEPTED)
+                                         .getJsonResponse();
+        response.getJsonArray(RESULTS).getJsonObject(0).put(JOB_ID, jobId);
+        handler.handle(Future.succeededFuture(response));
+      } else {
+        LOGGER.error("Fail: Subtree job failed;" + jobHandler.cause().getMessage());
+        handler.handle(Future.failedFuture(respBuilder.withStatus(FAILED)
+            .withResult(id, method, FAILED).getResponse()));
+      }
+    });
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -402,9 +959,12 @@ public class DatabaseServiceImpl implements DatabaseService {
 
     RespBuilder respBuilder = new RespBuilder();
     String itemId = request.getString(ID);
-    String getQuery = GET_DOC_QUERY.replace("$1", itemId).replace("$2", "");
 
-    client.searchAsync(getQuery, clientHandler -> {
+    routingOf(itemId).compose(routing -> {
+      Promise<JsonObject> getPromise = Promise.promise();
+      client.docGetAsync(ElasticClient.docId(itemId), routing, getPromise);
+      return getPromise.future();
+    }).onComplete(clientHandler -> {
       if (clientHandler.succeeded()) {
         LOGGER.debug("Success: Successful DB request");
         JsonObject responseJson = clientHandler.result();
@@ -421,6 +981,20 @@ public class DatabaseServiceImpl implements DatabaseService {
     return this;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DatabaseService queryStats(JsonObject request, Handler<AsyncResult<JsonObject>> handler) {
+    QueryStats stats = client.getQueryStats();
+    JsonArray top = stats == null ? new JsonArray()
+        : stats.top(request.getInteger(LIMIT, 10), request.getString(SORT_BY));
+    handler.handle(Future.succeededFuture(new JsonObject().put(STATUS, SUCCESS)
+                                                          .put(TOTAL_HITS, top.size())
+                                                          .put(RESULTS, top)));
+    return this;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -430,7 +1004,7 @@ public class DatabaseServiceImpl implements DatabaseService {
     RespBuilder respBuilder = new RespBuilder();
     String elasticQuery = queryDecoder.listItemQuery(request);
 
-    LOGGER.debug("Info: Listing items;" + elasticQuery);
+    LOGGER.debug("Info: Listing items;{}", elasticQuery);
 
     client.listAggregationAsync(elasticQuery, clientHandler -> {
       if (clientHandler.succeeded()) {
@@ -457,9 +1031,12 @@ public class DatabaseServiceImpl implements DatabaseService {
       Handler<AsyncResult<JsonObject>> handler) {
 
     RespBuilder respBuilder = new RespBuilder();
-    String elasticQuery = queryDecoder.listRelationshipQuery(request);
+    JsonArray ids = hierarchyIndex != null
+        ? hierarchyIndex.relationship(request.getString(ID), request.getString(RELATIONSHIP))
+        : null;
+    String elasticQuery = queryDecoder.listRelationshipQuery(request, ids);
 
-    LOGGER.debug("Info: Query constructed;" + elasticQuery);
+    LOGGER.debug("Info: Query constructed;{}", elasticQuery);
 
     client.searchAsync(elasticQuery, searchRes -> {
       if (searchRes.succeeded()) {
@@ -544,9 +1121,21 @@ public class DatabaseServiceImpl implements DatabaseService {
           JsonArray resultValues = searchRes.result().getJsonArray(RESULTS);
           elasticQuery.clear();
           JsonArray idCollection = new JsonArray();
+          JsonArray rootIds = new JsonArray();
+          for (Object idIndex : resultValues) {
+            String id = ((JsonObject) idIndex).getString(ID);
+            if (id != null) {
+              rootIds.add(id);
+            }
+          }
+          JsonArray subtreeIds = hierarchyIndex != null && !rootIds.isEmpty()
+              ? hierarchyIndex.descendants(rootIds)
+              : null;
 
           /* iterating over the filtered response json array */
-          if (!resultValues.isEmpty()) {
+          if (subtreeIds != null) {
+            idCollection.add(new JsonObject(TERMS_ID_QUERY.replace("$1", subtreeIds.toString())));
+          } else if (!resultValues.isEmpty()) {
 
             for (Object idIndex : resultValues) {
               JsonObject id = (JsonObject) idIndex;
@@ -575,7 +1164,7 @@ public class DatabaseServiceImpl implements DatabaseService {
             elasticQuery.put(FROM, offsetFilter);
           }
 
-          LOGGER.debug("INFO: Query constructed;" + elasticQuery.toString());
+          LOGGER.debug("INFO: Query constructed;{}", elasticQuery);
 
           /* db query to find the relationship to the initial query */
           client.searchAsync(elasticQuery.toString(), relSearchRes -> {
@@ -615,6 +1204,11 @@ public class DatabaseServiceImpl implements DatabaseService {
       return promise.future();
     }
 
+    if (journal != null && journal.isVerified(instanceId)) {
+      promise.complete(true);
+      return promise.future();
+    }
+
     String checkInstance = GET_DOC_QUERY.replace("$1", instanceId).replace("$2", "");
     client.searchAsync(checkInstance, checkRes -> {
       if (checkRes.failed()) {
@@ -624,6 +1218,9 @@ public class DatabaseServiceImpl implements DatabaseService {
         LOGGER.debug(INSTANCE_NOT_EXISTS);
         promise.fail("Fail: Instance doesn't exist/registered");
       } else {
+        if (journal != null) {
+          journal.verified(instanceId);
+        }
         promise.complete(true);
       }
       return;
@@ -2,14 +2,25 @@ package iudx.catalogue.server.database;
 
 import static iudx.catalogue.server.util.Constants.*;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import io.vertx.serviceproxy.ServiceBinder;
 import iudx.catalogue.server.database.ElasticClient;
 import iudx.catalogue.server.nlpsearch.NLPSearchService;
 import iudx.catalogue.server.geocoding.GeocodingService;
+import iudx.catalogue.server.util.CircuitBreaker;
+import iudx.catalogue.server.util.LocalJsonCodec;
+import iudx.catalogue.server.util.ServiceLocality;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.eventbus.MessageConsumer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
 
 /**
  * The Database Verticle.
@@ -34,6 +45,7 @@ public class DatabaseVerticle extends AbstractVerticle {
   private int databasePort;
   private ElasticClient client;
   private JsonArray optionalModules;
+  private List<MessageConsumer<JsonObject>> consumers;
 
   /**
    * This method is used to start the Verticle. It deploys a verticle in a cluster, registers the
@@ -44,7 +56,7 @@ public class DatabaseVerticle extends AbstractVerticle {
    */
 
   @Override
-  public void start() throws Exception {
+  public void start(Promise<Void> startPromise) throws Exception {
 
     databaseIP = config().getString(DATABASE_IP);
     databasePort = config().getInteger(DATABASE_PORT);
@@ -53,7 +65,23 @@ public class DatabaseVerticle extends AbstractVerticle {
     docIndex = config().getString(DOC_INDEX);
     optionalModules = config().getJsonArray(OPTIONAL_MODULES);
 
-    client = new ElasticClient(databaseIP, databasePort, docIndex, databaseUser, databasePassword);
+    client = new ElasticClient(databaseIP, databasePort, docIndex, databaseUser, databasePassword)
+        .setBreaker(
+            CircuitBreaker.shared(BREAKER_ELASTIC, config().getJsonObject(CIRCUIT_BREAKER)))
+        .setQueryStats(QueryStats.shared(config().getJsonObject(QUERY_STATS)));
+
+    /* Follows the write alias of the index, which is moved by a reindex */
+    long aliasRefreshInterval =
+        config().getLong(ALIAS_REFRESH_INTERVAL, Constants.DEFAULT_ALIAS_REFRESH_INTERVAL);
+    if (aliasRefreshInterval > 0) {
+      Handler<AsyncResult<JsonObject>> aliasHandler = aliasRes -> {
+        if (aliasRes.failed()) {
+          LOGGER.error("Fail: Write alias refresh failed;" + aliasRes.cause().getMessage());
+        }
+      };
+      client.refreshAliasesAsync(aliasHandler);
+      vertx.setPeriodic(aliasRefreshInterval, id -> client.refreshAliasesAsync(aliasHandler));
+    }
 
     if(optionalModules.contains(NLPSEARCH_PACKAGE_NAME) 
         && optionalModules.contains(GEOCODING_PACKAGE_NAME)) {
@@ -64,9 +92,111 @@ public class DatabaseVerticle extends AbstractVerticle {
       database = new DatabaseServiceImpl(client);
     }
 
-    new ServiceBinder(vertx).setAddress(DATABASE_SERVICE_ADDRESS)
-      .register(DatabaseService.class, database);
+    ((DatabaseServiceImpl) database).setVertx(vertx);
+
+    /* Optional in-memory spatial index */
+    SpatialIndex spatialIndex = null;
+    if (config().getBoolean(SPATIAL_INDEX, false)) {
+      spatialIndex = new SpatialIndex(vertx, config().getDouble(SPATIAL_INDEX_CELL_SIZE, 0.05));
+      spatialIndex.start(client);
+      ((DatabaseServiceImpl) database).setSpatialIndex(spatialIndex);
+    }
+
+    /* In-memory index of the catalogue hierarchy */
+    HierarchyIndex hierarchyIndex = null;
+    if (config().getBoolean(HIERARCHY_INDEX, true)) {
+      hierarchyIndex = new HierarchyIndex(vertx);
+      hierarchyIndex.start(client);
+      ((DatabaseServiceImpl) database).setHierarchyIndex(hierarchyIndex);
+    }
+
+    ((DatabaseServiceImpl) database)
+        .setSubtreeSlices(config().getInteger(SUBTREE_SLICES, Constants.DEFAULT_SUBTREE_SLICES));
 
+    /* Optional routing of the items by instance, the index has to be built with it */
+    ((DatabaseServiceImpl) database)
+        .setInstanceRouting(config().getBoolean(INSTANCE_ROUTING, false));
+
+    /* Hits counted exactly by a search, beyond which the total is a lower bound */
+    ((DatabaseServiceImpl) database).setTrackTotalHits(config().getInteger(TRACK_TOTAL_HITS_LIMIT));
+
+    /* Optional write-ahead journal of the insertions, shared by the verticles of a JVM; off by
+     * default, as a journaled item is only readable once drained (see JournalDrainer) */
+    if (config().getString(JOURNAL_PATH) != null) {
+      ((DatabaseServiceImpl) database).setJournal(JournalDrainer.open(vertx, client, config()));
+    }
+
+    /* The replies are passed by reference within the JVM, as the requests of the api server */
+    LocalJsonCodec.register(vertx);
+    DatabaseServiceVertxProxyHandler proxyHandler =
+        new DatabaseServiceVertxProxyHandler(vertx, database);
+    consumers = ServiceLocality.register(vertx, DATABASE_SERVICE_ADDRESS,
+        message -> proxyHandler.handle(LocalJsonCodec.replyByReference(message)));
+
+    /* Optional warm-up, before the modules depending on the database are deployed */
+    if (config().getBoolean(WARM_UP, false)) {
+      SpatialIndex spatial = spatialIndex;
+      HierarchyIndex hierarchy = hierarchyIndex;
+      warmUp(() -> (spatial == null || spatial.isReady())
+          && (hierarchy == null || hierarchy.isReady()))
+          .onComplete(warmedUp -> startPromise.complete());
+    } else {
+      startPromise.complete();
+    }
+
+  }
+
+  /* Rounds of concurrent counts and searches open the pool of connections to Elasticsearch and
+   * run the request path until the JIT compiles it; then the in-memory indexes are waited for, up
+   * to WARM_UP_TIMEOUT. A failed request ends the rounds, the deployment goes on */
+  private Future<Void> warmUp(BooleanSupplier indexesReady) {
+    long start = System.currentTimeMillis();
+    Future<Void> rounds = Future.succeededFuture();
+    for (int i = 0; i < Constants.WARM_UP_ROUNDS; i++) {
+      rounds = rounds.compose(v -> warmUpRound());
+    }
+    return rounds
+        .recover(cause -> {
+          LOGGER.warn("Fail: Warm-up request failed;" + cause.getMessage());
+          return Future.succeededFuture();
+        })
+        .compose(v -> {
+          Promise<Void> promise = Promise.promise();
+          vertx.setPeriodic(Constants.WARM_UP_POLL, id -> {
+            boolean ready = indexesReady.getAsBoolean();
+            if (ready || System.currentTimeMillis() - start > Constants.WARM_UP_TIMEOUT) {
+              vertx.cancelTimer(id);
+              if (!ready) {
+                LOGGER.warn("Fail: In-memory indexes not loaded after the warm-up");
+              }
+              LOGGER.info("Info: Warmed up in {}ms", System.currentTimeMillis() - start);
+              promise.complete();
+            }
+          });
+          return promise.future();
+        });
+  }
+
+  @SuppressWarnings("rawtypes")
+  private Future<Void> warmUpRound() {
+    List<Future> requests = new ArrayList<Future>();
+    for (int i = 0; i < Constants.WARM_UP_CONCURRENCY; i++) {
+      Promise<JsonObject> request = Promise.promise();
+      if (i % 2 == 0) {
+        client.countAsync(Constants.WARM_UP_QUERY, request);
+      } else {
+        client.searchAsync(Constants.WARM_UP_SEARCH, request);
+      }
+      requests.add(request.future());
+    }
+    return CompositeFuture.all(requests).mapEmpty();
+  }
+
+  @Override
+  public void stop() {
+    if (consumers != null) {
+      ServiceLocality.unregister(vertx, DATABASE_SERVICE_ADDRESS, consumers);
+    }
   }
 
 }
@@ -0,0 +1,203 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.cli.CLI;
+import io.vertx.core.cli.CommandLine;
+import io.vertx.core.cli.Option;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+/**
+ * DocIdMigration - One time reindex of an index of catalogue items into a new index, where every
+ * doc is stored with the deterministic elastic id of {@link ElasticClient#docId(String)}.
+ *
+ * <p>
+ * Docs indexed before the deterministic ids have random elastic ids, and the writes of the
+ * database service no longer find them. The migration has to run before the server is deployed;
+ * the docIndex of the database module is then pointed at the target index (or an alias swapped).
+ * Docs without an id are skipped, a second doc with the same id is counted as a duplicate.
+ **/
+public class DocIdMigration {
+  private static final Logger LOGGER = LogManager.getLogger(DocIdMigration.class);
+  private static final String DATABASE_MODULE = DatabaseVerticle.class.getName();
+  private static final int PAGE_SIZE = 1000;
+  private static final String SCROLL = "5m";
+
+  private final RestClient client;
+  private int migrated = 0;
+  private int duplicates = 0;
+  private int skipped = 0;
+  private int failed = 0;
+
+  DocIdMigration(RestClient client) {
+    this.client = client;
+  }
+
+  private JsonObject perform(Request request) throws IOException {
+    Response response = client.performRequest(request);
+    return new JsonObject(EntityUtils.toString(response.getEntity()));
+  }
+
+  /* Creates the target index with the mappings and the analysis settings of the source */
+  private void createIndex(String source, String target) throws IOException {
+    JsonObject mappings = perform(new Request("GET", source + "/_mapping"))
+        .getJsonObject(source).getJsonObject("mappings");
+    JsonObject settings = perform(new Request("GET", source + "/_settings"))
+        .getJsonObject(source).getJsonObject("settings").getJsonObject("index");
+
+    JsonObject indexSettings = new JsonObject();
+    if (settings.containsKey("analysis")) {
+      indexSettings.put("analysis", settings.getJsonObject("analysis"));
+    }
+    Request create = new Request("PUT", target);
+    create.setJsonEntity(new JsonObject().put("mappings", mappings)
+        .put("settings", new JsonObject().put("index", indexSettings)).toString());
+    perform(create);
+  }
+
+  /* Bulk creates a page of docs in the target index */
+  private void createDocs(String target, JsonArray hits) throws IOException {
+    StringBuilder bulk = new StringBuilder();
+    for (int i = 0; i < hits.size(); i++) {
+      JsonObject doc = hits.getJsonObject(i).getJsonObject("_source");
+      String id = doc.getString("id");
+      if (id == null) {
+        LOGGER.error("Fail: Doc without id skipped;" + hits.getJsonObject(i).getString("_id"));
+        skipped++;
+        continue;
+      }
+      JsonObject action = new JsonObject().put("_id", ElasticClient.docId(id));
+      bulk.append(new JsonObject().put("create", action)).append('\n')
+          .append(doc.encode()).append('\n');
+    }
+    if (bulk.length() == 0) {
+      return;
+    }
+
+    Request request = new Request("POST", target + "/_bulk");
+    request.setJsonEntity(bulk.toString());
+    JsonArray items = perform(request).getJsonArray("items");
+    for (int i = 0; i < items.size(); i++) {
+      JsonObject result = items.getJsonObject(i).getJsonObject("create");
+      int status = result.getInteger("status");
+      if (status == 201) {
+        migrated++;
+      } else if (status == 409) {
+        LOGGER.error("Fail: Duplicate doc;" + result.getString("_id"));
+        duplicates++;
+      } else {
+        LOGGER.error("Fail: Doc not migrated;" + result.getValue("error"));
+        failed++;
+      }
+    }
+  }
+
+  /**
+   * Copies all the docs of the source index to the target index.
+   *
+   * @param source index
+   * @param target index, created by the migration
+   */
+  void migrate(String source, String target) throws IOException {
+    createIndex(source, target);
+
+    Request search = new Request("POST", source + "/_search?scroll=" + SCROLL);
+    search.setJsonEntity(new JsonObject().put("size", PAGE_SIZE)
+        .put("sort", new JsonArray().add("_doc")).toString());
+    JsonObject page = perform(search);
+
+    while (true) {
+      String scrollId = page.getString("_scroll_id");
+      JsonArray hits = page.getJsonObject("hits").getJsonArray("hits");
+      if (hits.isEmpty()) {
+        Request clear = new Request("DELETE", "_search/scroll");
+        clear.setJsonEntity(new JsonObject().put("scroll_id", scrollId).toString());
+        perform(clear);
+        break;
+      }
+      createDocs(target, hits);
+      LOGGER.info("Info: Migrated " + migrated + " docs");
+
+      Request scroll = new Request("POST", "_search/scroll");
+      scroll.setJsonEntity(new JsonObject().put("scroll", SCROLL).put("scroll_id", scrollId)
+          .toString());
+      page = perform(scroll);
+    }
+    perform(new Request("POST", target + "/_refresh"));
+
+    LOGGER.info("Success: Migrated " + migrated + " docs into " + target + "; duplicates "
+        + duplicates + ", skipped " + skipped + ", failed " + failed);
+  }
+
+  public static void main(String[] args) {
+    CLI cli = CLI.create("IUDX Cat DocId Migration")
+        .setSummary("Reindexes the catalogue items with deterministic elastic ids")
+        .addOption(new Option().setLongName("help").setShortName("h").setFlag(true)
+            .setDescription("display help"))
+        .addOption(new Option().setLongName("config").setShortName("c")
+            .setRequired(true).setDescription("configuration file"))
+        .addOption(new Option().setLongName("target").setShortName("t")
+            .setDescription("target index; default <docIndex>-v2"));
+
+    StringBuilder usageString = new StringBuilder();
+    cli.usage(usageString);
+    CommandLine commandLine = cli.parse(Arrays.asList(args), false);
+    if (!commandLine.isValid() || commandLine.isFlagEnabled("help")) {
+      LOGGER.info(usageString);
+      return;
+    }
+
+    JsonObject config = null;
+    try {
+      JsonArray modules = new JsonObject(new String(Files.readAllBytes(
+          Paths.get(commandLine.getOptionValue("config"))), StandardCharsets.UTF_8))
+          .getJsonArray("modules");
+      for (int i = 0; i < modules.size(); i++) {
+        if (DATABASE_MODULE.equals(modules.getJsonObject(i).getString("id"))) {
+          config = modules.getJsonObject(i);
+        }
+      }
+    } catch (Exception e) {
+      LOGGER.fatal("Couldn't read configuration file");
+      return;
+    }
+    if (config == null) {
+      LOGGER.fatal("No database module in the configuration file");
+      return;
+    }
+
+    String source = config.getString("docIndex");
+    String target = commandLine.getOptionValue("target") != null
+        ? commandLine.getOptionValue("target")
+        : source + "-v2";
+
+    CredentialsProvider credentials = new BasicCredentialsProvider();
+    credentials.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(
+        config.getString("databaseUser"), config.getString("databasePassword")));
+    try (RestClient client = RestClient.builder(
+        new HttpHost(config.getString("databaseIP"), config.getInteger("databasePort")))
+        .setHttpClientConfigCallback(
+            httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentials))
+        .build()) {
+      new DocIdMigration(client).migrate(source, target);
+      LOGGER.info("Info: Set docIndex of the database module to " + target);
+    } catch (IOException e) {
+      LOGGER.fatal("Migration failed;" + e.getMessage());
+    }
+  }
+}
@@ -2,7 +2,9 @@ package iudx.catalogue.server.database;
 
 import org.apache.http.HttpHost;
 import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
 import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import io.vertx.core.json.JsonObject;
@@ -16,21 +18,47 @@ import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.auth.AuthScope;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
 
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import iudx.catalogue.server.util.CircuitBreaker;
+import iudx.catalogue.server.util.StageTimer;
+import iudx.catalogue.server.util.Tracing;
 
 import static iudx.catalogue.server.database.Constants.*;
 import static iudx.catalogue.server.util.Constants.*;
+import static iudx.catalogue.server.util.StageTimer.CLIENT_ELASTIC;
 
 public final class ElasticClient {
+  private static final Logger LOGGER = LogManager.getLogger(ElasticClient.class);
+  /* Retries of the failed reindex mirrors */
+  private static final Timer MIRROR_RETRIES = new Timer("reindex-mirror-retries", true);
   private final RestClient client;
   private final String index;
+  private final String writeAlias;
+
+  /* Write target, and the index mirrored by the writes during a reindex; see refreshAliasesAsync */
+  private volatile String writeIndex;
+  private volatile String shadowIndex;
+
+  /* Optional breaker and bulkhead of the requests */
+  private CircuitBreaker breaker;
+
+  /* Optional statistics of the requests by their shape */
+  private QueryStats queryStats;
 
   /**
    * ElasticClient - Wrapper around ElasticSearch low level client
@@ -47,6 +75,169 @@ public final class ElasticClient {
     client = RestClient.builder(new HttpHost(databaseIP, databasePort)).setHttpClientConfigCallback(
         httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentials)).build();
     this.index = index;
+    this.writeAlias = index + WRITE_ALIAS_SUFFIX;
+    this.writeIndex = index;
+  }
+
+  /**
+   * setBreaker - Guards the requests with a circuit breaker and bulkhead; a rejected request fails
+   * at once. 429, 5xx and connection failures count as failures of Elasticsearch, the other
+   * statuses (404, 409) don't. The requests keep the socket timeouts of the RestClient.
+   *
+   * @param breaker the breaker
+   * @return ElasticClient
+   */
+  public ElasticClient setBreaker(CircuitBreaker breaker) {
+    this.breaker = breaker;
+    return this;
+  }
+
+  /**
+   * setQueryStats - Records every request in the statistics of its shape
+   *
+   * @param queryStats the statistics
+   * @return ElasticClient
+   */
+  public ElasticClient setQueryStats(QueryStats queryStats) {
+    this.queryStats = queryStats;
+    return this;
+  }
+
+  public QueryStats getQueryStats() {
+    return queryStats;
+  }
+
+  /* Sample of a request in the statistics; null without statistics */
+  private QueryStats.Sample sample(Request request) {
+    return queryStats == null ? null : queryStats.start(request);
+  }
+
+  private void performRequestAsync(Request request, ResponseListener listener) {
+    performRequestAsync(request, sample(request), listener);
+  }
+
+  /* Performs a request through the breaker, if any, and times it; the listener runs with the
+   * span of the caller as current */
+  private void performRequestAsync(Request request, QueryStats.Sample sample,
+      ResponseListener listener) {
+    StageTimer timer = StageTimer.start(CLIENT_ELASTIC);
+    Tracing.Span caller = Tracing.current();
+    Tracing.Span span = Tracing.startClient(request.getMethod() + " " + request.getEndpoint());
+    if (breaker != null && !breaker.tryAcquire()) {
+      timer.stop(false);
+      span.end(breaker.unavailable());
+      listener.onFailure(new IOException(breaker.unavailable()));
+      return;
+    }
+    if (span.traceparent() != null) {
+      RequestOptions.Builder options = request.getOptions().toBuilder();
+      span.attribute("db.system", "elasticsearch").inject(options::addHeader);
+      request.setOptions(options);
+    }
+    client.performRequestAsync(request, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        timer.stop(true);
+        if (sample != null) {
+          queryStats.stop(sample, false);
+        }
+        span.attribute("http.status_code", response.getStatusLine().getStatusCode()).end(null);
+        if (breaker != null) {
+          breaker.release(false);
+        }
+        Tracing.run(caller, () -> listener.onSuccess(response));
+      }
+
+      @Override
+      public void onFailure(Exception e) {
+        timer.stop(false);
+        if (sample != null) {
+          queryStats.stop(sample, true);
+        }
+        int status = e instanceof ResponseException
+            ? ((ResponseException) e).getResponse().getStatusLine().getStatusCode()
+            : 0;
+        span.attribute("http.status_code", status == 0 ? null : status).end(e.toString());
+        if (breaker != null) {
+          breaker.release(status == 0 || status == 429 || status >= 500);
+        }
+        Tracing.run(caller, () -> listener.onFailure(e));
+      }
+    });
+  }
+
+  /**
+   * docId - Elastic id of a catalogue item, the hex SHA-1 of its id. Writes address the doc
+   * directly by this id, without looking up its elastic id first
+   * 
+   * @param id Catalogue item id
+   * @return Elastic id
+   */
+  public static String docId(String id) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-1").digest(id.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * refreshAliasesAsync - Resolves the write alias of the index (index + "-write"). Writes go to
+   * the write alias if it exists, else to the index itself. An index added to the write alias
+   * with is_write_index false is being built by a {@link Reindexer}; every doc write is mirrored
+   * to it until the aliases are swapped
+   * 
+   * @param resultHandler JsonObject result {writeIndex, shadowIndex}
+   */
+  public ElasticClient refreshAliasesAsync(Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request aliasRequest = new Request(REQUEST_GET, ALIAS + writeAlias);
+    aliasRequest.addParameter(IGNORE, "404");
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(aliasRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          String write = index;
+          String shadow = null;
+          if (response.getStatusLine().getStatusCode() == 200) {
+            write = writeAlias;
+            for (String aliasedIndex : responseJson.fieldNames()) {
+              JsonObject alias = responseJson.getJsonObject(aliasedIndex)
+                  .getJsonObject(ALIASES, new JsonObject())
+                  .getJsonObject(writeAlias, new JsonObject());
+              if (!alias.getBoolean(IS_WRITE_INDEX, true)) {
+                shadow = aliasedIndex;
+              }
+            }
+          }
+          if (shadow != null && !shadow.equals(shadowIndex)) {
+            LOGGER.info("Info: Reindex in progress, mirroring writes to " + shadow);
+          } else if (shadow == null && shadowIndex != null) {
+            LOGGER.info("Info: Reindex finished, writes to " + write);
+          }
+          writeIndex = write;
+          shadowIndex = shadow;
+          promise.complete(new JsonObject().put(WRITE_INDEX, write).put(SHADOW_INDEX, shadow));
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
   }
 
   /**
@@ -58,8 +249,21 @@ public final class ElasticClient {
    */
   public ElasticClient searchAsync(String query,
       Handler<AsyncResult<JsonObject>> resultHandler) {
+    return searchAsync(query, null, resultHandler);
+  }
+
+  /**
+   * searchAsync - Wrapper around elasticsearch async search requests, on the shards of a routing
+   * 
+   * @param query Query
+   * @param routing Routing of the searched items, see {@link #routing(JsonObject)}; null for all
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient searchAsync(String query, String routing,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
 
     Request queryRequest = new Request(REQUEST_GET, index + "/_search" + FILTER_PATH);
+    addRouting(queryRequest, routing);
     queryRequest.setJsonEntity(query);
     Future<JsonObject> future = searchAsync(queryRequest, SOURCE_ONLY);
     future.onComplete(resultHandler);
@@ -132,6 +336,216 @@ public final class ElasticClient {
     return this;
   }
 
+  /**
+   * facetAggregationAsync - Wrapper around elasticsearch async search requests carrying
+   * one terms aggregation per facet
+   * 
+   * @param query Query
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient facetAggregationAsync(String query,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request queryRequest = new Request(REQUEST_GET, index + "/_search" + FILTER_PATH_FACETS);
+    queryRequest.setJsonEntity(query);
+    Future<JsonObject> future = searchAsync(queryRequest, FACETS_ONLY);
+    future.onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * multiSearchAsync - Wrapper around elasticsearch async multi search requests.
+   * All the queries are sent in a single _msearch request and the responses are
+   * returned in the same order, each as a search/count response or a failed entry
+   * 
+   * @param queries JsonArray of search queries
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient multiSearchAsync(JsonArray queries,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < queries.size(); i++) {
+      body.append("{}\n").append(queries.getJsonObject(i).encode()).append('\n');
+    }
+
+    Request queryRequest = new Request(REQUEST_GET, index + "/_msearch" + FILTER_PATH_MSEARCH);
+    queryRequest.setEntity(new NStringEntity(body.toString(), ContentType.create(MIME_NDJSON)));
+    Future<JsonObject> future = multiSearchAsync(queryRequest);
+    future.onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * searchAfterAsync - Wrapper around elasticsearch async search requests paged with
+   * search_after. Returns the sources of the page and the sort values of its last hit
+   * 
+   * @param query Query with sort
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient searchAfterAsync(String query,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request queryRequest = new Request(REQUEST_GET, index + "/_search" + FILTER_PATH_SEARCH_AFTER);
+    queryRequest.setJsonEntity(query);
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(queryRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          int statusCode = response.getStatusLine().getStatusCode();
+          if (statusCode != 200 && statusCode != 204) {
+            promise.fail(DATABASE_BAD_QUERY);
+            return;
+          }
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          JsonArray hits = responseJson.getJsonObject(HITS, new JsonObject())
+                                       .getJsonArray(HITS, new JsonArray());
+          DBRespMsgBuilder responseMsg = new DBRespMsgBuilder().statusSuccess();
+          JsonArray sort = new JsonArray();
+          for (int i = 0; i < hits.size(); i++) {
+            responseMsg.addResult(hits.getJsonObject(i).getJsonObject(SOURCE));
+            sort = hits.getJsonObject(i).getJsonArray(SORT);
+          }
+          promise.complete(responseMsg.getResponse().put(SORT, sort));
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * byQueryAsync - Wrapper around elasticsearch async _delete_by_query/_update_by_query
+   * requests. The request runs as a background task split in parallel slices; the id of the
+   * task is returned as the job id
+   * 
+   * @param operation DELETE_BY_QUERY or UPDATE_BY_QUERY
+   * @param query Query, with the script of an update
+   * @param slices Number of parallel slices
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient byQueryAsync(String operation, String query, int slices,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request queryRequest =
+        new Request(REQUEST_POST, writeIndex + operation + BY_QUERY_OPTIONS + slices);
+    queryRequest.setJsonEntity(query);
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(queryRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          if (!responseJson.containsKey(TASK)) {
+            promise.fail(DATABASE_BAD_QUERY);
+            return;
+          }
+          promise.complete(new DBRespMsgBuilder().statusSuccess()
+              .addResult(new JsonObject().put(JOB_ID, responseJson.getString(TASK)))
+              .getResponse());
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * bulkAsync - Wrapper around elasticsearch async _bulk request. Returns the result of every
+   * action in order, as {_id, status[, error]}
+   * 
+   * @param body NDJSON of the actions and their docs
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient bulkAsync(String body, Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request bulkRequest = new Request(REQUEST_POST, writeIndex + BULK + BULK_FILTER_PATH);
+    bulkRequest.setEntity(new NStringEntity(body, ContentType.create(MIME_NDJSON)));
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(bulkRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          DBRespMsgBuilder responseMsg = new DBRespMsgBuilder().statusSuccess();
+          for (Object item : responseJson.getJsonArray(ITEMS, new JsonArray())) {
+            JsonObject action = (JsonObject) item;
+            responseMsg.addResult(action.getJsonObject(action.fieldNames().iterator().next()));
+          }
+          mirrorBulk(body, responseJson.getJsonArray(ITEMS, new JsonArray()));
+          promise.complete(responseMsg.getResponse());
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * taskAsync - Progress of a background task started by {@link #byQueryAsync}
+   * 
+   * @param taskId Id of the task
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient taskAsync(String taskId,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request taskRequest = new Request(REQUEST_GET, TASKS + taskId);
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(taskRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          JsonObject status = responseJson.getJsonObject(TASK, new JsonObject())
+                                          .getJsonObject(STATUS, new JsonObject());
+          JsonArray failures = responseJson.getJsonObject(RESPONSE, new JsonObject())
+                                           .getJsonArray(FAILURES, new JsonArray());
+          JsonObject job = new JsonObject()
+              .put(JOB_ID, taskId)
+              .put(COMPLETED, responseJson.getBoolean(COMPLETED, false))
+              .put(TOTAL, status.getLong(TOTAL, 0L))
+              .put(DELETED, status.getLong(DELETED, 0L))
+              .put(UPDATED, status.getLong(UPDATED, 0L))
+              .put(VERSION_CONFLICTS, status.getLong(VERSION_CONFLICTS_KEY, 0L))
+              .put(FAILURES, failures.size());
+          promise.complete(new DBRespMsgBuilder().statusSuccess().addResult(job).getResponse());
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
+  }
+
   /**
    * countAsync - Wrapper around elasticsearch async count requests
    * 
@@ -142,8 +556,21 @@ public final class ElasticClient {
    */
   public ElasticClient countAsync(String query,
       Handler<AsyncResult<JsonObject>> resultHandler) {
+    return countAsync(query, null, resultHandler);
+  }
+
+  /**
+   * countAsync - Wrapper around elasticsearch async count requests, on the shards of a routing
+   * 
+   * @param query Query
+   * @param routing Routing of the counted items; null for all
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient countAsync(String query, String routing,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
 
     Request queryRequest = new Request(REQUEST_GET, index + "/_count");
+    addRouting(queryRequest, routing);
     queryRequest.setJsonEntity(query);
     Future<JsonObject> future = countAsync(queryRequest);
     future.onComplete(resultHandler);
@@ -162,7 +589,7 @@ public final class ElasticClient {
       Handler<AsyncResult<JsonObject>> resultHandler) {
 
     /** TODO: Validation */
-    Request docRequest = new Request(REQUEST_POST, index + "/_doc");
+    Request docRequest = new Request(REQUEST_POST, writeIndex + "/_doc");
     docRequest.setJsonEntity(doc.toString());
 
     Future<JsonObject> future = docAsync(REQUEST_POST, docRequest);
@@ -170,6 +597,43 @@ public final class ElasticClient {
     return this;
   }
 
+  /**
+   * docCreateAsync - Wrapper around elasticsearch async doc create request (op_type=create).
+   * Fails with a 409 {@link org.elasticsearch.client.ResponseException} if the doc exists
+   * 
+   * @param docId Document id (elastic id), see {@link #docId(String)}
+   * @param doc Document
+   * @param resultHandler JsonObject
+   */
+  public ElasticClient docCreateAsync(String docId, String doc,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+    return docCreateAsync(docId, null, doc, resultHandler);
+  }
+
+  /**
+   * docCreateAsync - Wrapper around elasticsearch async doc create request, with a routing
+   * 
+   * @param docId Document id (elastic id)
+   * @param routing Routing of the doc, see {@link #routing(JsonObject)}; null for the default
+   * @param doc Document
+   * @param resultHandler JsonObject
+   */
+  public ElasticClient docCreateAsync(String docId, String routing, String doc,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request docRequest = new Request(REQUEST_PUT, writeIndex + CREATE_DOC + docId);
+    addRouting(docRequest, routing);
+    docRequest.setJsonEntity(doc);
+
+    /* A create responds with 201, as a POST */
+    Future<JsonObject> future = docAsync(REQUEST_POST, docRequest)
+        .map(responseJson -> responseJson.put(VERSION, version(responseJson)))
+        .onSuccess(created -> mirror(REQUEST_PUT, "/_doc/" + docId, routing,
+            created.getLong(DOC_VERSION), doc, ContentType.APPLICATION_JSON));
+    future.onComplete(resultHandler);
+    return this;
+  }
+
   /**
    * docPutAsync - Wrapper around elasticsearch async doc put request
    * 
@@ -183,14 +647,152 @@ public final class ElasticClient {
       Handler<AsyncResult<JsonObject>> resultHandler) {
 
     /** TODO: Validation */
-    Request docRequest = new Request(REQUEST_PUT, index + "/_doc/" + docId);
+    Request docRequest = new Request(REQUEST_PUT, writeIndex + "/_doc/" + docId);
     docRequest.setJsonEntity(doc.toString());
 
-    Future<JsonObject> future = docAsync(REQUEST_PUT, docRequest);
+    Future<JsonObject> future = docAsync(REQUEST_PUT, docRequest)
+        .onSuccess(put -> mirror(REQUEST_PUT, "/_doc/" + docId, null, put.getLong(DOC_VERSION),
+            doc, ContentType.APPLICATION_JSON));
     future.onComplete(resultHandler);
     return this;
   }
 
+  /**
+   * docUpdateAsync - Wrapper around elasticsearch async doc _update request.
+   * Returns the updated source and the new version of the document
+   * 
+   * @param docId Document id (elastic id)
+   * @param body Update body, a script or a partial doc
+   * @param version Expected version, see {@link #version(JsonObject)}; null for any. Fails with a
+   *                409 {@link org.elasticsearch.client.ResponseException} if the doc has changed
+   * @param resultHandler JsonObject
+   */
+  public ElasticClient docUpdateAsync(String docId, String body, String version,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+    return docUpdateAsync(docId, null, body, version, resultHandler);
+  }
+
+  /**
+   * docUpdateAsync - Wrapper around elasticsearch async doc _update request, with a routing
+   * 
+   * @param docId Document id (elastic id)
+   * @param routing Routing of the doc; null for the default
+   * @param body Update body, a script or a partial doc
+   * @param version Expected version; null for any
+   * @param resultHandler JsonObject
+   */
+  public ElasticClient docUpdateAsync(String docId, String routing, String body, String version,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request docRequest =
+        new Request(REQUEST_POST, writeIndex + UPDATE_DOC + docId + UPDATE_SOURCE_OPTION);
+    addRouting(docRequest, routing);
+    if (version != null) {
+      String[] seqNoPrimaryTerm = version.split("\\.");
+      docRequest.addParameter(IF_SEQ_NO, seqNoPrimaryTerm[0]);
+      docRequest.addParameter(IF_PRIMARY_TERM, seqNoPrimaryTerm[1]);
+    }
+    docRequest.setJsonEntity(body);
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(docRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          JsonObject source = responseJson.getJsonObject(GET_KEY, new JsonObject())
+                                          .getJsonObject(SOURCE);
+          if (source == null) {
+            promise.fail(DATABASE_BAD_QUERY);
+            return;
+          }
+          /* The updated source is mirrored whole, the doc may not be copied yet */
+          mirror(REQUEST_PUT, "/_doc/" + docId, routing, responseJson.getLong(DOC_VERSION),
+              source.encode(), ContentType.APPLICATION_JSON);
+          promise.complete(new DBRespMsgBuilder().statusSuccess().addResult(source)
+              .setVersion(version(responseJson)).getResponse());
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * docGetAsync - Wrapper around elasticsearch async doc get request.
+   * Returns the source and the version of the document; totalHits is 0 if it doesn't exist
+   * 
+   * @param docId Document id (elastic id)
+   * @param resultHandler JsonObject
+   */
+  public ElasticClient docGetAsync(String docId, Handler<AsyncResult<JsonObject>> resultHandler) {
+    return docGetAsync(docId, null, resultHandler);
+  }
+
+  /**
+   * docGetAsync - Wrapper around elasticsearch async doc get request, with a routing
+   * 
+   * @param docId Document id (elastic id)
+   * @param routing Routing of the doc; null for the default
+   * @param resultHandler JsonObject
+   */
+  public ElasticClient docGetAsync(String docId, String routing,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request docRequest = new Request(REQUEST_GET, index + "/_doc/" + docId + GET_SOURCE_OPTIONS);
+    docRequest.addParameter(IGNORE, "404");
+    addRouting(docRequest, routing);
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(docRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          DBRespMsgBuilder responseMsg = new DBRespMsgBuilder().statusSuccess();
+          if (responseJson.getBoolean(FOUND, false)) {
+            responseMsg.setTotalHits(1)
+                       .addResult(responseJson.getJsonObject(SOURCE))
+                       .setVersion(version(responseJson));
+          } else {
+            responseMsg.setTotalHits(0);
+          }
+          promise.complete(responseMsg.getResponse());
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * version - Version of a document from the response of a doc request, its sequence number and
+   * primary term as "&lt;_seq_no&gt;.&lt;_primary_term&gt;"
+   * 
+   * @param response Elastic doc response
+   * @return Version; null if the response has no sequence number or primary term
+   */
+  public static String version(JsonObject response) {
+    Long seqNo = response.getLong(SEQ_NO);
+    Long primaryTerm = response.getLong(PRIMARY_TERM);
+    if (seqNo == null || primaryTerm == null) {
+      return null;
+    }
+    return seqNo + "." + primaryTerm;
+  }
+
   /**
    * docDelAsync - Wrapper around elasticsearch async doc delete request
    * 
@@ -201,15 +803,270 @@ public final class ElasticClient {
    */
   public ElasticClient docDelAsync(String docId, 
       Handler<AsyncResult<JsonObject>> resultHandler) {
+    return docDelAsync(docId, null, resultHandler);
+  }
 
-    /** TODO: Validation */
-    Request docRequest = new Request(REQUEST_DELETE, index + "/_doc/" + docId);
+  /**
+   * docDelAsync - Wrapper around elasticsearch async doc delete request, with a routing
+   * 
+   * @param docId Document id (elastic id)
+   * @param routing Routing of the doc; null for the default
+   * @param resultHandler JsonObject
+   */
+  public ElasticClient docDelAsync(String docId, String routing,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request docRequest = new Request(REQUEST_DELETE, writeIndex + "/_doc/" + docId);
+    addRouting(docRequest, routing);
+
+    Future<JsonObject> future = docAsync(REQUEST_DELETE, docRequest)
+        .onSuccess(deleted -> mirror(REQUEST_DELETE, "/_doc/" + docId, routing,
+            deleted.getLong(DOC_VERSION), null, null));
+    future.onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * routing - Routing of a catalogue item when the items are routed by instance: its instance,
+   * so all the items of an instance are on one shard. Null for an item without an instance, as
+   * the instances themselves
+   * 
+   * @param doc Catalogue item
+   * @return Routing
+   */
+  public static String routing(JsonObject doc) {
+    String instance = doc.getString(INSTANCE);
+    return instance == null || instance.isEmpty() ? null : instance;
+  }
+
+  private static void addRouting(Request request, String routing) {
+    if (routing != null) {
+      request.addParameter(ROUTING, routing);
+    }
+  }
+
+  /**
+   * routingAsync - Looks up the routing of a doc, with an ids query on all the shards
+   * 
+   * @param docId Document id (elastic id)
+   * @param resultHandler JsonObject result {totalHits, routing}
+   */
+  public ElasticClient routingAsync(String docId, Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    Request queryRequest = new Request(REQUEST_GET, index + "/_search" + FILTER_PATH_ROUTING);
+    queryRequest.setJsonEntity(ROUTING_QUERY.replace("$1", docId));
+    Promise<JsonObject> promise = Promise.promise();
+
+    performRequestAsync(queryRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          JsonArray hits = new JsonObject(EntityUtils.toString(response.getEntity()))
+              .getJsonObject(HITS, new JsonObject()).getJsonArray(HITS, new JsonArray());
+          JsonObject routing = new JsonObject().put(TOTAL_HITS, hits.size());
+          if (!hits.isEmpty()) {
+            routing.put(ROUTING, hits.getJsonObject(0).getString(DOC_ROUTING));
+          }
+          promise.complete(routing);
+        } catch (IOException e) {
+          promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    promise.future().onComplete(resultHandler);
+    return this;
+  }
+
+  /**
+   * instanceAlias - Name of the filtered alias of an instance
+   * 
+   * @param index Read alias or index of the items
+   * @param instance Instance id
+   * @return Alias name
+   */
+  public static String instanceAlias(String index, String instance) {
+    return index + INSTANCE_ALIAS_INFIX
+        + instance.toLowerCase().replaceAll("[^a-z0-9._-]", "_");
+  }
 
-    Future<JsonObject> future = docAsync(REQUEST_DELETE, docRequest);
+  /**
+   * instanceAliasAsync - Adds or removes the filtered alias of an instance, which routes to the
+   * shard of the instance and only matches its items
+   * 
+   * @param instance Instance id
+   * @param add Whether to add or remove the alias
+   * @param resultHandler JsonObject result {@link AsyncResult}
+   */
+  public ElasticClient instanceAliasAsync(String instance, boolean add,
+      Handler<AsyncResult<JsonObject>> resultHandler) {
+
+    JsonObject alias = new JsonObject().put(INDEX_KEY, index)
+        .put(ALIAS_KEY, instanceAlias(index, instance));
+    if (add) {
+      alias.put(FILTER, new JsonObject().put(TERM,
+          new JsonObject().put(INSTANCE_KEYWORD, instance))).put(ROUTING, instance);
+    }
+    Request aliasRequest = new Request(REQUEST_POST, ALIASES_ENDPOINT);
+    aliasRequest.setJsonEntity(new JsonObject().put(ACTIONS, new JsonArray()
+        .add(new JsonObject().put(add ? ADD : REMOVE, alias))).toString());
+
+    Future<JsonObject> future = docAsync(REQUEST_PUT, aliasRequest);
     future.onComplete(resultHandler);
     return this;
   }
 
+  /**
+   * mirror - Repeats a successful doc write on the index being built by a reindex, if any. The
+   * doc is written with its version in the source as an external version, so a mirror is only
+   * applied over an older copy of the doc, whatever the order in which the mirrors arrive; an
+   * older mirror (409) or the delete of a doc not copied yet (404) is expected there. A failed
+   * mirror is retried with a backoff, and once given up the index is marked as failed, for the
+   * {@link Reindexer} not to swap to it
+   * 
+   * @param method Request method
+   * @param endpoint Endpoint after the index
+   * @param routing Routing of the doc; null for the default
+   * @param version Version of the doc in the source
+   * @param body Request body; null for none
+   * @param contentType Content type of the body
+   */
+  private void mirror(String method, String endpoint, String routing, Long version, String body,
+      ContentType contentType) {
+    String shadow = shadowIndex;
+    if (shadow == null) {
+      return;
+    }
+    if (version == null) {
+      LOGGER.error("Fail: Reindex mirror without a version;" + shadow + endpoint);
+      markMirrorFailed(shadow);
+      return;
+    }
+    Request mirrorRequest = new Request(method, shadow + endpoint);
+    addRouting(mirrorRequest, routing);
+    mirrorRequest.addParameter(VERSION_PARAM, version.toString());
+    mirrorRequest.addParameter(VERSION_TYPE, EXTERNAL);
+    if (body != null) {
+      mirrorRequest.setEntity(new NStringEntity(body, contentType));
+    }
+    sendMirror(shadow, mirrorRequest, 1);
+  }
+
+  /* Mirrors the successful creates and indexes of a bulk request as versioned indexes */
+  private void mirrorBulk(String body, JsonArray items) {
+    String shadow = shadowIndex;
+    if (shadow == null) {
+      return;
+    }
+    StringBuilder mirrorBody = new StringBuilder();
+    String[] lines = body.split("\n");
+    int item = 0;
+    for (int i = 0; i < lines.length; i++) {
+      if (lines[i].isBlank()) {
+        continue;
+      }
+      JsonObject action = new JsonObject(lines[i]);
+      String op = action.fieldNames().iterator().next();
+      JsonObject result = new JsonObject();
+      if (item < items.size()) {
+        JsonObject itemResult = items.getJsonObject(item);
+        result = itemResult.getJsonObject(itemResult.fieldNames().iterator().next());
+      }
+      item++;
+      if (!op.equals(DELETE)) {
+        i++;
+      }
+      int status = result.getInteger(STATUS, 0);
+      if ((status != 200 && status != 201) || !(op.equals(CREATE) || op.equals(INDEX_KEY))) {
+        continue;
+      }
+      JsonObject metadata = action.getJsonObject(op).copy()
+          .put(VERSION_PARAM, result.getLong(DOC_VERSION)).put(VERSION_TYPE, EXTERNAL);
+      mirrorBody.append(new JsonObject().put(INDEX_KEY, metadata)).append('\n')
+                .append(lines[i]).append('\n');
+    }
+    if (mirrorBody.length() == 0) {
+      return;
+    }
+    Request mirrorRequest = new Request(REQUEST_POST, shadow + BULK + BULK_FILTER_PATH);
+    mirrorRequest.setEntity(
+        new NStringEntity(mirrorBody.toString(), ContentType.create(MIME_NDJSON)));
+    sendMirror(shadow, mirrorRequest, 1);
+  }
+
+  private void sendMirror(String shadow, Request mirrorRequest, int attempt) {
+    performRequestAsync(mirrorRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        if (!mirrorRequest.getEndpoint().contains(BULK)) {
+          return;
+        }
+        /* The actions of a bulk fail on their own */
+        try {
+          JsonArray items = new JsonObject(EntityUtils.toString(response.getEntity()))
+              .getJsonArray(ITEMS, new JsonArray());
+          for (Object item : items) {
+            JsonObject action = (JsonObject) item;
+            int status = action.getJsonObject(action.fieldNames().iterator().next())
+                               .getInteger(STATUS, 0);
+            if (status != 200 && status != 201 && status != 404 && status != 409) {
+              retry("Bulk action failed;" + status);
+              return;
+            }
+          }
+        } catch (IOException e) {
+          retry(e.getMessage());
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        int statusCode = e instanceof ResponseException
+            ? ((ResponseException) e).getResponse().getStatusLine().getStatusCode()
+            : 0;
+        if (statusCode != 404 && statusCode != 409) {
+          retry(e.getMessage());
+        }
+      }
+      private void retry(String cause) {
+        if (attempt >= MIRROR_ATTEMPTS) {
+          LOGGER.error("Fail: Reindex mirror given up;" + mirrorRequest.getEndpoint() + ";"
+              + cause);
+          markMirrorFailed(shadow);
+          return;
+        }
+        long backoff = MIRROR_BACKOFF << (attempt - 1);
+        LOGGER.warn("Fail: Reindex mirror failed, retrying in {}ms;{};{}", backoff,
+            mirrorRequest.getEndpoint(), cause);
+        MIRROR_RETRIES.schedule(new TimerTask() {
+          @Override
+          public void run() {
+            sendMirror(shadow, mirrorRequest, attempt + 1);
+          }
+        }, backoff);
+      }
+    });
+  }
+
+  /* Marks the index being built as missing a write, in its _meta */
+  private void markMirrorFailed(String shadow) {
+    Request metaRequest = new Request(REQUEST_PUT, shadow + MAPPING);
+    metaRequest.setJsonEntity(new JsonObject()
+        .put(META, new JsonObject().put(MIRROR_FAILED, true)).toString());
+    performRequestAsync(metaRequest, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+      }
+      @Override
+      public void onFailure(Exception e) {
+        LOGGER.fatal("Fail: Reindex target not marked as failed, don't swap to it;" + shadow
+            + ";" + e.getMessage());
+      }
+    });
+  }
+
   /**
    * DBRespMsgBuilder} Message builder for search APIs
    */
@@ -231,6 +1088,11 @@ public final class ElasticClient {
       return this;
     }
 
+    DBRespMsgBuilder setVersion(String version) {
+      response.put(VERSION, version);
+      return this;
+    }
+
     /** Overloaded for source only request */
     DBRespMsgBuilder addResult(JsonObject obj) {
       response.getJsonArray(RESULTS).add(obj);
@@ -262,7 +1124,8 @@ public final class ElasticClient {
 
     DBRespMsgBuilder responseMsg = new DBRespMsgBuilder();
 
-    client.performRequestAsync(request, new ResponseListener() {
+    QueryStats.Sample sample = sample(request);
+    performRequestAsync(request, sample, new ResponseListener() {
       @Override
       public void onSuccess(Response response) {
 
@@ -273,6 +1136,9 @@ public final class ElasticClient {
             return;
           }
           JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          if (sample != null) {
+            sample.took(responseJson.getLong(TOOK, -1L));
+          }
           int totalHits = responseJson.getJsonObject(HITS)
                                                 .getJsonObject(TOTAL)
                                                 .getInteger(VALUE);
@@ -307,6 +1173,19 @@ public final class ElasticClient {
                 responseMsg.addResult(results.getJsonObject(i).getString(KEY));
               }
             }
+
+            if (options == FACETS_ONLY) {
+              JsonObject aggregations = responseJson.getJsonObject(AGGREGATIONS, new JsonObject());
+              for (String facet : aggregations.fieldNames()) {
+                JsonArray values = new JsonArray();
+                for (Object bucket : aggregations.getJsonObject(facet).getJsonArray(BUCKETS)) {
+                  JsonObject facetBucket = (JsonObject) bucket;
+                  values.add(new JsonObject().put(VALUE, facetBucket.getValue(KEY))
+                                             .put(COUNT, facetBucket.getInteger(DOC_COUNT)));
+                }
+                responseMsg.addResult(new JsonObject().put(FACET, facet).put(VALUES, values));
+              }
+            }
           }
           promise.complete(responseMsg.getResponse());
 
@@ -323,6 +1202,64 @@ public final class ElasticClient {
     return promise.future();
   }
 
+  /**
+   * multiSearchAsync - private function which perform performRequestAsync for multi search apis
+   * 
+   * @param request Elastic Request
+   */
+  private Future<JsonObject> multiSearchAsync(Request request) {
+    Promise<JsonObject> promise = Promise.promise();
+
+    DBRespMsgBuilder responseMsg = new DBRespMsgBuilder();
+
+    performRequestAsync(request, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+
+        try {
+          int statusCode = response.getStatusLine().getStatusCode();
+          if (statusCode != 200 && statusCode != 204) {
+            promise.fail(DATABASE_BAD_QUERY);
+            return;
+          }
+          JsonObject responseJson = new JsonObject(EntityUtils.toString(response.getEntity()));
+          JsonArray responses = responseJson.getJsonArray(RESPONSES, new JsonArray());
+          responseMsg.statusSuccess();
+
+          for (int i = 0; i < responses.size(); i++) {
+            JsonObject entry = responses.getJsonObject(i);
+            if (entry.containsKey(ERROR) || entry.getInteger(STATUS, 200) != 200) {
+              responseMsg.addResult(new JsonObject().put(STATUS, FAILED)
+                                                    .put(DESC, DATABASE_BAD_QUERY));
+              continue;
+            }
+            DBRespMsgBuilder entryMsg = new DBRespMsgBuilder();
+            JsonObject hits = entry.getJsonObject(HITS);
+            entryMsg.statusSuccess()
+                    .setTotalHits(hits.getJsonObject(TOTAL).getInteger(VALUE));
+            JsonArray results = hits.getJsonArray(HITS, new JsonArray());
+            for (int j = 0; j < results.size(); j++) {
+              JsonObject source = results.getJsonObject(j).getJsonObject(SOURCE);
+              source.remove(SUMMARY_KEY);
+              source.remove(WORD_VECTOR_KEY);
+              entryMsg.addResult(source);
+            }
+            responseMsg.addResult(entryMsg.getResponse());
+          }
+          promise.complete(responseMsg.getResponse());
+
+        } catch (IOException e) {
+            promise.fail(e);
+        }
+      }
+      @Override
+      public void onFailure(Exception e) {
+        promise.fail(e);
+      }
+    });
+    return promise.future();
+  }
+
   /**
    * countAsync - private function which perform performRequestAsync for count apis
    * 
@@ -338,7 +1275,7 @@ public final class ElasticClient {
 
     DBRespMsgBuilder responseMsg = new DBRespMsgBuilder();
 
-    client.performRequestAsync(request, new ResponseListener() {
+    performRequestAsync(request, new ResponseListener() {
       @Override
       public void onSuccess(Response response) {
 
@@ -380,7 +1317,7 @@ public final class ElasticClient {
   private Future<JsonObject> docAsync(String method, Request request) {
     Promise<JsonObject> promise = Promise.promise();
 
-    client.performRequestAsync(request, new ResponseListener() {
+    performRequestAsync(request, new ResponseListener() {
       @Override
       public void onSuccess(Response response) {
         try {
@@ -0,0 +1,362 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static iudx.catalogue.server.database.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+
+/**
+ * The Hierarchy Index.
+ *
+ * <h1>Hierarchy Index</h1>
+ *
+ * <p>
+ * In-memory adjacency index of the catalogue hierarchy (provider, resourceServer, resourceGroup
+ * and resource), held by every {@link DatabaseVerticle}. Every id is interned once and mapped to
+ * an int node; a node keeps its level, its parent node and an int array of its child nodes. The
+ * parent of an item is taken from its resourceGroup, resourceServer or provider attribute, never
+ * from the id string. The instance of every item is kept too, it is the routing of the item when
+ * the items are routed by instance.
+ *
+ * <p>
+ * The relationship listing, the child check of a delete and the relationship search resolve
+ * the related ids by walking the nodes; Elasticsearch then only fetches the documents of those
+ * ids. Until the index is loaded every call returns null and the callers fall back to their
+ * Elasticsearch queries.
+ *
+ * <p>
+ * Writes are published on {@link Constants#HIERARCHY_INDEX_ADDRESS}, so the index of every
+ * database verticle of the cluster stays in sync. Updates are applied on the context of the
+ * verticle, lookups may come from the Elasticsearch client threads; all the access to the nodes
+ * is synchronized.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+final class HierarchyIndex {
+
+  private static final Logger LOGGER = LogManager.getLogger(HierarchyIndex.class);
+
+  /* Max number of ids in a terms query (index.max_terms_count) */
+  private static final int MAX_TERMS = 65536;
+
+  /* Levels of the hierarchy; ABSENT for the nodes which are only known as a parent */
+  static final int ABSENT = -1;
+  static final int LEVEL_PROVIDER = 0;
+  static final int LEVEL_RESOURCE_SERVER = 1;
+  static final int LEVEL_RESOURCE_GROUP = 2;
+  static final int LEVEL_RESOURCE = 3;
+
+  private static final String[] PARENT_ATTRIBUTES = {RESOURCE_GRP, RESOURCE_SVR, PROVIDER};
+
+  private final Vertx vertx;
+
+  private final Map<String, Integer> nodes = new HashMap<String, Integer>();
+  private String[] ids = new String[1024];
+  private int[] levels = new int[1024];
+  private int[] parents = new int[1024];
+  private int[][] children = new int[1024][];
+  private int[] childCounts = new int[1024];
+  private String[] instances = new String[1024];
+  private int size = 0;
+
+  private final IndexLoader loader;
+  private boolean ready = false;
+
+  HierarchyIndex(Vertx vertx) {
+    this.vertx = vertx;
+    this.loader = new IndexLoader(vertx, "Hierarchy index", HIERARCHY_INDEX_LOAD_QUERY);
+  }
+
+  /**
+   * Subscribes to the index updates and loads the hierarchy of all the items.
+   *
+   * @param client Elastic client
+   */
+  void start(ElasticClient client) {
+    vertx.eventBus().<JsonObject>consumer(HIERARCHY_INDEX_ADDRESS, message -> {
+      JsonObject update = message.body();
+      loader.written(update.getString(ID));
+      if (update.containsKey(TYPE)) {
+        put(update.getString(ID), update.getInteger(TYPE), update.getString(PARENT),
+            update.getString(INSTANCE));
+      } else {
+        remove(update.getString(ID));
+      }
+    });
+    loader.start(client::searchAfterAsync, doc -> {
+      int level = level(doc);
+      if (doc.getString(ID) != null && level != ABSENT) {
+        put(doc.getString(ID), level, parent(doc), doc.getString(INSTANCE));
+      }
+    }, () -> {
+      synchronized (this) {
+        ready = true;
+        LOGGER.info("Success: Hierarchy index loaded; nodes " + size);
+      }
+    });
+  }
+
+  /**
+   * Publishes the hierarchy of an inserted/updated item to all the indexes.
+   *
+   * @param doc catalogue item
+   */
+  void publishPut(JsonObject doc) {
+    int level = level(doc);
+    JsonObject update = new JsonObject().put(ID, doc.getString(ID));
+    if (level != ABSENT) {
+      update.put(TYPE, level).put(PARENT, parent(doc)).put(INSTANCE, doc.getString(INSTANCE));
+    }
+    vertx.eventBus().publish(HIERARCHY_INDEX_ADDRESS, update);
+  }
+
+  /**
+   * Publishes the deletion of an item to all the indexes.
+   *
+   * @param id of the item
+   */
+  void publishRemove(String id) {
+    vertx.eventBus().publish(HIERARCHY_INDEX_ADDRESS, new JsonObject().put(ID, id));
+  }
+
+  /** Level of an item from its type */
+  static int level(JsonObject doc) {
+    JsonArray types = doc.getValue(TYPE) instanceof JsonArray ? doc.getJsonArray(TYPE)
+        : new JsonArray().add(doc.getValue(TYPE, ""));
+    if (types.contains(ITEM_TYPE_RESOURCE)) {
+      return LEVEL_RESOURCE;
+    } else if (types.contains(ITEM_TYPE_RESOURCE_GROUP)) {
+      return LEVEL_RESOURCE_GROUP;
+    } else if (types.contains(ITEM_TYPE_RESOURCE_SERVER)) {
+      return LEVEL_RESOURCE_SERVER;
+    } else if (types.contains(ITEM_TYPE_PROVIDER)) {
+      return LEVEL_PROVIDER;
+    }
+    return ABSENT;
+  }
+
+  /** Nearest parent of an item from its resourceGroup, resourceServer and provider attributes */
+  static String parent(JsonObject doc) {
+    String id = doc.getString(ID);
+    for (String attribute : PARENT_ATTRIBUTES) {
+      Object parent = doc.getValue(attribute);
+      if (parent instanceof String && !parent.equals(id)) {
+        return (String) parent;
+      }
+    }
+    return null;
+  }
+
+  synchronized void put(String id, int level, String parentId) {
+    put(id, level, parentId, null);
+  }
+
+  synchronized void put(String id, int level, String parentId, String instance) {
+    int node = node(id);
+    detach(node);
+    levels[node] = level;
+    instances[node] = instance == null || instance.isEmpty() ? null : instance.intern();
+    if (parentId != null) {
+      int parent = node(parentId);
+      parents[node] = parent;
+      if (children[parent] == null) {
+        children[parent] = new int[4];
+      } else if (childCounts[parent] == children[parent].length) {
+        children[parent] = Arrays.copyOf(children[parent], childCounts[parent] * 2);
+      }
+      children[parent][childCounts[parent]++] = node;
+    }
+  }
+
+  synchronized void remove(String id) {
+    Integer node = nodes.get(id);
+    if (node != null) {
+      detach(node);
+      levels[node] = ABSENT;
+    }
+  }
+
+  /** Interned node of an id */
+  private int node(String id) {
+    Integer node = nodes.get(id);
+    if (node != null) {
+      return node;
+    }
+    if (size == ids.length) {
+      int capacity = size * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      levels = Arrays.copyOf(levels, capacity);
+      parents = Arrays.copyOf(parents, capacity);
+      children = Arrays.copyOf(children, capacity);
+      childCounts = Arrays.copyOf(childCounts, capacity);
+      instances = Arrays.copyOf(instances, capacity);
+    }
+    ids[size] = id.intern();
+    levels[size] = ABSENT;
+    parents[size] = -1;
+    nodes.put(ids[size], size);
+    return size++;
+  }
+
+  /** Removes a node from the child list of its parent */
+  private void detach(int node) {
+    int parent = parents[node];
+    if (parent < 0) {
+      return;
+    }
+    int[] siblings = children[parent];
+    for (int i = 0; i < childCounts[parent]; i++) {
+      if (siblings[i] == node) {
+        siblings[i] = siblings[--childCounts[parent]];
+        break;
+      }
+    }
+    parents[node] = -1;
+  }
+
+  private int find(String id) {
+    Integer node = id == null ? null : nodes.get(id);
+    return node == null || levels[node] == ABSENT ? -1 : node;
+  }
+
+  synchronized boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Ids of the items related to an item, as listed by /relationship.
+   *
+   * @param id of the item
+   * @param relationship resource, resourceGroup, resourceServer or provider
+   * @return related ids; null if the index can't answer
+   */
+  synchronized JsonArray relationship(String id, String relationship) {
+
+    int level;
+    if (RESOURCE.equals(relationship)) {
+      level = LEVEL_RESOURCE;
+    } else if (RESOURCE_GRP.equals(relationship)) {
+      level = LEVEL_RESOURCE_GROUP;
+    } else if (RESOURCE_SVR.equals(relationship)) {
+      level = LEVEL_RESOURCE_SERVER;
+    } else if (PROVIDER.equals(relationship)) {
+      level = LEVEL_PROVIDER;
+    } else {
+      return null;
+    }
+    if (!ready) {
+      return null;
+    }
+
+    JsonArray related = new JsonArray();
+    int node = find(id);
+    if (node < 0) {
+      return related;
+    }
+    if (level == LEVEL_RESOURCE) {
+      for (int i = 0; i < childCounts[node]; i++) {
+        int child = children[node][i];
+        if (levels[child] == LEVEL_RESOURCE) {
+          related.add(ids[child]);
+        }
+      }
+      return related;
+    }
+    for (int parent = parents[node]; parent >= 0; parent = parents[parent]) {
+      if (levels[parent] == level) {
+        return related.add(ids[parent]);
+      }
+    }
+    return related;
+  }
+
+  /**
+   * Instance of an item.
+   *
+   * @param id of the item
+   * @return the instance; empty if the item has none, null if the index can't answer
+   */
+  synchronized String instance(String id) {
+    if (!ready) {
+      return null;
+    }
+    int node = find(id);
+    if (node < 0) {
+      return null;
+    }
+    return instances[node] == null ? "" : instances[node];
+  }
+
+  /**
+   * Checks whether a resource group has resources; only a resource group with resources can't be
+   * deleted, the other items with child items can.
+   *
+   * @param id of the item
+   * @return whether the item is a resource group with resources; null if the index can't answer
+   */
+  synchronized Boolean hasResources(String id) {
+    if (!ready) {
+      return null;
+    }
+    int node = find(id);
+    return node >= 0 && levels[node] == LEVEL_RESOURCE_GROUP && childCounts[node] > 0;
+  }
+
+  /**
+   * Ids of the items and of all their descendants.
+   *
+   * @param roots ids of the items
+   * @return ids of the subtrees; null if the index can't answer
+   */
+  synchronized JsonArray descendants(JsonArray roots) {
+    if (!ready) {
+      return null;
+    }
+    int[] stack = new int[64];
+    int top = 0;
+    for (int i = 0; i < roots.size(); i++) {
+      int node = find(roots.getString(i));
+      if (node < 0) {
+        return null;
+      }
+      if (top == stack.length) {
+        stack = Arrays.copyOf(stack, top * 2);
+      }
+      stack[top++] = node;
+    }
+
+    JsonArray subtree = new JsonArray();
+    Set<Integer> visited = new HashSet<Integer>();
+    while (top > 0) {
+      int node = stack[--top];
+      if (!visited.add(node)) {
+        continue;
+      }
+      if (levels[node] != ABSENT) {
+        subtree.add(ids[node]);
+        if (subtree.size() > MAX_TERMS) {
+          return null;
+        }
+      }
+      int count = childCounts[node];
+      if (count > 0) {
+        if (top + count > stack.length) {
+          stack = Arrays.copyOf(stack, (top + count) * 2);
+        }
+        System.arraycopy(children[node], 0, stack, top, count);
+        top += count;
+      }
+    }
+    return subtree;
+  }
+}
@@ -0,0 +1,141 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static iudx.catalogue.server.database.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+
+/**
+ * The Index Loader.
+ *
+ * <h1>Index Loader</h1>
+ *
+ * <p>
+ * Loads an in-memory index of the {@link DatabaseVerticle} ({@link SpatialIndex},
+ * {@link HierarchyIndex}) from Elasticsearch, page by page with search_after. The ids written
+ * while the index is loading are remembered, as the loaded copy is stale for them, and are skipped
+ * when their page comes. A page which fails to load is retried with an exponential backoff, up to
+ * {@link #MAX_ATTEMPTS} times; the load is then given up, the remembered ids are dropped and the
+ * index is never ready, so its callers keep using Elasticsearch.
+ *
+ * <p>
+ * The pages and the writes are handled on the context of the verticle.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+final class IndexLoader {
+
+  private static final Logger LOGGER = LogManager.getLogger(IndexLoader.class);
+  static final int PAGE_SIZE = 1000;
+  static final int MAX_ATTEMPTS = 8;
+  static final long MAX_BACKOFF = 60000;
+
+  private final Vertx vertx;
+  private final String name;
+  private final String loadQuery;
+  private final long minBackoff;
+
+  private BiConsumer<String, Handler<AsyncResult<JsonObject>>> search;
+  private Handler<JsonObject> docHandler;
+  private Runnable loadedHandler;
+
+  /* Ids written while the index is loading; null once loaded or given up */
+  private Set<String> written = new HashSet<String>();
+  private int failures = 0;
+
+  /**
+   * Creates the loader of an index.
+   *
+   * @param vertx Vertx
+   * @param name name of the index, for the logs
+   * @param loadQuery search_after query of all the items, with $1 for the page size
+   */
+  IndexLoader(Vertx vertx, String name, String loadQuery) {
+    this(vertx, name, loadQuery, 1000);
+  }
+
+  IndexLoader(Vertx vertx, String name, String loadQuery, long minBackoff) {
+    this.vertx = vertx;
+    this.name = name;
+    this.loadQuery = loadQuery;
+    this.minBackoff = minBackoff;
+  }
+
+  /**
+   * Starts loading the index.
+   *
+   * @param search searchAfterAsync of the Elastic client
+   * @param docHandler adds a loaded item to the index; not called for the items written since the
+   *     load started
+   * @param loadedHandler marks the index as ready
+   */
+  void start(BiConsumer<String, Handler<AsyncResult<JsonObject>>> search,
+      Handler<JsonObject> docHandler, Runnable loadedHandler) {
+    this.search = search;
+    this.docHandler = docHandler;
+    this.loadedHandler = loadedHandler;
+    load(null);
+  }
+
+  /**
+   * Remembers an item written while the index is loading.
+   *
+   * @param id of the item
+   */
+  void written(String id) {
+    if (written != null) {
+      written.add(id);
+    }
+  }
+
+  private void load(JsonArray searchAfter) {
+    JsonObject query = new JsonObject(loadQuery.replace("$1", Integer.toString(PAGE_SIZE)));
+    if (searchAfter != null) {
+      query.put(SEARCH_AFTER, searchAfter);
+    }
+    search.accept(query.toString(), pageHandler ->
+        /* Apply the page on the verticle context */
+        vertx.runOnContext(v -> {
+          if (pageHandler.failed()) {
+            retry(searchAfter, pageHandler.cause());
+            return;
+          }
+          failures = 0;
+          JsonArray results = pageHandler.result().getJsonArray(RESULTS);
+          for (int i = 0; i < results.size(); i++) {
+            JsonObject doc = results.getJsonObject(i);
+            if (!written.contains(doc.getString(ID))) {
+              docHandler.handle(doc);
+            }
+          }
+          if (results.size() == PAGE_SIZE) {
+            load(pageHandler.result().getJsonArray(SORT));
+          } else {
+            written = null;
+            loadedHandler.run();
+          }
+        }));
+  }
+
+  private void retry(JsonArray searchAfter, Throwable cause) {
+    if (++failures >= MAX_ATTEMPTS) {
+      written = null;
+      LOGGER.error("Fail: {} load given up after {} attempts;{}", name, failures,
+          cause.getMessage());
+      return;
+    }
+    long backoff = Math.min(MAX_BACKOFF, minBackoff << (failures - 1));
+    LOGGER.warn("Fail: {} load failed, retrying in {}ms;{}", name, backoff, cause.getMessage());
+    vertx.setTimer(backoff, id -> load(searchAfter));
+  }
+}
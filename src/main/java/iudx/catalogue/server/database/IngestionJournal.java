@@ -0,0 +1,414 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.json.JsonObject;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Ingestion Journal.
+ *
+ * <h1>Ingestion Journal</h1>
+ *
+ * <p>
+ * Local append-only journal of the items accepted for insertion, drained into Elasticsearch by
+ * the {@link JournalDrainer}. The journal is a directory of memory-mapped segment files of a
+ * fixed size, named after the sequence number of their first record. A record is laid out as
+ *
+ * <pre>
+ *   int length | int crc32 | long seq | length bytes of JSON
+ * </pre>
+ *
+ * <p>
+ * where the CRC covers the sequence number and the JSON; a zero length marks the end of a
+ * segment. The sequence number of the last drained record is kept in a checkpoint file, which is
+ * replaced atomically. On open, the segments are scanned and the records after the first torn or
+ * corrupt record of a segment are discarded; the records after the checkpoint are drained again.
+ * Fully drained segments are deleted, except for the last retained ones, which can still be
+ * replayed into a rebuilt index by the {@link JournalReplay}.
+ *
+ * <p>
+ * All the methods are synchronized and block on the file system; they are called from worker
+ * threads, never from an event loop.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+final class IngestionJournal implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(IngestionJournal.class);
+
+  static final int HEADER_SIZE = 16;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CHECKPOINT = "checkpoint";
+
+  /** A journal record */
+  static final class Entry {
+    final long seq;
+    final JsonObject record;
+    final int size;
+    private final Segment segment;
+    private final int end;
+
+    private Entry(long seq, JsonObject record, int size, Segment segment, int end) {
+      this.seq = seq;
+      this.record = record;
+      this.size = size;
+      this.segment = segment;
+      this.end = end;
+    }
+  }
+
+  private static final class Segment {
+    final long firstSeq;
+    final Path path;
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+    /* End of the valid records */
+    int limit = 0;
+
+    Segment(long firstSeq, Path path, int size) throws IOException {
+      this.firstSeq = firstSeq;
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+          Math.max(size, channel.size()));
+    }
+
+    void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  private final Path dir;
+  private final int segmentSize;
+  private final int retainedSegments;
+  private final List<Segment> segments = new ArrayList<Segment>();
+  private final CRC32 crc = new CRC32();
+
+  private long nextSeq = 1;
+  private long checkpointSeq = 0;
+  private long pendingRecords = 0;
+  private long pendingBytes = 0;
+
+  /* Read cursor, the first record after the checkpoint */
+  private Segment readSegment;
+  private int readPos = 0;
+
+  /**
+   * Opens the journal in a directory, recovering its segments.
+   *
+   * @param dir of the journal, created if it doesn't exist
+   * @param segmentSize size of a segment file in bytes
+   * @param retainedSegments number of drained segments kept for a replay
+   */
+  IngestionJournal(Path dir, int segmentSize, int retainedSegments) throws IOException {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+    this.retainedSegments = retainedSegments;
+    Files.createDirectories(dir);
+
+    Path checkpoint = dir.resolve(CHECKPOINT);
+    if (Files.exists(checkpoint)) {
+      checkpointSeq = ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong();
+    }
+
+    List<Path> paths = new ArrayList<Path>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      stream.forEach(paths::add);
+    }
+    paths.sort(null);
+
+    long activeNextSeq = 0;
+    for (Path path : paths) {
+      String name = path.getFileName().toString();
+      long firstSeq = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+          name.length() - SEGMENT_SUFFIX.length()));
+      Segment segment = new Segment(firstSeq, path, segmentSize);
+      activeNextSeq = recover(segment);
+      segments.add(segment);
+    }
+    nextSeq = Math.max(nextSeq, checkpointSeq + 1);
+
+    /* Appends continue in the last segment, unless its sequence can't be continued */
+    if (segments.isEmpty() || activeNextSeq != nextSeq) {
+      segments.add(newSegment(nextSeq));
+    } else {
+      zeroTail(active());
+    }
+
+    /* Positions the read cursor after the checkpoint */
+    readSegment = segments.get(0);
+    readPos = 0;
+    while (true) {
+      Entry entry = entryAt(readSegment, readPos);
+      if (entry == null) {
+        if (readSegment == active()) {
+          break;
+        }
+        readSegment = segments.get(segments.indexOf(readSegment) + 1);
+        readPos = 0;
+      } else if (entry.seq <= checkpointSeq) {
+        readPos = entry.end;
+      } else {
+        break;
+      }
+    }
+    deleteDrainedSegments();
+    LOGGER.info("Info: Journal opened; segments " + segments.size() + ", pending " + pending());
+  }
+
+  /* Scans the records of a segment, up to the first torn or corrupt one; returns the next seq */
+  private long recover(Segment segment) {
+    int pos = 0;
+    long seq = segment.firstSeq;
+    while (true) {
+      int length = recordLength(segment, pos);
+      if (length <= 0) {
+        break;
+      }
+      long recordSeq = segment.buffer.getLong(pos + 8);
+      if (recordSeq != seq || segment.buffer.getInt(pos + 4) != checksum(segment, pos, length)) {
+        LOGGER.error("Fail: Corrupt journal record discarded; " + segment.path + " at " + pos);
+        break;
+      }
+      if (recordSeq > checkpointSeq) {
+        pendingRecords++;
+        pendingBytes += HEADER_SIZE + length;
+      }
+      pos += HEADER_SIZE + length;
+      seq++;
+    }
+    segment.limit = pos;
+    nextSeq = Math.max(nextSeq, seq);
+    return seq;
+  }
+
+  /* The tail of the active segment is zeroed, a torn record is never read once overwritten */
+  private void zeroTail(Segment segment) {
+    for (int i = segment.limit; i < segment.buffer.capacity(); i++) {
+      if (segment.buffer.get(i) != 0) {
+        segment.buffer.put(i, (byte) 0);
+      }
+    }
+    segment.buffer.force();
+  }
+
+  private int recordLength(Segment segment, int pos) {
+    if (pos + HEADER_SIZE > segment.buffer.capacity()) {
+      return 0;
+    }
+    int length = segment.buffer.getInt(pos);
+    return length > segment.buffer.capacity() - pos - HEADER_SIZE ? -1 : length;
+  }
+
+  private int checksum(Segment segment, int pos, int length) {
+    crc.reset();
+    ByteBuffer record = segment.buffer.duplicate();
+    record.limit(pos + HEADER_SIZE + length).position(pos + 8);
+    crc.update(record);
+    return (int) crc.getValue();
+  }
+
+  private Entry entryAt(Segment segment, int pos) {
+    if (pos >= segment.limit) {
+      return null;
+    }
+    int length = segment.buffer.getInt(pos);
+    byte[] json = new byte[length];
+    ByteBuffer record = segment.buffer.duplicate();
+    record.position(pos + HEADER_SIZE);
+    record.get(json);
+    return new Entry(segment.buffer.getLong(pos + 8),
+        new JsonObject(new String(json, StandardCharsets.UTF_8)), HEADER_SIZE + length, segment,
+        pos + HEADER_SIZE + length);
+  }
+
+  private Segment active() {
+    return segments.get(segments.size() - 1);
+  }
+
+  private Segment newSegment(long firstSeq) throws IOException {
+    Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+    return new Segment(firstSeq, path, segmentSize);
+  }
+
+  /**
+   * Appends a record and forces it to the disk.
+   *
+   * @param record JSON record
+   * @return sequence number of the record
+   * @throws IllegalArgumentException if the record doesn't fit in a segment
+   */
+  synchronized long append(JsonObject record) throws IOException {
+    byte[] json = record.encode().getBytes(StandardCharsets.UTF_8);
+    int size = HEADER_SIZE + json.length;
+    if (size + 4 > segmentSize) {
+      throw new IllegalArgumentException("Record of " + size + " bytes exceeds the segment size");
+    }
+
+    Segment segment = active();
+    if (segment.limit + size + 4 > segment.buffer.capacity()) {
+      segment = newSegment(nextSeq);
+      segments.add(segment);
+    }
+    long seq = nextSeq++;
+    int pos = segment.limit;
+
+    /* The length is written last, the record is only valid once complete */
+    segment.buffer.putLong(pos + 8, seq);
+    ByteBuffer payload = segment.buffer.duplicate();
+    payload.position(pos + HEADER_SIZE);
+    payload.put(json);
+    segment.buffer.putInt(pos + 4, 0);
+    crc.reset();
+    ByteBuffer checked = segment.buffer.duplicate();
+    checked.limit(pos + size).position(pos + 8);
+    crc.update(checked);
+    segment.buffer.putInt(pos + 4, (int) crc.getValue());
+    segment.buffer.putInt(pos, json.length);
+    segment.buffer.force();
+
+    segment.limit = pos + size;
+    pendingRecords++;
+    pendingBytes += size;
+    return seq;
+  }
+
+  /**
+   * Reads the records after the checkpoint, without draining them.
+   *
+   * @param maxRecords max number of records
+   * @return the records in order
+   */
+  synchronized List<Entry> read(int maxRecords) {
+    List<Entry> entries = new ArrayList<Entry>();
+    Segment segment = readSegment;
+    int pos = readPos;
+    while (entries.size() < maxRecords) {
+      Entry entry = entryAt(segment, pos);
+      if (entry == null) {
+        int next = segments.indexOf(segment) + 1;
+        if (next == segments.size()) {
+          break;
+        }
+        segment = segments.get(next);
+        pos = 0;
+        continue;
+      }
+      entries.add(entry);
+      pos = entry.end;
+    }
+    return entries;
+  }
+
+  /**
+   * Moves the checkpoint past a drained record; the records before are drained too.
+   *
+   * @param entry last drained record
+   */
+  synchronized void checkpoint(Entry entry) throws IOException {
+    if (entry.seq <= checkpointSeq) {
+      return;
+    }
+    Segment segment = readSegment;
+    int pos = readPos;
+    while (segment != entry.segment || pos < entry.end) {
+      Entry drained = entryAt(segment, pos);
+      if (drained == null) {
+        segment = segments.get(segments.indexOf(segment) + 1);
+        pos = 0;
+        continue;
+      }
+      pendingRecords--;
+      pendingBytes -= drained.size;
+      pos = drained.end;
+    }
+    checkpointSeq = entry.seq;
+    readSegment = entry.segment;
+    readPos = entry.end;
+
+    Path checkpoint = dir.resolve(CHECKPOINT);
+    Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel.write(ByteBuffer.allocate(8).putLong(0, checkpointSeq));
+      channel.force(true);
+    }
+    Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    deleteDrainedSegments();
+  }
+
+  /* Segments before the read cursor are fully drained */
+  private void deleteDrainedSegments() throws IOException {
+    while (segments.indexOf(readSegment) > retainedSegments) {
+      Segment drained = segments.remove(0);
+      drained.close();
+      Files.deleteIfExists(drained.path);
+    }
+  }
+
+  /**
+   * Reads the retained records, drained or not, for a replay.
+   *
+   * @param afterSeq sequence number after which to read
+   * @param maxRecords max number of records
+   * @return the records in order
+   */
+  synchronized List<Entry> replay(long afterSeq, int maxRecords) {
+    List<Entry> entries = new ArrayList<Entry>();
+    for (Segment segment : segments) {
+      int pos = 0;
+      for (Entry entry = entryAt(segment, pos); entry != null && entries.size() < maxRecords;
+          entry = entryAt(segment, pos)) {
+        if (entry.seq > afterSeq) {
+          entries.add(entry);
+        }
+        pos = entry.end;
+      }
+    }
+    return entries;
+  }
+
+  /** Number of records not drained yet */
+  synchronized long pending() {
+    return pendingRecords;
+  }
+
+  /** Bytes of the records not drained yet */
+  synchronized long pendingBytes() {
+    return pendingBytes;
+  }
+
+  /** Oldest record not drained yet; null if all are drained */
+  synchronized Entry oldest() {
+    List<Entry> entries = read(1);
+    return entries.isEmpty() ? null : entries.get(0);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    for (Segment segment : segments) {
+      segment.buffer.force();
+      segment.close();
+    }
+    segments.clear();
+  }
+}
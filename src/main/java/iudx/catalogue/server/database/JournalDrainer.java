@@ -0,0 +1,348 @@
+package iudx.catalogue.server.database;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static iudx.catalogue.server.database.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+
+/**
+ * The Journal Drainer.
+ *
+ * <h1>Journal Drainer</h1>
+ *
+ * <p>
+ * Accepts the items to insert into the {@link IngestionJournal} and drains the journal into
+ * Elasticsearch in _bulk batches of creates, in the order of the journal. A create of an item
+ * which already exists (409) is logged and dropped, a rejected item (other 4xx) is logged and
+ * dropped; on 429, 5xx or an unreachable Elasticsearch the batch is retried with an exponential
+ * backoff. The journal is only checkpointed past the drained records, so the records pending at
+ * a restart are drained again; the deterministic ids make that idempotent.
+ *
+ * <p>
+ * With the journal, a create is acknowledged (201, without an ETag) once journaled: a duplicate
+ * create isn't answered with 409 but dropped when drained, and the item can't be read, updated
+ * or deleted (404) until it is drained. The updates, deletes and subtree jobs are applied to
+ * Elasticsearch directly, and then journaled as applied writes, which aren't drained but are
+ * replayed in order by {@link JournalReplay}.
+ *
+ * <p>
+ * The instances verified for the insertions are cached while journaling; a deleted instance is
+ * forgotten by the drainers of the cluster.
+ *
+ * <p>
+ * There is one drainer per journal directory in a JVM, shared by the database verticles. The
+ * journal lag is exposed as the gauges catalogue.journal.pending (records),
+ * catalogue.journal.lag.bytes and catalogue.journal.lag.seconds (age of the oldest pending
+ * record), with the counters catalogue.journal.drained, .duplicates, .rejected and .retries.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+final class JournalDrainer {
+
+  private static final Logger LOGGER = LogManager.getLogger(JournalDrainer.class);
+  private static final long MAX_RETRY_DELAY = 30000;
+  private static final Map<Path, JournalDrainer> DRAINERS = new HashMap<Path, JournalDrainer>();
+
+  private final Context context;
+  private final IngestionJournal journal;
+  private final ElasticClient client;
+  private final int batchSize;
+  private final long interval;
+  private final boolean instanceRouting;
+  private long retryDelay;
+  private volatile Consumer<JsonObject> indexed = doc -> { };
+  /* Instances verified for the insertions */
+  private final Set<String> verifiedInstances = ConcurrentHashMap.newKeySet();
+
+  private Counter drained;
+  private Counter duplicates;
+  private Counter rejected;
+  private Counter retries;
+
+  private JournalDrainer(Vertx vertx, IngestionJournal journal, ElasticClient client,
+      int batchSize, long interval, boolean instanceRouting) {
+    this.context = vertx.getOrCreateContext();
+    this.journal = journal;
+    this.client = client;
+    this.batchSize = batchSize;
+    this.interval = interval;
+    this.instanceRouting = instanceRouting;
+    this.retryDelay = interval;
+  }
+
+  /**
+   * Opens the journal of a directory and starts draining it, once per JVM.
+   *
+   * @param vertx Vertx
+   * @param client Elastic client
+   * @param config of the database verticle
+   * @return the drainer of the journal
+   */
+  static synchronized JournalDrainer open(Vertx vertx, ElasticClient client, JsonObject config)
+      throws IOException {
+    Path dir = Path.of(config.getString(JOURNAL_PATH)).toAbsolutePath().normalize();
+    JournalDrainer drainer = DRAINERS.get(dir);
+    if (drainer == null) {
+      IngestionJournal journal = new IngestionJournal(dir,
+          config.getInteger(JOURNAL_SEGMENT_SIZE, DEFAULT_JOURNAL_SEGMENT_SIZE),
+          config.getInteger(JOURNAL_RETAINED_SEGMENTS, DEFAULT_JOURNAL_RETAINED_SEGMENTS));
+      JournalDrainer started = new JournalDrainer(vertx, journal, client,
+          config.getInteger(JOURNAL_BATCH_SIZE, DEFAULT_JOURNAL_BATCH_SIZE),
+          config.getLong(JOURNAL_DRAIN_INTERVAL, DEFAULT_JOURNAL_DRAIN_INTERVAL),
+          config.getBoolean(INSTANCE_ROUTING, false));
+      started.registerMetrics();
+      vertx.eventBus().<String>consumer(JOURNAL_INSTANCES_ADDRESS,
+          message -> started.verifiedInstances.remove(message.body()));
+      started.context.runOnContext(v -> started.drain());
+      DRAINERS.put(dir, started);
+      drainer = started;
+    }
+    return drainer;
+  }
+
+  /**
+   * Handler of every drained item, for the in-memory indexes.
+   *
+   * @param indexed item handler
+   */
+  void onIndexed(Consumer<JsonObject> indexed) {
+    this.indexed = indexed;
+  }
+
+  /**
+   * Appends an item to the journal; the item is durable once the future succeeds.
+   *
+   * @param doc the item
+   * @return sequence number of the item in the journal
+   */
+  Future<Long> append(JsonObject doc) {
+    Promise<Long> promise = Promise.promise();
+    JsonObject record = new JsonObject().put(TIMESTAMP_KEY, System.currentTimeMillis())
+                                        .put(DOC_KEY, doc);
+    context.<Long>executeBlocking(appendPromise -> {
+      try {
+        appendPromise.complete(journal.append(record));
+      } catch (IOException | IllegalArgumentException e) {
+        appendPromise.fail(e);
+      }
+    }, false, promise);
+    return promise.future();
+  }
+
+  /**
+   * Appends a write already applied to Elasticsearch, an update, a delete or a by-query job, for
+   * the replays; the write isn't drained. A failure is only logged.
+   *
+   * @param record the write, with its op
+   */
+  void appendApplied(JsonObject record) {
+    record.put(TIMESTAMP_KEY, System.currentTimeMillis());
+    context.<Long>executeBlocking(appendPromise -> {
+      try {
+        appendPromise.complete(journal.append(record));
+      } catch (IOException | IllegalArgumentException e) {
+        appendPromise.fail(e);
+      }
+    }, false, appendRes -> {
+      if (appendRes.failed()) {
+        LOGGER.error("Fail: Applied write not journaled;" + record.getString(JOURNAL_OP) + ";"
+            + appendRes.cause().getMessage());
+      }
+    });
+  }
+
+  /**
+   * Checks whether an instance was verified for an insertion.
+   *
+   * @param instanceId id of the instance
+   * @return whether it was verified, and not deleted since
+   */
+  boolean isVerified(String instanceId) {
+    return verifiedInstances.contains(instanceId);
+  }
+
+  /**
+   * Remembers an instance verified for an insertion.
+   *
+   * @param instanceId id of the instance
+   */
+  void verified(String instanceId) {
+    verifiedInstances.add(instanceId);
+  }
+
+  /**
+   * Forgets a deleted item, if it was a verified instance, in the drainers of the cluster.
+   *
+   * @param vertx Vertx
+   * @param id id of the deleted item
+   */
+  static void publishRemove(Vertx vertx, String id) {
+    vertx.eventBus().publish(JOURNAL_INSTANCES_ADDRESS, id);
+  }
+
+  private void registerMetrics() {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      LOGGER.debug("Info: No metrics registry; journal metrics disabled");
+      return;
+    }
+    Gauge.builder("catalogue.journal.pending", journal, IngestionJournal::pending)
+        .description("Journal records not drained yet").register(registry);
+    Gauge.builder("catalogue.journal.lag.bytes", journal, IngestionJournal::pendingBytes)
+        .description("Bytes of the journal records not drained yet").register(registry);
+    Gauge.builder("catalogue.journal.lag.seconds", journal, pending -> {
+      IngestionJournal.Entry oldest = pending.oldest();
+      return oldest == null ? 0
+          : (System.currentTimeMillis() - oldest.record.getLong(TIMESTAMP_KEY)) / 1000.0;
+    }).description("Age of the oldest journal record not drained yet").register(registry);
+    drained = registry.counter("catalogue.journal.drained");
+    duplicates = registry.counter("catalogue.journal.duplicates");
+    rejected = registry.counter("catalogue.journal.rejected");
+    retries = registry.counter("catalogue.journal.retries");
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+
+  private void schedule(long delay) {
+    context.owner().setTimer(delay, id -> drain());
+  }
+
+  private void retry(String cause) {
+    LOGGER.error("Fail: Journal drain failed, retrying in " + retryDelay + "ms;" + cause);
+    increment(retries);
+    schedule(retryDelay);
+    retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+  }
+
+  private void drain() {
+    context.<List<IngestionJournal.Entry>>executeBlocking(
+        readPromise -> readPromise.complete(journal.read(batchSize)), false, readHandler -> {
+          if (readHandler.failed()) {
+            retry(readHandler.cause().getMessage());
+            return;
+          }
+          List<IngestionJournal.Entry> entries = readHandler.result();
+          if (entries.isEmpty()) {
+            schedule(interval);
+            return;
+          }
+
+          /* Only the creates are drained, the other writes were applied when journaled */
+          StringBuilder bulk = new StringBuilder();
+          for (IngestionJournal.Entry entry : entries) {
+            if (entry.record.containsKey(JOURNAL_OP)) {
+              continue;
+            }
+            JsonObject doc = entry.record.getJsonObject(DOC_KEY);
+            JsonObject action =
+                new JsonObject().put(DOC_ID, ElasticClient.docId(doc.getString(ID)));
+            if (instanceRouting && ElasticClient.routing(doc) != null) {
+              action.put(ROUTING, ElasticClient.routing(doc));
+            }
+            bulk.append(new JsonObject().put(CREATE, action))
+                .append('\n').append(doc.encode()).append('\n');
+          }
+          if (bulk.length() == 0) {
+            drained(entries, new JsonArray());
+            return;
+          }
+          client.bulkAsync(bulk.toString(), bulkHandler -> context.runOnContext(v -> {
+            if (bulkHandler.failed()) {
+              retry(bulkHandler.cause().getMessage());
+            } else {
+              drained(entries, bulkHandler.result().getJsonArray(RESULTS));
+            }
+          }));
+        });
+  }
+
+  /* Checkpoints the journal past the records drained by a bulk request */
+  private void drained(List<IngestionJournal.Entry> entries, JsonArray results) {
+    long creates = entries.stream().filter(entry -> !entry.record.containsKey(JOURNAL_OP)).count();
+    if (results.size() != creates) {
+      retry("Bulk results don't match the batch");
+      return;
+    }
+
+    IngestionJournal.Entry last = null;
+    List<JsonObject> docs = new ArrayList<JsonObject>();
+    boolean retry = false;
+    int result = 0;
+    for (int i = 0; i < entries.size(); i++) {
+      if (entries.get(i).record.containsKey(JOURNAL_OP)) {
+        last = entries.get(i);
+        continue;
+      }
+      JsonObject doc = entries.get(i).record.getJsonObject(DOC_KEY);
+      int status = results.getJsonObject(result).getInteger(STATUS, 0);
+      if (status == 201) {
+        docs.add(doc);
+        increment(drained);
+      } else if (status == 409) {
+        LOGGER.error("Fail: Doc Exists, journal record dropped;" + doc.getString(ID));
+        increment(duplicates);
+      } else if (status == 429 || status >= 500) {
+        retry = true;
+        break;
+      } else {
+        LOGGER.error("Fail: Journal record rejected;" + doc.getString(ID) + ";"
+            + results.getJsonObject(result).getValue(ERROR));
+        increment(rejected);
+      }
+      result++;
+      last = entries.get(i);
+    }
+
+    IngestionJournal.Entry checkpoint = last;
+    boolean backoff = retry;
+    context.<Void>executeBlocking(checkpointPromise -> {
+      try {
+        if (checkpoint != null) {
+          journal.checkpoint(checkpoint);
+        }
+        checkpointPromise.complete();
+      } catch (IOException e) {
+        checkpointPromise.fail(e);
+      }
+    }, false, checkpointHandler -> {
+      docs.forEach(indexed);
+      if (checkpointHandler.failed()) {
+        retry(checkpointHandler.cause().getMessage());
+      } else if (backoff) {
+        retry("Elasticsearch is overloaded");
+      } else {
+        retryDelay = interval;
+        if (entries.size() == batchSize) {
+          drain();
+        } else {
+          schedule(interval);
+        }
+      }
+    });
+  }
+}
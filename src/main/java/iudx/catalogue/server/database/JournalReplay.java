@@ -0,0 +1,215 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.cli.CLI;
+import io.vertx.core.cli.CommandLine;
+import io.vertx.core.cli.Option;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+/**
+ * JournalReplay - Replays the records retained in an {@link IngestionJournal} into an index,
+ * drained or not, to rebuild the items inserted since an index snapshot.
+ *
+ * <p>
+ * The replay runs with the server stopped, as the journal is owned by one process. The records
+ * are applied in the order of the journal: the creates are bulk created with the deterministic
+ * elastic ids of {@link ElasticClient#docId(String)}, so items already in the index are counted
+ * as existing, not overwritten; the updates and deletes journaled once applied are bulk indexed
+ * and deleted, and the subtree jobs are run again, so the rebuilt index doesn't bring back the
+ * deleted items or the old versions.
+ **/
+public class JournalReplay {
+  private static final Logger LOGGER = LogManager.getLogger(JournalReplay.class);
+  private static final String DATABASE_MODULE = DatabaseVerticle.class.getName();
+  private static final int BATCH_SIZE = 1000;
+
+  private final RestClient client;
+  private int replayed = 0;
+  private int existing = 0;
+  private int failed = 0;
+
+  JournalReplay(RestClient client) {
+    this.client = client;
+  }
+
+  /* Bulk applies a batch of journal records, other than the subtree jobs, to the target index */
+  private void applyDocs(String target, List<IngestionJournal.Entry> entries)
+      throws IOException {
+    if (entries.isEmpty()) {
+      return;
+    }
+    StringBuilder bulk = new StringBuilder();
+    for (IngestionJournal.Entry entry : entries) {
+      String op = entry.record.getString("op", "create");
+      JsonObject doc = entry.record.getJsonObject("doc");
+      String id = doc != null ? doc.getString("id") : entry.record.getString("id");
+      JsonObject action = new JsonObject().put("_id", ElasticClient.docId(id));
+      if (entry.record.getString("routing") != null) {
+        action.put("routing", entry.record.getString("routing"));
+      }
+      bulk.append(new JsonObject().put(op, action)).append('\n');
+      if (doc != null) {
+        bulk.append(doc.encode()).append('\n');
+      }
+    }
+
+    Request request = new Request("POST", target + "/_bulk");
+    request.setJsonEntity(bulk.toString());
+    Response response = client.performRequest(request);
+    JsonArray items = new JsonObject(EntityUtils.toString(response.getEntity()))
+        .getJsonArray("items");
+    for (int i = 0; i < items.size(); i++) {
+      JsonObject item = items.getJsonObject(i);
+      JsonObject result = item.getJsonObject(item.fieldNames().iterator().next());
+      int status = result.getInteger("status");
+      if (status == 200 || status == 201) {
+        replayed++;
+      } else if (status == 409 || (status == 404 && item.containsKey("delete"))) {
+        existing++;
+      } else {
+        LOGGER.error("Fail: Record not replayed;" + entries.get(i).seq + ";"
+            + result.getValue("error"));
+        failed++;
+      }
+    }
+    entries.clear();
+  }
+
+  /* Runs a journaled subtree job on the target index, until it completes */
+  private void applyByQuery(String target, IngestionJournal.Entry entry) throws IOException {
+    Request request = new Request("POST", target + entry.record.getString("endpoint"));
+    request.addParameter("conflicts", "proceed");
+    request.addParameter("refresh", "true");
+    request.setJsonEntity(entry.record.getJsonObject("query").encode());
+    try {
+      client.performRequest(request);
+      replayed++;
+    } catch (IOException e) {
+      LOGGER.error("Fail: Record not replayed;" + entry.seq + ";" + e.getMessage());
+      failed++;
+    }
+  }
+
+  /**
+   * Replays the retained records of a journal.
+   *
+   * @param journal the ingestion journal
+   * @param target index
+   * @param afterSeq sequence number after which to replay
+   */
+  void replay(IngestionJournal journal, String target, long afterSeq) throws IOException {
+    long seq = afterSeq;
+    while (true) {
+      List<IngestionJournal.Entry> entries = journal.replay(seq, BATCH_SIZE);
+      if (entries.isEmpty()) {
+        break;
+      }
+      /* The docs before a subtree job are applied before it, in the order of the journal */
+      List<IngestionJournal.Entry> docs = new ArrayList<IngestionJournal.Entry>();
+      for (IngestionJournal.Entry entry : entries) {
+        if ("byQuery".equals(entry.record.getString("op"))) {
+          applyDocs(target, docs);
+          applyByQuery(target, entry);
+        } else {
+          docs.add(entry);
+        }
+      }
+      applyDocs(target, docs);
+      seq = entries.get(entries.size() - 1).seq;
+      LOGGER.info("Info: Replayed up to record " + seq);
+    }
+    client.performRequest(new Request("POST", target + "/_refresh"));
+
+    LOGGER.info("Success: Replayed " + replayed + " items into " + target + "; existing "
+        + existing + ", failed " + failed);
+  }
+
+  public static void main(String[] args) {
+    CLI cli = CLI.create("IUDX Cat Journal Replay")
+        .setSummary("Replays the ingestion journal into an index")
+        .addOption(new Option().setLongName("help").setShortName("h").setFlag(true)
+            .setDescription("display help"))
+        .addOption(new Option().setLongName("config").setShortName("c")
+            .setRequired(true).setDescription("configuration file"))
+        .addOption(new Option().setLongName("journal").setShortName("j")
+            .setDescription("journal directory; default journalPath"))
+        .addOption(new Option().setLongName("target").setShortName("t")
+            .setDescription("target index; default docIndex"))
+        .addOption(new Option().setLongName("after").setShortName("a").setDefaultValue("0")
+            .setDescription("sequence number after which to replay"));
+
+    StringBuilder usageString = new StringBuilder();
+    cli.usage(usageString);
+    CommandLine commandLine = cli.parse(Arrays.asList(args), false);
+    if (!commandLine.isValid() || commandLine.isFlagEnabled("help")) {
+      LOGGER.info(usageString);
+      return;
+    }
+
+    JsonObject config = null;
+    try {
+      JsonArray modules = new JsonObject(new String(Files.readAllBytes(
+          Paths.get(commandLine.getOptionValue("config"))), StandardCharsets.UTF_8))
+          .getJsonArray("modules");
+      for (int i = 0; i < modules.size(); i++) {
+        if (DATABASE_MODULE.equals(modules.getJsonObject(i).getString("id"))) {
+          config = modules.getJsonObject(i);
+        }
+      }
+    } catch (Exception e) {
+      LOGGER.fatal("Couldn't read configuration file");
+      return;
+    }
+    if (config == null) {
+      LOGGER.fatal("No database module in the configuration file");
+      return;
+    }
+
+    String journalPath = commandLine.getOptionValue("journal") != null
+        ? commandLine.getOptionValue("journal")
+        : config.getString("journalPath");
+    String target = commandLine.getOptionValue("target") != null
+        ? commandLine.getOptionValue("target")
+        : config.getString("docIndex");
+    if (journalPath == null) {
+      LOGGER.fatal("No journal directory");
+      return;
+    }
+
+    CredentialsProvider credentials = new BasicCredentialsProvider();
+    credentials.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(
+        config.getString("databaseUser"), config.getString("databasePassword")));
+    try (RestClient client = RestClient.builder(
+        new HttpHost(config.getString("databaseIP"), config.getInteger("databasePort")))
+        .setHttpClientConfigCallback(
+            httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentials))
+        .build();
+        IngestionJournal journal = new IngestionJournal(Paths.get(journalPath),
+            config.getInteger("journalSegmentSize", Constants.DEFAULT_JOURNAL_SEGMENT_SIZE),
+            config.getInteger("journalRetainedSegments",
+                Constants.DEFAULT_JOURNAL_RETAINED_SEGMENTS))) {
+      new JournalReplay(client).replay(journal, target,
+          Long.parseLong(commandLine.getOptionValue("after")));
+    } catch (IOException | NumberFormatException e) {
+      LOGGER.fatal("Replay failed;" + e.getMessage());
+    }
+  }
+}
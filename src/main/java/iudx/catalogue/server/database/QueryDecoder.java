@@ -5,6 +5,8 @@ import io.vertx.core.json.JsonObject;
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import iudx.catalogue.server.util.Geometry;
+import iudx.catalogue.server.util.SearchType;
 
 import static iudx.catalogue.server.database.Constants.*;
 import static iudx.catalogue.server.util.Constants.*;
@@ -13,19 +15,31 @@ public final class QueryDecoder {
 
   private static final Logger LOGGER = LogManager.getLogger(QueryDecoder.class);
 
+  /* Hits counted exactly by a search; null for the Elasticsearch default */
+  private Integer trackTotalHits;
+
+  void setTrackTotalHits(Integer trackTotalHits) {
+    this.trackTotalHits = trackTotalHits;
+  }
+
   /**
    * Decodes and constructs ElasticSearch Search/Count query based on the parameters passed in the
    * request.
    *
+   * <p>
+   * Only the text query is scored, in the bool must; the geo, attribute and instance clauses are
+   * exact matches and go in the bool filter, where they aren't scored and can be cached. A search
+   * without a text query isn't scored at all and returns the hits in index order.
+   *
    * @param request Json object containing various fields related to query-type.
    * @return JsonObject which contains fully formed ElasticSearch query.
    */
   public JsonObject searchQuery(JsonObject request) {
 
-    String searchType = request.getString(SEARCH_TYPE);
+    int searchType = SearchType.of(request);
     JsonObject elasticQuery = new JsonObject();
-    String queryGeoShape = null;
     JsonArray mustQuery = new JsonArray();
+    JsonArray filterQuery = new JsonArray();
     Boolean match = false;
 
     /* Will be used for multi-tenancy */
@@ -39,53 +53,48 @@ public final class QueryDecoder {
     }
 
     /* Handle the search type */
-    if (searchType.matches(GEOSEARCH_REGEX)) {
+    if (SearchType.GEO.in(searchType)) {
       LOGGER.debug("Info: Geo search block");
 
       match = true;
-      String relation;
-      JsonArray coordinates;
-      String geometry = request.getString(GEOMETRY);
+      Geometry geometry;
+      try {
+        geometry = Geometry.parse(request.getString(GEOMETRY), request.getJsonArray(COORDINATES_KEY));
+      } catch (IllegalArgumentException | ClassCastException e) {
+        return new JsonObject().put(ERROR, e instanceof IllegalArgumentException
+            ? e.getMessage() : ERROR_INVALID_GEO_PARAMETER);
+      }
+      String relation = request.getString(GEORELATION);
       String geoProperty = request.getString(GEOPROPERTY);
+      String coordinates = geometry.getCoordinates().toString();
+      String queryGeoShape;
       /* Construct the search query */
-      if (POINT.equalsIgnoreCase(geometry)) {
+      if (geometry.getType() == POINT) {
         /* Construct the query for Circle */
-        coordinates = request.getJsonArray(COORDINATES_KEY);
-        relation = request.getString(GEORELATION);
         int radius = request.getInteger(MAX_DISTANCE);
         String radiusStr = ",\"radius\": \"$1m\"".replace("$1", Integer.toString(radius));
         queryGeoShape = GEO_SHAPE_QUERY.replace("$1", GEO_CIRCLE)
-            .replace("$2", coordinates.toString() + radiusStr).replace("$3", relation)
+            .replace("$2", coordinates + radiusStr).replace("$3", relation)
             .replace("$4", geoProperty + GEO_KEY);
-      } else if (POLYGON.equalsIgnoreCase(geometry) || LINESTRING.equalsIgnoreCase(geometry)) {
-        relation = request.getString(GEORELATION);
-        coordinates = request.getJsonArray(COORDINATES_KEY);
-        int length = coordinates.getJsonArray(0).size();
-        /* Check if valid polygon */
-        if (geometry.equalsIgnoreCase(POLYGON)
-            && (!coordinates.getJsonArray(0).getJsonArray(0).getDouble(0)
-                .equals(coordinates.getJsonArray(0).getJsonArray(length - 1).getDouble(0))
-            || !coordinates.getJsonArray(0).getJsonArray(0).getDouble(1)
-                .equals(coordinates.getJsonArray(0).getJsonArray(length - 1).getDouble(1)))) {
-
-          return new JsonObject().put(ERROR, ERROR_INVALID_COORDINATE_POLYGON);
-        }
-        queryGeoShape = GEO_SHAPE_QUERY.replace("$1", geometry).replace("$2", coordinates.toString())
-            .replace("$3", relation).replace("$4", geoProperty + GEO_KEY);
-
-      } else if (BBOX.equalsIgnoreCase(geometry)) {
+      } else if (geometry.getType() == BBOX) {
         /* Construct the query for BBOX */
-        relation = request.getString(GEORELATION);
-        coordinates = request.getJsonArray(COORDINATES_KEY);
-        queryGeoShape = GEO_SHAPE_QUERY.replace("$1", GEO_BBOX).replace("$2", coordinates.toString())
+        queryGeoShape = GEO_SHAPE_QUERY.replace("$1", GEO_BBOX).replace("$2", coordinates)
             .replace("$3", relation).replace("$4", geoProperty + GEO_KEY);
       } else {
-        return new JsonObject().put(ERROR, ERROR_INVALID_GEO_PARAMETER);
+        /* Polygon and LineString, rings of the polygon are closed */
+        queryGeoShape = GEO_SHAPE_QUERY.replace("$1", geometry.getType())
+            .replace("$2", coordinates).replace("$3", relation)
+            .replace("$4", geoProperty + GEO_KEY);
+      }
+      try {
+        filterQuery.add(new JsonObject(queryGeoShape));
+      } catch (Exception e) {
+        return new JsonObject().put(ERROR, "Invalid Json Format");
       }
     }
 
     /* Construct the query for text based search */
-    if (searchType.matches(TEXTSEARCH_REGEX)) {
+    if (SearchType.TEXT.in(searchType)) {
       LOGGER.debug("Info: Text search block");
 
       match = true;
@@ -99,7 +108,7 @@ public final class QueryDecoder {
     }
 
     /* Construct the query for attribute based search */
-    if (searchType.matches(ATTRIBUTE_SEARCH_REGEX)) {
+    if (SearchType.ATTRIBUTE.in(searchType)) {
       LOGGER.debug("Info: Attribute search block");
 
       match = true;
@@ -113,34 +122,24 @@ public final class QueryDecoder {
         if (propertyAttrs.size() == valueAttrs.size()) {
           /* Mapping and constructing the value attributes with the property attributes for query */
           for (int i = 0; i < valueAttrs.size(); i++) {
-            JsonArray shouldQuery = new JsonArray();
+            String property = propertyAttrs.getString(i);
             JsonArray valueArray = valueAttrs.getJsonArray(i);
-            for (int j = 0; j < valueArray.size(); j++) {
-              String matchQuery;
-              /* Attribute related queries using "match" and without the ".keyword" */
-              if (propertyAttrs.getString(i).equals(TAGS)
-                  || propertyAttrs.getString(i).equals(DESCRIPTION_ATTR)
-                  || propertyAttrs.getString(i).startsWith(LOCATION)) {
-
-                matchQuery = MATCH_QUERY.replace("$1", propertyAttrs.getString(i))
-                                        .replace("$2", valueArray.getString(j));
-                shouldQuery.add(new JsonObject(matchQuery));
-                /* Attribute related queries using "match" and with the ".keyword" */
-              } else {
-                /* checking keyword in the query paramters */
-                if (propertyAttrs.getString(i).endsWith(KEYWORD_KEY)) {
-                  matchQuery = MATCH_QUERY.replace("$1", propertyAttrs.getString(i))
-                                          .replace("$2", valueArray.getString(j));
-                } else {
-
-                  /* add keyword if not avaialble */
-                  matchQuery = MATCH_QUERY.replace("$1", propertyAttrs.getString(i) + KEYWORD_KEY)
-                                          .replace("$2", valueArray.getString(j));
-                }
+            /* Attribute related queries using "match" and without the ".keyword" */
+            if (property.equals(TAGS) || property.equals(DESCRIPTION_ATTR)
+                || property.startsWith(LOCATION)) {
+              JsonArray shouldQuery = new JsonArray();
+              for (int j = 0; j < valueArray.size(); j++) {
+                String matchQuery = MATCH_QUERY.replace("$1", property)
+                                               .replace("$2", valueArray.getString(j));
                 shouldQuery.add(new JsonObject(matchQuery));
               }
+              filterQuery.add(new JsonObject(SHOULD_QUERY.replace("$1", shouldQuery.toString())));
+            } else {
+              /* Exact values of the ".keyword", add keyword if not avaialble */
+              String field = property.endsWith(KEYWORD_KEY) ? property : property + KEYWORD_KEY;
+              filterQuery.add(new JsonObject().put(TERMS_KEY,
+                  new JsonObject().put(field, valueArray)));
             }
-            mustQuery.add(new JsonObject(SHOULD_QUERY.replace("$1", shouldQuery.toString())));
           }
         } else {
           return new JsonObject().put(ERROR, ERROR_INVALID_PARAMETER);
@@ -150,8 +149,8 @@ public final class QueryDecoder {
 
     if (instanceId != null) {
       String instanceFilter = INSTANCE_FILTER.replace("$1", instanceId);
-      LOGGER.debug("Info: Instance found in query;" + instanceFilter);
-      mustQuery.add(new JsonObject(instanceFilter));
+      LOGGER.debug("Info: Instance found in query;{}", instanceFilter);
+      filterQuery.add(new JsonObject(instanceFilter));
     }
 
     /* checking the requests for limit attribute */
@@ -166,7 +165,7 @@ public final class QueryDecoder {
       elasticQuery.put(FROM, offsetFilter);
     }
 
-    if (searchType.matches(RESPONSE_FILTER_REGEX)) {
+    if (SearchType.RESPONSE_FILTER.in(searchType)) {
      
       /* Construct the filter for response */
       LOGGER.debug("Info: Adding responseFilter");
@@ -191,20 +190,68 @@ public final class QueryDecoder {
       return new JsonObject().put(ERROR, INVALID_SEARCH);
     } else {
 
-      JsonObject boolQuery = new JsonObject(MUST_QUERY.replace("$1", mustQuery.toString()));
-      /* return fully formed elastic query */
-      if (queryGeoShape != null) {
-        try {
-          boolQuery.getJsonObject("bool").put(FILTER,
-              new JsonArray().add(new JsonObject(queryGeoShape)));
-        } catch (Exception e) {
-          return new JsonObject().put(ERROR, "Invalid Json Format");
+      JsonObject boolQuery = new JsonObject().put(BOOL_KEY,
+          new JsonObject().put(FILTER, filterQuery));
+      if (!mustQuery.isEmpty()) {
+        boolQuery.getJsonObject(BOOL_KEY).put(MUST, mustQuery);
+      }
+      if (request.getBoolean(SEARCH)) {
+        if (mustQuery.isEmpty()) {
+          /* Nothing to score, the hits are collected in index order */
+          elasticQuery.put(SORT, new JsonArray().add(DOC_ORDER));
+        }
+        if (trackTotalHits != null) {
+          elasticQuery.put(TRACK_TOTAL_HITS, trackTotalHits);
         }
       }
+      /* return fully formed elastic query */
       return elasticQuery.put(QUERY_KEY, boolQuery);
     }
   }
 
+  /**
+   * Decodes and constructs ElasticSearch facet query. The search parameters are decoded as in
+   * {@link #searchQuery(JsonObject)} and a terms aggregation is added for every requested facet,
+   * so that all the counts are computed in a single size 0 request.
+   *
+   * @param request Json object containing various fields related to query-type.
+   * @return JsonObject which contains fully formed ElasticSearch query.
+   */
+  public JsonObject facetQuery(JsonObject request) {
+
+    JsonArray facets = request.getJsonArray(FACETS, new JsonArray());
+    if (facets.isEmpty()) {
+      return new JsonObject().put(ERROR, ERROR_INVALID_FACETS);
+    }
+
+    JsonObject elasticQuery;
+    if (SearchType.of(request) == 0) {
+      /* Facets over the complete catalogue (or instance) */
+      String instanceFilter = request.getString(INSTANCE) != null
+          ? INSTANCE_FILTER.replace("$1", request.getString(INSTANCE))
+          : "";
+      elasticQuery = new JsonObject().put(QUERY_KEY,
+          new JsonObject(FILTER_QUERY.replace("$1", instanceFilter)));
+    } else {
+      elasticQuery = searchQuery(request);
+      if (elasticQuery.containsKey(ERROR)) {
+        return elasticQuery;
+      }
+    }
+
+    Integer bucketSize = request.getInteger(LIMIT, FACET_BUCKET_SIZE);
+    JsonObject aggregations = new JsonObject();
+    for (Object facet : facets) {
+      String field = (String) facet;
+      String keywordField = field.endsWith(KEYWORD_KEY) ? field : field + KEYWORD_KEY;
+      aggregations.put(field, new JsonObject(FACET_AGGREGATION.replace("$1", keywordField)
+                                                              .replace("$2", bucketSize.toString())));
+    }
+
+    elasticQuery.remove(FROM);
+    return elasticQuery.put(SIZE_KEY, 0).put(AGGREGATION_KEY, aggregations);
+  }
+
   /**
    * Decodes and constructs ElasticSearch Relationship queries based on the parameters passed in the
    * request.
@@ -213,12 +260,28 @@ public final class QueryDecoder {
    * @return JsonObject which contains fully formed ElasticSearch query.
    */
   public String listRelationshipQuery(JsonObject request) {
+    return listRelationshipQuery(request, null);
+  }
+
+  /**
+   * Constructs the ElasticSearch Relationship query; when the related ids are already resolved
+   * (by the {@link HierarchyIndex}), the query fetches the documents of those ids.
+   *
+   * @param request Json object containing various fields related to query-type.
+   * @param ids resolved ids of the related items; null if not resolved
+   * @return JsonObject which contains fully formed ElasticSearch query.
+   */
+  public String listRelationshipQuery(JsonObject request, JsonArray ids) {
 
     String relationshipType = request.getString(RELATIONSHIP);
     String subQuery = "";
 
     /* Validating the request */
-    if (request.containsKey(ID) && RESOURCE.equals(relationshipType)) {
+    if (ids != null) {
+
+      subQuery = TERMS_ID_QUERY.replace("$1", ids.toString());
+
+    } else if (request.containsKey(ID) && RESOURCE.equals(relationshipType)) {
 
       /* parsing resourceGroupId from the request */
       String resourceGroupId = request.getString(ID);
@@ -315,7 +378,7 @@ public final class QueryDecoder {
    */
   public String listItemQuery(JsonObject request) {
 
-    LOGGER.debug("Info: Reached list items;" + request.toString());
+    LOGGER.debug("Info: Reached list items;{}", request);
     String itemType = request.getString(ITEM_TYPE);
     String type = request.getString(TYPE_KEY);
     String instanceID = request.getString(INSTANCE);
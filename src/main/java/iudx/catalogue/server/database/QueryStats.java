@@ -0,0 +1,419 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.http.HttpEntity;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Request;
+
+/**
+ * The Query Stats.
+ *
+ * <h1>Query Stats</h1>
+ *
+ * <p>
+ * Statistics of the Elasticsearch requests, by the shape of the request. The shape is the method,
+ * the endpoint with its ids and parameter values taken out, and the JSON body with its literals
+ * replaced by ? and the repeated elements of its arrays collapsed; so the same search with other
+ * values, or another number of terms or coordinates, has the same shape. Each shape, keyed by its
+ * fingerprint, keeps its count, failures, a log-linear histogram of its latency (within 12.5%) and
+ * the took reported by Elasticsearch. At most maxFingerprints shapes are kept; the new shapes past
+ * that are counted together as overflow.
+ *
+ * <p>
+ * A request slower than slowQueryThreshold milliseconds is logged, with its fingerprint and its
+ * body, with probability slowQuerySampleRatio. The statistics are shared by the clients of a JVM.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class QueryStats {
+
+  public static final String MAX_FINGERPRINTS = "maxFingerprints";
+  public static final String SLOW_QUERY_THRESHOLD = "slowQueryThreshold";
+  public static final String SLOW_QUERY_SAMPLE_RATIO = "slowQuerySampleRatio";
+
+  /* Orders of the top shapes */
+  public static final String BY_COUNT = "count";
+  public static final String BY_TOTAL_TIME = "totalTime";
+  public static final String BY_P99 = "p99";
+  public static final String BY_MAX_TIME = "maxTime";
+  public static final String BY_TOOK = "meanTook";
+
+  private static final Logger LOGGER = LogManager.getLogger(QueryStats.class);
+  private static final String OVERFLOW = "overflow";
+  private static final int MAX_SHAPE = 2000;
+  private static final int MAX_LOGGED = 4000;
+  private static final long MAX_BODY = 1 << 20;
+  /* 8 buckets per power of two of microseconds, up to 2^35 */
+  private static final int SUB_BUCKETS = 8;
+  private static final int MAX_POWER = 35;
+  private static final int BUCKETS = SUB_BUCKETS * (MAX_POWER - 2);
+  private static final int[] OBJECT = new int[0];
+  private static QueryStats stats;
+
+  private final int maxFingerprints;
+  private final long slowQueryMicros;
+  private final double slowQuerySampleRatio;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  /**
+   * Statistics of a shape.
+   */
+  static final class Entry {
+
+    private final String fingerprint;
+    private final String shape;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final LongAdder tookCount = new LongAdder();
+    private final LongAdder tookMillis = new LongAdder();
+    private final AtomicLong maxTook = new AtomicLong();
+
+    Entry(String fingerprint, String shape) {
+      this.fingerprint = fingerprint;
+      this.shape = shape;
+    }
+
+    void record(long micros, boolean failed) {
+      count.increment();
+      if (failed) {
+        errors.increment();
+      }
+      totalMicros.add(micros);
+      maxMicros.accumulateAndGet(micros, Math::max);
+      histogram.incrementAndGet(bucket(micros));
+    }
+
+    void took(long millis) {
+      tookCount.increment();
+      tookMillis.add(millis);
+      maxTook.accumulateAndGet(millis, Math::max);
+    }
+
+    /* Upper bound of the bucket of a quantile, in microseconds */
+    long percentile(double quantile) {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = histogram.get(i);
+        total += counts[i];
+      }
+      long rank = (long) Math.ceil(quantile * total);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0) {
+          return Math.min(upperBound(i), maxMicros.get());
+        }
+      }
+      return 0;
+    }
+
+    double meanTook() {
+      long took = tookCount.sum();
+      return took == 0 ? 0 : (double) tookMillis.sum() / took;
+    }
+
+    JsonObject toJson() {
+      long requests = count.sum();
+      return new JsonObject()
+          .put("fingerprint", fingerprint)
+          .put("shape", shape)
+          .put("count", requests)
+          .put("errors", errors.sum())
+          .put("totalTime", millis(totalMicros.sum()))
+          .put("meanTime", requests == 0 ? 0.0 : millis(totalMicros.sum() / requests))
+          .put("p50", millis(percentile(0.5)))
+          .put("p90", millis(percentile(0.9)))
+          .put("p99", millis(percentile(0.99)))
+          .put("maxTime", millis(maxMicros.get()))
+          .put("meanTook", meanTook())
+          .put("maxTook", maxTook.get());
+    }
+  }
+
+  /**
+   * A request being timed.
+   */
+  public static final class Sample {
+
+    private final Entry entry;
+    private final String body;
+    private final long start = System.nanoTime();
+
+    private Sample(Entry entry, String body) {
+      this.entry = entry;
+      this.body = body;
+    }
+
+    /**
+     * Records the took of the response.
+     *
+     * @param millis took in milliseconds; ignored if negative
+     */
+    public void took(long millis) {
+      if (millis >= 0) {
+        entry.took(millis);
+      }
+    }
+  }
+
+  QueryStats(JsonObject options) {
+    this.maxFingerprints = options.getInteger(MAX_FINGERPRINTS, 1000);
+    this.slowQueryMicros = options.getLong(SLOW_QUERY_THRESHOLD, 1000L) * 1000;
+    this.slowQuerySampleRatio = options.getDouble(SLOW_QUERY_SAMPLE_RATIO, 0.1);
+  }
+
+  /**
+   * The statistics of the JVM, created with the options of the first verticle.
+   *
+   * @param options maxFingerprints, slowQueryThreshold and slowQuerySampleRatio; null for the
+   *     defaults
+   * @return the statistics
+   */
+  public static synchronized QueryStats shared(JsonObject options) {
+    if (stats == null) {
+      stats = new QueryStats(options == null ? new JsonObject() : options);
+    }
+    return stats;
+  }
+
+  /**
+   * Starts timing a request.
+   *
+   * @param request the request, with its body if any
+   * @return the sample
+   */
+  public Sample start(Request request) {
+    String body = null;
+    HttpEntity entity = request.getEntity();
+    if (entity != null && entity.getContentLength() <= MAX_BODY
+        && !request.getEndpoint().contains("_bulk")) {
+      try {
+        body = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        LOGGER.debug("Info: Request body unreadable;{}", e.getMessage());
+      }
+    }
+    String shape = shape(request.getMethod(), request.getEndpoint(), body);
+    Entry entry = entries.get(shape);
+    if (entry == null) {
+      String key = entries.size() < maxFingerprints ? shape : OVERFLOW;
+      entry = entries.computeIfAbsent(key,
+          k -> new Entry(OVERFLOW.equals(k) ? OVERFLOW : fingerprint(k), k));
+    }
+    return new Sample(entry, body);
+  }
+
+  /**
+   * Records a request, logging it if slow.
+   *
+   * @param sample the sample of the request
+   * @param failed whether the request failed
+   */
+  public void stop(Sample sample, boolean failed) {
+    long micros = (System.nanoTime() - sample.start) / 1000;
+    sample.entry.record(micros, failed);
+    if (micros >= slowQueryMicros
+        && ThreadLocalRandom.current().nextDouble() < slowQuerySampleRatio) {
+      String body = sample.body == null ? "" : sample.body.length() > MAX_LOGGED
+          ? sample.body.substring(0, MAX_LOGGED) + "..." : sample.body;
+      LOGGER.warn("Fail: Slow query;" + sample.entry.fingerprint + ";" + micros / 1000 + "ms;"
+          + body);
+    }
+  }
+
+  /**
+   * The shapes on top of an order.
+   *
+   * @param limit number of shapes
+   * @param sortBy count, totalTime, p99, maxTime or meanTook; totalTime if unknown
+   * @return the statistics of the shapes
+   */
+  public JsonArray top(int limit, String sortBy) {
+    List<JsonObject> shapes = new ArrayList<JsonObject>();
+    entries.values().forEach(entry -> shapes.add(entry.toJson()));
+    String key = BY_COUNT.equals(sortBy) || BY_P99.equals(sortBy) || BY_MAX_TIME.equals(sortBy)
+        || BY_TOOK.equals(sortBy) ? sortBy : BY_TOTAL_TIME;
+    shapes.sort(Comparator.comparingDouble((JsonObject shape) ->
+        ((Number) shape.getValue(key)).doubleValue()).reversed());
+    JsonArray top = new JsonArray();
+    shapes.stream().limit(Math.max(0, limit)).forEach(top::add);
+    return top;
+  }
+
+  static int bucket(long micros) {
+    long value = Math.min(Math.max(micros, 0), (1L << MAX_POWER) - 1);
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int power = 63 - Long.numberOfLeadingZeros(value);
+    return SUB_BUCKETS * (power - 2) + (int) (value >> (power - 3)) - SUB_BUCKETS;
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int power = bucket / SUB_BUCKETS + 2;
+    long width = 1L << (power - 3);
+    return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  private static String fingerprint(String shape) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1")
+          .digest(shape.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (int i = 0; i < 8; i++) {
+        hex.append(String.format("%02x", digest[i]));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Shape of a request: its method, its endpoint without ids and parameter values, and its body
+   * without literals.
+   *
+   * @param method HTTP method
+   * @param endpoint endpoint, with its query string
+   * @param body JSON body, or lines of JSON; null if none
+   * @return the shape
+   */
+  static String shape(String method, String endpoint, String body) {
+    StringBuilder shape = new StringBuilder(method).append(' ');
+    int query = endpoint.indexOf('?');
+    String[] segments = (query < 0 ? endpoint : endpoint.substring(0, query)).split("/");
+    for (int i = 0; i < segments.length; i++) {
+      if (i > 0) {
+        shape.append('/');
+      }
+      /* The index and the API names stay, the ids in between go */
+      shape.append(i == 0 || segments[i].startsWith("_") ? segments[i] : "?");
+    }
+    if (query >= 0) {
+      String separator = "?";
+      for (String param : endpoint.substring(query + 1).split("&")) {
+        int equals = param.indexOf('=');
+        shape.append(separator).append(equals < 0 ? param : param.substring(0, equals));
+        separator = "&";
+      }
+    }
+    if (body != null) {
+      shape.append(' ');
+      normalize(body, shape, shape.length() + MAX_SHAPE);
+    }
+    return shape.toString();
+  }
+
+  /* Appends the JSON without whitespace and literals, collapsing the same consecutive elements of
+   * an array; stops at maxLength */
+  private static void normalize(String json, StringBuilder out, int maxLength) {
+    /* Open arrays, as the start of the current element and the range of the previous one */
+    Deque<int[]> containers = new ArrayDeque<int[]>();
+    int i = 0;
+    int n = json.length();
+    while (i < n && out.length() < maxLength) {
+      char c = json.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '"') {
+        int end = i + 1;
+        while (end < n && json.charAt(end) != '"') {
+          end += json.charAt(end) == '\\' ? 2 : 1;
+        }
+        int next = end + 1;
+        while (next < n && Character.isWhitespace(json.charAt(next))) {
+          next++;
+        }
+        if (next < n && json.charAt(next) == ':') {
+          out.append(json, i, Math.min(end + 1, n));
+        } else {
+          out.append('?');
+        }
+        i = end + 1;
+      } else if (c == '{') {
+        containers.push(OBJECT);
+        out.append(c);
+        i++;
+      } else if (c == '[') {
+        out.append(c);
+        containers.push(new int[] {out.length(), -1, -1});
+        i++;
+      } else if (c == '}' || c == ']' || c == ',') {
+        int[] array = containers.peek();
+        if (array != null && array != OBJECT) {
+          collapse(out, array);
+        }
+        if (c != ',') {
+          containers.poll();
+        }
+        out.append(c);
+        if (c == ',' && array != null && array != OBJECT) {
+          array[0] = out.length();
+        }
+        i++;
+      } else if (c == ':') {
+        out.append(c);
+        i++;
+      } else {
+        while (i < n && ",:{}[]\"".indexOf(json.charAt(i)) < 0
+            && !Character.isWhitespace(json.charAt(i))) {
+          i++;
+        }
+        out.append('?');
+      }
+    }
+  }
+
+  /* Drops the element ending an array or before a comma if it's the same as the previous one */
+  private static void collapse(StringBuilder out, int[] array) {
+    int start = array[0];
+    int end = out.length();
+    if (start == end) {
+      return;
+    }
+    int prevStart = array[1];
+    int prevEnd = array[2];
+    if (prevStart >= 0 && prevEnd - prevStart == end - start) {
+      boolean same = true;
+      for (int k = 0; same && k < end - start; k++) {
+        same = out.charAt(prevStart + k) == out.charAt(start + k);
+      }
+      if (same) {
+        out.setLength(prevEnd);
+        return;
+      }
+    }
+    array[1] = start;
+    array[2] = end;
+  }
+}
@@ -0,0 +1,410 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.cli.CLI;
+import io.vertx.core.cli.CommandLine;
+import io.vertx.core.cli.Option;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+/**
+ * Reindexer - Zero downtime reindex of the catalogue items into a new versioned index, for a
+ * change of the mappings or of the number of shards.
+ *
+ * <p>
+ * The docIndex of the database module is the read alias of the items, and docIndex + "-write"
+ * their write alias; a docIndex which is still a concrete index is replaced by the aliases on
+ * the first reindex. The reindex
+ * <ol>
+ * <li>creates the next versioned index, docIndex-v&lt;n&gt;, with the mappings of
+ * configs/default-mappings.json and the analysis settings of the current index;</li>
+ * <li>adds it to the write alias with is_write_index false, and waits for the servers to follow
+ * the write alias, from then on every doc write is also mirrored to the new index;</li>
+ * <li>copies the current index in parallel slices with a _reindex task, which only creates the
+ * docs missing in the new index, and reports its progress and throughput;</li>
+ * <li>deletes the copied docs which were deleted during the copy;</li>
+ * <li>fails if a server gave up mirroring a write to the new index, which it marks in the
+ * _meta of the index, once the failed mirrors had the time to be retried;</li>
+ * <li>swaps both aliases to the new index in one atomic _aliases request, with the filtered
+ * aliases of the instances.</li>
+ * </ol>
+ *
+ * <p>
+ * The copy can route every item by its instance, to switch the database module to the
+ * instanceRouting mode.
+ *
+ * <p>
+ * A previous versioned index is kept for a rollback and can be deleted once the new one is
+ * verified. On a failure the new index is removed from the write alias.
+ **/
+public class Reindexer {
+  private static final Logger LOGGER = LogManager.getLogger(Reindexer.class);
+  private static final String DATABASE_MODULE = DatabaseVerticle.class.getName();
+  private static final Pattern VERSIONED_INDEX = Pattern.compile("^(.*)-v(\\d+)$");
+  private static final int PAGE_SIZE = 1000;
+  private static final String SCROLL = "5m";
+  private static final long POLL_INTERVAL = 2000;
+  private static final String ROUTE_BY_INSTANCE =
+      "if (ctx._source.instance instanceof String && ctx._source.instance != '') "
+      + "{ ctx._routing = ctx._source.instance }";
+
+  private final RestClient client;
+  private final long grace;
+  private final long retryWindow;
+  private long reconciled = 0;
+
+  /**
+   * Reindexer.
+   *
+   * @param client Elastic client
+   * @param grace time for all the servers to follow the write alias, in ms
+   */
+  Reindexer(RestClient client, long grace) {
+    this(client, grace, Constants.MIRROR_RETRY_WINDOW);
+  }
+
+  Reindexer(RestClient client, long grace, long retryWindow) {
+    this.client = client;
+    this.grace = grace;
+    this.retryWindow = retryWindow;
+  }
+
+  private JsonObject perform(Request request) throws IOException {
+    Response response = client.performRequest(request);
+    return new JsonObject(EntityUtils.toString(response.getEntity()));
+  }
+
+  /* Index behind an alias; null if the name isn't an alias */
+  private String resolve(String alias) throws IOException {
+    Request request = new Request("GET", "_alias/" + alias);
+    request.addParameter("ignore", "404");
+    Response response = client.performRequest(request);
+    if (response.getStatusLine().getStatusCode() == 404) {
+      return null;
+    }
+    return new JsonObject(EntityUtils.toString(response.getEntity()))
+        .fieldNames().iterator().next();
+  }
+
+  /** Next versioned index of an alias */
+  static String nextIndex(String alias, String source) {
+    Matcher matcher = VERSIONED_INDEX.matcher(source);
+    if (matcher.matches() && matcher.group(1).equals(alias)) {
+      return alias + "-v" + (Integer.parseInt(matcher.group(2)) + 1);
+    }
+    return alias + "-v1";
+  }
+
+  /* Fails if a write wasn't mirrored to the target, see ElasticClient */
+  private void checkMirrors(String target) throws IOException {
+    JsonObject meta = perform(new Request("GET", target + "/_mapping"))
+        .getJsonObject(target, new JsonObject())
+        .getJsonObject("mappings", new JsonObject())
+        .getJsonObject("_meta", new JsonObject());
+    if (meta.getBoolean(Constants.MIRROR_FAILED, false)) {
+      throw new IOException("Writes not mirrored to " + target);
+    }
+  }
+
+  private void aliases(JsonArray actions) throws IOException {
+    Request request = new Request("POST", "_aliases");
+    request.setJsonEntity(new JsonObject().put("actions", actions).toString());
+    perform(request);
+  }
+
+  private static JsonObject alias(String action, String index, String alias) {
+    return new JsonObject().put(action, new JsonObject().put("index", index).put("alias", alias));
+  }
+
+  private static JsonObject addWriteAlias(String index, String alias, boolean isWriteIndex) {
+    JsonObject add = alias("add", index, alias);
+    add.getJsonObject("add").put("is_write_index", isWriteIndex);
+    return add;
+  }
+
+  /* Creates the target index with the new mappings and the analysis settings of the source */
+  private void createIndex(String source, String target, JsonObject mappings, Integer shards)
+      throws IOException {
+    JsonObject settings = perform(new Request("GET", source + "/_settings"))
+        .getJsonObject(source).getJsonObject("settings").getJsonObject("index");
+
+    JsonObject indexSettings = new JsonObject()
+        .put("number_of_shards", shards != null ? shards : settings.getValue("number_of_shards"));
+    if (settings.containsKey("analysis")) {
+      indexSettings.put("analysis", settings.getJsonObject("analysis"));
+    }
+    Request create = new Request("PUT", target);
+    create.setJsonEntity(new JsonObject().put("mappings", mappings)
+        .put("settings", new JsonObject().put("index", indexSettings)).toString());
+    perform(create);
+    LOGGER.info("Info: Created " + target + " with " + indexSettings.getValue("number_of_shards")
+        + " shards");
+  }
+
+  /* Starts a _reindex task from the source to the target; creates only the missing docs */
+  private String copy(String source, String target, String slices, boolean routeByInstance)
+      throws IOException {
+    Request request = new Request("POST", "_reindex");
+    request.addParameter("slices", slices);
+    request.addParameter("wait_for_completion", "false");
+    JsonObject body = new JsonObject().put("conflicts", "proceed")
+        .put("source", new JsonObject().put("index", source).put("size", PAGE_SIZE))
+        .put("dest", new JsonObject().put("index", target).put("op_type", "create"));
+    if (routeByInstance) {
+      body.put("script", new JsonObject().put("lang", "painless").put("source", ROUTE_BY_INSTANCE));
+    }
+    request.setJsonEntity(body.toString());
+    return perform(request).getString("task");
+  }
+
+  /* Moves the other aliases of the source, the filtered aliases of the instances, to the target */
+  private void carryAliases(String source, String target, JsonArray swap, Set<String> skipped,
+      boolean concrete) throws IOException {
+    Request request = new Request("GET", source + "/_alias");
+    JsonObject aliased = perform(request).getJsonObject(source, new JsonObject())
+        .getJsonObject("aliases", new JsonObject());
+    for (String name : aliased.fieldNames()) {
+      if (skipped.contains(name)) {
+        continue;
+      }
+      JsonObject add = aliased.getJsonObject(name).copy().put("index", target).put("alias", name);
+      swap.add(new JsonObject().put("add", add));
+      if (!concrete) {
+        swap.add(alias("remove", source, name));
+      }
+    }
+  }
+
+  /* Polls a task until it completes, reporting its progress and throughput */
+  private void waitFor(String task) throws IOException, InterruptedException {
+    while (true) {
+      JsonObject taskStatus = perform(new Request("GET", "_tasks/" + task));
+      JsonObject status = taskStatus.getJsonObject("task").getJsonObject("status");
+      long total = status.getLong("total", 0L);
+      long done = status.getLong("created", 0L) + status.getLong("version_conflicts", 0L);
+      double seconds = taskStatus.getJsonObject("task").getLong("running_time_in_nanos", 0L) / 1e9;
+      LOGGER.info(String.format("Info: Copied %d/%d docs (%.1f%%), %.0f docs/s", done, total,
+          total == 0 ? 100.0 : done * 100.0 / total, seconds == 0 ? 0.0 : done / seconds));
+
+      if (taskStatus.getBoolean("completed", false)) {
+        JsonArray failures = taskStatus.getJsonObject("response", new JsonObject())
+            .getJsonArray("failures", new JsonArray());
+        if (!failures.isEmpty()) {
+          throw new IOException("Copy failed;" + failures.getValue(0));
+        }
+        return;
+      }
+      Thread.sleep(POLL_INTERVAL);
+    }
+  }
+
+  /* Ids of a page which exist in an index */
+  private Set<String> existing(String index, JsonArray ids) throws IOException {
+    Request search = new Request("POST", index + "/_search");
+    search.setJsonEntity(new JsonObject().put("size", ids.size()).put("_source", false)
+        .put("query", new JsonObject().put("ids", new JsonObject().put("values", ids)))
+        .toString());
+    JsonArray hits = perform(search).getJsonObject("hits").getJsonArray("hits");
+    Set<String> existing = new HashSet<String>();
+    for (int i = 0; i < hits.size(); i++) {
+      existing.add(hits.getJsonObject(i).getString("_id"));
+    }
+    return existing;
+  }
+
+  /* Deletes the docs of the target which were deleted from the source after they were copied */
+  private void reconcile(String source, String target) throws IOException {
+    perform(new Request("POST", source + "/_refresh"));
+    perform(new Request("POST", target + "/_refresh"));
+
+    Request search = new Request("POST", target + "/_search?scroll=" + SCROLL);
+    search.setJsonEntity(new JsonObject().put("size", PAGE_SIZE).put("_source", false)
+        .put("sort", new JsonArray().add("_doc")).toString());
+    JsonObject page = perform(search);
+
+    while (true) {
+      String scrollId = page.getString("_scroll_id");
+      JsonArray hits = page.getJsonObject("hits").getJsonArray("hits");
+      if (hits.isEmpty()) {
+        Request clear = new Request("DELETE", "_search/scroll");
+        clear.setJsonEntity(new JsonObject().put("scroll_id", scrollId).toString());
+        perform(clear);
+        break;
+      }
+
+      JsonArray ids = new JsonArray();
+      for (int i = 0; i < hits.size(); i++) {
+        ids.add(hits.getJsonObject(i).getString("_id"));
+      }
+      Set<String> existing = existing(source, ids);
+      StringBuilder bulk = new StringBuilder();
+      for (int i = 0; i < ids.size(); i++) {
+        if (!existing.contains(ids.getString(i))) {
+          bulk.append(new JsonObject().put("delete", new JsonObject().put("_id", ids.getString(i))))
+              .append('\n');
+          reconciled++;
+        }
+      }
+      if (bulk.length() > 0) {
+        Request request = new Request("POST", target + "/_bulk");
+        request.setJsonEntity(bulk.toString());
+        perform(request);
+      }
+
+      Request scroll = new Request("POST", "_search/scroll");
+      scroll.setJsonEntity(new JsonObject().put("scroll", SCROLL).put("scroll_id", scrollId)
+          .toString());
+      page = perform(scroll);
+    }
+    perform(new Request("POST", target + "/_refresh"));
+  }
+
+  /**
+   * Reindexes the items of the read alias into a new index and swaps the aliases to it.
+   *
+   * @param readAlias docIndex of the database module
+   * @param target index; null for the next versioned index
+   * @param mappings of the target index
+   * @param shards number of shards of the target; null for those of the source
+   * @param slices number of parallel slices of the copy, or "auto"
+   * @param routeByInstance whether to route the items by their instance
+   * @return the target index
+   */
+  String reindex(String readAlias, String target, JsonObject mappings, Integer shards,
+      String slices, boolean routeByInstance) throws IOException, InterruptedException {
+
+    String writeAlias = readAlias + Constants.WRITE_ALIAS_SUFFIX;
+    String resolved = resolve(readAlias);
+    boolean concrete = resolved == null;
+    String source = concrete ? readAlias : resolved;
+    if (target == null) {
+      target = nextIndex(readAlias, source);
+    }
+    LOGGER.info("Info: Reindexing " + source + " into " + target);
+
+    createIndex(source, target, mappings, shards);
+    aliases(new JsonArray().add(addWriteAlias(source, writeAlias, true))
+        .add(addWriteAlias(target, writeAlias, false)));
+
+    try {
+      LOGGER.info("Info: Waiting " + grace + "ms for the servers to mirror the writes");
+      Thread.sleep(grace);
+
+      long start = System.currentTimeMillis();
+      waitFor(copy(source, target, slices, routeByInstance));
+      reconcile(source, target);
+      LOGGER.info("Info: Copy finished in " + (System.currentTimeMillis() - start)
+          + "ms; deleted during the copy " + reconciled);
+      Thread.sleep(retryWindow);
+      checkMirrors(target);
+    } catch (IOException | InterruptedException e) {
+      LOGGER.error("Fail: Reindex failed, " + target + " removed from the write alias");
+      aliases(new JsonArray().add(alias("remove", target, writeAlias)));
+      throw e;
+    }
+
+    /* Atomic swap of both aliases */
+    JsonArray swap = new JsonArray();
+    if (concrete) {
+      swap.add(new JsonObject().put("remove_index", new JsonObject().put("index", source)));
+    } else {
+      swap.add(alias("remove", source, readAlias)).add(alias("remove", source, writeAlias));
+    }
+    swap.add(alias("add", target, readAlias)).add(addWriteAlias(target, writeAlias, true));
+    carryAliases(source, target, swap, Set.of(readAlias, writeAlias), concrete);
+    aliases(swap);
+
+    LOGGER.info("Success: " + readAlias + " swapped to " + target
+        + (concrete ? "; " + source + " replaced by the aliases" : "; " + source + " is kept"));
+    return target;
+  }
+
+  public static void main(String[] args) {
+    CLI cli = CLI.create("IUDX Cat Reindexer")
+        .setSummary("Reindexes the catalogue items into a new index without downtime")
+        .addOption(new Option().setLongName("help").setShortName("h").setFlag(true)
+            .setDescription("display help"))
+        .addOption(new Option().setLongName("config").setShortName("c")
+            .setRequired(true).setDescription("configuration file"))
+        .addOption(new Option().setLongName("mappings").setShortName("m")
+            .setDefaultValue("./configs/default-mappings.json")
+            .setDescription("mappings of the new index"))
+        .addOption(new Option().setLongName("shards").setShortName("s")
+            .setDescription("number of shards of the new index; default as the current"))
+        .addOption(new Option().setLongName("slices").setDefaultValue("auto")
+            .setDescription("parallel slices of the copy"))
+        .addOption(new Option().setLongName("route-by-instance").setFlag(true)
+            .setDescription("route the items by instance, for instanceRouting"))
+        .addOption(new Option().setLongName("target").setShortName("t")
+            .setDescription("new index; default <docIndex>-v<n+1>"));
+
+    StringBuilder usageString = new StringBuilder();
+    cli.usage(usageString);
+    CommandLine commandLine = cli.parse(Arrays.asList(args), false);
+    if (!commandLine.isValid() || commandLine.isFlagEnabled("help")) {
+      LOGGER.info(usageString);
+      return;
+    }
+
+    JsonObject config = null;
+    JsonObject mappings;
+    try {
+      JsonArray modules = new JsonObject(new String(Files.readAllBytes(
+          Paths.get(commandLine.getOptionValue("config"))), StandardCharsets.UTF_8))
+          .getJsonArray("modules");
+      for (int i = 0; i < modules.size(); i++) {
+        if (DATABASE_MODULE.equals(modules.getJsonObject(i).getString("id"))) {
+          config = modules.getJsonObject(i);
+        }
+      }
+      mappings = new JsonObject(new String(Files.readAllBytes(
+          Paths.get(commandLine.getOptionValue("mappings"))), StandardCharsets.UTF_8))
+          .getJsonObject("mappings");
+    } catch (Exception e) {
+      LOGGER.fatal("Couldn't read configuration or mappings file");
+      return;
+    }
+    if (config == null) {
+      LOGGER.fatal("No database module in the configuration file");
+      return;
+    }
+
+    long grace = 2 * config.getLong("aliasRefreshInterval",
+        Constants.DEFAULT_ALIAS_REFRESH_INTERVAL);
+    CredentialsProvider credentials = new BasicCredentialsProvider();
+    credentials.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(
+        config.getString("databaseUser"), config.getString("databasePassword")));
+    try (RestClient client = RestClient.builder(
+        new HttpHost(config.getString("databaseIP"), config.getInteger("databasePort")))
+        .setHttpClientConfigCallback(
+            httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentials))
+        .build()) {
+      String shards = commandLine.getOptionValue("shards");
+      new Reindexer(client, grace).reindex(config.getString("docIndex"),
+          commandLine.getOptionValue("target"), mappings,
+          shards == null ? null : Integer.valueOf(shards), commandLine.getOptionValue("slices"),
+          commandLine.isFlagEnabled("route-by-instance"));
+    } catch (IOException | InterruptedException | NumberFormatException e) {
+      LOGGER.fatal("Reindex failed;" + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,383 @@
+package iudx.catalogue.server.database;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import iudx.catalogue.server.util.Geometry;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static iudx.catalogue.server.database.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+
+/**
+ * The Spatial Index.
+ *
+ * <h1>Spatial Index</h1>
+ *
+ * <p>
+ * Optional in-memory grid index of the location of the catalogue items, held by every
+ * {@link DatabaseVerticle}. Items located by a Point are bucketed into fixed size lon/lat cells;
+ * for the other geometries only the envelope is kept, registered in the cells it covers (or in a
+ * small set of wide shapes when it covers too many). A within/intersects search on the location
+ * with a Point (circle), bbox or Polygon is answered from the index when no non-point item can
+ * match; the geo_shape filter of the query is then replaced by a terms filter on the matching ids.
+ * Every other search goes to Elasticsearch unchanged.
+ *
+ * <p>
+ * Writes are published on {@link Constants#SPATIAL_INDEX_ADDRESS}, so the index of every
+ * database verticle of the cluster stays in sync; all the index state is only touched from the
+ * context of the verticle.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+final class SpatialIndex {
+
+  private static final Logger LOGGER = LogManager.getLogger(SpatialIndex.class);
+  private static final double EARTH_RADIUS = 6371008.7714;
+  private static final int MAX_CELLS = 4096;
+
+  private final Vertx vertx;
+  private final double cellSize;
+
+  private final Map<Long, Set<String>> cells = new HashMap<Long, Set<String>>();
+  private final Map<String, double[]> points = new HashMap<String, double[]>();
+  private final Map<String, double[]> envelopes = new HashMap<String, double[]>();
+  private final Map<Long, Set<String>> shapeCells = new HashMap<Long, Set<String>>();
+  private final Set<String> wideShapes = new HashSet<String>();
+
+  private final IndexLoader loader;
+  private boolean ready = false;
+
+  SpatialIndex(Vertx vertx, double cellSize) {
+    this.vertx = vertx;
+    this.cellSize = cellSize;
+    this.loader = new IndexLoader(vertx, "Spatial index", SPATIAL_INDEX_LOAD_QUERY);
+  }
+
+  /**
+   * Subscribes to the index updates and loads the locations of all the items.
+   *
+   * @param client Elastic client
+   */
+  void start(ElasticClient client) {
+    vertx.eventBus().<JsonObject>consumer(SPATIAL_INDEX_ADDRESS, message -> {
+      JsonObject update = message.body();
+      String id = update.getString(ID);
+      loader.written(id);
+      if (update.containsKey(GEOMETRY)) {
+        put(id, update.getJsonObject(GEOMETRY));
+      } else {
+        remove(id);
+      }
+    });
+    loader.start(client::searchAfterAsync, doc -> {
+      JsonObject geometry = doc.getJsonObject(LOCATION, new JsonObject()).getJsonObject(GEOMETRY);
+      if (doc.getString(ID) != null && geometry != null) {
+        put(doc.getString(ID), geometry);
+      }
+    }, () -> {
+      ready = true;
+      LOGGER.info("Success: Spatial index loaded; points " + points.size()
+          + ", shapes " + envelopes.size());
+    });
+  }
+
+  /**
+   * Publishes the location of an inserted/updated item to all the indexes.
+   *
+   * @param doc catalogue item
+   */
+  void publishPut(JsonObject doc) {
+    JsonObject geometry = doc.getJsonObject(LOCATION, new JsonObject()).getJsonObject(GEOMETRY);
+    JsonObject update = new JsonObject().put(ID, doc.getString(ID));
+    if (geometry != null) {
+      update.put(GEOMETRY, geometry);
+    }
+    vertx.eventBus().publish(SPATIAL_INDEX_ADDRESS, update);
+  }
+
+  /**
+   * Publishes the deletion of an item to all the indexes.
+   *
+   * @param id of the item
+   */
+  void publishRemove(String id) {
+    vertx.eventBus().publish(SPATIAL_INDEX_ADDRESS, new JsonObject().put(ID, id));
+  }
+
+  void put(String id, JsonObject geometry) {
+    remove(id);
+    JsonArray coordinates = geometry.getJsonArray(COORDINATES_KEY);
+    if (coordinates == null || coordinates.isEmpty()) {
+      return;
+    }
+    if (POINT.equalsIgnoreCase(geometry.getString(TYPE_KEY))) {
+      double[] point = {coordinates.getDouble(0), coordinates.getDouble(1)};
+      points.put(id, point);
+      cells.computeIfAbsent(cell(point[0], point[1]), k -> new HashSet<String>()).add(id);
+    } else {
+      double[] envelope = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+      extend(envelope, coordinates);
+      envelopes.put(id, envelope);
+      long[] range = cells(envelope);
+      if (range == null) {
+        wideShapes.add(id);
+        return;
+      }
+      for (long x = range[0]; x <= range[2]; x++) {
+        for (long y = range[1]; y <= range[3]; y++) {
+          shapeCells.computeIfAbsent(key(x, y), k -> new HashSet<String>()).add(id);
+        }
+      }
+    }
+  }
+
+  void remove(String id) {
+    double[] point = points.remove(id);
+    if (point != null) {
+      long key = cell(point[0], point[1]);
+      Set<String> ids = cells.get(key);
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        cells.remove(key);
+      }
+    }
+    double[] envelope = envelopes.remove(id);
+    if (envelope != null && !wideShapes.remove(id)) {
+      long[] range = cells(envelope);
+      for (long x = range[0]; x <= range[2]; x++) {
+        for (long y = range[1]; y <= range[3]; y++) {
+          Set<String> ids = shapeCells.get(key(x, y));
+          ids.remove(id);
+          if (ids.isEmpty()) {
+            shapeCells.remove(key(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Replaces the geo_shape filter of a decoded query by a terms filter on the ids matched by the
+   * index; the other filters of the query are kept.
+   *
+   * @param request search/count request
+   * @param query decoded query of the request
+   * @return true if the query has been rewritten
+   */
+  boolean narrow(JsonObject request, JsonObject query) {
+    JsonArray ids = search(request);
+    if (ids == null) {
+      return false;
+    }
+    JsonArray filter = query.getJsonObject(QUERY_KEY).getJsonObject(BOOL_KEY).getJsonArray(FILTER);
+    for (int i = filter.size() - 1; i >= 0; i--) {
+      if (filter.getJsonObject(i).containsKey(GEO_SHAPE_KEY)) {
+        filter.remove(i);
+      }
+    }
+    filter.add(new JsonObject(TERMS_ID_QUERY.replace("$1", ids.toString())));
+    LOGGER.debug("Info: Geo search served by spatial index;{}", ids.size());
+    return true;
+  }
+
+  /**
+   * Ids of the items matching the geo search of a request.
+   *
+   * @param request search/count request
+   * @return ids; null if the index can't answer the search exactly
+   */
+  JsonArray search(JsonObject request) {
+
+    String relation = request.getString(GEORELATION);
+    if (!ready || !LOCATION.equals(request.getString(GEOPROPERTY))
+        || !(GEOREL_WITHIN.equals(relation) || GEOREL_INTERSECTS.equals(relation))) {
+      return null;
+    }
+
+    Geometry geometry;
+    try {
+      geometry = Geometry.parse(request.getString(GEOMETRY), request.getJsonArray(COORDINATES_KEY));
+    } catch (IllegalArgumentException | ClassCastException e) {
+      return null;
+    }
+    JsonArray coordinates = geometry.getCoordinates();
+
+    /* Envelope of the search: minLon, minLat, maxLon, maxLat */
+    double[] envelope;
+    double radius = 0;
+    if (geometry.getType() == POINT) {
+      Integer maxDistance = request.getInteger(MAX_DISTANCE);
+      double lat = coordinates.getDouble(1);
+      if (maxDistance == null || Math.abs(lat) > 85) {
+        return null;
+      }
+      radius = maxDistance;
+      double dLat = Math.toDegrees(radius / EARTH_RADIUS);
+      double dLon = dLat / Math.cos(Math.toRadians(lat));
+      double lon = coordinates.getDouble(0);
+      envelope = new double[] {lon - dLon, lat - dLat, lon + dLon, lat + dLat};
+    } else if (geometry.getType() == BBOX) {
+      JsonArray topLeft = coordinates.getJsonArray(0);
+      JsonArray bottomRight = coordinates.getJsonArray(1);
+      envelope = new double[] {topLeft.getDouble(0), bottomRight.getDouble(1),
+                               bottomRight.getDouble(0), topLeft.getDouble(1)};
+    } else if (geometry.getType() == POLYGON) {
+      envelope = new double[] {Double.MAX_VALUE, Double.MAX_VALUE,
+                               -Double.MAX_VALUE, -Double.MAX_VALUE};
+      extend(envelope, coordinates.getJsonArray(0));
+    } else {
+      return null;
+    }
+
+    long[] range = cells(envelope);
+    if (range == null) {
+      return null;
+    }
+
+    /* Items which are not points are only known by their envelopes */
+    for (String id : wideShapes) {
+      if (overlaps(envelopes.get(id), envelope)) {
+        return null;
+      }
+    }
+    for (long x = range[0]; x <= range[2]; x++) {
+      for (long y = range[1]; y <= range[3]; y++) {
+        Set<String> shapeIds = shapeCells.get(key(x, y));
+        if (shapeIds == null) {
+          continue;
+        }
+        for (String id : shapeIds) {
+          if (overlaps(envelopes.get(id), envelope)) {
+            return null;
+          }
+        }
+      }
+    }
+
+    JsonArray ids = new JsonArray();
+    for (long x = range[0]; x <= range[2]; x++) {
+      for (long y = range[1]; y <= range[3]; y++) {
+        Set<String> cellIds = cells.get(key(x, y));
+        if (cellIds == null) {
+          continue;
+        }
+        for (String id : cellIds) {
+          double[] point = points.get(id);
+          boolean match;
+          if (geometry.getType() == POINT) {
+            match = distance(point, coordinates.getDouble(0), coordinates.getDouble(1)) <= radius;
+          } else if (geometry.getType() == BBOX) {
+            match = point[0] >= envelope[0] && point[0] <= envelope[2]
+                && point[1] >= envelope[1] && point[1] <= envelope[3];
+          } else {
+            match = inPolygon(point, coordinates);
+          }
+          if (match) {
+            ids.add(id);
+            if (ids.size() > FILTER_PAGINATION_SIZE) {
+              return null;
+            }
+          }
+        }
+      }
+    }
+    return ids;
+  }
+
+  private long cell(double lon, double lat) {
+    return key((long) Math.floor((lon + 180) / cellSize), (long) Math.floor((lat + 90) / cellSize));
+  }
+
+  /** Cells covered by an envelope: minX, minY, maxX, maxY; null if more than MAX_CELLS */
+  private long[] cells(double[] envelope) {
+    long minX = (long) Math.floor((envelope[0] + 180) / cellSize);
+    long minY = (long) Math.floor((envelope[1] + 90) / cellSize);
+    long maxX = (long) Math.floor((envelope[2] + 180) / cellSize);
+    long maxY = (long) Math.floor((envelope[3] + 90) / cellSize);
+    if ((maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS) {
+      return null;
+    }
+    return new long[] {minX, minY, maxX, maxY};
+  }
+
+  private static boolean overlaps(double[] shape, double[] envelope) {
+    return shape[0] <= envelope[2] && envelope[0] <= shape[2]
+        && shape[1] <= envelope[3] && envelope[1] <= shape[3];
+  }
+
+  private static long key(long x, long y) {
+    return (x << 32) | (y & 0xffffffffL);
+  }
+
+  /** Haversine distance in meters */
+  private static double distance(double[] point, double lon, double lat) {
+    double dLat = Math.toRadians(point[1] - lat);
+    double dLon = Math.toRadians(point[0] - lon);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(point[1]))
+        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  /** Inside the outer ring and outside the holes */
+  private static boolean inPolygon(double[] point, JsonArray rings) {
+    if (!inRing(point, rings.getJsonArray(0))) {
+      return false;
+    }
+    for (int i = 1; i < rings.size(); i++) {
+      if (inRing(point, rings.getJsonArray(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Ray casting; points on an edge are inside */
+  private static boolean inRing(double[] point, JsonArray ring) {
+    boolean inside = false;
+    double x = point[0];
+    double y = point[1];
+    for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+      double xi = ring.getJsonArray(i).getDouble(0);
+      double yi = ring.getJsonArray(i).getDouble(1);
+      double xj = ring.getJsonArray(j).getDouble(0);
+      double yj = ring.getJsonArray(j).getDouble(1);
+      double cross = (xj - xi) * (y - yi) - (x - xi) * (yj - yi);
+      if (cross == 0 && Math.min(xi, xj) <= x && x <= Math.max(xi, xj)
+          && Math.min(yi, yj) <= y && y <= Math.max(yi, yj)) {
+        return true;
+      }
+      if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+        inside = !inside;
+      }
+    }
+    return inside;
+  }
+
+  /** Extends an envelope by all the positions of nested coordinates */
+  private static void extend(double[] envelope, JsonArray coordinates) {
+    if (!coordinates.isEmpty() && coordinates.getValue(0) instanceof Number) {
+      double lon = coordinates.getDouble(0);
+      double lat = coordinates.getDouble(1);
+      envelope[0] = Math.min(envelope[0], lon);
+      envelope[1] = Math.min(envelope[1], lat);
+      envelope[2] = Math.max(envelope[2], lon);
+      envelope[3] = Math.max(envelope[3], lat);
+      return;
+    }
+    for (int i = 0; i < coordinates.size(); i++) {
+      extend(envelope, coordinates.getJsonArray(i));
+    }
+  }
+}
@@ -4,10 +4,15 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.core.json.JsonArray;
 
 import java.lang.StringBuilder;
+import java.util.Set;
 
 
 public final class Summarizer {
 
+  /** Attributes of an item summarized for text search and embeddings */
+  private static final Set<String> TEXT_ATTRIBUTES =
+      Set.of("name", "label", "tags", "description", "descriptor");
+
   private static String jsonArtifactMatcher = "[\n:{},\"\\[\\]]";
   private static String spaceMatcher = "\\s+";
   /**
@@ -58,4 +63,18 @@ public final class Summarizer {
     return sb.toString();
   }
 
+  /**
+   * Checks whether a (partial) document has any of the summarized text attributes.
+   *
+   * @param doc document or merge patch
+   * @return true if the summary of the item depends on the document
+   */
+  public static boolean hasTextAttributes(JsonObject doc) {
+    for (String attribute : TEXT_ATTRIBUTES) {
+      if (doc.containsKey(attribute)) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
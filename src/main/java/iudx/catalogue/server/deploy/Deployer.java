@@ -16,7 +16,8 @@ import io.vertx.core.cli.CLI;
 import io.vertx.core.cli.Option;
 import io.vertx.core.cli.CommandLine;
 import io.vertx.core.json.JsonObject;
-import io.vertx.core.DeploymentOptions;
+import iudx.catalogue.server.util.LogLevels;
+import iudx.catalogue.server.util.Tracing;
 
 import java.util.Arrays;
 import java.util.List;
@@ -43,26 +44,15 @@ public class Deployer {
   private static final Logger LOGGER = LogManager.getLogger(Deployer.class);
 
 
-  public static void recursiveDeploy(Vertx vertx, JsonObject configs, int i) {
-    if (i >= configs.getJsonArray("modules").size()) {
-      LOGGER.info("Deployed all");
-      return;
-    }
-    JsonObject config = configs.getJsonArray("modules").getJsonObject(i);
-    String moduleName = config.getString("id");
-    int numInstances = config.getInteger("verticleInstances");
-    vertx.deployVerticle(moduleName,
-                           new DeploymentOptions()
-                                  .setInstances(numInstances)
-                                  .setConfig(config),
-                          ar -> {
-      if (ar.succeeded()) {
-        LOGGER.info("Deployed " + moduleName);
-        recursiveDeploy(vertx, configs, i+1);
-      } else {
-        LOGGER.fatal("Failed to deploy " + moduleName + " cause:", ar.cause());
-      }
-    });
+  /**
+   * Deploys the modules of a configuration, in parallel as far as their dependencies allow.
+   *
+   * @param vertx Vertx
+   * @param configs the configuration
+   */
+  public static void deployModules(Vertx vertx, JsonObject configs) {
+    Orchestrator.deploy(vertx, configs).onFailure(cause ->
+        LOGGER.fatal("Fail: Deployment incomplete;" + cause.getMessage()));
   }
 
   public static ClusterManager getClusterManager(String host,
@@ -90,8 +80,8 @@ public class Deployer {
     return new MicrometerMetricsOptions()
         .setPrometheusOptions(
             new VertxPrometheusOptions().setEnabled(true).setStartEmbeddedServer(true)
-                .setEmbeddedServerOptions(new HttpServerOptions().setPort(9000)))
-        // .setPublishQuantiles(true))
+                .setEmbeddedServerOptions(new HttpServerOptions().setPort(9000))
+                .setPublishQuantiles(true))
         .setLabels(EnumSet.of(Label.EB_ADDRESS, Label.EB_FAILURE, Label.HTTP_CODE,
             Label.HTTP_METHOD))
         .setEnabled(true);
@@ -131,7 +121,11 @@ public class Deployer {
       if (res.succeeded()) {
         Vertx vertx = res.result();
         setJVMmetrics();
-        recursiveDeploy(vertx, configuration, 0);
+        if (configuration.containsKey("tracing")) {
+          Tracing.shared(vertx, configuration.getJsonObject("tracing"));
+        }
+        LogLevels.shared(vertx);
+        deployModules(vertx, configuration);
       } else {
         LOGGER.fatal("Could not join cluster");
       }
@@ -9,7 +9,8 @@ import io.vertx.core.cli.CLI;
 import io.vertx.core.cli.Option;
 import io.vertx.core.cli.CommandLine;
 import io.vertx.core.json.JsonObject;
-import io.vertx.core.DeploymentOptions;
+import iudx.catalogue.server.util.LogLevels;
+import iudx.catalogue.server.util.Tracing;
 
 
 import java.util.Arrays;
@@ -27,26 +28,15 @@ import org.apache.logging.log4j.Logger;
 public class DeployerDev {
   private static final Logger LOGGER = LogManager.getLogger(DeployerDev.class);
 
-  public static void recursiveDeploy(Vertx vertx, JsonObject configs, int i) {
-    if (i >= configs.getJsonArray("modules").size()) {
-      LOGGER.info("Deployed all");
-      return;
-    }
-    JsonObject config = configs.getJsonArray("modules").getJsonObject(i);
-    String moduleName = config.getString("id");
-    int numInstances = config.getInteger("verticleInstances");
-    vertx.deployVerticle(moduleName,
-                          new DeploymentOptions()
-                            .setInstances(numInstances)
-                            .setConfig(config),
-                          ar -> {
-      if (ar.succeeded()) {
-        LOGGER.info("Deployed " + moduleName);
-        recursiveDeploy(vertx, configs, i+1);
-      } else {
-        LOGGER.fatal("Failed to deploy " + moduleName + " cause:", ar.cause());
-      }
-    });
+  /**
+   * Deploys the modules of a configuration, in parallel as far as their dependencies allow.
+   *
+   * @param vertx Vertx
+   * @param configs the configuration
+   */
+  public static void deployModules(Vertx vertx, JsonObject configs) {
+    Orchestrator.deploy(vertx, configs).onFailure(cause ->
+        LOGGER.fatal("Fail: Deployment incomplete;" + cause.getMessage()));
   }
 
   public static void deploy(String configPath) {
@@ -66,7 +56,11 @@ public class DeployerDev {
     }
     JsonObject configuration = new JsonObject(config);
     Vertx vertx = Vertx.vertx(options);
-    recursiveDeploy(vertx, configuration, 0);
+    if (configuration.containsKey("tracing")) {
+      Tracing.shared(vertx, configuration.getJsonObject("tracing"));
+    }
+    LogLevels.shared(vertx);
+    deployModules(vertx, configuration);
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,196 @@
+package iudx.catalogue.server.deploy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Orchestrator.
+ *
+ * <h1>Orchestrator</h1>
+ *
+ * <p>
+ * Deploys the modules of a configuration in the order of their dependencies. A module is deployed
+ * once the modules of its dependsOn (their ids, or the simple names of their verticles) are ready,
+ * i.e. all the instances of their verticles have started; the modules not depending on each other
+ * are deployed at the same time. A dependency missing from the configuration is deployed by
+ * another node of the cluster, and is not waited for. A module failing to deploy stops the modules
+ * depending on it; the others are deployed still.
+ *
+ * <p>
+ * A configuration where no module declares dependsOn is deployed in the order of its modules, one
+ * after the other, as before the dependencies were declared: the API server listed last then only
+ * takes requests once the services it calls are ready.
+ *
+ * <p>
+ * The time each module took to start, and the time from the start of the deployment until it was
+ * ready, are logged; the latter is recorded in the catalogue.module.ready timer.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class Orchestrator {
+
+  public static final String MODULES = "modules";
+  public static final String ID = "id";
+  public static final String VERTICLE_INSTANCES = "verticleInstances";
+  public static final String DEPENDS_ON = "dependsOn";
+
+  private static final Logger LOGGER = LogManager.getLogger(Orchestrator.class);
+  private static final String METRIC = "catalogue.module.ready";
+
+  private final Vertx vertx;
+  private final long start = System.nanoTime();
+  /* Completed once all the dependencies are known to be acyclic */
+  private final Promise<Void> planned = Promise.promise();
+  private final Map<String, JsonObject> modules = new LinkedHashMap<String, JsonObject>();
+  private final Map<String, JsonArray> dependsOn = new HashMap<String, JsonArray>();
+  private final Map<String, Future<String>> deployments = new HashMap<String, Future<String>>();
+
+  private Orchestrator(Vertx vertx, JsonArray modules) {
+    this.vertx = vertx;
+    boolean declared = false;
+    for (int i = 0; i < modules.size(); i++) {
+      JsonObject module = modules.getJsonObject(i);
+      if (this.modules.put(module.getString(ID), module) != null) {
+        throw new IllegalArgumentException("Module listed twice " + module.getString(ID));
+      }
+      declared |= module.containsKey(DEPENDS_ON);
+    }
+    if (!declared) {
+      LOGGER.info("Info: No module declares dependsOn, deploying them in the listed order");
+    }
+    String previous = null;
+    for (Map.Entry<String, JsonObject> module : this.modules.entrySet()) {
+      if (declared) {
+        dependsOn.put(module.getKey(), module.getValue().getJsonArray(DEPENDS_ON, new JsonArray()));
+      } else {
+        dependsOn.put(module.getKey(),
+            previous == null ? new JsonArray() : new JsonArray().add(previous));
+      }
+      previous = module.getKey();
+    }
+  }
+
+  /**
+   * Deploys the modules of a configuration.
+   *
+   * @param vertx Vertx
+   * @param configuration the configuration, with its modules
+   * @return succeeded once all the modules are ready; failed once the others are, if a module
+   *     failed or the dependencies are cyclic
+   */
+  public static Future<Void> deploy(Vertx vertx, JsonObject configuration) {
+    Orchestrator orchestrator;
+    @SuppressWarnings("rawtypes")
+    List<Future> deployments = new ArrayList<Future>();
+    try {
+      orchestrator = new Orchestrator(vertx, configuration.getJsonArray(MODULES));
+      for (String id : orchestrator.modules.keySet()) {
+        deployments.add(orchestrator.plan(id, new LinkedHashSet<String>()));
+      }
+      orchestrator.planned.complete();
+    } catch (IllegalArgumentException e) {
+      return Future.failedFuture(e);
+    }
+    return CompositeFuture.join(deployments).map(deployed -> {
+      LOGGER.info("Deployed all in {}ms", millis(System.nanoTime() - orchestrator.start));
+      return null;
+    });
+  }
+
+  /* Deploys a module after its dependencies; path holds the modules depending on it */
+  private Future<String> plan(String id, Set<String> path) {
+    Future<String> deployment = deployments.get(id);
+    if (deployment != null) {
+      return deployment;
+    }
+    if (!path.add(id)) {
+      throw new IllegalArgumentException("Cyclic dependencies " + path + " -> " + id);
+    }
+    JsonObject module = modules.get(id);
+    @SuppressWarnings("rawtypes")
+    List<Future> dependencies = new ArrayList<Future>();
+    dependencies.add(planned.future());
+    for (Object name : dependsOn.get(id)) {
+      String dependency = resolve(name.toString());
+      if (dependency == null) {
+        LOGGER.info("Info: {} depends on {}, deployed elsewhere", id, name);
+      } else {
+        dependencies.add(plan(dependency, path));
+      }
+    }
+    path.remove(id);
+
+    Future<CompositeFuture> ready = CompositeFuture.all(dependencies);
+    ready.onFailure(cause -> LOGGER.fatal("Fail: {} not deployed, a dependency failed", id));
+    deployment = ready.compose(dependenciesReady -> start(id, module));
+    deployments.put(id, deployment);
+    return deployment;
+  }
+
+  /* Id of a module of the configuration, by its id or the simple name of its verticle */
+  private String resolve(String name) {
+    if (modules.containsKey(name)) {
+      return name;
+    }
+    String found = null;
+    for (String id : modules.keySet()) {
+      if (id.endsWith("." + name)) {
+        if (found != null) {
+          throw new IllegalArgumentException("Ambiguous dependency " + name);
+        }
+        found = id;
+      }
+    }
+    return found;
+  }
+
+  private Future<String> start(String id, JsonObject module) {
+    long deploying = System.nanoTime();
+    Promise<String> promise = Promise.promise();
+    vertx.deployVerticle(id,
+        new DeploymentOptions()
+            .setInstances(module.getInteger(VERTICLE_INSTANCES, 1))
+            .setConfig(module),
+        promise);
+    return promise.future().onComplete(deployed -> {
+      long now = System.nanoTime();
+      if (deployed.failed()) {
+        LOGGER.fatal("Failed to deploy " + id + " cause:", deployed.cause());
+        return;
+      }
+      LOGGER.info("Deployed {} in {}ms, ready after {}ms", id, millis(now - deploying),
+          millis(now - start));
+      MeterRegistry registry = BackendRegistries.getDefaultNow();
+      if (registry != null) {
+        Timer.builder(METRIC)
+            .description("Time from the start of the deployment until a module was ready")
+            .tag("module", id.substring(id.lastIndexOf('.') + 1))
+            .register(registry)
+            .record(now - start, TimeUnit.NANOSECONDS);
+      }
+    });
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
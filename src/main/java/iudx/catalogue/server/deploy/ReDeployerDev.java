@@ -1,18 +1,9 @@
 package iudx.catalogue.server.deploy;
 
 
-import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
-import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import iudx.catalogue.server.apiserver.ApiServerVerticle;
-import iudx.catalogue.server.authenticator.AuthenticationVerticle;
-import iudx.catalogue.server.database.DatabaseVerticle;
-import iudx.catalogue.server.validator.ValidatorVerticle;
-import iudx.catalogue.server.geocoding.GeocodingVerticle;
-import iudx.catalogue.server.nlpsearch.NLPSearchVerticle;
-import io.vertx.core.DeploymentOptions;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
@@ -26,82 +17,15 @@ public class ReDeployerDev extends AbstractVerticle {
   @Override
   public void start(Promise<Void> promise) throws Exception {
 
-
-    /* Deploy the Database Service Verticle. */
-    /* Get configs. Note the order matters. Don't change it */
-    JsonObject dbConfig = config().getJsonArray("modules").getJsonObject(0);
-    JsonObject authConfig = config().getJsonArray("modules").getJsonObject(1);
-    JsonObject valConfig = config().getJsonArray("modules").getJsonObject(2);
-    JsonObject apiConfig = config().getJsonArray("modules").getJsonObject(3);
-    JsonObject geoConfig = config().getJsonArray("modules").getJsonObject(4);
-    JsonObject nlpConfig = config().getJsonArray("modules").getJsonObject(5);
-    vertx.deployVerticle(new DatabaseVerticle(), new DeploymentOptions().setConfig(dbConfig),
-        databaseVerticle -> {
-      if (databaseVerticle.succeeded()) {
-        LOGGER.info("The Database Service is ready");
-
-        /* Deploy the Authentication Service Verticle. */
-
-        vertx.deployVerticle(new AuthenticationVerticle(), new DeploymentOptions().setConfig(authConfig),
-            authenticationVerticle -> {
-          if (authenticationVerticle.succeeded()) {
-            LOGGER.info("The Authentication Service is ready");
-
-            /* Deploy the Validator Service Verticle. */
-
-            vertx.deployVerticle(new ValidatorVerticle(), new DeploymentOptions().setConfig(valConfig),
-                validatorVerticle -> {
-              if (validatorVerticle.succeeded()) {
-                LOGGER.info("The Validator Service is ready");
-
-
-                /* Deploy the Api Server Verticle. */
-
-                vertx.deployVerticle(new ApiServerVerticle(), new DeploymentOptions().setConfig(apiConfig),
-                    apiServerVerticle -> {
-                  if (apiServerVerticle.succeeded()) {
-                    LOGGER.info("The Catalogue API Server is ready");
-
-                    vertx.deployVerticle(new GeocodingVerticle(), new DeploymentOptions().setConfig(geoConfig),
-                    geocodingVerticle -> {
-                      if(geocodingVerticle.succeeded()) {
-                        LOGGER.info("The Geocoding Service is ready");
-
-                        vertx.deployVerticle(new NLPSearchVerticle(), new DeploymentOptions().setConfig(nlpConfig),
-                          nlpsearchVerticle -> {
-                            if(nlpsearchVerticle.succeeded()){
-                              LOGGER.info("The NLP Service is ready");
-                              promise.complete();
-                            }
-                            else {
-                              LOGGER.info("The NLP Server startup failed !");
-                            }
-                          });
-                      }
-                      else {
-                        LOGGER.info("The Geocoding Server starup failed !");
-                      }
-                    });
-                    
-                  } else {
-                    LOGGER.info("The Catalogue API Server startup failed !");
-                  }
-                });
-
-              } else {
-                LOGGER.info("The Validator Service failed !");
-              }
-            });
-
-          } else {
-            LOGGER.info("The Authentication Service failed !");
-          }
-        });
-
+    /* Deploy the modules of the configuration, each once the modules of its dependsOn are ready */
+    Orchestrator.deploy(vertx, config()).onComplete(deployed -> {
+      if (deployed.succeeded()) {
+        LOGGER.info("The Catalogue is ready");
+        promise.complete();
       } else {
-        LOGGER.info("The Database Service failed !");
+        LOGGER.info("The Catalogue startup failed !");
+        promise.fail(deployed.cause());
       }
     });
   }
 }
-
@@ -4,8 +4,10 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.core.CompositeFuture;
 
@@ -14,7 +16,12 @@ import org.apache.logging.log4j.Logger;
 
 import java.lang.StringBuilder;
 
+import iudx.catalogue.server.util.CircuitBreaker;
+import iudx.catalogue.server.util.StageTimer;
+import iudx.catalogue.server.util.Tracing;
+
 import static iudx.catalogue.server.util.Constants.*;
+import static iudx.catalogue.server.util.StageTimer.CLIENT_PELIAS;
 
 
 /**
@@ -35,21 +42,30 @@ public class GeocodingServiceImpl implements GeocodingService {
   private final WebClient webClient;
   private final String peliasUrl;
   private final int peliasPort;
+  private final CircuitBreaker breaker;
   StringBuilder sb = new StringBuilder(); 
 
   public GeocodingServiceImpl(WebClient webClient, String peliasUrl, int peliasPort) {
+    this(webClient, peliasUrl, peliasPort, new CircuitBreaker(BREAKER_PELIAS, new JsonObject()));
+  }
+
+  public GeocodingServiceImpl(WebClient webClient, String peliasUrl, int peliasPort,
+      CircuitBreaker breaker) {
     this.webClient = webClient;
     this.peliasUrl = peliasUrl;
     this.peliasPort = peliasPort;
-}
+    this.breaker = breaker;
+  }
 
   @Override
   public void geocoder(String location, Handler<AsyncResult<String>> handler) {
-    webClient
-    .get(peliasPort, peliasUrl, "/v1/search")
-    .timeout(SERVICE_TIMEOUT)
+    Tracing.Span span = Tracing.startClient("GET /v1/search").attribute("peer.service", "pelias");
+    breaker.<HttpResponse<Buffer>>execute(call -> span.traced(webClient
+    .get(peliasPort, peliasUrl, "/v1/search"))
+    .timeout(breaker.timeout())
     .addQueryParam("text", location)
-    .putHeader("Accept", "application/json").send(ar -> {
+    .putHeader("Accept", "application/json").send(call(call)))
+    .onComplete(span.ending(StageTimer.start(CLIENT_PELIAS).stopping(ar -> {
       if(ar.succeeded() && ar.result().body().toJsonObject().containsKey("bbox")) {
         LOGGER.debug("Request succeeded!");
         handler.handle(Future.succeededFuture(ar.result().body()
@@ -57,9 +73,24 @@ public class GeocodingServiceImpl implements GeocodingService {
                                                 .getJsonArray("bbox").toString()));
       } else {
         LOGGER.error("Failed to find coordinates");
-        handler.handle(Future.failedFuture(ar.cause()));
+        handler.handle(Future.failedFuture(ar.failed() ? ar.cause()
+            : new IllegalStateException("No coordinates")));
       }
-    });
+    })));
+  }
+
+  /* Completes a call to Pelias; a server error is a failure of Pelias */
+  private static Handler<AsyncResult<HttpResponse<Buffer>>> call(
+      Promise<HttpResponse<Buffer>> call) {
+    return ar -> {
+      if (ar.failed()) {
+        call.fail(ar.cause());
+      } else if (ar.result().statusCode() >= 500) {
+        call.fail("Pelias error;" + ar.result().statusCode());
+      } else {
+        call.complete(ar.result());
+      }
+    };
   }
 
   private Promise<String> geocoderHelper(String location) {
@@ -78,12 +109,14 @@ public class GeocodingServiceImpl implements GeocodingService {
   @Override
   public void reverseGeocoder(String lat, String lon,
                                 Handler<AsyncResult<JsonObject>> handler) {
-    webClient
-    .get(peliasPort, peliasUrl,"/v1/reverse")
-    .timeout(SERVICE_TIMEOUT)
+    Tracing.Span span = Tracing.startClient("GET /v1/reverse").attribute("peer.service", "pelias");
+    breaker.<HttpResponse<Buffer>>execute(call -> span.traced(webClient
+    .get(peliasPort, peliasUrl,"/v1/reverse"))
+    .timeout(breaker.timeout())
     .addQueryParam("point.lon", lon)
     .addQueryParam("point.lat", lat)
-    .putHeader("Accept","application/json").send(ar -> {
+    .putHeader("Accept","application/json").send(call(call)))
+    .onComplete(span.ending(StageTimer.start(CLIENT_PELIAS).stopping(ar -> {
       if(ar.succeeded()) {
         LOGGER.debug("Request succeeded!");
         handler.handle(Future.succeededFuture(ar.result().body().toJsonObject()));
@@ -91,7 +124,7 @@ public class GeocodingServiceImpl implements GeocodingService {
         LOGGER.error("Failed to find location");
         handler.handle(Future.failedFuture(ar.cause()));
       }
-    });
+    })));
   }
 
   private Promise<String> reverseGeocoderHelper(String lat, String lon) {
@@ -119,6 +152,12 @@ public class GeocodingServiceImpl implements GeocodingService {
     Promise<String> p1 = Promise.promise();
     Promise<String> p2 = Promise.promise();
 
+    /* Fails fast while Pelias is down; the item is indexed without a geo summary */
+    if (!breaker.isAvailable()) {
+      handler.handle(Future.failedFuture(breaker.unavailable()));
+      return;
+    }
+
     if(doc.containsKey("location")) {
 
       /* Geocoding information*/
@@ -140,6 +179,9 @@ public class GeocodingServiceImpl implements GeocodingService {
       } else {
         p2.complete(new String());
       } 
+    } else {
+      p1.complete(new String());
+      p2.complete(new String());
     }
     CompositeFuture.all(p1.future(), p2.future()).onSuccess(successHandler-> {
       String j1 = successHandler.resultAt(0);
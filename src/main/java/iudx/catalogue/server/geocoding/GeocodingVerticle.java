@@ -9,6 +9,7 @@ import io.vertx.core.net.JksOptions;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.serviceproxy.ServiceBinder;
+import iudx.catalogue.server.util.CircuitBreaker;
 
 import static iudx.catalogue.server.util.Constants.*;
 
@@ -44,7 +45,8 @@ public class GeocodingVerticle extends AbstractVerticle {
 
     peliasUrl = config().getString("peliasUrl");
     peliasPort = config().getInteger("peliasPort");
-    Geocoding = new GeocodingServiceImpl(createWebClient(vertx, config()), peliasUrl, peliasPort);
+    Geocoding = new GeocodingServiceImpl(createWebClient(vertx, config()), peliasUrl, peliasPort,
+        CircuitBreaker.shared(BREAKER_PELIAS, config().getJsonObject(CIRCUIT_BREAKER)));
 
     new ServiceBinder(vertx).setAddress(GEOCODING_SERVICE_ADDRESS)
       .register(GeocodingService.class, Geocoding);
@@ -4,8 +4,10 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.core.CompositeFuture;
 
@@ -14,7 +16,12 @@ import org.apache.logging.log4j.Logger;
 
 import java.lang.StringBuilder;
 
+import iudx.catalogue.server.util.CircuitBreaker;
+import iudx.catalogue.server.util.StageTimer;
+import iudx.catalogue.server.util.Tracing;
+
 import static iudx.catalogue.server.util.Constants.*;
+import static iudx.catalogue.server.util.StageTimer.CLIENT_NLP;
 
 /**
  * The NLP Search Service Implementation.
@@ -34,20 +41,43 @@ public class NLPSearchServiceImpl implements NLPSearchService {
   private final WebClient webClient;
   private final String nlpServiceUrl;
   private final int nlpServicePort;
+  private final CircuitBreaker breaker;
 
   public NLPSearchServiceImpl(WebClient client, String nlpServiceUrl, int nlpServicePort) {
+    this(client, nlpServiceUrl, nlpServicePort, new CircuitBreaker(BREAKER_NLP, new JsonObject()));
+  }
+
+  public NLPSearchServiceImpl(WebClient client, String nlpServiceUrl, int nlpServicePort,
+      CircuitBreaker breaker) {
     webClient = client;
     this.nlpServiceUrl = nlpServiceUrl;
     this.nlpServicePort = nlpServicePort;
-}
+    this.breaker = breaker;
+  }
+
+  /* Completes a call to the NLP service; a server error is a failure of the service */
+  private static Handler<AsyncResult<HttpResponse<Buffer>>> call(
+      Promise<HttpResponse<Buffer>> call) {
+    return ar -> {
+      if (ar.failed()) {
+        call.fail(ar.cause());
+      } else if (ar.result().statusCode() >= 500) {
+        call.fail("NLP service error;" + ar.result().statusCode());
+      } else {
+        call.complete(ar.result());
+      }
+    };
+  }
 
   @Override
   public NLPSearchService search(String query, Handler<AsyncResult<JsonObject>> handler) {
-     webClient
-    .get(nlpServicePort, nlpServiceUrl, "/search")
-    .timeout(SERVICE_TIMEOUT)
+    Tracing.Span span = Tracing.startClient("GET /search").attribute("peer.service", "nlp");
+    breaker.<HttpResponse<Buffer>>execute(call -> span.traced(webClient
+    .get(nlpServicePort, nlpServiceUrl, "/search"))
+    .timeout(breaker.timeout())
     .addQueryParam("q", query)
-    .putHeader("Accept","application/json").send(ar -> {
+    .putHeader("Accept","application/json").send(call(call)))
+    .onComplete(span.ending(StageTimer.start(CLIENT_NLP).stopping(ar -> {
     if(ar.succeeded()) {
       LOGGER.debug("Success: NLP Search; Request succeeded");
       handler.handle(Future.succeededFuture(ar.result().body().toJsonObject()));
@@ -55,16 +85,18 @@ public class NLPSearchServiceImpl implements NLPSearchService {
       LOGGER.error("Fail: NLP Search failed");
       handler.handle(Future.failedFuture(ar.cause()));
       }
-    });
+    })));
     return this;
   }
 
   @Override
   public NLPSearchService getEmbedding(JsonObject doc, Handler<AsyncResult<JsonObject>> handler) {
-    webClient
-    .post(nlpServicePort, nlpServiceUrl, "/indexdoc")
-    .timeout(SERVICE_TIMEOUT)
-    .sendJsonObject(doc, ar-> {
+    Tracing.Span span = Tracing.startClient("POST /indexdoc").attribute("peer.service", "nlp");
+    breaker.<HttpResponse<Buffer>>execute(call -> span.traced(webClient
+    .post(nlpServicePort, nlpServiceUrl, "/indexdoc"))
+    .timeout(breaker.timeout())
+    .sendJsonObject(doc, call(call)))
+    .onComplete(span.ending(StageTimer.start(CLIENT_NLP).stopping(ar-> {
       if(ar.succeeded()) {
         LOGGER.debug("Info: Document embeddings created");
         handler.handle(Future.succeededFuture(ar.result().body().toJsonObject()));
@@ -72,7 +104,7 @@ public class NLPSearchServiceImpl implements NLPSearchService {
         LOGGER.error("Error: Document embeddings not created");
         handler.handle(Future.failedFuture(ar.cause()));
       }
-    });
+    })));
     return this;
   }
 }
@@ -8,6 +8,7 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.serviceproxy.ServiceBinder;
+import iudx.catalogue.server.util.CircuitBreaker;
 
 import static iudx.catalogue.server.util.Constants.*;
 
@@ -44,7 +45,8 @@ public class NLPSearchVerticle extends AbstractVerticle {
     nlpServiceUrl = config().getString("nlpServiceUrl");
     nlpServicePort = config().getInteger("nlpServicePort");
     NlpSearch = new NLPSearchServiceImpl(createWebClient(vertx, config()),
-                                          nlpServiceUrl, nlpServicePort);
+                                          nlpServiceUrl, nlpServicePort,
+        CircuitBreaker.shared(BREAKER_NLP, config().getJsonObject(CIRCUIT_BREAKER)));
 
     new ServiceBinder(vertx).setAddress(NLP_SERVICE_ADDRESS)
       .register(NLPSearchService.class, NlpSearch);
@@ -0,0 +1,242 @@
+package iudx.catalogue.server.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static iudx.catalogue.server.util.Constants.*;
+
+/**
+ * The Circuit Breaker.
+ *
+ * <h1>Circuit Breaker</h1>
+ *
+ * <p>
+ * Circuit breaker and bulkhead of a backend dependency. A call takes a permit before it's made and
+ * releases it with its outcome. The circuit opens after failureThreshold consecutive failures; an
+ * open circuit rejects the calls at once, until resetTimeout has passed. Then a single trial call
+ * is let through (half open), which closes the circuit if it succeeds and opens it again if not.
+ * The bulkhead rejects the calls beyond maxConcurrent in flight, so a slow backend can't pile the
+ * requests up. The timeout is the budget of a call, applied by the client making it.
+ *
+ * <p>
+ * The breakers shared by the verticles of a JVM export catalogue.breaker.state (0 closed, 1 half
+ * open, 2 open), catalogue.breaker.active, and the counters catalogue.breaker.rejected (by reason,
+ * open or bulkhead) and catalogue.breaker.failures, tagged with the dependency.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class CircuitBreaker {
+
+  public enum State { CLOSED, HALF_OPEN, OPEN }
+
+  public static final String FAILURE_THRESHOLD = "failureThreshold";
+  public static final String RESET_TIMEOUT = "resetTimeout";
+  public static final String MAX_CONCURRENT = "maxConcurrent";
+  public static final String TIMEOUT = "timeout";
+
+  private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+  private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+  private static final long DEFAULT_RESET_TIMEOUT = 30000;
+  private static final int DEFAULT_MAX_CONCURRENT = 64;
+  private static final Map<String, CircuitBreaker> BREAKERS = new HashMap<String, CircuitBreaker>();
+
+  private final String name;
+  private final int failureThreshold;
+  private final long resetTimeout;
+  private final int maxConcurrent;
+  private final long timeout;
+
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+  private boolean trial;
+  private int active;
+
+  private Counter rejectedOpen;
+  private Counter rejectedBulkhead;
+  private Counter failed;
+
+  /**
+   * Creates a breaker, without metrics.
+   *
+   * @param name of the dependency
+   * @param options failureThreshold, resetTimeout, maxConcurrent and timeout; all optional
+   */
+  public CircuitBreaker(String name, JsonObject options) {
+    this.name = name;
+    this.failureThreshold = options.getInteger(FAILURE_THRESHOLD, DEFAULT_FAILURE_THRESHOLD);
+    this.resetTimeout = options.getLong(RESET_TIMEOUT, DEFAULT_RESET_TIMEOUT);
+    this.maxConcurrent = options.getInteger(MAX_CONCURRENT, DEFAULT_MAX_CONCURRENT);
+    this.timeout = options.getLong(TIMEOUT, (long) SERVICE_TIMEOUT);
+  }
+
+  /**
+   * The breaker of a dependency shared by the verticles of a JVM, created with the options of the
+   * first verticle and registered in the metrics.
+   *
+   * @param name of the dependency
+   * @param options of the breaker; null for the defaults
+   * @return the breaker
+   */
+  public static synchronized CircuitBreaker shared(String name, JsonObject options) {
+    CircuitBreaker breaker = BREAKERS.get(name);
+    if (breaker == null) {
+      breaker = new CircuitBreaker(name, options == null ? new JsonObject() : options);
+      breaker.registerMetrics();
+      BREAKERS.put(name, breaker);
+    }
+    return breaker;
+  }
+
+  private void registerMetrics() {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      LOGGER.debug("Info: No metrics registry; breaker metrics disabled;" + name);
+      return;
+    }
+    Gauge.builder("catalogue.breaker.state", this, breaker -> breaker.state().ordinal())
+        .tag("dependency", name).description("0 closed, 1 half open, 2 open")
+        .register(registry);
+    Gauge.builder("catalogue.breaker.active", this, breaker -> breaker.active())
+        .tag("dependency", name).description("Calls in flight").register(registry);
+    rejectedOpen = Counter.builder("catalogue.breaker.rejected").tag("dependency", name)
+        .tag("reason", "open").register(registry);
+    rejectedBulkhead = Counter.builder("catalogue.breaker.rejected").tag("dependency", name)
+        .tag("reason", "bulkhead").register(registry);
+    failed = Counter.builder("catalogue.breaker.failures").tag("dependency", name)
+        .register(registry);
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Timeout budget of a call.
+   *
+   * @return timeout in milliseconds
+   */
+  public long timeout() {
+    return timeout;
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+
+  public synchronized int active() {
+    return active;
+  }
+
+  /**
+   * Whether a call would be let through now, without taking a permit.
+   *
+   * @return false while the circuit is open
+   */
+  public synchronized boolean isAvailable() {
+    return state == State.CLOSED
+        || state == State.OPEN && System.currentTimeMillis() - openedAt >= resetTimeout
+        || state == State.HALF_OPEN && !trial;
+  }
+
+  /**
+   * Takes the permit of a call.
+   *
+   * @return false if the call is rejected, by the open circuit or the bulkhead
+   */
+  public synchronized boolean tryAcquire() {
+    if (state == State.OPEN) {
+      if (System.currentTimeMillis() - openedAt < resetTimeout) {
+        increment(rejectedOpen);
+        return false;
+      }
+      state = State.HALF_OPEN;
+      trial = false;
+    }
+    if (state == State.HALF_OPEN && trial) {
+      increment(rejectedOpen);
+      return false;
+    }
+    if (active >= maxConcurrent) {
+      increment(rejectedBulkhead);
+      return false;
+    }
+    if (state == State.HALF_OPEN) {
+      trial = true;
+    }
+    active++;
+    return true;
+  }
+
+  /**
+   * Releases the permit of a call with its outcome.
+   *
+   * @param failure true if the dependency failed the call
+   */
+  public synchronized void release(boolean failure) {
+    active--;
+    if (!failure) {
+      failures = 0;
+      if (state == State.HALF_OPEN) {
+        LOGGER.info("Info: Circuit closed;" + name);
+        state = State.CLOSED;
+        trial = false;
+      }
+      return;
+    }
+
+    increment(failed);
+    failures++;
+    if (state == State.HALF_OPEN || state == State.CLOSED && failures >= failureThreshold) {
+      LOGGER.error("Fail: Circuit opened;" + name + ";" + failures + " failures");
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+      trial = false;
+    }
+  }
+
+  /**
+   * Runs a call with a permit; a failure of the call is a failure of the dependency.
+   *
+   * @param command completes or fails the promise of the call
+   * @return the result of the call; failed at once if rejected
+   */
+  public <T> Future<T> execute(Handler<Promise<T>> command) {
+    if (!tryAcquire()) {
+      return Future.failedFuture(unavailable());
+    }
+    Promise<T> promise = Promise.promise();
+    try {
+      command.handle(promise);
+    } catch (RuntimeException e) {
+      promise.tryFail(e);
+    }
+    return promise.future().onComplete(result -> release(result.failed()));
+  }
+
+  /**
+   * Message of a rejected call.
+   *
+   * @return the message
+   */
+  public String unavailable() {
+    return "Service unavailable; " + name;
+  }
+}
@@ -21,6 +21,25 @@ public class Constants {
 
   public static final String CONFIG_FILE = "config.properties";
   public static final String OPTIONAL_MODULES = "optionalModules";
+  public static final String SPATIAL_INDEX = "spatialIndex";
+  public static final String SPATIAL_INDEX_CELL_SIZE = "spatialIndexCellSize";
+  public static final String HIERARCHY_INDEX = "hierarchyIndex";
+  public static final String SUBTREE_SLICES = "subtreeSlices";
+  public static final String JOURNAL_PATH = "journalPath";
+  public static final String JOURNAL_SEGMENT_SIZE = "journalSegmentSize";
+  public static final String JOURNAL_BATCH_SIZE = "journalBatchSize";
+  public static final String JOURNAL_DRAIN_INTERVAL = "journalDrainInterval";
+  public static final String JOURNAL_RETAINED_SEGMENTS = "journalRetainedSegments";
+  public static final String ALIAS_REFRESH_INTERVAL = "aliasRefreshInterval";
+  public static final String INSTANCE_ROUTING = "instanceRouting";
+  public static final String TRACK_TOTAL_HITS_LIMIT = "trackTotalHits";
+  public static final String WARM_UP = "warmUp";
+  public static final String CIRCUIT_BREAKER = "circuitBreaker";
+  public static final String BREAKER_ELASTIC = "elasticsearch";
+  public static final String BREAKER_PELIAS = "pelias";
+  public static final String BREAKER_NLP = "nlp";
+  public static final String BREAKER_AUTH = "auth";
+  public static final String QUERY_STATS = "queryStats";
   public static final String IS_SSL = "ssl";
   public static final String PORT = "port";
   public static final String KEYSTORE_PATH = "keystorePath";
@@ -51,6 +70,29 @@ public class Constants {
       new ArrayList<String>(Arrays.asList(ITEM_TYPE_RESOURCE, ITEM_TYPE_RESOURCE_GROUP,
           ITEM_TYPE_RESOURCE_SERVER, ITEM_TYPE_PROVIDER));
 
+  /** Item status */
+  public static final String ITEM_STATUS_KEY = "itemStatus";
+  public static final ArrayList<String> ITEM_STATUSES =
+      new ArrayList<String>(Arrays.asList("ACTIVE", "INACTIVE"));
+
+  /** Merge patch */
+  public static final String PATCH = "patch";
+
+  /** Versioned writes; the version is the ETag of an item */
+  public static final String VERSION = "version";
+  public static final String IF_MATCH = "ifMatch";
+  public static final String CONFLICT = "conflict";
+
+  /** Subtree jobs */
+  public static final String JOB_ID = "jobId";
+  public static final String ACCEPTED = "accepted";
+  public static final String COMPLETED = "completed";
+  public static final String TOTAL = "total";
+  public static final String DELETED = "deleted";
+  public static final String UPDATED = "updated";
+  public static final String VERSION_CONFLICTS = "versionConflicts";
+  public static final String FAILURES = "failures";
+
   public static final String AGGREGATIONS = "aggregations";
   public static final String INSTANCE = "instance";
   public static final String BUCKETS = "buckets";
@@ -83,7 +125,12 @@ public class Constants {
   public static final String COORDINATES = "coordinates";
   public static final String Q_VALUE = "q";
   public static final String LIMIT = "limit";
+  public static final String SORT_BY = "sortBy";
   public static final String OFFSET = "offset";
+  public static final String FACETS = "facets";
+  public static final String PARAMS = "params";
+  public static final String SEARCH_METHOD = "search";
+  public static final String COUNT_METHOD = "count";
 
   /** SearchTypes */
   public static final String SEARCH_TYPE = "searchType";
@@ -105,7 +152,6 @@ public class Constants {
   public static final String TOTAL_HITS = "totalHits";
   public static final String QUERY_KEY = "query";
   public static final String HITS = "hits";
-  public static final String TOTAL = "total";
   public static final String TERM = "term";
   public static final String NAME = "name";
   public static final String FILTER = "filter";
@@ -133,6 +179,8 @@ public class Constants {
   public static final int PROPERTY_SIZE = 4;
   public static final int VALUE_SIZE = 4;
   public static final int FILTER_VALUE_SIZE = 10;
+  public static final int FACETS_SIZE = 6;
+  public static final int BATCH_SIZE = 20;
   public static final int ID_SIZE = 512;
   public static final int INSTANCE_SIZE = 100;
   public static final int FILTER_PAGINATION_SIZE = 10000;
@@ -0,0 +1,169 @@
+package iudx.catalogue.server.util;
+
+import io.vertx.core.json.JsonArray;
+import java.math.BigDecimal;
+
+import static iudx.catalogue.server.util.Constants.*;
+
+/**
+ * The Geometry of a geo search.
+ *
+ * <h1>Geometry</h1>
+ *
+ * <p>
+ * Validated geometry and coordinates of a geo search. The coordinates are checked in a single walk
+ * over the nested {@link JsonArray}; the nesting depth, the number and the precision of the values
+ * and the closure of the polygon rings. The same parser is used while validating the request
+ * parameters and while decoding the database query.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class Geometry {
+
+  public static final String ERROR_GEOMETRY = "Missing/Invalid geo parameters";
+  public static final String ERROR_FORMAT = "Invalid coordinate format";
+  public static final String ERROR_RING = "Coordinate mismatch (Polygon)";
+  public static final String ERROR_PRECISION =
+      "The max point of 'coordinates' precision is " + COORDINATES_PRECISION;
+  public static final String ERROR_SIZE =
+      "The max number of 'coordinates' value is " + COORDINATES_SIZE;
+
+  private static final double PRECISION_SCALE = Math.pow(10, COORDINATES_PRECISION);
+  /* Magnitudes checked by rounding */
+  static final double MIN_ROUNDED = 1e-3;
+  static final double MAX_ROUNDED = 180;
+
+  private final String type;
+  private final JsonArray coordinates;
+  private int values;
+
+  private Geometry(String type, JsonArray coordinates) {
+    this.type = type;
+    this.coordinates = coordinates;
+  }
+
+  /**
+   * Parses and validates the coordinates of a geometry.
+   *
+   * @param type Point, LineString, Polygon or bbox (case insensitive)
+   * @param coordinates nested array of coordinates
+   * @return the geometry
+   * @throws IllegalArgumentException if the geometry is invalid, with the reason as message
+   */
+  public static Geometry parse(String type, JsonArray coordinates) {
+
+    String geometry = null;
+    int depth;
+    if (POINT.equalsIgnoreCase(type)) {
+      geometry = POINT;
+      depth = 1;
+    } else if (LINESTRING.equalsIgnoreCase(type)) {
+      geometry = LINESTRING;
+      depth = 2;
+    } else if (BBOX.equalsIgnoreCase(type)) {
+      geometry = BBOX;
+      depth = 2;
+    } else if (POLYGON.equalsIgnoreCase(type)) {
+      geometry = POLYGON;
+      depth = 3;
+    } else {
+      throw new IllegalArgumentException(ERROR_GEOMETRY);
+    }
+    if (coordinates == null || coordinates.isEmpty()) {
+      throw new IllegalArgumentException(ERROR_GEOMETRY);
+    }
+
+    Geometry parsed = new Geometry(geometry, coordinates);
+    parsed.walk(coordinates, depth);
+    if (geometry == BBOX && coordinates.size() != 2) {
+      throw new IllegalArgumentException(ERROR_FORMAT);
+    }
+    return parsed;
+  }
+
+  /** Walks a level of the nested coordinates; depth 1 is a position */
+  private void walk(JsonArray array, int depth) {
+
+    if (depth == 1) {
+      position(array);
+      return;
+    }
+    for (int i = 0; i < array.size(); i++) {
+      Object child = array.getValue(i);
+      if (!(child instanceof JsonArray) || ((JsonArray) child).isEmpty()) {
+        throw new IllegalArgumentException(ERROR_FORMAT);
+      }
+      walk((JsonArray) child, depth - 1);
+    }
+    /* Linear ring of a polygon */
+    if (depth == 2 && type == POLYGON) {
+      JsonArray first = array.getJsonArray(0);
+      JsonArray last = array.getJsonArray(array.size() - 1);
+      if (first.getDouble(0).doubleValue() != last.getDouble(0).doubleValue()
+          || first.getDouble(1).doubleValue() != last.getDouble(1).doubleValue()) {
+        throw new IllegalArgumentException(ERROR_RING);
+      }
+    }
+  }
+
+  private void position(JsonArray position) {
+
+    if (position.size() != 2) {
+      throw new IllegalArgumentException(ERROR_FORMAT);
+    }
+    for (int i = 0; i < 2; i++) {
+      Object value = position.getValue(i);
+      if (!(value instanceof Number)) {
+        throw new IllegalArgumentException(ERROR_FORMAT);
+      }
+      double coordinate = ((Number) value).doubleValue();
+      if (!Double.isFinite(coordinate)) {
+        throw new IllegalArgumentException("Unable to parse 'coordinates'; value is " + value);
+      }
+      if (++values > COORDINATES_SIZE * 2) {
+        throw new IllegalArgumentException(ERROR_SIZE);
+      }
+      if (!isPrecise(coordinate)) {
+        throw new IllegalArgumentException(ERROR_PRECISION);
+      }
+    }
+  }
+
+  /**
+   * Checks whether the decimal representation of a value has a scale between 0 and
+   * {@link Constants#COORDINATES_PRECISION}. Between {@link #MIN_ROUNDED} and {@link #MAX_ROUNDED},
+   * ie, over the range of longitudes and latitudes, the representation is plain and rounding the
+   * value to that many places gives back the same double exactly when it has no more places. Out of
+   * that range the scaled value may lose precision, or the representation has an exponent, so the
+   * scale is read from a {@link BigDecimal}.
+   *
+   * @param value coordinate
+   * @return true if precise
+   */
+  static boolean isPrecise(double value) {
+    double magnitude = Math.abs(value);
+    if (magnitude == 0 || (magnitude >= MIN_ROUNDED && magnitude <= MAX_ROUNDED)) {
+      return Math.rint(value * PRECISION_SCALE) / PRECISION_SCALE == value;
+    }
+    int scale = BigDecimal.valueOf(value).scale();
+    return scale >= 0 && scale <= COORDINATES_PRECISION;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public JsonArray getCoordinates() {
+    return coordinates;
+  }
+
+  /**
+   * Number of coordinate values, ie, twice the number of positions.
+   *
+   * @return number of values
+   */
+  public int size() {
+    return values;
+  }
+}
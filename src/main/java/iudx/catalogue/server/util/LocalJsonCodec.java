@@ -0,0 +1,148 @@
+package iudx.catalogue.server.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.eventbus.impl.codecs.JsonObjectMessageCodec;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The Local Json Codec.
+ *
+ * <h1>Local Json Codec</h1>
+ *
+ * <p>
+ * Event bus codec of {@link JsonObject}s which delivers the object by reference within the JVM,
+ * where the default codec makes a deep copy of every request and every reply. Messages to other
+ * nodes of the cluster are encoded as by the default codec. The sender hands the object over: it
+ * must not read or modify it once sent.
+ *
+ * <p>
+ * The requests of a service proxy use the codec through the {@link DeliveryOptions} of the proxy;
+ * the replies of a service use it through {@link #replyByReference(Message)}. The codec has to be
+ * registered on every node, by the verticles which send or receive such messages.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class LocalJsonCodec implements MessageCodec<JsonObject, JsonObject> {
+
+  public static final String NAME = "local-json";
+
+  private static final JsonObjectMessageCodec WIRE_CODEC = new JsonObjectMessageCodec();
+
+  /**
+   * Registers the codec on the event bus, once per Vertx.
+   *
+   * @param vertx Vertx
+   */
+  public static void register(Vertx vertx) {
+    try {
+      vertx.eventBus().registerCodec(new LocalJsonCodec());
+    } catch (IllegalStateException e) {
+      /* Already registered by another verticle */
+    }
+  }
+
+  /**
+   * Delivery options of the messages passed by reference.
+   *
+   * @return DeliveryOptions with the codec
+   */
+  public static DeliveryOptions deliveryOptions() {
+    return new DeliveryOptions().setCodecName(NAME);
+  }
+
+  /**
+   * Message whose {@link JsonObject} replies are passed by reference.
+   *
+   * @param message received message
+   * @return the message replying with the codec
+   */
+  public static <T> Message<T> replyByReference(Message<T> message) {
+    return new ReplyByReference<T>(message);
+  }
+
+  @Override
+  public void encodeToWire(Buffer buffer, JsonObject jsonObject) {
+    WIRE_CODEC.encodeToWire(buffer, jsonObject);
+  }
+
+  @Override
+  public JsonObject decodeFromWire(int pos, Buffer buffer) {
+    return WIRE_CODEC.decodeFromWire(pos, buffer);
+  }
+
+  @Override
+  public JsonObject transform(JsonObject jsonObject) {
+    return jsonObject;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+
+  private static final class ReplyByReference<T> implements Message<T> {
+
+    private final Message<T> message;
+
+    private ReplyByReference(Message<T> message) {
+      this.message = message;
+    }
+
+    @Override
+    public String address() {
+      return message.address();
+    }
+
+    @Override
+    public MultiMap headers() {
+      return message.headers();
+    }
+
+    @Override
+    public T body() {
+      return message.body();
+    }
+
+    @Override
+    public String replyAddress() {
+      return message.replyAddress();
+    }
+
+    @Override
+    public boolean isSend() {
+      return message.isSend();
+    }
+
+    @Override
+    public void reply(Object reply, DeliveryOptions options) {
+      if (reply instanceof JsonObject && options.getCodecName() == null) {
+        options = new DeliveryOptions(options).setCodecName(NAME);
+      }
+      message.reply(reply, options);
+    }
+
+    @Override
+    public <R> void replyAndRequest(Object reply, DeliveryOptions options,
+        Handler<AsyncResult<Message<R>>> replyHandler) {
+      message.replyAndRequest(reply, options, replyHandler);
+    }
+
+    @Override
+    public void fail(int failureCode, String failure) {
+      message.fail(failureCode, failure);
+    }
+  }
+}
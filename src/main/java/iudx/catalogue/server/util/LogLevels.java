@@ -0,0 +1,99 @@
+package iudx.catalogue.server.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.eventbus.Message;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * The Log Levels.
+ *
+ * <h1>Log Levels</h1>
+ *
+ * <p>
+ * Log level of the request being handled on a thread, kept in the logLevel key of the log4j
+ * ThreadContext. The context-wide DynamicThresholdFilter of log4j2.xml logs the events of the
+ * thread from that level on, besides those from the levels of the loggers (LOG_LEVEL for the
+ * server); without the key, only the levels of the loggers apply. The filter runs before an event
+ * is built, so the key is only set for the sampled requests. The level goes along with the event
+ * bus requests, so a service logs a request as its API route does.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class LogLevels {
+
+  public static final String KEY = "logLevel";
+
+  private static final String HEADER = "x-log-level";
+  private static boolean intercepting;
+
+  private LogLevels() {}
+
+  /**
+   * Passes the levels over the event bus of the JVM, from the first call.
+   *
+   * @param vertx Vertx
+   */
+  public static synchronized void shared(Vertx vertx) {
+    if (intercepting) {
+      return;
+    }
+    vertx.eventBus().addOutboundInterceptor(LogLevels::outbound);
+    vertx.eventBus().addInboundInterceptor(LogLevels::inbound);
+    intercepting = true;
+  }
+
+  /**
+   * The level of the thread.
+   *
+   * @return the level; null if none
+   */
+  public static String current() {
+    return ThreadContext.get(KEY);
+  }
+
+  /**
+   * Runs an action with a level for the thread.
+   *
+   * @param level name of the level; null for none
+   * @param action the action
+   */
+  public static void run(String level, Runnable action) {
+    String previous = ThreadContext.get(KEY);
+    put(level);
+    try {
+      action.run();
+    } finally {
+      put(previous);
+    }
+  }
+
+  private static void put(String level) {
+    if (level == null) {
+      ThreadContext.remove(KEY);
+    } else {
+      ThreadContext.put(KEY, level);
+    }
+  }
+
+  /* Sends the level of the thread with a request */
+  private static void outbound(DeliveryContext<Object> context) {
+    Message<Object> message = context.message();
+    String level = ThreadContext.get(KEY);
+    if (level != null && message.replyAddress() != null) {
+      message.headers().set(HEADER, level);
+    }
+    context.next();
+  }
+
+  /* Handles a request with the level of its sender */
+  private static void inbound(DeliveryContext<Object> context) {
+    String level = context.message().headers().get(HEADER);
+    if (level == null) {
+      context.next();
+    } else {
+      run(level, context::next);
+    }
+  }
+}
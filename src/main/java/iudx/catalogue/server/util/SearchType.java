@@ -0,0 +1,111 @@
+package iudx.catalogue.server.util;
+
+import io.vertx.core.json.JsonObject;
+import java.util.EnumSet;
+
+import static iudx.catalogue.server.util.Constants.*;
+
+/**
+ * The Search Types.
+ *
+ * <h1>Search Types</h1>
+ *
+ * <p>
+ * The search types of a search/count request. A request carries the combination of its search
+ * types as a bitmask in its {@code searchType} field. The older string form (e.g.
+ * {@code "responseFilter_geoSearch_"}) is still accepted while decoding.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public enum SearchType {
+
+  GEO(SEARCH_TYPE_GEO),
+  TEXT(SEARCH_TYPE_TEXT),
+  ATTRIBUTE(SEARCH_TYPE_ATTRIBUTE),
+  RESPONSE_FILTER(Constants.RESPONSE_FILTER);
+
+  private static final SearchType[] TYPES = values();
+
+  private final String token;
+  private final int mask;
+
+  SearchType(String token) {
+    this.token = token;
+    this.mask = 1 << ordinal();
+  }
+
+  /**
+   * Bit of this search type in a searchType bitmask.
+   *
+   * @return the bit
+   */
+  public int mask() {
+    return mask;
+  }
+
+  /**
+   * Checks whether this search type is part of a searchType bitmask.
+   *
+   * @param searchTypes bitmask of search types
+   * @return true if the bit of this search type is set
+   */
+  public boolean in(int searchTypes) {
+    return (searchTypes & mask) != 0;
+  }
+
+  /**
+   * Decodes the searchType field of a request.
+   *
+   * @param request search/count request
+   * @return bitmask of search types; 0 if the request has none
+   */
+  public static int of(JsonObject request) {
+    Object value = request.getValue(SEARCH_TYPE);
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    }
+    int searchTypes = 0;
+    if (value instanceof String) {
+      String legacy = (String) value;
+      for (SearchType type : TYPES) {
+        if (legacy.contains(type.token)) {
+          searchTypes |= type.mask;
+        }
+      }
+    }
+    return searchTypes;
+  }
+
+  /**
+   * Expands a searchType bitmask.
+   *
+   * @param searchTypes bitmask of search types
+   * @return set of search types
+   */
+  public static EnumSet<SearchType> toSet(int searchTypes) {
+    EnumSet<SearchType> types = EnumSet.noneOf(SearchType.class);
+    for (SearchType type : TYPES) {
+      if (type.in(searchTypes)) {
+        types.add(type);
+      }
+    }
+    return types;
+  }
+
+  /**
+   * Label of a searchType bitmask, as the metrics take it; e.g. "geo+text".
+   *
+   * @param searchTypes bitmask of search types
+   * @return the label; "none" if the bitmask is empty
+   */
+  public static String label(int searchTypes) {
+    StringBuilder label = new StringBuilder();
+    for (SearchType type : TYPES) {
+      if (type.in(searchTypes)) {
+        label.append(label.length() == 0 ? "" : "+").append(type.name().toLowerCase());
+      }
+    }
+    return label.length() == 0 ? "none" : label.toString();
+  }
+}
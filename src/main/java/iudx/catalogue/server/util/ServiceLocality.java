@@ -0,0 +1,190 @@
+package iudx.catalogue.server.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Service Locality.
+ *
+ * <h1>Service Locality</h1>
+ *
+ * <p>
+ * Locality-aware resolution of the event bus services. A clustered event bus sends a message to
+ * the consumers of an address round-robin over the nodes, so a call may cross the network even
+ * when the service runs in the same JVM. A service registered here also consumes a node-local
+ * address, and the proxies created here call that address while the node has the service. They
+ * fall back to the cluster-wide address when it doesn't, or when the local service has gone away
+ * in the meantime.
+ *
+ * <p>
+ * The calls are counted as catalogue.service.requests, tagged with the address and the hops: 0
+ * for the local address, 1 for the cluster-wide address.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class ServiceLocality {
+
+  private static final Logger LOGGER = LogManager.getLogger(ServiceLocality.class);
+  private static final String LOCAL_SERVICES = "catalogue.local.services";
+  private static final String LOCAL_SUFFIX = ".local";
+
+  private ServiceLocality() {}
+
+  /**
+   * Node-local address of a service.
+   *
+   * @param address cluster-wide address of the service
+   * @return the local address
+   */
+  public static String localAddress(String address) {
+    return address + LOCAL_SUFFIX;
+  }
+
+  /**
+   * Registers the handler of a service on its cluster-wide and its node-local address.
+   *
+   * @param vertx Vertx
+   * @param address cluster-wide address of the service
+   * @param handler message handler of the service
+   * @return the consumers, to unregister
+   */
+  public static List<MessageConsumer<JsonObject>> register(Vertx vertx, String address,
+      Handler<Message<JsonObject>> handler) {
+    List<MessageConsumer<JsonObject>> consumers = List.of(
+        vertx.eventBus().consumer(address, handler),
+        vertx.eventBus().localConsumer(localAddress(address), handler));
+    count(vertx, address, 1);
+    return consumers;
+  }
+
+  /**
+   * Unregisters the consumers of a service.
+   *
+   * @param vertx Vertx
+   * @param address cluster-wide address of the service
+   * @param consumers consumers returned by the registration
+   */
+  public static void unregister(Vertx vertx, String address,
+      List<MessageConsumer<JsonObject>> consumers) {
+    count(vertx, address, -1);
+    consumers.forEach(MessageConsumer::unregister);
+  }
+
+  /**
+   * Whether the node has a service.
+   *
+   * @param vertx Vertx
+   * @param address cluster-wide address of the service
+   * @return true if the service is registered on this node
+   */
+  public static boolean isLocal(Vertx vertx, String address) {
+    Integer services = vertx.sharedData().<String, Integer>getLocalMap(LOCAL_SERVICES).get(address);
+    return services != null && services > 0;
+  }
+
+  private static synchronized void count(Vertx vertx, String address, int delta) {
+    LocalMap<String, Integer> services = vertx.sharedData().getLocalMap(LOCAL_SERVICES);
+    Integer registered = services.get(address);
+    int count = (registered == null ? 0 : registered) + delta;
+    if (count > 0) {
+      services.put(address, count);
+    } else {
+      services.remove(address);
+    }
+  }
+
+  /**
+   * Creates a proxy of a service which prefers the service of the node. The methods of the
+   * service take their result handler as the last parameter, as the service proxies.
+   *
+   * @param vertx Vertx
+   * @param type interface of the service
+   * @param address cluster-wide address of the service
+   * @param proxyFactory creates the event bus proxy of an address
+   * @return the proxy
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T createProxy(Vertx vertx, Class<T> type, String address,
+      Function<String, T> proxyFactory) {
+    T localProxy = proxyFactory.apply(localAddress(address));
+    T clusterProxy = proxyFactory.apply(address);
+    Counter localHops = counter(address, "0");
+    Counter clusterHops = counter(address, "1");
+
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        (proxy, method, args) -> {
+          if (method.getDeclaringClass() == Object.class) {
+            return invoke(method, clusterProxy, args);
+          }
+          int last = args == null ? -1 : args.length - 1;
+          if (last < 0 || !(args[last] instanceof Handler) || !isLocal(vertx, address)) {
+            increment(clusterHops);
+            invoke(method, clusterProxy, args);
+            return proxy;
+          }
+
+          Handler<AsyncResult<Object>> handler = (Handler<AsyncResult<Object>>) args[last];
+          Object[] localArgs = args.clone();
+          localArgs[last] = (Handler<AsyncResult<Object>>) result -> {
+            if (result.failed() && result.cause() instanceof ReplyException
+                && ((ReplyException) result.cause()).failureType() == ReplyFailure.NO_HANDLERS) {
+              /* The local service has gone away, fails over to the cluster */
+              LOGGER.debug("Info: No local service, failing over;{}", address);
+              increment(clusterHops);
+              invoke(method, clusterProxy, args);
+            } else {
+              handler.handle(result);
+            }
+          };
+          increment(localHops);
+          invoke(method, localProxy, localArgs);
+          return proxy;
+        });
+  }
+
+  private static Object invoke(Method method, Object target, Object[] args) {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Counter counter(String address, String hops) {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      return null;
+    }
+    return Counter.builder("catalogue.service.requests").tag("address", address)
+        .tag("hops", hops).description("Service calls by event bus hops").register(registry);
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+}
@@ -0,0 +1,537 @@
+package iudx.catalogue.server.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.WebClient;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Tracing.
+ *
+ * <h1>Tracing</h1>
+ *
+ * <p>
+ * Spans of the hops of a request, linked by the W3C trace context. The API server starts a span
+ * per request, continuing the trace of the client if it has a traceparent. The span current on a
+ * thread is passed on in the traceparent header of the event bus requests, the Elasticsearch
+ * requests and the requests to Pelias, the NLP service and the auth server, each of them timed by
+ * a client span. A service answering an event bus request has a server span of its own, until it
+ * replies. The callbacks of a request run with the span which made it as current again, so the
+ * next hop of a pipeline is linked to the same trace.
+ *
+ * <p>
+ * An API request is sampled with sampleRatio, whatever the sampled flag of its client says, as
+ * the clients aren't trusted to decide what the server records; the requests of the other nodes
+ * over the event bus keep the decision of their sender. The sampled spans are exported in the
+ * OTLP/JSON encoding every exportInterval: posted to endpoint (e.g. the collector at
+ * http://localhost:4318/v1/traces), or appended as a line to file (as the file exporter of the
+ * OpenTelemetry collector writes them), which is never rotated, so only meant for a local run. At
+ * most maxQueue spans wait for an export; the rest are dropped.
+ *
+ * <p>
+ * Nothing is traced until {@link #shared} is called, nor after {@link #reset}, as in the tests.
+ *
+ * @version 1.0
+ * @since 2020-10-19
+ */
+public final class Tracing {
+
+  public static final String TRACEPARENT = "traceparent";
+  public static final String TRACESTATE = "tracestate";
+  public static final String SAMPLE_RATIO = "sampleRatio";
+  public static final String FILE = "file";
+  public static final String ENDPOINT = "endpoint";
+  public static final String SERVICE_NAME = "serviceName";
+  public static final String EXPORT_INTERVAL = "exportInterval";
+  public static final String MAX_QUEUE = "maxQueue";
+  public static final String REPLY_TIMEOUT = "replyTimeout";
+
+  /* Span kinds and status codes of OTLP */
+  private static final int KIND_SERVER = 2;
+  private static final int KIND_CLIENT = 3;
+  private static final int STATUS_ERROR = 2;
+
+  private static final Logger LOGGER = LogManager.getLogger(Tracing.class);
+  private static final ThreadLocal<Span> CURRENT = new ThreadLocal<Span>();
+  private static final Span NONE = new Span(null, null, null, null, null, 0, false);
+  private static final int MAX_BATCH = 512;
+  private static final long EPOCH_OFFSET =
+      TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+  private static volatile Tracing tracing;
+
+  private final double sampleRatio;
+  private final int maxQueue;
+  private final long replyTimeout;
+  private final JsonObject resource;
+  private final Queue<JsonObject> spans = new ConcurrentLinkedQueue<JsonObject>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicLong dropped = new AtomicLong();
+  /* Spans waiting for the reply of an event bus request, by its reply address */
+  private final Map<String, Span> requests = new ConcurrentHashMap<String, Span>();
+  private final Map<String, Span> replies = new ConcurrentHashMap<String, Span>();
+  private final Handler<DeliveryContext<Object>> outboundInterceptor = this::outbound;
+  private final Handler<DeliveryContext<Object>> inboundInterceptor = this::inbound;
+  private Vertx vertx;
+  private long exportTimer;
+  private WebClient webClient;
+  private String endpoint;
+  private AsyncFile file;
+
+  /**
+   * Span of a hop.
+   */
+  public static final class Span {
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String traceState;
+    private final String name;
+    private final int kind;
+    private final boolean sampled;
+    private final long start = System.nanoTime();
+    private final JsonArray attributes = new JsonArray();
+    private Span parent;
+    private boolean ended;
+
+    private Span(String traceId, String spanId, String parentSpanId, String traceState,
+        String name, int kind, boolean sampled) {
+      this.traceId = traceId;
+      this.spanId = spanId;
+      this.parentSpanId = parentSpanId;
+      this.traceState = traceState;
+      this.name = name;
+      this.kind = kind;
+      this.sampled = sampled;
+    }
+
+    /* A new span of the trace of this one */
+    private Span child(String name, int kind) {
+      Span child = new Span(traceId, randomId(8), spanId, traceState, name, kind, sampled);
+      child.parent = this;
+      return child;
+    }
+
+    public boolean isRecording() {
+      return sampled && tracing != null;
+    }
+
+    /**
+     * Adds an attribute, if the span is recorded.
+     *
+     * @param key name of the attribute, e.g. http.status_code
+     * @param value a string, number or boolean
+     * @return the span
+     */
+    public synchronized Span attribute(String key, Object value) {
+      if (!isRecording() || value == null) {
+        return this;
+      }
+      JsonObject any = new JsonObject();
+      if (value instanceof Boolean) {
+        any.put("boolValue", value);
+      } else if (value instanceof Double || value instanceof Float) {
+        any.put("doubleValue", value);
+      } else if (value instanceof Number) {
+        any.put("intValue", ((Number) value).longValue());
+      } else {
+        any.put("stringValue", value.toString());
+      }
+      attributes.add(new JsonObject().put("key", key).put("value", any));
+      return this;
+    }
+
+    /**
+     * The traceparent header of the span.
+     *
+     * @return the header; null if nothing is traced
+     */
+    public String traceparent() {
+      return traceId == null ? null
+          : "00-" + traceId + "-" + spanId + "-" + (sampled ? "01" : "00");
+    }
+
+    /**
+     * Puts the trace context of the span in the headers of a request.
+     *
+     * @param headers puts a header
+     */
+    public void inject(BiConsumer<String, String> headers) {
+      if (traceId == null) {
+        return;
+      }
+      headers.accept(TRACEPARENT, traceparent());
+      if (traceState != null) {
+        headers.accept(TRACESTATE, traceState);
+      }
+    }
+
+    /**
+     * Puts the trace context of the span in the headers of a web client request.
+     *
+     * @param request the request
+     * @return the request
+     */
+    public <T> HttpRequest<T> traced(HttpRequest<T> request) {
+      inject(request::putHeader);
+      return request;
+    }
+
+    /**
+     * Ends the span, once; exported if sampled.
+     *
+     * @param error cause of the failure of the hop; null if it succeeded
+     */
+    public void end(String error) {
+      Tracing exporter = tracing;
+      JsonObject span;
+      synchronized (this) {
+        if (ended || !sampled || exporter == null) {
+          ended = true;
+          return;
+        }
+        ended = true;
+        span = toJson(error);
+      }
+      exporter.enqueue(span);
+    }
+
+    /* The span in the OTLP/JSON encoding */
+    private JsonObject toJson(String error) {
+      JsonObject span = new JsonObject()
+          .put("traceId", traceId)
+          .put("spanId", spanId)
+          .put("name", name)
+          .put("kind", kind)
+          .put("startTimeUnixNano", String.valueOf(start + EPOCH_OFFSET))
+          .put("endTimeUnixNano", String.valueOf(System.nanoTime() + EPOCH_OFFSET))
+          .put("attributes", attributes);
+      if (parentSpanId != null) {
+        span.put("parentSpanId", parentSpanId);
+      }
+      if (traceState != null) {
+        span.put("traceState", traceState);
+      }
+      if (error != null) {
+        span.put("status", new JsonObject().put("code", STATUS_ERROR).put("message", error));
+      }
+      return span;
+    }
+
+    /**
+     * Ends the span when the result of its hop comes, and handles the result with the span which
+     * started it as current.
+     *
+     * @param handler of the result
+     * @return the handler ending the span
+     */
+    public <T> Handler<AsyncResult<T>> ending(Handler<AsyncResult<T>> handler) {
+      return result -> {
+        end(result.failed() ? String.valueOf(result.cause()) : null);
+        run(parent, () -> handler.handle(result));
+      };
+    }
+  }
+
+  private Tracing(JsonObject config) {
+    this.sampleRatio = config.getDouble(SAMPLE_RATIO, 1.0);
+    this.maxQueue = config.getInteger(MAX_QUEUE, 4096);
+    this.replyTimeout = config.getLong(REPLY_TIMEOUT, 60000L);
+    this.resource = new JsonObject().put("attributes", new JsonArray()
+        .add(new JsonObject().put("key", "service.name").put("value", new JsonObject()
+            .put("stringValue", config.getString(SERVICE_NAME, "iudx-catalogue-server")))));
+  }
+
+  /**
+   * Starts tracing the JVM, from the first call.
+   *
+   * @param vertx Vertx
+   * @param options sampleRatio, file or endpoint, serviceName, exportInterval, maxQueue and
+   *     replyTimeout
+   */
+  public static synchronized void shared(Vertx vertx, JsonObject options) {
+    if (tracing != null) {
+      return;
+    }
+    JsonObject config = options == null ? new JsonObject() : options;
+    Tracing tracer = new Tracing(config);
+    tracer.vertx = vertx;
+    if (config.containsKey(ENDPOINT)) {
+      tracer.endpoint = config.getString(ENDPOINT);
+      tracer.webClient = WebClient.create(vertx);
+    } else if (config.containsKey(FILE)) {
+      vertx.fileSystem().open(config.getString(FILE),
+          new OpenOptions().setCreate(true).setAppend(true), fileRes -> {
+            if (fileRes.succeeded()) {
+              tracer.file = fileRes.result();
+            } else {
+              LOGGER.error("Fail: Span file unavailable;" + fileRes.cause().getMessage());
+            }
+          });
+    }
+    vertx.eventBus().addOutboundInterceptor(tracer.outboundInterceptor);
+    vertx.eventBus().addInboundInterceptor(tracer.inboundInterceptor);
+    tracer.exportTimer = vertx.setPeriodic(config.getLong(EXPORT_INTERVAL, 5000L), id -> {
+      tracer.expire();
+      tracer.export();
+    });
+    tracing = tracer;
+    LOGGER.info("Info: Tracing with sample ratio " + tracer.sampleRatio);
+  }
+
+  /* Stops tracing, for the next call of shared to start again */
+  static synchronized void reset() {
+    Tracing tracer = tracing;
+    if (tracer == null) {
+      return;
+    }
+    tracing = null;
+    tracer.vertx.cancelTimer(tracer.exportTimer);
+    tracer.vertx.eventBus().removeOutboundInterceptor(tracer.outboundInterceptor);
+    tracer.vertx.eventBus().removeInboundInterceptor(tracer.inboundInterceptor);
+    if (tracer.webClient != null) {
+      tracer.webClient.close();
+    }
+    if (tracer.file != null) {
+      tracer.file.close();
+    }
+  }
+
+  /**
+   * The span current on the thread.
+   *
+   * @return the span; null if none
+   */
+  public static Span current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Runs an action with a span as current.
+   *
+   * @param span the span; null for none
+   * @param action the action
+   */
+  public static void run(Span span, Runnable action) {
+    Span previous = CURRENT.get();
+    CURRENT.set(span);
+    try {
+      action.run();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Starts the span of a request received, continuing the trace of its sender.
+   *
+   * @param name name of the span
+   * @param traceparent traceparent header of the request; null to start a trace
+   * @param tracestate tracestate header of the request; null if none
+   * @param trusted whether the sampled flag of the sender is kept; if not, the request is sampled
+   *     with sampleRatio
+   * @return the span; one not traced unless tracing
+   */
+  public static Span startServer(String name, String traceparent, String tracestate,
+      boolean trusted) {
+    Tracing tracer = tracing;
+    if (tracer == null) {
+      return NONE;
+    }
+    String[] context = parse(traceparent);
+    if (context == null) {
+      return new Span(randomId(16), randomId(8), null, null, name, KIND_SERVER, tracer.sample());
+    }
+    boolean sampled = trusted ? context[2].equals("01") : tracer.sample();
+    return new Span(context[0], randomId(8), context[1], tracestate, name, KIND_SERVER, sampled);
+  }
+
+  private boolean sample() {
+    return ThreadLocalRandom.current().nextDouble() < sampleRatio;
+  }
+
+  /**
+   * Starts the span of a request sent, as a child of the current span.
+   *
+   * @param name name of the span
+   * @return the span; one not traced without a current span
+   */
+  public static Span startClient(String name) {
+    Span current = CURRENT.get();
+    if (current == null || current.traceId == null) {
+      return NONE;
+    }
+    return current.child(name, KIND_CLIENT);
+  }
+
+  /* Trace id, parent id and flags of a traceparent header; null if it isn't valid */
+  static String[] parse(String traceparent) {
+    if (traceparent == null || traceparent.length() < 55) {
+      return null;
+    }
+    String[] fields = traceparent.trim().split("-");
+    if (fields.length < 4 || fields[0].equals("ff") || !isHex(fields[0], 2)
+        || !isHex(fields[1], 32) || !isHex(fields[2], 16) || !isHex(fields[3], 2)
+        || (fields[0].equals("00") && fields.length != 4)
+        || fields[1].equals("00000000000000000000000000000000")
+        || fields[2].equals("0000000000000000")) {
+      return null;
+    }
+    boolean sampled = (Integer.parseInt(fields[3], 16) & 1) == 1;
+    return new String[] {fields[1], fields[2], sampled ? "01" : "00"};
+  }
+
+  private static boolean isHex(String field, int length) {
+    if (field.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = field.charAt(i);
+      if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String randomId(int bytes) {
+    StringBuilder id = new StringBuilder(bytes * 2);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < bytes; i++) {
+      int b = i == 0 ? 1 + random.nextInt(255) : random.nextInt(256);
+      id.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return id.toString();
+  }
+
+  /* Ends the span of a service as it replies; starts a client span for a request sent */
+  private void outbound(DeliveryContext<Object> context) {
+    Message<Object> message = context.message();
+    Span reply = replies.remove(message.address());
+    if (reply != null) {
+      Object body = message.body();
+      reply.end(body instanceof ReplyException ? ((ReplyException) body).getMessage() : null);
+    } else if (message.replyAddress() != null && message.headers().get(TRACEPARENT) == null) {
+      Span span = startClient(message.address() + " " + action(message.headers()));
+      if (span.traceId != null) {
+        span.attribute("messaging.system", "vertx-eventbus")
+            .attribute("messaging.destination", message.address());
+        span.inject(message.headers()::set);
+        requests.put(message.replyAddress(), span);
+      }
+    }
+    context.next();
+  }
+
+  /* Ends the client span of a reply, and starts a server span for a request received; the
+   * handler runs with the span as current */
+  private void inbound(DeliveryContext<Object> context) {
+    Message<Object> message = context.message();
+    Span request = requests.remove(message.address());
+    if (request != null) {
+      Object body = message.body();
+      request.end(body instanceof ReplyException ? ((ReplyException) body).getMessage() : null);
+      run(request.parent, context::next);
+      return;
+    }
+    MultiMap headers = message.headers();
+    String traceparent = headers.get(TRACEPARENT);
+    if (traceparent == null || message.replyAddress() == null) {
+      context.next();
+      return;
+    }
+    Span span = startServer(message.address() + " " + action(headers), traceparent,
+        headers.get(TRACESTATE), true);
+    span.attribute("messaging.system", "vertx-eventbus")
+        .attribute("messaging.destination", message.address());
+    replies.put(message.replyAddress(), span);
+    run(span, context::next);
+  }
+
+  /* Method of a service proxy request */
+  private static String action(MultiMap headers) {
+    String action = headers.get("action");
+    return action == null ? "send" : action;
+  }
+
+  /* Ends the spans waiting longer than replyTimeout for a reply */
+  private void expire() {
+    long now = System.nanoTime();
+    long timeout = TimeUnit.MILLISECONDS.toNanos(replyTimeout);
+    for (Map<String, Span> pending : Arrays.asList(requests, replies)) {
+      Iterator<Span> waiting = pending.values().iterator();
+      while (waiting.hasNext()) {
+        Span span = waiting.next();
+        if (now - span.start > timeout) {
+          waiting.remove();
+          span.end("No reply");
+        }
+      }
+    }
+  }
+
+  private void enqueue(JsonObject span) {
+    if (queued.incrementAndGet() > maxQueue) {
+      queued.decrementAndGet();
+      dropped.incrementAndGet();
+      return;
+    }
+    spans.add(span);
+  }
+
+  /* Exports the queued spans, in batches of at most MAX_BATCH */
+  private void export() {
+    long lost = dropped.getAndSet(0);
+    if (lost > 0) {
+      LOGGER.warn("Fail: Spans dropped;" + lost);
+    }
+    while (!spans.isEmpty()) {
+      JsonArray batch = new JsonArray();
+      JsonObject span;
+      while (batch.size() < MAX_BATCH && (span = spans.poll()) != null) {
+        queued.decrementAndGet();
+        batch.add(span);
+      }
+      JsonObject request = new JsonObject().put("resourceSpans", new JsonArray()
+          .add(new JsonObject().put("resource", resource).put("scopeSpans", new JsonArray()
+              .add(new JsonObject()
+                  .put("scope", new JsonObject().put("name", "iudx.catalogue.server"))
+                  .put("spans", batch)))));
+      if (webClient != null) {
+        webClient.postAbs(endpoint)
+                 .putHeader("Content-Type", "application/json")
+                 .sendJsonObject(request, postRes -> {
+                   if (postRes.failed() || postRes.result().statusCode() >= 300) {
+                     LOGGER.error("Fail: Span export;" + (postRes.failed()
+                         ? postRes.cause().getMessage() : postRes.result().statusCode()));
+                   }
+                 });
+      } else if (file != null) {
+        file.write(Buffer.buffer(request.encode()).appendString("\n"));
+      }
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package iudx.catalogue.server.validator;
 
+import java.util.Set;
+
 public class Constants {
 
   /** General definations */
@@ -11,10 +13,18 @@ public class Constants {
   public static final String ACTIVE = "ACTIVE";
   public static final String ITEM_CREATED_AT = "itemCreatedAt";
 
+  /** Attributes of a merge patch; the id, links and enrichment fields can't be patched */
+  public static final Set<String> IMMUTABLE_ATTRIBUTES = Set.of("id", "type", "name", "provider",
+      "resourceServer", "resourceGroup", "instance", ITEM_CREATED_AT, "_summary", "_geosummary",
+      "_word_vector");
+  public static final Set<String> STRING_ATTRIBUTES = Set.of("label", "description");
+  public static final Set<String> OBJECT_ATTRIBUTES = Set.of("location", "descriptor");
+
   static final String FILTER_PATH = "?filter_path=took,hits.total.value,hits.hits._source";
 
   /** Error messages */
   public static final String NON_EXISTING_LINK_MSG = "No such cat item exists: ";
   public static final String VALIDATION_FAILURE_MSG = "Validation failed";
   public static final String INVALID_SCHEMA_MSG = "Invalid Schema";
+  public static final String INVALID_PATCH_MSG = "Invalid merge patch";
 }
@@ -6,11 +6,16 @@ import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 public final class Validator {
 
   private static final String PKGBASE;
+  private static final Map<String, Validator> SHARED = new HashMap<String, Validator>();
+  private static final int PRIME_ROUNDS = 200;
   private final JsonSchema schema;
+  private final JsonNode examples;
 
   static {
     final String pkgName = Validator.class.getPackage().getName();
@@ -21,6 +26,38 @@ public final class Validator {
     final JsonNode schemaNode = loadResource(schemaPath);
     final JsonSchemaFactory factory = JsonSchemaFactory.byDefault();
     schema = factory.getJsonSchema(schemaNode);
+    examples = schemaNode.path("examples");
+  }
+
+  /**
+   * The validator of a schema, loaded once per JVM. It is primed with an empty document and the
+   * examples of the schema, a few hundred times: the keyword validators of the schema are built,
+   * and the parsing and validation of an item are compiled by the JIT, before the first item is
+   * validated.
+   *
+   * @param schemaPath path of the schema (<b>MUST</b> start with {@code /}
+   * @return the validator
+   * @throws IOException schema not found
+   * @throws ProcessingException invalid schema
+   */
+  public static synchronized Validator shared(String schemaPath)
+      throws IOException, ProcessingException {
+    Validator validator = SHARED.get(schemaPath);
+    if (validator == null) {
+      validator = new Validator(schemaPath);
+      validator.prime();
+      SHARED.put(schemaPath, validator);
+    }
+    return validator;
+  }
+
+  private void prime() {
+    for (int i = 0; i < PRIME_ROUNDS; i++) {
+      validate("{}");
+      for (JsonNode example : examples) {
+        validate(example.toString());
+      }
+    }
   }
 
   /**
@@ -47,6 +47,16 @@ public interface ValidatorService {
   @Fluent
   ValidatorService validateItem(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
 
+  /**
+   * The validatePatch method validates the attributes touched by a merge patch of an item.
+   * 
+   * @param request which is a JsonObject
+   * @param handler which is a Request Handler
+   * @return ValidatorService which is a Service
+   */
+  @Fluent
+  ValidatorService validatePatch(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
+
   /**
    * The validateProvider method implements the owner (or) provider validation flow of the item.
    * 
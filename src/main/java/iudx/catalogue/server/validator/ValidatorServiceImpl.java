@@ -18,8 +18,11 @@ import java.util.Set;
 import java.util.TimeZone;
 
 import iudx.catalogue.server.database.ElasticClient;
+import iudx.catalogue.server.util.StageTimer;
 import static iudx.catalogue.server.validator.Constants.*;
 import static iudx.catalogue.server.util.Constants.*;
+import static iudx.catalogue.server.util.StageTimer.VALIDATOR_LINKS;
+import static iudx.catalogue.server.util.StageTimer.VALIDATOR_SCHEMA;
 
 /**
  * The Validator Service Implementation.
@@ -51,10 +54,10 @@ public class ValidatorServiceImpl implements ValidatorService {
     this.client = client;
 
     try {
-      resourceValidator = new Validator("/resourceItemSchema.json");
-      resourceGroupValidator = new Validator("/resourceGroupItemSchema.json");
-      resourceServerValidator = new Validator("/resourceServerItemSchema.json");
-      providerValidator = new Validator("/providerItemSchema.json");
+      resourceValidator = Validator.shared("/resourceItemSchema.json");
+      resourceGroupValidator = Validator.shared("/resourceGroupItemSchema.json");
+      resourceServerValidator = Validator.shared("/resourceServerItemSchema.json");
+      providerValidator = Validator.shared("/providerItemSchema.json");
     } catch (IOException | ProcessingException e) {
       e.printStackTrace();
     }
@@ -67,6 +70,7 @@ public class ValidatorServiceImpl implements ValidatorService {
       Handler<AsyncResult<JsonObject>> handler) {
 
     LOGGER.debug("Info: Reached Validator service validate schema");
+    StageTimer timer = StageTimer.start(VALIDATOR_SCHEMA).item(request);
     Set<String> type = new HashSet<String>(new JsonArray().getList());
 
     try {
@@ -76,7 +80,7 @@ public class ValidatorServiceImpl implements ValidatorService {
     }
     type.retainAll(ITEM_TYPES);
     String itemType = type.toString().replaceAll("\\[", "").replaceAll("\\]", "");
-    LOGGER.debug("Info: itemType: " + itemType);
+    LOGGER.debug("Info: itemType: {}", itemType);
 
     switch(itemType) {
 
@@ -97,6 +101,7 @@ public class ValidatorServiceImpl implements ValidatorService {
         break;
     }
 
+    timer.stop(isValidSchema);
     if (isValidSchema) {
       handler.handle(
           Future.succeededFuture(new JsonObject().put(STATUS, SUCCESS)));
@@ -110,10 +115,17 @@ public class ValidatorServiceImpl implements ValidatorService {
 
 
   /** {@inheritDoc} */
-  @SuppressWarnings("unchecked")
   @Override
   public ValidatorService validateItem(JsonObject request,
       Handler<AsyncResult<JsonObject>> handler) {
+    validateLinks(request,
+        StageTimer.start(VALIDATOR_LINKS).item(request).stopping(handler));
+    return this;
+  }
+
+  /* Generates the id of an item and checks the items it links to */
+  @SuppressWarnings("unchecked")
+  private void validateLinks(JsonObject request, Handler<AsyncResult<JsonObject>> handler) {
 
     Set<String> type = new HashSet<String>(new JsonArray().getList());
     try {
@@ -124,7 +136,7 @@ public class ValidatorServiceImpl implements ValidatorService {
     }
     type.retainAll(ITEM_TYPES);
     String itemType = type.toString().replaceAll("\\[", "").replaceAll("\\]", "");
-    LOGGER.debug("Info: itemType: " + itemType);
+    LOGGER.debug("Info: itemType: {}", itemType);
 
 
     String checkQuery = "{\"_source\": [\"id\"],"
@@ -139,15 +151,15 @@ public class ValidatorServiceImpl implements ValidatorService {
 
       if (!request.getString(PROVIDER).equals(resGrpProvider)) {
         handler.handle(Future.failedFuture("Link validation failed"));
-        return this;
+        return;
       }
 
-      LOGGER.debug("Info: id generated: " + id);
+      LOGGER.debug("Info: id generated: {}", id);
       request.put(ID, id).put(ITEM_STATUS,
           ACTIVE)
           .put(ITEM_CREATED_AT, getUtcDatetimeAsString());
 
-      LOGGER.debug("Info: Verifying resourceGroup " + resourceGroup);
+      LOGGER.debug("Info: Verifying resourceGroup {}", resourceGroup);
       client.searchGetId(checkQuery.replace("$1", resourceGroup), checkRes -> {
         if (checkRes.failed()) {
           LOGGER.error("Fail: DB request has failed;" + checkRes.cause().getMessage());
@@ -182,7 +194,7 @@ public class ValidatorServiceImpl implements ValidatorService {
       String provider = request.getString(PROVIDER);
       String name = request.getString(NAME);
       String id = provider + "/" + domain[2] + "/" + name;
-      LOGGER.debug("Info: id generated: " + id);
+      LOGGER.debug("Info: id generated: {}", id);
       request.put(ID, id).put(ITEM_STATUS, ACTIVE)
           .put(ITEM_CREATED_AT, getUtcDatetimeAsString());
 
@@ -214,9 +226,53 @@ public class ValidatorServiceImpl implements ValidatorService {
         }
       });
     }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ValidatorService validatePatch(JsonObject request,
+      Handler<AsyncResult<JsonObject>> handler) {
+
+    for (String attribute : request.fieldNames()) {
+      Object value = request.getValue(attribute);
+      String error = null;
+
+      if (IMMUTABLE_ATTRIBUTES.contains(attribute)) {
+        error = "'" + attribute + "' can't be patched";
+      } else if (value == null) {
+        continue;
+      } else if (STRING_ATTRIBUTES.contains(attribute) && !(value instanceof String)) {
+        error = "'" + attribute + "' should be a string";
+      } else if (attribute.equals(TAGS) && !isStringArray(value)) {
+        error = "'" + attribute + "' should be an array of strings";
+      } else if (attribute.equals(ITEM_STATUS) && !ITEM_STATUSES.contains(value)) {
+        error = "'" + attribute + "' should be one of " + ITEM_STATUSES;
+      } else if (OBJECT_ATTRIBUTES.contains(attribute) && !(value instanceof JsonObject)) {
+        error = "'" + attribute + "' should be an object";
+      }
+
+      if (error != null) {
+        LOGGER.debug("Fail: Invalid patch; {}", error);
+        handler.handle(Future.failedFuture(INVALID_PATCH_MSG + "; " + error));
+        return this;
+      }
+    }
+    handler.handle(Future.succeededFuture(new JsonObject().put(STATUS, SUCCESS)));
     return this;
   }
 
+  private static boolean isStringArray(Object value) {
+    if (!(value instanceof JsonArray)) {
+      return false;
+    }
+    for (Object entry : (JsonArray) value) {
+      if (!(entry instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /** {@inheritDoc} */
   @Override
   public ValidatorService validateProvider(JsonObject request,
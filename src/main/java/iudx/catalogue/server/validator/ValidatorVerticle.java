@@ -2,10 +2,13 @@ package iudx.catalogue.server.validator;
 
 import static iudx.catalogue.server.util.Constants.*;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import io.vertx.serviceproxy.ServiceBinder;
 import iudx.catalogue.server.database.ElasticClient;
+import iudx.catalogue.server.database.QueryStats;
+import iudx.catalogue.server.util.CircuitBreaker;
 
 /**
  * The Validator Verticle.
@@ -36,7 +39,7 @@ public class ValidatorVerticle extends AbstractVerticle {
    * interface.
    */
   @Override
-  public void start() throws Exception {
+  public void start(Promise<Void> startPromise) throws Exception {
 
     databaseIP = config().getString(DATABASE_IP);
     databasePort = config().getInteger(DATABASE_PORT);
@@ -45,15 +48,28 @@ public class ValidatorVerticle extends AbstractVerticle {
     docIndex = config().getString(DOC_INDEX);
     /* Create a reference to HazelcastClusterManager. */
 
-    client = new ElasticClient(databaseIP, databasePort, docIndex, databaseUser, databasePassword);
+    client = new ElasticClient(databaseIP, databasePort, docIndex, databaseUser, databasePassword)
+        .setBreaker(
+            CircuitBreaker.shared(BREAKER_ELASTIC, config().getJsonObject(CIRCUIT_BREAKER)))
+        .setQueryStats(QueryStats.shared(config().getJsonObject(QUERY_STATS)));
 
     /* Create or Join a Vert.x Cluster. */
 
     /* Publish the Validator service with the Event Bus against an address. */
 
-    validator = new ValidatorServiceImpl(client);
-    new ServiceBinder(vertx)
-      .setAddress(VALIDATION_SERVICE_ADDRESS)
-      .register(ValidatorService.class, validator);
+    /* The schemas are loaded and primed on a worker, at the same time as the other modules */
+    vertx.<ValidatorService>executeBlocking(
+        validatorPromise -> validatorPromise.complete(new ValidatorServiceImpl(client)), false,
+        validatorRes -> {
+          if (validatorRes.failed()) {
+            startPromise.fail(validatorRes.cause());
+            return;
+          }
+          validator = validatorRes.result();
+          new ServiceBinder(vertx)
+            .setAddress(VALIDATION_SERVICE_ADDRESS)
+            .register(ValidatorService.class, validator);
+          startPromise.complete();
+        });
   }
 }
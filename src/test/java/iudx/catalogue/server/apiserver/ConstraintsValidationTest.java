@@ -12,6 +12,7 @@ import io.vertx.reactivex.core.file.FileSystem;
 import iudx.catalogue.server.Configuration;
 import iudx.catalogue.server.apiserver.util.QueryMapper;
 import iudx.catalogue.server.database.ElasticClient;
+import iudx.catalogue.server.util.Geometry;
 import iudx.catalogue.server.validator.ValidatorService;
 import iudx.catalogue.server.validator.ValidatorServiceImpl;
 import org.junit.jupiter.api.BeforeAll;
@@ -484,4 +485,46 @@ public class ConstraintsValidationTest {
     testContext.completeNow();
   }
 
+  @Test
+  @Order(24)
+  @DisplayName("GeoPolygon ring closure validation(failed)")
+  public void polygonRingNotClosed(VertxTestContext testContext) {
+
+    JsonObject requests = new JsonObject()
+        .put(GEOPROPERTY, LOCATION)
+        .put(GEORELATION, GEOREL_WITHIN)
+        .put(GEOMETRY, POLYGON)
+        .put(SEARCH_TYPE, SEARCH_TYPE_GEO)
+        .put(COORDINATES,
+            new JsonArray().add(new JsonArray().add(new JsonArray().add(75.9).add(14.5))
+                .add(new JsonArray().add(72).add(13)).add(new JsonArray().add(73).add(20))
+                .add(new JsonArray().add(75.9).add(14.6))));
+
+    JsonObject json = QueryMapper.validateQueryParam(requests);
+
+    assertEquals(FAILED, json.getString(STATUS));
+    assertEquals(Geometry.ERROR_RING, json.getString(DESC));
+    testContext.completeNow();
+  }
+
+  @Test
+  @Order(25)
+  @DisplayName("GeoLineString coordinate precision validation(failed)")
+  public void lineStringPrecisionFailed(VertxTestContext testContext) {
+
+    JsonObject requests = new JsonObject()
+        .put(GEOPROPERTY, LOCATION)
+        .put(GEORELATION, INTERSECTS)
+        .put(GEOMETRY, LINESTRING)
+        .put(SEARCH_TYPE, SEARCH_TYPE_GEO)
+        .put(COORDINATES,
+            new JsonArray().add(new JsonArray().add(73.874537).add(18))
+                .add(new JsonArray().add(73.8368081).add(18.572797)));
+
+    JsonObject json = QueryMapper.validateQueryParam(requests);
+
+    assertEquals(FAILED, json.getString(STATUS));
+    assertEquals(Geometry.ERROR_PRECISION, json.getString(DESC));
+    testContext.completeNow();
+  }
 }
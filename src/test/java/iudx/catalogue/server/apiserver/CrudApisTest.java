@@ -0,0 +1,29 @@
+package iudx.catalogue.server.apiserver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CrudApisTest {
+
+  @Test
+  @DisplayName("A merge patch sets, removes and merges the attributes of an item")
+  void mergePatchTest() {
+    JsonObject item = new JsonObject()
+        .put("label", "Air quality")
+        .put("description", "Air quality of Pune")
+        .put("descriptor", new JsonObject().put("unit", "ppm").put("range", 10))
+        .put("tags", new JsonArray().add("aqm"));
+    JsonObject patch = new JsonObject()
+        .put("description", (String) null)
+        .put("descriptor", new JsonObject().put("range", (Integer) null).put("interval", 60))
+        .put("tags", new JsonArray().add("pollution"));
+
+    assertEquals(new JsonObject()
+        .put("label", "Air quality")
+        .put("descriptor", new JsonObject().put("unit", "ppm").put("interval", 60))
+        .put("tags", new JsonArray().add("pollution")), CrudApis.mergePatch(item, patch));
+  }
+}
@@ -0,0 +1,89 @@
+package iudx.catalogue.server.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveLimitTest {
+
+  private static final long MILLIS = 1000000L;
+
+  /* Runs rounds of requests using the whole limit, all with the same latency */
+  private static void saturate(AdaptiveLimit limit, int rounds, long rttNanos) {
+    for (int round = 0; round < rounds; round++) {
+      int admitted = 0;
+      while (limit.tryAcquire()) {
+        admitted++;
+      }
+      for (int i = 0; i < admitted; i++) {
+        limit.release(rttNanos, false);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("The limit grows while the latency holds, and shrinks once it rises")
+  void gradientTest() {
+    AdaptiveLimit limit = new AdaptiveLimit("test", new JsonObject()
+        .put(AdaptiveLimit.MAX_LIMIT, 100), 10);
+
+    saturate(limit, 50, 10 * MILLIS);
+    int grown = limit.limit();
+    assertTrue(grown > 10);
+
+    saturate(limit, 5, 100 * MILLIS);
+    assertTrue(limit.limit() < grown);
+    assertTrue(limit.limit() >= 4);
+    assertEquals(0, limit.inflight());
+  }
+
+  @Test
+  @DisplayName("The limit doesn't grow while it isn't used")
+  void idleTest() {
+    AdaptiveLimit limit = new AdaptiveLimit("test", new JsonObject(), 10);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limit.tryAcquire());
+      limit.release(10 * MILLIS, false);
+    }
+    assertEquals(10, limit.limit());
+  }
+
+  @Test
+  @DisplayName("A dropped request backs the limit off")
+  void dropTest() {
+    AdaptiveLimit limit = new AdaptiveLimit("test", new JsonObject(), 20);
+    assertTrue(limit.tryAcquire());
+    limit.release(10 * MILLIS, true);
+    assertEquals(18, limit.limit());
+  }
+
+  @Test
+  @DisplayName("Requests over the limit wait in a bounded queue")
+  void queueTest() {
+    AdaptiveLimit limit = new AdaptiveLimit("test", new JsonObject()
+        .put(AdaptiveLimit.MAX_QUEUE, 1), 2);
+    AtomicInteger ran = new AtomicInteger();
+    Runnable waiter = ran::incrementAndGet;
+
+    assertTrue(limit.tryAcquire());
+    assertTrue(limit.tryAcquire());
+    assertFalse(limit.tryAcquire());
+    assertTrue(limit.enqueue(waiter));
+    assertFalse(limit.enqueue(() -> { }));
+    assertEquals(1, limit.queued());
+
+    /* The released permit goes to the waiter */
+    limit.release(10 * MILLIS, false);
+    assertEquals(1, ran.get());
+    assertEquals(2, limit.inflight());
+    assertFalse(limit.cancel(waiter));
+
+    assertTrue(limit.enqueue(waiter));
+    assertTrue(limit.cancel(waiter));
+    assertEquals(0, limit.queued());
+  }
+}
@@ -0,0 +1,96 @@
+package iudx.catalogue.server.apiserver.util;
+
+import static iudx.catalogue.server.apiserver.util.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import io.vertx.core.MultiMap;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class QueryMapperTest {
+
+  /** Regex which quoted the array values before the tokenizer */
+  private static final Pattern LEGACY_PATTERN = Pattern.compile("[\\w]+[^\\,]*(?:\\.*[\\w])");
+  private static final String ALPHABET = "[]\", ,.aZ9_-/:*\u00e9";
+
+  private static String legacyQuote(String value) {
+    if (!LEGACY_PATTERN.matcher(value).find()) {
+      return null;
+    }
+    return LEGACY_PATTERN.matcher(value).replaceAll("\"$0\"");
+  }
+
+  @Test
+  @DisplayName("Array values are quoted as by the regex")
+  void quoteArrayValuesTest() {
+    assertEquals("[[\"aqm\", \"pollution\"],[\"x1\"]]",
+        QueryMapper.quoteArrayValues("[[aqm, pollution],[x1]]"));
+    assertEquals("[[\"Ambedkar society circle_29\"]]",
+        QueryMapper.quoteArrayValues("[[Ambedkar society circle_29]]"));
+    assertNull(legacyQuote("[x]"));
+    assertNull(QueryMapper.quoteArrayValues("[x]"));
+  }
+
+  @Test
+  @DisplayName("Fuzz the tokenizer against the regex")
+  void quoteArrayValuesFuzzTest() {
+    Random random = new Random(20201019);
+    for (int i = 0; i < 200000; i++) {
+      StringBuilder value = new StringBuilder();
+      int length = random.nextInt(16);
+      for (int j = 0; j < length; j++) {
+        value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      }
+      String input = value.toString();
+      assertEquals(legacyQuote(input), QueryMapper.quoteArrayValues(input), input);
+    }
+  }
+
+  @Test
+  @DisplayName("Every search started has all its parameters")
+  void checkSearchParamsTest() {
+    MultiMap attribute = MultiMap.caseInsensitiveMultiMap().add(PROPERTY, "[tags]");
+    assertEquals(INVALID_SYNTAX, QueryMapper.checkSearchParams(attribute, false));
+    assertEquals(INVALID_SYNTAX,
+        QueryMapper.checkSearchParams(attribute.add(Q_VALUE, "aqm"), true));
+    assertNull(QueryMapper.checkSearchParams(attribute.add(VALUE, "[[aqm]]"), false));
+
+    MultiMap geo = MultiMap.caseInsensitiveMultiMap().add(GEOPROPERTY, "location")
+        .add(GEOMETRY, BBOX).add(COORDINATES, "[[73.8,18.5],[73.9,18.4]]");
+    assertEquals(INVALID_SYNTAX, QueryMapper.checkSearchParams(geo, false));
+    assertEquals(INVALID_VALUE,
+        QueryMapper.checkSearchParams(geo.add(GEORELATION, "inside"), false));
+    assertNull(QueryMapper.checkSearchParams(geo.set(GEORELATION, GEOREL_WITHIN), false));
+
+    assertEquals(INVALID_SYNTAX,
+        QueryMapper.checkSearchParams(MultiMap.caseInsensitiveMultiMap(), false));
+    assertNull(QueryMapper.checkSearchParams(MultiMap.caseInsensitiveMultiMap(), true));
+  }
+
+  @Test
+  @DisplayName("Query parameters to Json")
+  void map2JsonTest() {
+    MultiMap params = MultiMap.caseInsensitiveMultiMap()
+        .add(PROPERTY, "[tags, id]")
+        .add(VALUE, "[[aqm, pollution],[rs.iudx.io/aqm-bosch-climo]]")
+        .add(COORDINATES, "[[73.8,18.5],[73.9,18.4]]")
+        .add(GEOMETRY, BBOX)
+        .add(LIMIT, "10")
+        .add(Q_VALUE, "\"aqm*\"");
+
+    JsonObject json = QueryMapper.map2Json(params);
+
+    assertEquals(new JsonArray().add(TAGS).add(ID), json.getJsonArray(PROPERTY));
+    assertEquals(new JsonArray().add(new JsonArray().add("aqm").add("pollution"))
+        .add(new JsonArray().add("rs.iudx.io/aqm-bosch-climo")), json.getJsonArray(VALUE));
+    assertEquals(73.9, json.getJsonArray(COORDINATES).getJsonArray(1).getDouble(0));
+    assertEquals(10, json.getInteger(LIMIT));
+    assertEquals("aqm*", json.getString(Q_VALUE));
+    assertNull(QueryMapper.map2Json(MultiMap.caseInsensitiveMultiMap().add(Q_VALUE, "a;b")));
+  }
+}
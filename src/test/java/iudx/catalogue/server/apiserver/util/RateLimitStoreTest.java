@@ -0,0 +1,106 @@
+package iudx.catalogue.server.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class RateLimitStoreTest {
+
+  private static final long SECOND = 1000000000L;
+
+  @Test
+  @DisplayName("A bucket admits its capacity, then refills at its rate")
+  void bucketTest() {
+    RateLimitStore.Bucket bucket = new RateLimitStore.Bucket(5, 10);
+    long now = System.nanoTime();
+    for (int i = 4; i >= 0; i--) {
+      assertEquals(i, bucket.tryTake(now));
+    }
+    long wait = bucket.tryTake(now);
+    assertTrue(wait < 0 && -wait <= SECOND / 10);
+    assertEquals(SECOND / 2, bucket.untilFull(now), SECOND / 100);
+
+    /* A tenth of a second later, one token has been refilled */
+    assertEquals(0, bucket.tryTake(now + SECOND / 10));
+    assertTrue(bucket.tryTake(now + SECOND / 10) < 0);
+  }
+
+  @Test
+  @DisplayName("Requests admitted by the other nodes are taken out of the bucket")
+  void syncTest(Vertx vertx, VertxTestContext testContext) {
+    RateLimitStore node1 = new RateLimitStore(vertx, 10);
+    RateLimitStore node2 = new RateLimitStore(vertx, 10);
+    RateLimitStore.Bucket bucket1 = node1.bucket("search", "ip:10.0.0.1", 10, 1);
+    RateLimitStore.Bucket bucket2 = node2.bucket("search", "ip:10.0.0.1", 10, 1);
+    assertSame(bucket1, node1.bucket("search", "ip:10.0.0.1", 10, 1));
+
+    long now = System.nanoTime();
+    for (int i = 0; i < 6; i++) {
+      bucket1.tryTake(now);
+    }
+    bucket2.tryTake(now);
+
+    node1.sync()
+        .compose(synced -> node2.sync())
+        .compose(synced -> node1.sync())
+        .onComplete(testContext.succeeding(synced -> testContext.verify(() -> {
+          /* Both nodes see the 7 requests of the client, out of 10 */
+          long later = System.nanoTime();
+          assertTrue(bucket1.tryTake(later) <= 3);
+          assertTrue(bucket2.tryTake(later) <= 3);
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("A bucket created during a window isn't charged the requests admitted before")
+  void midWindowTest(Vertx vertx, VertxTestContext testContext) {
+    RateLimitStore node1 = new RateLimitStore(vertx, 10);
+    RateLimitStore node2 = new RateLimitStore(vertx, 10);
+    RateLimitStore.Bucket bucket1 = node1.bucket("search", "ip:10.0.0.1", 10, 1);
+    long now = System.nanoTime();
+    for (int i = 0; i < 6; i++) {
+      bucket1.tryTake(now);
+    }
+
+    node1.sync()
+        .compose(synced -> node2.sync())
+        .compose(synced -> {
+          RateLimitStore.Bucket bucket2 = node2.bucket("search", "ip:10.0.0.1", 10, 1);
+          bucket1.tryTake(System.nanoTime());
+          return node1.sync().compose(resynced -> node2.sync()).map(bucket2);
+        })
+        .onComplete(testContext.succeeding(bucket2 -> testContext.verify(() -> {
+          /* Only the request admitted since the bucket was created is taken out */
+          assertEquals(8, bucket2.tryTake(System.nanoTime()));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Only the tokens validated by the node are remembered, up to the maximum")
+  void validatedTest(Vertx vertx) {
+    RateLimitStore store = new RateLimitStore(vertx, 1);
+    store.validated("a");
+    store.validated("b");
+    assertTrue(store.isValidated("a"));
+    assertFalse(store.isValidated("b"));
+  }
+
+  @Test
+  @DisplayName("Past the maximum of clients, new clients share a bucket")
+  void overflowTest(Vertx vertx) {
+    RateLimitStore store = new RateLimitStore(vertx, 2);
+    store.bucket("search", "a", 10, 1);
+    store.bucket("search", "b", 10, 1);
+    assertSame(store.bucket("search", "c", 10, 1), store.bucket("search", "d", 10, 1));
+  }
+}
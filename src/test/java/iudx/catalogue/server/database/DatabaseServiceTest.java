@@ -181,6 +181,22 @@ public class DatabaseServiceTest {
     })));
   }
 
+  @Test
+  @Order(7)
+  @DisplayName("Update item with a stale version")
+  void updateStaleVersionItemTest(VertxTestContext testContext) {
+    JsonObject request = new JsonObject();
+    request.put(ITEM_TYPE, RESOURCE).put(ID,
+        "datakaveri.org/f7e044eee8122b5c87dce6e7ad64f3266afa41dc/rs.iudx.io/aqm-bosch-climo/aqm_test_3")
+        .put(IF_MATCH, "0.0");
+    dbService.updateItem(request, testContext.failing(response -> testContext.verify(() -> {
+      JsonObject conflict = new JsonObject(response.getMessage());
+      assertEquals(CONFLICT, conflict.getString(STATUS));
+      assertTrue(conflict.containsKey(VERSION));
+      testContext.completeNow();
+    })));
+  }
+
   @Test
   @DisplayName("Testing Geo-circle query")
   void searchGeoCircle(VertxTestContext testContext) {
@@ -406,6 +422,28 @@ public class DatabaseServiceTest {
     })));
   }
 
+  @Test
+  @DisplayName("Testing batch of search and count queries")
+  void batchSearchCount(VertxTestContext testContext) {
+    JsonObject geoCircle = new JsonObject().put(SEARCH_TYPE, SEARCH_TYPE_GEO)
+        .put(COORDINATES_KEY, new JsonArray().add(73.927285).add(18.502712)).put(MAX_DISTANCE, 5000)
+        .put(GEOMETRY, POINT).put(GEORELATION, GEOREL_WITHIN).put(GEOPROPERTY, LOCATION);
+    JsonArray request = new JsonArray()
+        .add(geoCircle.copy().put(METHOD, SEARCH_METHOD))
+        .add(geoCircle.copy().put(METHOD, COUNT_METHOD))
+        .add(new JsonObject().put(SEARCH_TYPE, RESPONSE_FILTER).put(METHOD, COUNT_METHOD)
+            .put("attrs", new JsonArray().add(ID)));
+
+    dbService.batchQuery(request, testContext.succeeding(response -> testContext.verify(() -> {
+      JsonArray results = response.getJsonArray(RESULT);
+      assertEquals(3, results.size());
+      assertEquals(2, results.getJsonObject(0).getJsonArray(RESULT).size());
+      assertEquals(2, results.getJsonObject(1).getInteger(TOTAL_HITS));
+      assertEquals(COUNT_UNSUPPORTED, results.getJsonObject(2).getString(DESCRIPTION));
+      testContext.completeNow();
+    })));
+  }
+
   @Test
   @DisplayName("Testing Complex (response filter + geo) with count")
   void countComplexI(VertxTestContext testContext) {
@@ -1119,4 +1157,71 @@ public class DatabaseServiceTest {
       });
     }));
   }
+
+  @Test
+  @DisplayName("Subtree status change with invalid itemStatus")
+  void updateSubtreeInvalidStatusTest(VertxTestContext testContext) {
+
+    JsonObject request = new JsonObject()
+        .put(ID, "datakaveri.org/f7e044eee8122b5c87dce6e7ad64f3266afa41dc/rs.iudx.io/aqm-bosch-climo")
+        .put(ITEM_STATUS_KEY, "DELETED");
+
+    dbService.updateSubtreeStatus(request, testContext.failing(response -> {
+      testContext.verify(() -> {
+        JsonObject result = new JsonObject(response.getMessage());
+        assertEquals(FAILED, result.getString(STATUS));
+        testContext.completeNow();
+      });
+    }));
+  }
+
+  @Test
+  @DisplayName("Subtree status change and the status of its job")
+  void updateSubtreeStatusTest(VertxTestContext testContext) {
+
+    JsonObject request = new JsonObject()
+        .put(ID, "datakaveri.org/f7e044eee8122b5c87dce6e7ad64f3266afa41dc/rs.iudx.io/aqm-bosch-climo")
+        .put(ITEM_STATUS_KEY, "ACTIVE");
+
+    dbService.updateSubtreeStatus(request, testContext.succeeding(response -> {
+      String jobId = response.getJsonArray(RESULTS).getJsonObject(0).getString(JOB_ID);
+      dbService.getJobStatus(new JsonObject().put(JOB_ID, jobId),
+          testContext.succeeding(status -> {
+            testContext.verify(() -> {
+              assertEquals(SUCCESS, status.getString(STATUS));
+              assertEquals(jobId,
+                  status.getJsonArray(RESULTS).getJsonObject(0).getString(JOB_ID));
+              testContext.completeNow();
+            });
+          }));
+    }));
+  }
+
+  @Test
+  @DisplayName("Status of a job which isn't a task id")
+  void getInvalidJobStatusTest(VertxTestContext testContext) {
+
+    JsonObject request = new JsonObject().put(JOB_ID, "_cat/indices");
+
+    dbService.getJobStatus(request, testContext.succeeding(response -> {
+      testContext.verify(() -> {
+        assertEquals(ERROR, response.getString(STATUS));
+        testContext.completeNow();
+      });
+    }));
+  }
+
+  @Test
+  @DisplayName("Status of a non existant job")
+  void getNonExistantJobStatusTest(VertxTestContext testContext) {
+
+    JsonObject request = new JsonObject().put(JOB_ID, "oTUltX4IQMOUUVeiohTt8A:12345678");
+
+    dbService.getJobStatus(request, testContext.succeeding(response -> {
+      testContext.verify(() -> {
+        assertEquals(ERROR, response.getString(STATUS));
+        testContext.completeNow();
+      });
+    }));
+  }
 }
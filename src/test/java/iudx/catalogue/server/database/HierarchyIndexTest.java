@@ -0,0 +1,94 @@
+package iudx.catalogue.server.database;
+
+import static iudx.catalogue.server.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.lang.reflect.Field;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class HierarchyIndexTest {
+
+  private static final String PROVIDER_ID = "datakaveri.org/f7e044eee8122b5c87dce6e7ad64f3266afa41dc";
+  private static final String SERVER_ID = PROVIDER_ID + "/rs.iudx.io";
+  private static final String GROUP_ID = SERVER_ID + "/aqm-bosch-climo";
+  private static final String RESOURCE_ID = GROUP_ID + "/aqm-1";
+
+  private HierarchyIndex hierarchyIndex;
+
+  private void put(JsonObject doc) {
+    hierarchyIndex.put(doc.getString(ID), HierarchyIndex.level(doc), HierarchyIndex.parent(doc),
+        doc.getString(INSTANCE));
+  }
+
+  @BeforeEach
+  void buildIndex() throws Exception {
+    hierarchyIndex = new HierarchyIndex(null);
+    put(new JsonObject().put(ID, PROVIDER_ID).put(TYPE, new JsonArray().add(ITEM_TYPE_PROVIDER)));
+    put(new JsonObject().put(ID, SERVER_ID).put(PROVIDER, PROVIDER_ID)
+        .put(TYPE, new JsonArray().add(ITEM_TYPE_RESOURCE_SERVER)));
+    put(new JsonObject().put(ID, GROUP_ID).put(PROVIDER, PROVIDER_ID).put(RESOURCE_SVR, SERVER_ID)
+        .put(TYPE, new JsonArray().add(ITEM_TYPE_RESOURCE_GROUP).add("iudx:EnvAQM")));
+    put(new JsonObject().put(ID, RESOURCE_ID).put(PROVIDER, PROVIDER_ID)
+        .put(RESOURCE_SVR, SERVER_ID).put(RESOURCE_GRP, GROUP_ID).put(INSTANCE, "pune")
+        .put(TYPE, new JsonArray().add(ITEM_TYPE_RESOURCE)));
+
+    /* The index is ready once loaded from the database */
+    Field ready = HierarchyIndex.class.getDeclaredField("ready");
+    ready.setAccessible(true);
+    ready.set(hierarchyIndex, true);
+  }
+
+  @Test
+  @DisplayName("Relationships of an item")
+  void relationshipTest() {
+    assertEquals(new JsonArray().add(RESOURCE_ID), hierarchyIndex.relationship(GROUP_ID, RESOURCE));
+    assertEquals(new JsonArray().add(GROUP_ID),
+        hierarchyIndex.relationship(RESOURCE_ID, RESOURCE_GRP));
+    assertEquals(new JsonArray().add(SERVER_ID),
+        hierarchyIndex.relationship(RESOURCE_ID, RESOURCE_SVR));
+    assertEquals(new JsonArray().add(PROVIDER_ID),
+        hierarchyIndex.relationship(RESOURCE_ID, PROVIDER));
+    assertEquals(new JsonArray(), hierarchyIndex.relationship(GROUP_ID + "/unknown", PROVIDER));
+    assertNull(hierarchyIndex.relationship(RESOURCE_ID, TYPE));
+  }
+
+  @Test
+  @DisplayName("Child items and subtrees")
+  void childrenTest() {
+    assertTrue(hierarchyIndex.hasResources(GROUP_ID));
+    assertFalse(hierarchyIndex.hasResources(RESOURCE_ID));
+    /* Only a resource group with resources can't be deleted */
+    assertFalse(hierarchyIndex.hasResources(PROVIDER_ID));
+    assertFalse(hierarchyIndex.hasResources(SERVER_ID));
+    assertEquals(4, hierarchyIndex.descendants(new JsonArray().add(PROVIDER_ID)).size());
+    assertEquals(2, hierarchyIndex.descendants(new JsonArray().add(GROUP_ID)).size());
+    assertNull(hierarchyIndex.descendants(new JsonArray().add(GROUP_ID + "/unknown")));
+
+    hierarchyIndex.remove(RESOURCE_ID);
+    assertFalse(hierarchyIndex.hasResources(GROUP_ID));
+    assertEquals(new JsonArray(), hierarchyIndex.relationship(GROUP_ID, RESOURCE));
+    assertEquals(3, hierarchyIndex.descendants(new JsonArray().add(PROVIDER_ID)).size());
+
+    /* A child written before its parent is linked once the parent is written */
+    hierarchyIndex.remove(GROUP_ID);
+    assertEquals(new JsonArray(), hierarchyIndex.relationship(RESOURCE_ID, RESOURCE_GRP));
+    hierarchyIndex.put(RESOURCE_ID, HierarchyIndex.LEVEL_RESOURCE, GROUP_ID);
+    hierarchyIndex.put(GROUP_ID, HierarchyIndex.LEVEL_RESOURCE_GROUP, SERVER_ID);
+    assertEquals(new JsonArray().add(PROVIDER_ID),
+        hierarchyIndex.relationship(RESOURCE_ID, PROVIDER));
+  }
+
+  @Test
+  @DisplayName("Instance of an item, its routing")
+  void instanceTest() {
+    assertEquals("pune", hierarchyIndex.instance(RESOURCE_ID));
+    assertEquals("", hierarchyIndex.instance(GROUP_ID));
+    assertNull(hierarchyIndex.instance(GROUP_ID + "/unknown"));
+  }
+}
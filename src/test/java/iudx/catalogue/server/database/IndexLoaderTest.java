@@ -0,0 +1,73 @@
+package iudx.catalogue.server.database;
+
+import static iudx.catalogue.server.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class IndexLoaderTest {
+
+  private static final String LOAD_QUERY = "{\"size\":$1}";
+
+  /* A page of ids, failing the first failures searches */
+  private static BiConsumer<String, Handler<AsyncResult<JsonObject>>> search(int failures,
+      AtomicInteger searches, String... ids) {
+    return (query, handler) -> {
+      if (searches.incrementAndGet() <= failures) {
+        handler.handle(Future.failedFuture("Elasticsearch unavailable"));
+        return;
+      }
+      JsonArray results = new JsonArray();
+      for (String id : ids) {
+        results.add(new JsonObject().put(ID, id));
+      }
+      handler.handle(Future.succeededFuture(new JsonObject().put(RESULTS, results)));
+    };
+  }
+
+  @Test
+  @DisplayName("A failed page is retried, the items written meanwhile are skipped")
+  void retryTest(Vertx vertx, VertxTestContext testContext) {
+    IndexLoader loader = new IndexLoader(vertx, "Test index", LOAD_QUERY, 10);
+    AtomicInteger searches = new AtomicInteger();
+    List<String> loaded = new ArrayList<String>();
+    vertx.runOnContext(v -> {
+      loader.start(search(3, searches, "a", "b"), doc -> loaded.add(doc.getString(ID)),
+          () -> testContext.verify(() -> {
+            assertEquals(4, searches.get());
+            assertEquals(Arrays.asList("a"), loaded);
+            testContext.completeNow();
+          }));
+      loader.written("b");
+    });
+  }
+
+  @Test
+  @DisplayName("The load is given up after the max attempts")
+  void giveUpTest(Vertx vertx, VertxTestContext testContext) {
+    IndexLoader loader = new IndexLoader(vertx, "Test index", LOAD_QUERY, 1);
+    AtomicInteger searches = new AtomicInteger();
+    vertx.runOnContext(v -> loader.start(search(IndexLoader.MAX_ATTEMPTS, searches, "a"),
+        doc -> testContext.failNow(new IllegalStateException("Loaded after giving up")),
+        () -> testContext.failNow(new IllegalStateException("Ready after giving up"))));
+    vertx.setTimer(500, id -> testContext.verify(() -> {
+      assertEquals(IndexLoader.MAX_ATTEMPTS, searches.get());
+      testContext.completeNow();
+    }));
+  }
+}
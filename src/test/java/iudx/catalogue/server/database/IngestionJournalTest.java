@@ -0,0 +1,101 @@
+package iudx.catalogue.server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import io.vertx.core.json.JsonObject;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IngestionJournalTest {
+
+  private static final int SEGMENT_SIZE = 4096;
+
+  @TempDir
+  Path dir;
+
+  private static JsonObject record(int i) {
+    return new JsonObject().put("doc", new JsonObject().put("id", "item-" + i));
+  }
+
+  @Test
+  @DisplayName("Records survive a reopen until checkpointed")
+  void recoveryTest() throws Exception {
+    try (IngestionJournal journal = new IngestionJournal(dir, SEGMENT_SIZE, 0)) {
+      for (int i = 1; i <= 3; i++) {
+        assertEquals(i, journal.append(record(i)));
+      }
+      List<IngestionJournal.Entry> entries = journal.read(2);
+      assertEquals(2, entries.size());
+      journal.checkpoint(entries.get(1));
+      assertEquals(1, journal.pending());
+    }
+
+    try (IngestionJournal journal = new IngestionJournal(dir, SEGMENT_SIZE, 0)) {
+      assertEquals(1, journal.pending());
+      assertEquals("item-3", journal.oldest().record.getJsonObject("doc").getString("id"));
+      assertEquals(4, journal.append(record(4)));
+      journal.checkpoint(journal.read(10).get(1));
+      assertEquals(0, journal.pending());
+      assertEquals(0, journal.pendingBytes());
+      assertNull(journal.oldest());
+    }
+  }
+
+  @Test
+  @DisplayName("Drained segments are deleted past the retained ones")
+  void segmentTest() throws Exception {
+    try (IngestionJournal journal = new IngestionJournal(dir, SEGMENT_SIZE, 1)) {
+      for (int i = 1; i <= 200; i++) {
+        journal.append(record(i));
+      }
+      List<IngestionJournal.Entry> entries = journal.read(200);
+      assertEquals(200, entries.size());
+      journal.checkpoint(entries.get(199));
+      assertEquals(0, journal.pending());
+      assertEquals(2, Files.list(dir).filter(p -> p.toString().endsWith(".log")).count());
+
+      /* The retained segment can be replayed */
+      List<IngestionJournal.Entry> replayed = journal.replay(0, 1000);
+      assertEquals(200, replayed.get(replayed.size() - 1).seq);
+    }
+    assertThrows(IllegalArgumentException.class, () -> {
+      try (IngestionJournal journal = new IngestionJournal(dir, SEGMENT_SIZE, 1)) {
+        journal.append(new JsonObject().put("doc", "x".repeat(SEGMENT_SIZE)));
+      }
+    });
+  }
+
+  @Test
+  @DisplayName("A corrupt record and the records after it are discarded")
+  void corruptRecordTest() throws Exception {
+    Path segment;
+    try (IngestionJournal journal = new IngestionJournal(dir, SEGMENT_SIZE, 0)) {
+      for (int i = 1; i <= 3; i++) {
+        journal.append(record(i));
+      }
+      segment = Files.list(dir).filter(p -> p.toString().endsWith(".log")).findFirst().get();
+    }
+
+    /* Flips a byte of the JSON of the second record */
+    int length = record(1).encode().length();
+    int pos = IngestionJournal.HEADER_SIZE + length + IngestionJournal.HEADER_SIZE + 2;
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {'#'}), pos);
+    }
+
+    try (IngestionJournal journal = new IngestionJournal(dir, SEGMENT_SIZE, 0)) {
+      assertEquals(1, journal.pending());
+      assertEquals(2, journal.append(record(2)));
+      assertEquals(2, journal.read(10).size());
+    }
+  }
+}
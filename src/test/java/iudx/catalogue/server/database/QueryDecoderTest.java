@@ -8,6 +8,7 @@ import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import io.vertx.reactivex.core.Vertx;
 import iudx.catalogue.server.Configuration;
+import iudx.catalogue.server.util.SearchType;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
@@ -198,9 +199,9 @@ public class QueryDecoderTest {
     assertEquals(
         "datakaveri.org/f7e044eee8122b5c87dce6e7ad64f3266afa41dc/rs."
             + "iudx.io/aqm-bosch-climo/Ambedkar society circle_29",
-        json.getJsonObject(QUERY_KEY).getJsonObject("bool").getJsonArray("must").getJsonObject(0)
-            .getJsonObject("bool").getJsonArray("should").getJsonObject(0).getJsonObject(MATCH_KEY)
-            .getString(ID_KEYWORD));
+        json.getJsonObject(QUERY_KEY).getJsonObject("bool").getJsonArray(FILTER).getJsonObject(0)
+            .getJsonObject(TERMS_KEY).getJsonArray(ID_KEYWORD).getString(0));
+    assertEquals(new JsonArray().add("_doc"), json.getJsonArray("sort"));
     testContext.completeNow();
   }
   
@@ -216,7 +217,7 @@ public class QueryDecoderTest {
     JsonObject json = queryDecoder.searchQuery(requests);
 
     assertEquals("pollution",
-        json.getJsonObject(QUERY_KEY).getJsonObject("bool").getJsonArray("must").getJsonObject(0)
+        json.getJsonObject(QUERY_KEY).getJsonObject("bool").getJsonArray(FILTER).getJsonObject(0)
             .getJsonObject("bool").getJsonArray("should").getJsonObject(0).getJsonObject(MATCH_KEY)
             .getString(TAGS));
     testContext.completeNow();
@@ -276,5 +277,100 @@ public class QueryDecoderTest {
     testContext.completeNow();
   }
 
+  @Test
+  @Order(12)
+  @DisplayName("Facet request to DbQuery")
+  public void facetAttributeTest(VertxTestContext testContext) {
+
+    JsonObject requests = new JsonObject().put(PROPERTY, new JsonArray().add(TAGS))
+        .put(VALUE, new JsonArray().add(new JsonArray().add("pollution")))
+        .put(FACETS, new JsonArray().add(PROVIDER).add(TYPE))
+        .put(SEARCH_TYPE, SEARCH_TYPE_ATTRIBUTE).put(SEARCH, false);
+
+    JsonObject json = queryDecoder.facetQuery(requests);
+
+    assertEquals(0, json.getInteger(SIZE_KEY));
+    assertEquals(PROVIDER + KEYWORD_KEY, json.getJsonObject(AGGREGATION_KEY)
+        .getJsonObject(PROVIDER).getJsonObject(TERMS_KEY).getString("field"));
+    assertEquals(TYPE + KEYWORD_KEY, json.getJsonObject(AGGREGATION_KEY)
+        .getJsonObject(TYPE).getJsonObject(TERMS_KEY).getString("field"));
+    assertEquals("pollution",
+        json.getJsonObject(QUERY_KEY).getJsonObject("bool").getJsonArray(FILTER).getJsonObject(0)
+            .getJsonObject("bool").getJsonArray("should").getJsonObject(0).getJsonObject(MATCH_KEY)
+            .getString(TAGS));
+    testContext.completeNow();
+  }
+
+  @Test
+  @Order(13)
+  @DisplayName("Bitmask searchType request to DbQuery")
+  public void searchTypeMaskTest(VertxTestContext testContext) {
 
+    JsonObject requests = new JsonObject().put(PROPERTY, new JsonArray().add(TAGS))
+        .put(VALUE, new JsonArray().add(new JsonArray().add("pollution")))
+        .put(Q_VALUE, "aqm")
+        .put(SEARCH_TYPE, SearchType.ATTRIBUTE.mask() | SearchType.TEXT.mask())
+        .put(SEARCH, true);
+
+    JsonObject json = queryDecoder.searchQuery(requests);
+
+    assertEquals(SearchType.of(new JsonObject()
+        .put(SEARCH_TYPE, SEARCH_TYPE_TEXT + SEARCH_TYPE_ATTRIBUTE)), SearchType.of(requests));
+    assertEquals(1, json.getJsonObject(QUERY_KEY).getJsonObject("bool")
+        .getJsonArray("must").size());
+    assertEquals(1, json.getJsonObject(QUERY_KEY).getJsonObject("bool")
+        .getJsonArray(FILTER).size());
+    assertEquals(null, json.getJsonArray("sort"));
+    testContext.completeNow();
+  }
+
+  @Test
+  @Order(14)
+  @DisplayName("Exact-match clauses in filter context")
+  public void filterContextTest(VertxTestContext testContext) {
+
+    JsonObject requests = new JsonObject()
+        .put(PROPERTY, new JsonArray().add(TYPE).add(PROVIDER))
+        .put(VALUE, new JsonArray().add(new JsonArray().add("iudx:Resource")
+            .add("iudx:ResourceGroup")).add(new JsonArray().add("datakaveri.org/provider")))
+        .put(INSTANCE, "pune")
+        .put(SEARCH_TYPE, SEARCH_TYPE_ATTRIBUTE)
+        .put(SEARCH, true);
+
+    QueryDecoder decoder = new QueryDecoder();
+    decoder.setTrackTotalHits(50000);
+    JsonObject json = decoder.searchQuery(requests);
+
+    JsonObject bool = json.getJsonObject(QUERY_KEY).getJsonObject("bool");
+    assertEquals(null, bool.getJsonArray("must"));
+    assertEquals(new JsonArray().add("iudx:Resource").add("iudx:ResourceGroup"),
+        bool.getJsonArray(FILTER).getJsonObject(0).getJsonObject(TERMS_KEY)
+            .getJsonArray(TYPE + KEYWORD_KEY));
+    assertEquals("pune", bool.getJsonArray(FILTER).getJsonObject(2).getJsonObject("term")
+        .getString("instance.keyword"));
+    assertEquals(50000, json.getInteger("track_total_hits"));
+
+    /* Counts aren't sorted */
+    json = decoder.searchQuery(requests.put(SEARCH, false));
+    assertEquals(null, json.getJsonArray("sort"));
+    assertEquals(null, json.getValue("track_total_hits"));
+    testContext.completeNow();
+  }
+
+  @Test
+  @Order(15)
+  @DisplayName("Facets over the catalogue, without search params or instance")
+  public void facetWithoutSearchTest(VertxTestContext testContext) {
+
+    JsonObject requests = new JsonObject().put(FACETS, new JsonArray().add(PROVIDER))
+        .put(INSTANCE, (String) null);
+
+    JsonObject json = new QueryDecoder().facetQuery(requests);
+
+    assertEquals(new JsonArray(), json.getJsonObject(QUERY_KEY).getJsonObject("bool")
+        .getJsonArray(FILTER));
+    assertEquals(PROVIDER + KEYWORD_KEY, json.getJsonObject(AGGREGATION_KEY)
+        .getJsonObject(PROVIDER).getJsonObject(TERMS_KEY).getString("field"));
+    testContext.completeNow();
+  }
 }
@@ -0,0 +1,66 @@
+package iudx.catalogue.server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.elasticsearch.client.Request;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class QueryStatsTest {
+
+  private static final String GEO_QUERY = "{\"query\":{\"geo_shape\":{\"location.geometry\":"
+      + "{\"shape\":{\"type\":\"%s\",\"coordinates\":[%s]}}}},\"size\":%d}";
+
+  @Test
+  @DisplayName("Queries differing only in literals have the same shape")
+  void shapeTest() {
+    String square = QueryStats.shape("POST", "cat/_search?filter_path=took,hits",
+        String.format(GEO_QUERY, "polygon", "[[1.0,2.0],[3.0,4.0],[5.0,6.0],[1.0,2.0]]", 10));
+    String hexagon = QueryStats.shape("POST", "cat/_search?filter_path=hits",
+        String.format(GEO_QUERY, "linestring",
+            "[[7,8],[9,10],[11,12],[13,14],[15,16],[17,18],[7,8]]", 500));
+    assertEquals(square, hexagon);
+    assertNotEquals(square, QueryStats.shape("POST", "cat/_count?filter_path=hits",
+        String.format(GEO_QUERY, "polygon", "[[1.0,2.0]]", 10)));
+    assertEquals("GET cat/_doc/?", QueryStats.shape("GET", "cat/_doc/iisc.ac.in%2Fitem", null));
+  }
+
+  @Test
+  @DisplayName("A latency falls within the bounds of its bucket")
+  void bucketTest() {
+    for (long micros : new long[] {0, 7, 8, 15, 16, 999, 1000, 123456, 1L << 34}) {
+      int bucket = QueryStats.bucket(micros);
+      assertTrue(micros <= QueryStats.upperBound(bucket));
+      assertTrue(bucket == 0 || micros > QueryStats.upperBound(bucket - 1));
+    }
+  }
+
+  @Test
+  @DisplayName("Shapes past the maximum are counted together")
+  void topTest() {
+    QueryStats stats = new QueryStats(new JsonObject().put(QueryStats.MAX_FINGERPRINTS, 1)
+        .put(QueryStats.SLOW_QUERY_SAMPLE_RATIO, 0.0));
+    for (int i = 0; i < 3; i++) {
+      stats.stop(stats.start(search("{\"query\":{\"match_all\":{}}}")), false);
+    }
+    stats.stop(stats.start(search("{\"query\":{\"term\":{\"id\":\"a\"}}}")), true);
+    stats.stop(stats.start(search("{\"size\":1}")), false);
+
+    JsonArray top = stats.top(10, QueryStats.BY_COUNT);
+    assertEquals(2, top.size());
+    assertEquals(3L, top.getJsonObject(0).getLong("count"));
+    assertEquals("overflow", top.getJsonObject(1).getString("fingerprint"));
+    assertEquals(2L, top.getJsonObject(1).getLong("count"));
+    assertEquals(1L, top.getJsonObject(1).getLong("errors"));
+    assertEquals(1, stats.top(1, "unknown").size());
+  }
+
+  private static Request search(String body) {
+    Request request = new Request("POST", "cat/_search?filter_path=took");
+    request.setJsonEntity(body);
+    return request;
+  }
+}
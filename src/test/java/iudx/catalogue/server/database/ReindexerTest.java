@@ -0,0 +1,286 @@
+package iudx.catalogue.server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Runs the reindex against a local Elasticsearch stand-in, which keeps the docs of its indices
+ * in maps and implements the few APIs used by the {@link Reindexer} and the write alias of the
+ * {@link ElasticClient}.
+ */
+@ExtendWith(VertxExtension.class)
+public class ReindexerTest {
+
+  private static final String READ_ALIAS = "cat";
+  private static final String WRITE_ALIAS = "cat-write";
+
+  /* Docs of every index by _id; indexes of every alias, with their is_write_index */
+  private final Map<String, Map<String, JsonObject>> indices = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, Boolean>> aliases = new ConcurrentHashMap<>();
+  /* External versions of the docs by index/_id; _meta of the mappings by index */
+  private final Map<String, Long> versions = new ConcurrentHashMap<>();
+  private final Map<String, JsonObject> metas = new ConcurrentHashMap<>();
+  private Runnable duringCopy = () -> { };
+  private HttpServer server;
+  private RestClient restClient;
+
+  @BeforeEach
+  void startStandIn(Vertx vertx, VertxTestContext testContext) {
+    server = vertx.createHttpServer()
+        .requestHandler(request -> request.bodyHandler(body -> handle(request, body)));
+    server.listen(0, testContext.succeeding(listening -> {
+      restClient = RestClient.builder(new HttpHost("localhost", listening.actualPort())).build();
+      testContext.completeNow();
+    }));
+  }
+
+  @AfterEach
+  void stopStandIn(VertxTestContext testContext) throws Exception {
+    restClient.close();
+    server.close(testContext.succeeding(closed -> testContext.completeNow()));
+  }
+
+  private static JsonObject doc(String id) {
+    return new JsonObject().put("id", id);
+  }
+
+  private void index(String name, String... ids) {
+    Map<String, JsonObject> docs = new ConcurrentHashMap<>();
+    for (String id : ids) {
+      docs.put(id, doc(id));
+    }
+    indices.put(name, docs);
+  }
+
+  private void alias(String alias, String index, Boolean isWriteIndex) {
+    aliases.computeIfAbsent(alias, name -> new ConcurrentHashMap<>())
+        .put(index, isWriteIndex == null ? Boolean.TRUE : isWriteIndex);
+  }
+
+  /* Index a name resolves to for a write */
+  private String resolve(String name) {
+    if (indices.containsKey(name) || !aliases.containsKey(name)) {
+      return name;
+    }
+    Map<String, Boolean> aliased = aliases.get(name);
+    return aliased.keySet().stream().filter(aliased::get).findFirst().get();
+  }
+
+  private void handle(HttpServerRequest request, Buffer body) {
+    String[] path = Arrays.stream(request.path().split("/")).filter(part -> !part.isEmpty())
+        .toArray(String[]::new);
+    String method = request.method().name();
+    JsonObject response = new JsonObject();
+    int status = 200;
+
+    if (path[0].equals("_alias")) {
+      Map<String, Boolean> aliased = aliases.get(path[1]);
+      if (aliased == null) {
+        status = 404;
+        response.put("error", "alias [" + path[1] + "] missing").put("status", 404);
+      } else {
+        aliased.forEach((index, isWriteIndex) -> response.put(index, new JsonObject()
+            .put("aliases", new JsonObject().put(path[1],
+                new JsonObject().put("is_write_index", isWriteIndex)))));
+      }
+    } else if (path[0].equals("_aliases")) {
+      for (Object item : body.toJsonObject().getJsonArray("actions")) {
+        JsonObject action = (JsonObject) item;
+        String type = action.fieldNames().iterator().next();
+        JsonObject target = action.getJsonObject(type);
+        if (type.equals("add")) {
+          alias(target.getString("alias"), target.getString("index"),
+              target.getBoolean("is_write_index"));
+        } else if (type.equals("remove")) {
+          aliases.get(target.getString("alias")).remove(target.getString("index"));
+          aliases.values().removeIf(Map::isEmpty);
+        } else {
+          indices.remove(target.getString("index"));
+          aliases.values().forEach(aliased -> aliased.remove(target.getString("index")));
+          aliases.values().removeIf(Map::isEmpty);
+        }
+      }
+    } else if (path[0].equals("_reindex")) {
+      JsonObject reindex = body.toJsonObject();
+      String source = reindex.getJsonObject("source").getString("index");
+      Map<String, JsonObject> snapshot = new HashMap<>(indices.get(resolve(source)));
+      duringCopy.run();
+      Map<String, JsonObject> dest = indices.get(reindex.getJsonObject("dest").getString("index"));
+      long created = snapshot.entrySet().stream()
+          .filter(entry -> dest.putIfAbsent(entry.getKey(), entry.getValue()) == null).count();
+      response.put("task", "node:" + snapshot.size() + ":" + created);
+    } else if (path[0].equals("_tasks")) {
+      String[] task = path[1].split(":");
+      long total = Long.parseLong(task[1]);
+      long created = Long.parseLong(task[2]);
+      response.put("completed", true)
+          .put("task", new JsonObject().put("running_time_in_nanos", 1000000000L)
+              .put("status", new JsonObject().put("total", total).put("created", created)
+                  .put("version_conflicts", total - created)))
+          .put("response", new JsonObject().put("failures", new JsonArray()));
+    } else if (path[0].equals("_search")) {
+      response.put("_scroll_id", "scroll")
+          .put("hits", new JsonObject().put("hits", new JsonArray()));
+    } else if (path.length == 1 && method.equals("PUT")) {
+      index(path[0]);
+    } else if (path[1].equals("_settings")) {
+      response.put(path[0], new JsonObject().put("settings",
+          new JsonObject().put("index", new JsonObject().put("number_of_shards", "1"))));
+    } else if (path[1].equals("_search")) {
+      Map<String, JsonObject> docs = indices.get(resolve(path[0]));
+      JsonObject query = body.toJsonObject().getJsonObject("query");
+      JsonArray hits = new JsonArray();
+      for (String id : docs.keySet()) {
+        if (query == null || query.getJsonObject("ids").getJsonArray("values").contains(id)) {
+          hits.add(new JsonObject().put("_id", id));
+        }
+      }
+      response.put("_scroll_id", "scroll").put("hits", new JsonObject().put("hits", hits));
+    } else if (path[1].equals("_bulk")) {
+      Map<String, JsonObject> docs = indices.get(resolve(path[0]));
+      String[] lines = body.toString().split("\n");
+      JsonArray items = new JsonArray();
+      for (int i = 0; i < lines.length; i++) {
+        JsonObject action = new JsonObject(lines[i]);
+        if (action.containsKey("delete")) {
+          docs.remove(action.getJsonObject("delete").getString("_id"));
+        } else {
+          String id = action.getJsonObject("create").getString("_id");
+          boolean created = docs.putIfAbsent(id, new JsonObject(lines[++i])) == null;
+          items.add(new JsonObject().put("create",
+              new JsonObject().put("_id", id).put("status", created ? 201 : 409)));
+        }
+      }
+      response.put("items", items);
+    } else if (path[1].equals("_mapping") && method.equals("PUT")) {
+      metas.put(path[0], body.toJsonObject().getJsonObject("_meta"));
+    } else if (path[1].equals("_mapping")) {
+      response.put(path[0], new JsonObject().put("mappings",
+          new JsonObject().put("_meta", metas.getOrDefault(path[0], new JsonObject()))));
+    } else if (path[1].equals("_create")) {
+      boolean created = indices.get(resolve(path[0]))
+          .putIfAbsent(path[2], body.toJsonObject()) == null;
+      status = created ? 201 : 409;
+      response.put("_id", path[2]).put("_version", 1).put("_seq_no", 0).put("_primary_term", 1);
+    } else if (path[1].equals("_doc") && method.equals("PUT")) {
+      /* An external version is only applied over an older one */
+      long version = Long.parseLong(request.getParam("version"));
+      String key = path[0] + "/" + path[2];
+      if (versions.getOrDefault(key, 0L) < version) {
+        versions.put(key, version);
+        indices.get(path[0]).put(path[2], body.toJsonObject());
+        response.put("_id", path[2]).put("_version", version);
+      } else {
+        status = 409;
+      }
+    } else if (path[1].equals("_doc") && method.equals("DELETE")) {
+      status = indices.get(resolve(path[0])).remove(path[2]) != null ? 200 : 404;
+      response.put("_id", path[2]);
+    }
+
+    request.response().setStatusCode(status).putHeader("Content-Type", "application/json")
+        .end(response.encode());
+  }
+
+  @Test
+  @DisplayName("Reindex copies the docs, mirrors the deletes and swaps the aliases")
+  void reindexTest() throws Exception {
+    index("cat-v1", "a", "b", "c");
+    alias(READ_ALIAS, "cat-v1", null);
+
+    /* A doc created and a doc deleted while the copy runs, both mirrored */
+    duringCopy = () -> {
+      assertEquals(Boolean.FALSE, aliases.get(WRITE_ALIAS).get("cat-v2"));
+      indices.get("cat-v1").put("d", doc("d"));
+      indices.get("cat-v2").put("d", doc("d"));
+      indices.get("cat-v1").remove("b");
+    };
+
+    String target = new Reindexer(restClient, 0, 0)
+        .reindex(READ_ALIAS, null, new JsonObject(), null, "auto", false);
+
+    assertEquals("cat-v2", target);
+    assertEquals(Set.of("a", "c", "d"), indices.get("cat-v2").keySet());
+    assertEquals(Map.of("cat-v2", true), aliases.get(READ_ALIAS));
+    assertEquals(Map.of("cat-v2", true), aliases.get(WRITE_ALIAS));
+    assertTrue(indices.containsKey("cat-v1"));
+  }
+
+  @Test
+  @DisplayName("First reindex replaces a concrete index by the aliases")
+  void concreteIndexTest() throws Exception {
+    index(READ_ALIAS, "a", "b");
+
+    String target = new Reindexer(restClient, 0, 0)
+        .reindex(READ_ALIAS, null, new JsonObject(), 2, "auto", false);
+
+    assertEquals("cat-v1", target);
+    assertFalse(indices.containsKey(READ_ALIAS));
+    assertEquals(Set.of("a", "b"), indices.get("cat-v1").keySet());
+    assertEquals(Map.of("cat-v1", true), aliases.get(READ_ALIAS));
+    assertEquals("cat-v3", Reindexer.nextIndex(READ_ALIAS, "cat-v2"));
+  }
+
+  @Test
+  @DisplayName("A reindex missing a mirrored write fails before the swap")
+  void mirrorFailedTest() {
+    index("cat-v1", "a");
+    alias(READ_ALIAS, "cat-v1", null);
+
+    /* A server gave up mirroring a write during the copy */
+    duringCopy = () -> metas.put("cat-v2", new JsonObject().put("mirrorFailed", true));
+
+    assertThrows(IOException.class, () -> new Reindexer(restClient, 0, 0)
+        .reindex(READ_ALIAS, null, new JsonObject(), null, "auto", false));
+    assertEquals(Map.of("cat-v1", true), aliases.get(READ_ALIAS));
+    assertEquals(Map.of("cat-v1", true), aliases.get(WRITE_ALIAS));
+  }
+
+  @Test
+  @DisplayName("Doc writes are mirrored to the index being built")
+  void mirrorTest(Vertx vertx, VertxTestContext testContext) {
+    index("cat-v1");
+    index("cat-v2");
+    alias(READ_ALIAS, "cat-v1", null);
+    alias(WRITE_ALIAS, "cat-v1", true);
+    alias(WRITE_ALIAS, "cat-v2", false);
+
+    ElasticClient client = new ElasticClient("localhost", server.actualPort(), READ_ALIAS,
+        "user", "password");
+    client.refreshAliasesAsync(testContext.succeeding(resolved -> {
+      assertEquals(WRITE_ALIAS, resolved.getString("writeIndex"));
+      assertEquals("cat-v2", resolved.getString("shadowIndex"));
+      client.docCreateAsync("e", doc("e").encode(), testContext.succeeding(created -> {
+        vertx.setTimer(500, timer -> testContext.verify(() -> {
+          assertTrue(indices.get("cat-v1").containsKey("e"));
+          assertTrue(indices.get("cat-v2").containsKey("e"));
+          assertEquals(1L, versions.get("cat-v2/e"));
+          testContext.completeNow();
+        }));
+      }));
+    }));
+  }
+}
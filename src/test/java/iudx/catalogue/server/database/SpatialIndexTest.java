@@ -0,0 +1,112 @@
+package iudx.catalogue.server.database;
+
+import static iudx.catalogue.server.database.Constants.*;
+import static iudx.catalogue.server.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.lang.reflect.Field;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class SpatialIndexTest {
+
+  private static SpatialIndex spatialIndex;
+
+  private static JsonObject point(double lon, double lat) {
+    return new JsonObject().put(TYPE_KEY, POINT)
+        .put(COORDINATES_KEY, new JsonArray().add(lon).add(lat));
+  }
+
+  @BeforeAll
+  @DisplayName("Building the index")
+  static void buildIndex(Vertx vertx, VertxTestContext testContext) throws Exception {
+    spatialIndex = new SpatialIndex(vertx, 0.05);
+    spatialIndex.put("pune/aqm-1", point(73.927, 18.502));
+    spatialIndex.put("pune/aqm-2", point(73.93, 18.51));
+    spatialIndex.put("pune/aqm-3", point(73.85, 18.52));
+    spatialIndex.put("surat/aqm-1", point(72.83, 21.17));
+
+    /* The index is ready once loaded from the database */
+    Field ready = SpatialIndex.class.getDeclaredField("ready");
+    ready.setAccessible(true);
+    ready.set(spatialIndex, true);
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("Circle search")
+  void circleSearch(VertxTestContext testContext) {
+    JsonObject request = new JsonObject().put(GEOMETRY, POINT).put(GEORELATION, GEOREL_WITHIN)
+        .put(GEOPROPERTY, LOCATION).put(MAX_DISTANCE, 2000)
+        .put(COORDINATES_KEY, new JsonArray().add(73.927).add(18.502));
+
+    assertEquals(2, spatialIndex.search(request).size());
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("Bbox and polygon search")
+  void bboxPolygonSearch(VertxTestContext testContext) {
+    JsonObject bbox = new JsonObject().put(GEOMETRY, BBOX).put(GEORELATION, GEOREL_WITHIN)
+        .put(GEOPROPERTY, LOCATION).put(COORDINATES_KEY, new JsonArray()
+            .add(new JsonArray().add(73.8).add(18.6)).add(new JsonArray().add(74).add(18.4)));
+    JsonObject polygon = new JsonObject().put(GEOMETRY, POLYGON).put(GEORELATION, GEOREL_WITHIN)
+        .put(GEOPROPERTY, LOCATION).put(COORDINATES_KEY, new JsonArray().add(new JsonArray()
+            .add(new JsonArray().add(73.92).add(18.5)).add(new JsonArray().add(73.93).add(18.5))
+            .add(new JsonArray().add(73.93).add(18.505)).add(new JsonArray().add(73.92).add(18.505))
+            .add(new JsonArray().add(73.92).add(18.5))));
+
+    assertEquals(3, spatialIndex.search(bbox).size());
+    assertEquals(new JsonArray().add("pune/aqm-1"), spatialIndex.search(polygon));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("Searches not served by the index")
+  void fallbackSearch(VertxTestContext testContext) {
+    JsonObject disjoint = new JsonObject().put(GEOMETRY, POINT).put(GEORELATION, GEOREL_DISJOINT)
+        .put(GEOPROPERTY, LOCATION).put(MAX_DISTANCE, 2000)
+        .put(COORDINATES_KEY, new JsonArray().add(73.927).add(18.502));
+    assertNull(spatialIndex.search(disjoint));
+
+    spatialIndex.put("pune", new JsonObject().put(TYPE_KEY, POLYGON).put(COORDINATES_KEY,
+        new JsonArray().add(new JsonArray().add(new JsonArray().add(73.7).add(18.4))
+            .add(new JsonArray().add(74.1).add(18.4)).add(new JsonArray().add(74.1).add(18.7))
+            .add(new JsonArray().add(73.7).add(18.4)))));
+    JsonObject circle = disjoint.copy().put(GEORELATION, GEOREL_WITHIN);
+    assertNull(spatialIndex.search(circle));
+
+    spatialIndex.remove("pune");
+    assertEquals(2, spatialIndex.search(circle).size());
+
+    /* Shapes away from the search, registered in cells or as wide shapes, are skipped */
+    spatialIndex.put("surat", new JsonObject().put(TYPE_KEY, POLYGON).put(COORDINATES_KEY,
+        new JsonArray().add(new JsonArray().add(new JsonArray().add(72.7).add(21.1))
+            .add(new JsonArray().add(72.9).add(21.1)).add(new JsonArray().add(72.9).add(21.3))
+            .add(new JsonArray().add(72.7).add(21.1)))));
+    spatialIndex.put("north", new JsonObject().put(TYPE_KEY, POLYGON).put(COORDINATES_KEY,
+        new JsonArray().add(new JsonArray().add(new JsonArray().add(70.0).add(25.0))
+            .add(new JsonArray().add(80.0).add(25.0)).add(new JsonArray().add(80.0).add(30.0))
+            .add(new JsonArray().add(70.0).add(25.0)))));
+    assertEquals(2, spatialIndex.search(circle).size());
+    spatialIndex.put("india", new JsonObject().put(TYPE_KEY, POLYGON).put(COORDINATES_KEY,
+        new JsonArray().add(new JsonArray().add(new JsonArray().add(68.0).add(8.0))
+            .add(new JsonArray().add(97.0).add(8.0)).add(new JsonArray().add(97.0).add(37.0))
+            .add(new JsonArray().add(68.0).add(8.0)))));
+    assertNull(spatialIndex.search(circle));
+
+    spatialIndex.remove("surat");
+    spatialIndex.remove("north");
+    spatialIndex.remove("india");
+    assertEquals(2, spatialIndex.search(circle).size());
+    testContext.completeNow();
+  }
+}
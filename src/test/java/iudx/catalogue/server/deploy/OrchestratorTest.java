@@ -0,0 +1,104 @@
+package iudx.catalogue.server.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class OrchestratorTest {
+
+  private static final List<String> STARTED = new CopyOnWriteArrayList<String>();
+  private static final String SLOW = Slow.class.getName();
+  private static final String FAST = Fast.class.getName();
+  private static final String DEPENDENT = Dependent.class.getName();
+
+  public static class Slow extends AbstractVerticle {
+    @Override
+    public void start(Promise<Void> promise) {
+      vertx.setTimer(100, id -> {
+        STARTED.add("slow");
+        promise.complete();
+      });
+    }
+  }
+
+  public static class Fast extends AbstractVerticle {
+    @Override
+    public void start() {
+      STARTED.add("fast");
+    }
+  }
+
+  public static class Dependent extends AbstractVerticle {
+    @Override
+    public void start() {
+      STARTED.add("dependent");
+    }
+  }
+
+  @BeforeEach
+  void clear() {
+    STARTED.clear();
+  }
+
+  private static JsonObject module(String id, String... dependsOn) {
+    return new JsonObject().put(Orchestrator.ID, id)
+        .put(Orchestrator.DEPENDS_ON, new JsonArray(Arrays.asList((Object[]) dependsOn)));
+  }
+
+  @Test
+  @DisplayName("Independent modules start together, a dependent one after its dependencies")
+  void deployTest(Vertx vertx, VertxTestContext testContext) {
+    JsonObject configuration = new JsonObject().put(Orchestrator.MODULES, new JsonArray()
+        .add(module(DEPENDENT, SLOW, "iudx.catalogue.server.database.DatabaseVerticle"))
+        .add(module(SLOW))
+        .add(module(FAST)));
+    Orchestrator.deploy(vertx, configuration).onComplete(testContext.succeeding(deployed ->
+        testContext.verify(() -> {
+          assertEquals(Arrays.asList("fast", "slow", "dependent"), STARTED);
+          assertEquals(3, vertx.deploymentIDs().size());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Without any dependsOn, modules start one after the other in the listed order")
+  void sequentialTest(Vertx vertx, VertxTestContext testContext) {
+    JsonObject configuration = new JsonObject().put(Orchestrator.MODULES, new JsonArray()
+        .add(new JsonObject().put(Orchestrator.ID, SLOW))
+        .add(new JsonObject().put(Orchestrator.ID, FAST)));
+    Orchestrator.deploy(vertx, configuration).onComplete(testContext.succeeding(deployed ->
+        testContext.verify(() -> {
+          assertEquals(Arrays.asList("slow", "fast"), STARTED);
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Cyclic dependencies deploy nothing")
+  void cycleTest(Vertx vertx, VertxTestContext testContext) {
+    JsonObject configuration = new JsonObject().put(Orchestrator.MODULES, new JsonArray()
+        .add(module(FAST))
+        .add(module(SLOW, DEPENDENT))
+        .add(module(DEPENDENT, SLOW)));
+    Orchestrator.deploy(vertx, configuration).onComplete(testContext.failing(cause ->
+        testContext.verify(() -> {
+          assertTrue(cause instanceof IllegalArgumentException);
+          assertTrue(STARTED.isEmpty());
+          testContext.completeNow();
+        })));
+  }
+}
@@ -0,0 +1,85 @@
+package iudx.catalogue.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+
+  private static CircuitBreaker breaker(long resetTimeout, int maxConcurrent) {
+    return new CircuitBreaker("test", new JsonObject()
+        .put(CircuitBreaker.FAILURE_THRESHOLD, 3)
+        .put(CircuitBreaker.RESET_TIMEOUT, resetTimeout)
+        .put(CircuitBreaker.MAX_CONCURRENT, maxConcurrent));
+  }
+
+  @Test
+  @DisplayName("The circuit opens after consecutive failures and rejects the calls")
+  void openTest() {
+    CircuitBreaker breaker = breaker(60000, 10);
+    for (int i = 0; i < 2; i++) {
+      assertTrue(breaker.tryAcquire());
+      breaker.release(true);
+    }
+    assertTrue(breaker.tryAcquire());
+    breaker.release(false);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(breaker.tryAcquire());
+      breaker.release(true);
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertFalse(breaker.isAvailable());
+    assertFalse(breaker.tryAcquire());
+
+    Future<String> rejected = breaker.execute(promise -> promise.complete("called"));
+    assertTrue(rejected.failed());
+    assertEquals(breaker.unavailable(), rejected.cause().getMessage());
+  }
+
+  @Test
+  @DisplayName("A single trial call closes or reopens the circuit")
+  void halfOpenTest() {
+    CircuitBreaker breaker = breaker(0, 10);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(breaker.tryAcquire());
+      breaker.release(true);
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+    /* Trial fails, opens again */
+    assertTrue(breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    assertFalse(breaker.tryAcquire());
+    breaker.release(true);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+    /* Trial succeeds, closes */
+    Future<String> trial = breaker.execute(promise -> promise.complete("called"));
+    assertTrue(trial.succeeded());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(0, breaker.active());
+  }
+
+  @Test
+  @DisplayName("The bulkhead rejects the calls beyond the concurrency limit")
+  void bulkheadTest() {
+    CircuitBreaker breaker = breaker(60000, 2);
+    assertTrue(breaker.tryAcquire());
+    assertTrue(breaker.tryAcquire());
+    assertFalse(breaker.tryAcquire());
+    assertEquals(2, breaker.active());
+
+    breaker.release(false);
+    assertTrue(breaker.tryAcquire());
+    breaker.release(false);
+    breaker.release(false);
+    assertEquals(0, breaker.active());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+}
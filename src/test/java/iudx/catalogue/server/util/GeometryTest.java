@@ -0,0 +1,32 @@
+package iudx.catalogue.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class GeometryTest {
+
+  private static boolean scaleCheck(double value) {
+    int scale = BigDecimal.valueOf(value).scale();
+    return scale >= 0 && scale <= Constants.COORDINATES_PRECISION;
+  }
+
+  @Test
+  @DisplayName("The precision check accepts what the scale of a BigDecimal does")
+  void isPreciseTest() {
+    double[] values = {0.0, -0.0, 1e-3, 9.99e-4, 6e-6, 0.001234, 0.1, 0.7, 77.5946, -179.999999,
+        180, 180.0000001, 1e7, 12345678.1, 123456789.123456, 1e20};
+    for (double value : values) {
+      assertEquals(scaleCheck(value), Geometry.isPrecise(value), Double.toString(value));
+    }
+    Random random = new Random(7);
+    for (int i = 0; i < 100000; i++) {
+      double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 4);
+      double rounded = Math.round(value * 1e6) / 1e6;
+      assertEquals(scaleCheck(value), Geometry.isPrecise(value), Double.toString(value));
+      assertEquals(scaleCheck(rounded), Geometry.isPrecise(rounded), Double.toString(rounded));
+    }
+  }
+}
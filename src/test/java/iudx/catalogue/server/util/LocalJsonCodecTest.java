@@ -0,0 +1,100 @@
+package iudx.catalogue.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.impl.codecs.JsonObjectMessageCodec;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.lang.management.ManagementFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class LocalJsonCodecTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(LocalJsonCodecTest.class);
+  private static final int DELIVERIES = 1000;
+
+  /* A search result of a page of items */
+  private static JsonObject searchResult() {
+    JsonArray results = new JsonArray();
+    for (int i = 0; i < 100; i++) {
+      results.add(new JsonObject().put("id", "datakaveri.org/provider/rs.iudx.io/group/item-" + i)
+          .put("type", new JsonArray().add("iudx:Resource"))
+          .put("tags", new JsonArray().add("aqm").add("pollution").add("climate"))
+          .put("location", new JsonObject().put("geometry", new JsonObject()
+              .put("type", "Point").put("coordinates", new JsonArray().add(73.8).add(18.5)))));
+    }
+    return new JsonObject().put("status", "success").put("totalHits", 100)
+        .put("results", results);
+  }
+
+  @Test
+  @DisplayName("Requests and replies are passed by reference")
+  void referenceTest(Vertx vertx, VertxTestContext testContext) {
+    LocalJsonCodec.register(vertx);
+    LocalJsonCodec.register(vertx);
+
+    JsonObject request = new JsonObject().put("q", "aqm");
+    JsonObject reply = searchResult();
+    vertx.eventBus().<JsonObject>consumer("local-json-test", message -> {
+      testContext.verify(() -> assertSame(request, message.body()));
+      LocalJsonCodec.replyByReference(message).reply(reply);
+    });
+    vertx.eventBus().<JsonObject>request("local-json-test", request,
+        LocalJsonCodec.deliveryOptions(), testContext.succeeding(message -> {
+          testContext.verify(() -> assertSame(reply, message.body()));
+          testContext.completeNow();
+        }));
+  }
+
+  @Test
+  @DisplayName("Messages to other nodes are encoded as JSON")
+  void wireTest() {
+    JsonObject result = searchResult();
+    Buffer buffer = Buffer.buffer();
+    new LocalJsonCodec().encodeToWire(buffer, result);
+    assertEquals(result, new JsonObjectMessageCodec().decodeFromWire(0, buffer));
+    assertEquals(result, new LocalJsonCodec().decodeFromWire(0, buffer));
+  }
+
+  @Test
+  @DisplayName("Allocation of the local delivery of a search result")
+  void allocationTest() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    JsonObject result = searchResult();
+    JsonObjectMessageCodec defaultCodec = new JsonObjectMessageCodec();
+    LocalJsonCodec localCodec = new LocalJsonCodec();
+
+    /* Warm up the code paths and the allocation counter */
+    for (int i = 0; i < DELIVERIES; i++) {
+      defaultCodec.transform(result);
+      localCodec.transform(result);
+    }
+
+    /* Reported only, the figures depend on the JVM; a GC profiler or JMH gives exact ones */
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < DELIVERIES; i++) {
+      defaultCodec.transform(result);
+    }
+    long copied = (threads.getThreadAllocatedBytes(thread) - before) / DELIVERIES;
+
+    before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < DELIVERIES; i++) {
+      localCodec.transform(result);
+    }
+    long referenced = (threads.getThreadAllocatedBytes(thread) - before) / DELIVERIES;
+
+    LOGGER.info("Info: Bytes allocated per delivery of a search result of 100 items; default "
+        + "codec " + copied + ", local codec " + referenced);
+  }
+}
@@ -0,0 +1,67 @@
+package iudx.catalogue.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class LogLevelsTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(LogLevelsTest.class);
+
+  @Test
+  @DisplayName("A debug event is only built for a sampled request")
+  void filterTest() {
+    String logLevel = System.getenv("LOG_LEVEL");
+    assumeTrue(logLevel == null || Level.toLevel(logLevel).isMoreSpecificThan(Level.INFO));
+    AtomicInteger formatted = new AtomicInteger();
+    Object argument = new Object() {
+      @Override
+      public String toString() {
+        formatted.incrementAndGet();
+        return "argument";
+      }
+    };
+
+    LOGGER.debug("Info: Not sampled;{}", argument);
+    assertEquals(0, formatted.get());
+    LogLevels.run("DEBUG", () -> LOGGER.debug("Info: Sampled;{}", argument));
+    assertEquals(1, formatted.get());
+  }
+
+  @Test
+  @DisplayName("The level of the thread is restored after an action")
+  void runTest() {
+    LogLevels.run("WARN", () -> {
+      assertEquals("WARN", LogLevels.current());
+      LogLevels.run("DEBUG", () -> assertEquals("DEBUG", LogLevels.current()));
+      assertEquals("WARN", LogLevels.current());
+    });
+    assertNull(LogLevels.current());
+  }
+
+  @Test
+  @DisplayName("The level goes over the event bus with a request")
+  void eventBusTest(Vertx vertx, VertxTestContext testContext) {
+    LogLevels.shared(vertx);
+    vertx.eventBus().<JsonObject>consumer("log-levels-test",
+        message -> message.reply(new JsonObject().put("level", LogLevels.current())));
+
+    LogLevels.run("DEBUG", () -> vertx.eventBus().<JsonObject>request("log-levels-test",
+        new JsonObject(), testContext.succeeding(reply -> testContext.verify(() -> {
+          assertEquals("DEBUG", reply.body().getString("level"));
+          testContext.completeNow();
+        }))));
+  }
+}
@@ -0,0 +1,85 @@
+package iudx.catalogue.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class ServiceLocalityTest {
+
+  private static final String ADDRESS = "locality-test";
+
+  /* A service as generated by the service proxies */
+  public interface EchoService {
+    EchoService echo(JsonObject request, Handler<AsyncResult<JsonObject>> handler);
+  }
+
+  private static EchoService proxy(Vertx vertx, String address) {
+    return new EchoService() {
+      @Override
+      public EchoService echo(JsonObject request, Handler<AsyncResult<JsonObject>> handler) {
+        vertx.eventBus().<JsonObject>request(address, request, reply -> handler.handle(
+            reply.succeeded() ? Future.succeededFuture(reply.result().body())
+                              : Future.failedFuture(reply.cause())));
+        return this;
+      }
+    };
+  }
+
+  @Test
+  @DisplayName("Calls go to the service of the node, else to the cluster")
+  void localityTest(Vertx vertx, VertxTestContext testContext) {
+    EchoService service = ServiceLocality.createProxy(vertx, EchoService.class, ADDRESS,
+        address -> proxy(vertx, address));
+
+    /* Only a cluster-wide consumer, as a service of another node */
+    MessageConsumer<JsonObject> remote = vertx.eventBus().<JsonObject>consumer(ADDRESS,
+        message -> message.reply(new JsonObject().put("address", message.address())));
+    assertFalse(ServiceLocality.isLocal(vertx, ADDRESS));
+
+    service.echo(new JsonObject(), testContext.succeeding(clusterReply -> {
+      testContext.verify(() -> assertEquals(ADDRESS, clusterReply.getString("address")));
+      remote.unregister();
+
+      List<MessageConsumer<JsonObject>> consumers = ServiceLocality.register(vertx, ADDRESS,
+          message -> message.reply(new JsonObject().put("address", message.address())));
+      testContext.verify(() -> assertTrue(ServiceLocality.isLocal(vertx, ADDRESS)));
+      service.echo(new JsonObject(), testContext.succeeding(localReply -> {
+        testContext.verify(() -> assertEquals(ServiceLocality.localAddress(ADDRESS),
+            localReply.getString("address")));
+        ServiceLocality.unregister(vertx, ADDRESS, consumers);
+        testContext.verify(() -> assertFalse(ServiceLocality.isLocal(vertx, ADDRESS)));
+        testContext.completeNow();
+      }));
+    }));
+  }
+
+  @Test
+  @DisplayName("A call fails over to the cluster when the local service has gone away")
+  void failoverTest(Vertx vertx, VertxTestContext testContext) {
+    EchoService service = ServiceLocality.createProxy(vertx, EchoService.class, ADDRESS,
+        address -> proxy(vertx, address));
+
+    List<MessageConsumer<JsonObject>> consumers = ServiceLocality.register(vertx, ADDRESS,
+        message -> message.reply(new JsonObject().put("address", message.address())));
+    consumers.get(1).unregister();
+
+    service.echo(new JsonObject(), testContext.succeeding(reply -> {
+      testContext.verify(() -> assertEquals(ADDRESS, reply.getString("address")));
+      ServiceLocality.unregister(vertx, ADDRESS, consumers);
+      testContext.completeNow();
+    }));
+  }
+}
@@ -0,0 +1,32 @@
+package iudx.catalogue.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class StageTimerTest {
+
+  @Test
+  @DisplayName("Search types are labelled in a fixed order")
+  void labelTest() {
+    assertEquals("none", SearchType.label(0));
+    assertEquals("geo", SearchType.label(SearchType.GEO.mask()));
+    assertEquals("geo+text+response_filter", SearchType.label(SearchType.of(
+        new JsonObject().put(Constants.SEARCH_TYPE, "responseFilter_textSearch_geoSearch_"))));
+  }
+
+  @Test
+  @DisplayName("The result is handled as is, without a metrics registry")
+  void stoppingTest() {
+    AtomicReference<AsyncResult<String>> handled = new AtomicReference<AsyncResult<String>>();
+    StageTimer.start(StageTimer.DB_SEARCH).item(new JsonObject().put(Constants.TYPE, "bad"))
+        .<String>stopping(handled::set).handle(Future.failedFuture("fail"));
+    assertTrue(handled.get().failed());
+    assertEquals("fail", handled.get().cause().getMessage());
+  }
+}
@@ -0,0 +1,75 @@
+package iudx.catalogue.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class TracingTest {
+
+  private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+  private static final String TRACEPARENT = "00-" + TRACE_ID + "-b7ad6b7169203331-01";
+
+  @AfterEach
+  void reset() {
+    Tracing.reset();
+  }
+
+  @Test
+  @DisplayName("Only valid traceparent headers are continued")
+  void parseTest() {
+    assertArrayEquals(new String[] {TRACE_ID, "b7ad6b7169203331", "01"},
+        Tracing.parse(TRACEPARENT));
+    assertArrayEquals(new String[] {TRACE_ID, "b7ad6b7169203331", "00"},
+        Tracing.parse("00-" + TRACE_ID + "-b7ad6b7169203331-02"));
+    assertNull(Tracing.parse(null));
+    assertNull(Tracing.parse("ff-" + TRACE_ID + "-b7ad6b7169203331-01"));
+    assertNull(Tracing.parse("00-" + TRACE_ID.toUpperCase() + "-b7ad6b7169203331-01"));
+    assertNull(Tracing.parse("00-00000000000000000000000000000000-b7ad6b7169203331-01"));
+    assertNull(Tracing.parse("00-" + TRACE_ID + "-0000000000000000-01"));
+  }
+
+  @Test
+  @DisplayName("The trace goes over the event bus, and comes back with the reply")
+  void eventBusTest(Vertx vertx, VertxTestContext testContext) {
+    Tracing.shared(vertx, new JsonObject().put(Tracing.SAMPLE_RATIO, 1.0));
+    vertx.eventBus().<JsonObject>consumer("tracing-test", message -> {
+      Tracing.Span current = Tracing.current();
+      message.reply(new JsonObject()
+          .put("sent", message.headers().get(Tracing.TRACEPARENT))
+          .put("current", current == null ? null : current.traceparent()));
+    });
+
+    Tracing.Span span = Tracing.startServer("test", TRACEPARENT, null, true);
+    Tracing.run(span, () -> vertx.eventBus().<JsonObject>request("tracing-test",
+        new JsonObject(), testContext.succeeding(reply -> testContext.verify(() -> {
+          String sent = reply.body().getString("sent");
+          assertTrue(sent.startsWith("00-" + TRACE_ID + "-"));
+          assertNotEquals(span.traceparent(), sent);
+          assertTrue(reply.body().getString("current").startsWith("00-" + TRACE_ID + "-"));
+          assertSame(span, Tracing.current());
+          testContext.completeNow();
+        }))));
+  }
+
+  @Test
+  @DisplayName("An untrusted client doesn't decide the sampling")
+  void samplingTest(Vertx vertx) {
+    Tracing.shared(vertx, new JsonObject().put(Tracing.SAMPLE_RATIO, 0.0));
+    assertTrue(Tracing.startServer("test", TRACEPARENT, null, true).isRecording());
+    Tracing.Span span = Tracing.startServer("test", TRACEPARENT, null, false);
+    assertFalse(span.isRecording());
+    assertTrue(span.traceparent().startsWith("00-" + TRACE_ID + "-"));
+  }
+}
@@ -222,4 +222,46 @@ public class ValidatorServiceTest {
       testContext.completeNow();
     })));
   }
+
+  @Test
+  @Order(10)
+  @DisplayName("Valid merge patch")
+  void validPatchTest(VertxTestContext testContext) {
+
+    JsonObject patch = new JsonObject()
+        .put("tags", new JsonArray().add("aqm").add("pollution"))
+        .put("label", (String) null)
+        .put("itemStatus", "INACTIVE");
+
+    validator.validatePatch(patch, testContext.succeeding(response -> testContext.verify(() -> {
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  @Order(11)
+  @DisplayName("Invalid merge patch, relationship link")
+  void invalidPatchTest(VertxTestContext testContext) {
+
+    JsonObject patch = new JsonObject()
+        .put("tags", new JsonArray().add("aqm"))
+        .put("resourceGroup",
+            "datakaveri.org/f7e044eee8122b5c87dce6e7ad64f3266afa41dc/rs.iudx.io/aqm-bosch-climo");
+
+    validator.validatePatch(patch, testContext.failing(response -> testContext.verify(() -> {
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  @Order(12)
+  @DisplayName("Invalid merge patch, descriptor not an object")
+  void invalidDescriptorPatchTest(VertxTestContext testContext) {
+
+    JsonObject patch = new JsonObject().put("descriptor", "aqm");
+
+    validator.validatePatch(patch, testContext.failing(response -> testContext.verify(() -> {
+      testContext.completeNow();
+    })));
+  }
 }